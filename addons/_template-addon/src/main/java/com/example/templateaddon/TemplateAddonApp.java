@@ -81,15 +81,8 @@ public class TemplateAddonApp {
         String contextPath = sanitize(baseUrl);
         EmbeddedServer server = new EmbeddedServer(servlet, contextPath);
         if (jwtVerifier != null) {
-            JwtVerifier finalJwtVerifier = jwtVerifier;
-            server.addFilter(new WorkspaceContextFilter(jwt -> {
-                try {
-                    JwtVerifier.DecodedJwt decoded = finalJwtVerifier.verify(jwt);
-                    return decoded.payload();
-                } catch (Exception e) {
-                    return null;
-                }
-            }));
+            server.verifyCsrfTokensWith(jwtVerifier);
+            server.addFilter(WorkspaceContextFilter.forVerifier(jwtVerifier));
             server.addFilter(new ScopedPlatformAuthFilter(
                     new PlatformAuthFilter(jwtVerifier),
                     Set.of("/status", "/metrics"),
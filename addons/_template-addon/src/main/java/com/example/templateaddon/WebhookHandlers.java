@@ -3,14 +3,13 @@ package com.example.templateaddon;
 import com.clockify.addon.sdk.ClockifyAddon;
 import com.clockify.addon.sdk.HttpResponse;
 import com.clockify.addon.sdk.security.WebhookSignatureValidator;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 
 import java.io.BufferedReader;
 
 public class WebhookHandlers {
-    private static final ObjectMapper om = new ObjectMapper();
 
     public static void register(ClockifyAddon addon) {
         String[] events = {"TIME_ENTRY_CREATED","TIME_ENTRY_UPDATED","NEW_TIMER_STARTED","TIMER_STOPPED"};
@@ -35,6 +34,6 @@ public class WebhookHandlers {
 
     private static JsonNode parse(HttpServletRequest r) throws Exception {
         Object c = r.getAttribute("clockify.jsonBody"); if (c instanceof JsonNode) return (JsonNode)c;
-        StringBuilder sb=new StringBuilder(); try(BufferedReader br=r.getReader()){String line;while((line=br.readLine())!=null)sb.append(line);}return om.readTree(sb.toString());
+        StringBuilder sb=new StringBuilder(); try(BufferedReader br=r.getReader()){String line;while((line=br.readLine())!=null)sb.append(line);}return JsonCodec.readTree(sb.toString());
     }
 }
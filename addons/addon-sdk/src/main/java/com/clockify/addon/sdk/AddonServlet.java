@@ -1,7 +1,6 @@
 package com.clockify.addon.sdk;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -11,9 +10,20 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Timer;
 import com.clockify.addon.sdk.metrics.MetricsHandler;
 import com.clockify.addon.sdk.error.ErrorHandler;
+import com.clockify.addon.sdk.security.WebhookSignatureValidator;
+import com.clockify.addon.sdk.webhook.KeyedLocks;
+import com.clockify.addon.sdk.webhook.OrderingKey;
+import com.clockify.addon.sdk.webhook.PayloadProjection;
+import com.clockify.addon.sdk.webhook.ProjectedPayload;
+import com.clockify.addon.sdk.webhook.WebhookCoalescer;
+import com.clockify.addon.sdk.webhook.WorkspaceScheduler;
+import com.clockify.addon.sdk.util.JsonCodec;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -24,9 +34,8 @@ import java.util.stream.Collectors;
  * </p>
  * <pre>{@code
  * ClockifyAddon addon = new ClockifyAddon(manifest);
- * ObjectMapper mapper = new ObjectMapper();
  * addon.registerCustomEndpoint("/manifest.json", request ->
- *     HttpResponse.ok(mapper.writeValueAsString(manifest), "application/json"));
+ *     HttpResponse.ok(JsonCodec.write(manifest), "application/json"));
  * addon.registerWebhookHandler("TIME_ENTRY_UPDATED", request -> HttpResponse.ok("handled"));
  *
  * AddonServlet servlet = new AddonServlet(addon);
@@ -38,7 +47,9 @@ import java.util.stream.Collectors;
 public class AddonServlet extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(AddonServlet.class);
     private final ClockifyAddon addon;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WebhookCoalescer environmentCoalescer = WebhookCoalescer.fromEnvironment().orElse(null);
+    private final WorkspaceScheduler environmentScheduler = WorkspaceScheduler.fromEnvironment().orElse(null);
+    private volatile KeyedLocks orderingLocks;
 
     /**
      * Creates a new servlet wrapper around the provided add-on instance.
@@ -49,6 +60,10 @@ public class AddonServlet extends HttpServlet {
         this.addon = addon;
     }
 
+    ClockifyAddon addon() {
+        return addon;
+    }
+
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         String path = req.getPathInfo() != null ? req.getPathInfo() : "/";
@@ -156,7 +171,7 @@ public class AddonServlet extends HttpServlet {
         try {
             json = readAndCacheJsonBody(req);
         } catch (IOException e) {
-            String errorBody = objectMapper.createObjectNode()
+            String errorBody = JsonCodec.object()
                     .put("message", "Invalid JSON payload")
                     .put("details", e.getMessage())
                     .toString();
@@ -164,7 +179,7 @@ public class AddonServlet extends HttpServlet {
         }
 
         if (json == null) {
-            String errorBody = objectMapper.createObjectNode()
+            String errorBody = JsonCodec.object()
                     .put("message", "Lifecycle payload is required")
                     .toString();
             return HttpResponse.error(400, errorBody, "application/json");
@@ -173,7 +188,7 @@ public class AddonServlet extends HttpServlet {
         String lifecycleType = extractLifecycleType(json);
 
         if (lifecycleType == null || lifecycleType.isBlank()) {
-            String errorBody = objectMapper.createObjectNode()
+            String errorBody = JsonCodec.object()
                     .put("message", "Missing lifecycle identifier in request")
                     .toString();
             return HttpResponse.error(400, errorBody, "application/json");
@@ -185,7 +200,7 @@ public class AddonServlet extends HttpServlet {
         }
 
         logger.warn("No handler registered for lifecycle: {}", lifecycleType);
-        String responseBody = objectMapper.createObjectNode()
+        String responseBody = JsonCodec.object()
                 .put("status", "ignored")
                 .put("message", "Lifecycle event received but not handled: " + lifecycleType)
                 .toString();
@@ -193,31 +208,32 @@ public class AddonServlet extends HttpServlet {
     }
 
     private HttpResponse handleWebhook(HttpServletRequest req, Map<String, RequestHandler> handlers) throws Exception {
+        String event = null;
+        String headerEventType = req.getHeader("clockify-webhook-event-type");
+        if (headerEventType != null) {
+            headerEventType = headerEventType.trim();
+            if (!headerEventType.isEmpty()) {
+                event = headerEventType;
+            }
+        }
+
         JsonNode json;
         try {
-            json = readAndCacheJsonBody(req);
+            PayloadProjection projection = event != null ? addon.getWebhookProjections().get(event) : null;
+            json = projection != null ? readAndProjectBody(req, projection) : readAndCacheJsonBody(req);
         } catch (IOException e) {
             // metrics: invalid payload
             Counter.builder("webhook_errors_total")
                     .tag("reason", "invalid_json")
                     .register(MetricsHandler.registry())
                     .increment();
-            String errorBody = objectMapper.createObjectNode()
+            String errorBody = JsonCodec.object()
                     .put("message", "Invalid JSON payload")
                     .put("details", e.getMessage())
                     .toString();
             return HttpResponse.error(400, errorBody, "application/json");
         }
 
-        String event = null;
-        String headerEventType = req.getHeader("clockify-webhook-event-type");
-        if (headerEventType != null) {
-            headerEventType = headerEventType.trim();
-            if (!headerEventType.isEmpty()) {
-                event = headerEventType;
-            }
-        }
-
         if (event == null) {
             if (json == null) {
                 Counter.builder("webhook_errors_total")
@@ -270,7 +286,36 @@ public class AddonServlet extends HttpServlet {
                     .increment();
             HttpResponse response;
             try {
-                response = handler.handle(req);
+                // Wrapped inside out: coalescer, then the entity lock, then a scheduler slot, then the
+                // handler. A slot is taken only once the delivery holds its turn, so deliveries waiting
+                // behind an earlier one for the same entity never occupy scheduler capacity.
+                Callable<HttpResponse> invocation = () -> handler.handle(req);
+                WorkspaceScheduler scheduler = addon.getWorkspaceScheduler() != null
+                        ? addon.getWorkspaceScheduler() : environmentScheduler;
+                if (scheduler != null) {
+                    // Only a verified workspace gets scheduling state; the handler's own check then reuses the result.
+                    String workspaceId = json != null ? json.path("workspaceId").asText(null) : null;
+                    WebhookSignatureValidator.VerificationResult sig =
+                            WebhookSignatureValidator.verify(req, workspaceId, addon.getManifest().getKey());
+                    if (!sig.isValid()) {
+                        return sig.response();
+                    }
+                    Callable<HttpResponse> admitted = invocation;
+                    invocation = () -> scheduler.dispatch(workspaceId, admitted);
+                }
+                OrderingKey ordering = addon.getWebhookOrdering().get(event);
+                String orderingKey = ordering != null ? ordering.keyOf(json) : null;
+                if (orderingKey != null) {
+                    Callable<HttpResponse> scheduled = invocation;
+                    invocation = () -> handleInOrder(orderingKey, scheduled);
+                }
+                WebhookCoalescer coalescer = addon.getWebhookCoalescer() != null
+                        ? addon.getWebhookCoalescer() : environmentCoalescer;
+                if (coalescer != null && coalescer.appliesTo(event)) {
+                    response = coalescer.dispatch(event, json, invocation);
+                } else {
+                    response = invocation.call();
+                }
             } finally {
                 Timer timer = Timer.builder("webhook_request_seconds")
                         .tag("event", sanitizedEvent)
@@ -290,6 +335,40 @@ public class AddonServlet extends HttpServlet {
         return HttpResponse.ok("Webhook event received but not handled: " + event);
     }
 
+    /**
+     * Runs the handler on the request thread once earlier deliveries with the same ordering key
+     * are done, so concurrency is bounded only by the container's threads. A delivery that cannot
+     * get its turn within {@code ADDON_WEBHOOK_ORDER_MAX_WAIT_MS} is answered 503 for Clockify to
+     * retry.
+     */
+    private HttpResponse handleInOrder(String orderingKey, Callable<HttpResponse> invocation) throws Exception {
+        try {
+            return orderingLocks().call(orderingKey, invocation);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Too many queued webhooks for one ordering key; asking Clockify to retry");
+            return HttpResponse.error(503, "{\"error\":\"too many queued deliveries for this entity\"}", "application/json")
+                    .withHeader("Retry-After", "1");
+        } catch (TimeoutException e) {
+            logger.warn("Webhook waited too long behind an earlier delivery for the same entity; asking Clockify to retry");
+            return HttpResponse.error(503, "{\"error\":\"earlier delivery for this entity still running\"}", "application/json")
+                    .withHeader("Retry-After", "1");
+        }
+    }
+
+    private KeyedLocks orderingLocks() {
+        KeyedLocks locks = orderingLocks;
+        if (locks == null) {
+            synchronized (this) {
+                locks = orderingLocks;
+                if (locks == null) {
+                    locks = KeyedLocks.fromEnvironment();
+                    orderingLocks = locks;
+                }
+            }
+        }
+        return locks;
+    }
+
     /**
      * SECURITY: Validates webhook event type against registered handlers in manifest.
      * Prevents log injection and unexpected behavior from malicious event types.
@@ -300,21 +379,21 @@ public class AddonServlet extends HttpServlet {
      */
     private String validateWebhookEventType(String event) {
         if (event == null || event.isBlank()) {
-            return objectMapper.createObjectNode()
+            return JsonCodec.object()
                     .put("message", "Event type cannot be null or empty")
                     .toString();
         }
 
         // Check length to prevent DoS/memory exhaustion
         if (event.length() > 255) {
-            return objectMapper.createObjectNode()
+            return JsonCodec.object()
                     .put("message", "Event type exceeds maximum length (255 characters)")
                     .toString();
         }
 
         // Validate event type contains only alphanumeric, underscore, and hyphen
         if (!event.matches("^[A-Za-z0-9_-]+$")) {
-            return objectMapper.createObjectNode()
+            return JsonCodec.object()
                     .put("message", "Event type contains invalid characters")
                     .toString();
         }
@@ -324,7 +403,7 @@ public class AddonServlet extends HttpServlet {
                 .anyMatch(w -> w.getEvent().equals(event));
 
         if (!isValidEvent) {
-            return objectMapper.createObjectNode()
+            return JsonCodec.object()
                     .put("message", "Event type not registered in addon manifest")
                     .toString();
         }
@@ -349,6 +428,23 @@ public class AddonServlet extends HttpServlet {
         return truncated.replaceAll("[\\r\\n\\t\\x00-\\x1F]", "?");
     }
 
+    /**
+     * Extracts only the projected fields and caches them as {@link ProjectedPayload#ATTRIBUTE};
+     * returns their sparse view for routing, or {@code null} for an empty body.
+     */
+    private JsonNode readAndProjectBody(HttpServletRequest req, PayloadProjection projection) throws IOException {
+        String body;
+        if (req.getAttribute("clockify.rawBody") instanceof String cached) {
+            body = cached;
+        } else {
+            body = req.getReader().lines().collect(Collectors.joining());
+            req.setAttribute("clockify.rawBody", body);
+        }
+        ProjectedPayload payload = projection.extract(body);
+        req.setAttribute(ProjectedPayload.ATTRIBUTE, payload);
+        return body.isBlank() ? null : payload.view();
+    }
+
     private JsonNode readAndCacheJsonBody(HttpServletRequest req) throws IOException {
         Object cachedJson = req.getAttribute("clockify.jsonBody");
         if (cachedJson instanceof JsonNode) {
@@ -361,7 +457,7 @@ public class AddonServlet extends HttpServlet {
             if (bodyString.isBlank()) {
                 return null;
             }
-            JsonNode jsonNode = objectMapper.readTree(bodyString);
+            JsonNode jsonNode = JsonCodec.readTree(bodyString);
             req.setAttribute("clockify.jsonBody", jsonNode);
             return jsonNode;
         }
@@ -373,7 +469,7 @@ public class AddonServlet extends HttpServlet {
             return null;
         }
 
-        JsonNode json = objectMapper.readTree(body);
+        JsonNode json = JsonCodec.readTree(body);
         req.setAttribute("clockify.jsonBody", json);
         return json;
     }
@@ -1,6 +1,10 @@
 package com.clockify.addon.sdk;
 
 import com.clockify.addon.sdk.util.PathSanitizer;
+import com.clockify.addon.sdk.webhook.OrderingKey;
+import com.clockify.addon.sdk.webhook.PayloadProjection;
+import com.clockify.addon.sdk.webhook.WebhookCoalescer;
+import com.clockify.addon.sdk.webhook.WorkspaceScheduler;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -29,6 +33,10 @@ public class ClockifyAddon {
     private final Map<String, String> lifecyclePathsByType = new HashMap<>();
     private final Map<String, Map<String, RequestHandler>> webhookHandlersByPath = new HashMap<>();
     private final Map<String, String> webhookPathsByEvent = new HashMap<>();
+    private final Map<String, OrderingKey> webhookOrderingByEvent = new HashMap<>();
+    private final Map<String, PayloadProjection> webhookProjectionByEvent = new HashMap<>();
+    private WebhookCoalescer webhookCoalescer;
+    private WorkspaceScheduler workspaceScheduler;
 
     public ClockifyAddon(ClockifyManifest manifest) {
         this.manifest = manifest;
@@ -93,6 +101,49 @@ public class ClockifyAddon {
         registerWebhookHandler(event, DEFAULT_WEBHOOK_PATH, handler);
     }
 
+    /**
+     * Register a webhook handler whose deliveries must not overlap when they share an ordering key,
+     * e.g. {@link OrderingKey#byEntity()} for handlers that read-modify-write the time entry.
+     * Deliveries with the same key are handled one at a time in arrival order; different keys
+     * still run in parallel.
+     *
+     * @param event       webhook event identifier
+     * @param orderingKey derives the ordering key from the payload
+     * @param handler     handler that processes the event
+     */
+    public void registerWebhookHandler(String event, OrderingKey orderingKey, RequestHandler handler) {
+        registerWebhookHandler(event, DEFAULT_WEBHOOK_PATH, handler);
+        webhookOrderingByEvent.put(event, orderingKey);
+    }
+
+    /**
+     * Register a webhook handler that only reads the fields in {@code projection}. The servlet
+     * extracts them in one streaming pass (together with {@link PayloadProjection#ROUTING}) and
+     * hands them over as {@link com.clockify.addon.sdk.webhook.ProjectedPayload#from}; the full
+     * tree is only built if the handler asks for it. Applies to deliveries that carry the
+     * {@code clockify-webhook-event-type} header; others are parsed as usual.
+     *
+     * @param event      webhook event identifier
+     * @param projection JSON pointers the handler reads
+     * @param handler    handler that processes the event
+     */
+    public void registerWebhookHandler(String event, PayloadProjection projection, RequestHandler handler) {
+        registerWebhookHandler(event, DEFAULT_WEBHOOK_PATH, handler);
+        webhookProjectionByEvent.put(event, PayloadProjection.ROUTING.and(projection));
+    }
+
+    /**
+     * As {@link #registerWebhookHandler(String, PayloadProjection, RequestHandler)}, with deliveries
+     * ordered as in {@link #registerWebhookHandler(String, OrderingKey, RequestHandler)}. The
+     * ordering key sees {@link com.clockify.addon.sdk.webhook.ProjectedPayload#view()}, so the
+     * projection must include every field a custom key reads.
+     */
+    public void registerWebhookHandler(String event, OrderingKey orderingKey, PayloadProjection projection,
+                                       RequestHandler handler) {
+        registerWebhookHandler(event, projection, handler);
+        webhookOrderingByEvent.put(event, orderingKey);
+    }
+
     public void registerWebhookHandler(String event, String path, RequestHandler handler) {
         String normalizedPath = normalizeWebhookPath(path);
 
@@ -162,6 +213,46 @@ public class ClockifyAddon {
         return webhookPathsByEvent;
     }
 
+    /**
+     * Ordering keys declared with {@link #registerWebhookHandler(String, OrderingKey, RequestHandler)},
+     * keyed by webhook event.
+     */
+    public Map<String, OrderingKey> getWebhookOrdering() {
+        return webhookOrderingByEvent;
+    }
+
+    /**
+     * Payload projections declared at registration, keyed by webhook event (each including
+     * {@link PayloadProjection#ROUTING}).
+     */
+    public Map<String, PayloadProjection> getWebhookProjections() {
+        return webhookProjectionByEvent;
+    }
+
+    /**
+     * Debounce bursts of webhooks about the same entity before they reach the handlers
+     * (also enabled by {@code ADDON_WEBHOOK_COALESCE_MS}); see {@link WebhookCoalescer}.
+     */
+    public void coalesceWebhooks(WebhookCoalescer coalescer) {
+        this.webhookCoalescer = coalescer;
+    }
+
+    public WebhookCoalescer getWebhookCoalescer() {
+        return webhookCoalescer;
+    }
+
+    /**
+     * Share webhook handler capacity fairly between workspaces, with a per-workspace bulkhead
+     * (also enabled by {@code ADDON_WEBHOOK_CONCURRENCY}); see {@link WorkspaceScheduler}.
+     */
+    public void scheduleWebhooksPerWorkspace(WorkspaceScheduler scheduler) {
+        this.workspaceScheduler = scheduler;
+    }
+
+    public WorkspaceScheduler getWorkspaceScheduler() {
+        return workspaceScheduler;
+    }
+
     private String normalizeLifecyclePath(String lifecycleType, String path) {
         return PathSanitizer.sanitizeLifecyclePath(lifecycleType, path);
     }
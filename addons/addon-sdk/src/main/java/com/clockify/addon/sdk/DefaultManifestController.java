@@ -1,7 +1,7 @@
 package com.clockify.addon.sdk;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -17,17 +17,15 @@ import java.util.Optional;
  */
 public class DefaultManifestController implements RequestHandler {
     private final ClockifyManifest manifest;
-    private final ObjectMapper mapper;
+    private final ObjectWriter writer = JsonCodec.prettyWriter();
     private final BaseUrlDetector baseUrlDetector;
 
     public DefaultManifestController(ClockifyManifest manifest) {
-        this(manifest, new ObjectMapper(), new BaseUrlDetector());
+        this(manifest, new BaseUrlDetector());
     }
 
-    DefaultManifestController(ClockifyManifest manifest, ObjectMapper mapper, BaseUrlDetector baseUrlDetector) {
+    DefaultManifestController(ClockifyManifest manifest, BaseUrlDetector baseUrlDetector) {
         this.manifest = manifest;
-        this.mapper = mapper;
-        this.mapper.enable(SerializationFeature.INDENT_OUTPUT);
         this.baseUrlDetector = baseUrlDetector;
     }
 
@@ -38,11 +36,11 @@ public class DefaultManifestController implements RequestHandler {
 
         String json;
         if (detectedBaseUrl.isPresent()) {
-            ObjectNode manifestNode = mapper.convertValue(manifest, ObjectNode.class);
+            ObjectNode manifestNode = JsonCodec.tree(manifest);
             manifestNode.put("baseUrl", detectedBaseUrl.get());
-            json = mapper.writeValueAsString(manifestNode);
+            json = writer.writeValueAsString(manifestNode);
         } else {
-            json = mapper.writeValueAsString(manifest);
+            json = writer.writeValueAsString(manifest);
         }
 
         return HttpResponse.ok(json, "application/json");
@@ -3,9 +3,14 @@ package com.clockify.addon.sdk;
 import com.clockify.addon.sdk.middleware.CriticalEndpointRateLimiter;
 import com.clockify.addon.sdk.middleware.DiagnosticContextFilter;
 import com.clockify.addon.sdk.middleware.CsrfProtectionFilter;
+import com.clockify.addon.sdk.middleware.FilterPipeline;
 import com.clockify.addon.sdk.middleware.HttpsEnforcementFilter;
+import com.clockify.addon.sdk.middleware.PathClassifier;
 import com.clockify.addon.sdk.middleware.RequestSizeLimitFilter;
-import com.clockify.addon.sdk.middleware.RequestIdPropagationFilter;
+import com.clockify.addon.sdk.middleware.WebhookIdempotencyFilter;
+import com.clockify.addon.sdk.ratelimit.SharedRateLimitBackend;
+import com.clockify.addon.sdk.security.jwt.AuthTokenVerifier;
+import com.clockify.addon.sdk.webhook.IdempotencyStore;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
@@ -37,6 +42,12 @@ public class EmbeddedServer {
     private final AddonServlet servlet;
     private final String contextPath;
     private final List<Filter> filters = new ArrayList<>();
+    private SharedRateLimitBackend rateLimitBackend;
+    private boolean sessionsEnabled = true;
+    private boolean fusedFilters;
+    private boolean webhookDedup;
+    private IdempotencyStore webhookDedupStore;
+    private AuthTokenVerifier csrfTokenVerifier;
     private Server server;
 
     public EmbeddedServer(AddonServlet servlet) {
@@ -51,58 +62,61 @@ public class EmbeddedServer {
     public void start(int port) throws Exception {
         server = new Server(port);
 
-        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        // Only the session-backed CSRF mode needs HttpSession; skip session management otherwise
+        CsrfProtectionFilter csrfFilter = sessionsEnabled
+                ? CsrfProtectionFilter.fromEnvironment(csrfTokenVerifier)
+                : CsrfProtectionFilter.stateless(csrfTokenVerifier);
+        boolean sessions = sessionsEnabled && !csrfFilter.isStateless();
+        if (csrfFilter.isStateless() && csrfTokenVerifier == null) {
+            logger.warn("Stateless CSRF protection has no JWT verifier; state-changing requests will be rejected. "
+                    + "Call verifyCsrfTokensWith(...) before start().");
+        }
+        ServletContextHandler context = new ServletContextHandler(
+                sessions ? ServletContextHandler.SESSIONS : ServletContextHandler.NO_SESSIONS);
         context.setContextPath(contextPath);
         server.setHandler(context);
 
         // SECURITY: Apply critical endpoint rate limiter first to fail fast on abusive calls
-        context.addFilter(
-                new FilterHolder(new DiagnosticContextFilter()),
-                "/*",
-                EnumSet.of(DispatcherType.REQUEST));
-        logger.debug("Diagnostic context filter installed");
-
-        context.addFilter(
-                new FilterHolder(new RequestIdPropagationFilter()),
-                "/*",
-                EnumSet.of(DispatcherType.REQUEST));
-        logger.debug("Request id propagation filter installed");
-
-        context.addFilter(
-                new FilterHolder(new CriticalEndpointRateLimiter(true)),
-                "/*",
-                EnumSet.of(DispatcherType.REQUEST));
+        // Routes are classified once per request, including the webhook/lifecycle paths registered so far
+        PathClassifier classifier = servlet.addon() != null ? PathClassifier.forAddon(servlet.addon()) : PathClassifier.defaults();
+        List<Filter> stages = new ArrayList<>();
+        stages.add(new DiagnosticContextFilter(classifier));
+        logger.debug("Diagnostic context filter installed (request id, client IP, route, MDC)");
+
+        stages.add(new CriticalEndpointRateLimiter(true, rateLimitBackend));
         logger.debug("Critical endpoint rate limiter installed");
 
         // SECURITY: Apply request size limit to guard memory/CPU before body parsing
-        context.addFilter(
-                new FilterHolder(RequestSizeLimitFilter.fromEnvironment()),
-                "/*",
-                EnumSet.of(DispatcherType.REQUEST));
+        stages.add(RequestSizeLimitFilter.fromEnvironment());
         logger.debug("Request size limit filter installed");
 
         // SECURITY: Apply HTTPS enforcement
         // Blocks non-HTTPS requests in production
         boolean enforceHttps = shouldEnforceHttps();
         if (enforceHttps) {
-            context.addFilter(
-                    new FilterHolder(new HttpsEnforcementFilter(true)),
-                    "/*",
-                    EnumSet.of(DispatcherType.REQUEST));
+            stages.add(new HttpsEnforcementFilter(true));
             logger.debug("HTTPS enforcement filter installed");
         }
 
         // SECURITY: Apply CSRF protection filter
         // Webhooks use signature validation (exempt), custom endpoints get token-based CSRF protection
-        context.addFilter(
-                new FilterHolder(new CsrfProtectionFilter()),
-                "/*",
-                EnumSet.of(DispatcherType.REQUEST));
-        logger.debug("CSRF protection filter installed");
+        stages.add(csrfFilter);
+        logger.debug("CSRF protection filter installed (stateless: {}, sessions: {})", csrfFilter.isStateless(), sessions);
+
+        // Answer webhook redeliveries from the first delivery's response, before any handler runs
+        if (webhookDedup || "true".equalsIgnoreCase(resolveEnv("ADDON_WEBHOOK_DEDUP"))) {
+            stages.add(WebhookIdempotencyFilter.fromEnvironment(webhookDedupStore));
+            logger.debug("Webhook idempotency filter installed (shared store: {})", webhookDedupStore != null);
+        }
 
         // Register any additional configured filters
-        if (!filters.isEmpty()) {
-            for (Filter f : filters) {
+        stages.addAll(filters);
+
+        if (fusedFilters || "true".equalsIgnoreCase(resolveEnv("ADDON_FUSED_FILTERS"))) {
+            context.addFilter(new FilterHolder(new FilterPipeline(stages, classifier)), "/*", EnumSet.of(DispatcherType.REQUEST));
+            logger.debug("Installed {} filters as a single fused pipeline", stages.size());
+        } else {
+            for (Filter f : stages) {
                 context.addFilter(new FilterHolder(f), "/*", EnumSet.of(DispatcherType.REQUEST));
             }
         }
@@ -130,6 +144,57 @@ public class EmbeddedServer {
         return this;
     }
 
+    /**
+     * Enforce critical endpoint rate limits across replicas through a shared store
+     * (e.g. {@code new PostgresRateLimitBackend(tokenStore.dataSource())}). Call before start().
+     */
+    public EmbeddedServer setRateLimitBackend(SharedRateLimitBackend backend) {
+        this.rateLimitBackend = backend;
+        return this;
+    }
+
+    /**
+     * Turn off HttpSession management entirely; CSRF protection then uses stateless signed tokens
+     * (set {@code ADDON_CSRF_SECRET} on every replica). Call before start().
+     */
+    public EmbeddedServer disableSessions() {
+        this.sessionsEnabled = false;
+        return this;
+    }
+
+    /**
+     * Verifier for the platform JWT that stateless CSRF tokens are bound to; without one, stateless
+     * mode issues no tokens and rejects state-changing requests. Call before start().
+     */
+    public EmbeddedServer verifyCsrfTokensWith(AuthTokenVerifier verifier) {
+        this.csrfTokenVerifier = verifier;
+        return this;
+    }
+
+    /**
+     * Install the SDK filters and any added filters as one {@link FilterPipeline} instead of one
+     * container filter each (also enabled by {@code ADDON_FUSED_FILTERS=true}). Filters run in the
+     * same order; filters that are pass-through for a route (e.g. CSRF on webhooks) are skipped
+     * for it. Call before start().
+     */
+    public EmbeddedServer useFusedPipeline() {
+        this.fusedFilters = true;
+        return this;
+    }
+
+    /**
+     * Answer webhook redeliveries with the response given to the first delivery instead of running
+     * the handler again (also enabled by {@code ADDON_WEBHOOK_DEDUP=true}); see
+     * {@link WebhookIdempotencyFilter}. Pass a shared store (e.g.
+     * {@code new PostgresIdempotencyStore(tokenStore.dataSource())}) to recognise redeliveries
+     * across replicas and restarts, or {@code null} for an in-process window. Call before start().
+     */
+    public EmbeddedServer enableWebhookDeduplication(IdempotencyStore sharedStore) {
+        this.webhookDedup = true;
+        this.webhookDedupStore = sharedStore;
+        return this;
+    }
+
     /**
      * SECURITY: Determines whether HTTPS enforcement should be enabled.
      * Enabled by default unless explicitly disabled for local development.
@@ -1,14 +1,19 @@
 package com.clockify.addon.sdk.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.Locale;
 import java.util.Set;
 
 /**
  * Central helper for environment-aware feature flags. Reads {@code ENV} from
  * system properties (preferred) or process environment variables, defaulting to {@code prod}.
- * Provides shared helpers for dev-only toggles (signature bypass, JWT acceptance, etc.).
+ * Provides shared helpers for dev-only toggles (signature bypass, JWT acceptance, etc.) and for
+ * the numeric settings the SDK components read in their {@code fromEnvironment()} factories.
  */
 public final class EnvironmentInspector {
+    private static final Logger logger = LoggerFactory.getLogger(EnvironmentInspector.class);
     private static final Set<String> DEV_ENVIRONMENTS = Set.of("dev", "development", "local");
 
     private EnvironmentInspector() {
@@ -54,4 +59,63 @@ public final class EnvironmentInspector {
         }
         return Boolean.parseBoolean(env);
     }
+
+    /**
+     * Reads a setting from system properties first, then environment variables.
+     * Blank values count as unset.
+     *
+     * @return the value, or {@code null} when unset
+     */
+    public static String setting(String key) {
+        String prop = System.getProperty(key);
+        if (prop != null && !prop.isBlank()) {
+            return prop;
+        }
+        String env = System.getenv(key);
+        return env == null || env.isBlank() ? null : env;
+    }
+
+    /**
+     * Reads a positive whole number via {@link #setting(String)}. Unset values yield
+     * {@code defaultValue}; so do unparseable and non-positive ones, with a warning.
+     */
+    public static long longSetting(String key, long defaultValue) {
+        String raw = setting(key);
+        if (raw == null) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(raw.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+            logger.warn("{} must be positive, using {}", key, defaultValue);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid {} value '{}', using {}", key, raw, defaultValue);
+        }
+        return defaultValue;
+    }
+
+    /** {@link #longSetting(String, long)} capped to the {@code int} range. */
+    public static int intSetting(String key, int defaultValue) {
+        return (int) Math.min(longSetting(key, defaultValue), Integer.MAX_VALUE);
+    }
+
+    /** Like {@link #longSetting(String, long)}, for positive decimals. */
+    public static double doubleSetting(String key, double defaultValue) {
+        String raw = setting(key);
+        if (raw == null) {
+            return defaultValue;
+        }
+        try {
+            double parsed = Double.parseDouble(raw.trim());
+            if (parsed > 0 && Double.isFinite(parsed)) {
+                return parsed;
+            }
+            logger.warn("{} must be positive, using {}", key, defaultValue);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid {} value '{}', using {}", key, raw, defaultValue);
+        }
+        return defaultValue;
+    }
 }
@@ -1,6 +1,6 @@
 package com.clockify.addon.sdk.error;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,7 +16,6 @@ import java.util.UUID;
  */
 public class ErrorHandler {
     private static final Logger logger = LoggerFactory.getLogger(ErrorHandler.class);
-    private static final ObjectMapper mapper = new ObjectMapper();
 
     /**
      * Error categories for classification and safe client responses.
@@ -67,7 +66,7 @@ public class ErrorHandler {
             logger.warn("Error [{}] in {}: {}", errorId, context, exception.getMessage(), exception);
         }
 
-        ObjectNode response = mapper.createObjectNode();
+        ObjectNode response = JsonCodec.object();
         response.put("error", category.name().toLowerCase());
         response.put("message", category.getClientMessage());
         response.put("errorId", errorId);  // For support/debugging
@@ -94,7 +93,7 @@ public class ErrorHandler {
     public static ErrorResponse validationError(String message, String context) {
         logger.warn("Validation error in {}: {}", context, message);
 
-        ObjectNode response = mapper.createObjectNode();
+        ObjectNode response = JsonCodec.object();
         response.put("error", "validation_failed");
         response.put("message", message);
 
@@ -122,7 +121,7 @@ public class ErrorHandler {
      * @return JSON error response
      */
     public static ErrorResponse jsonError(int statusCode, String message) {
-        ObjectNode response = mapper.createObjectNode();
+        ObjectNode response = JsonCodec.object();
         response.put("message", message);
         return new ErrorResponse(statusCode, response.toString(), "application/json");
     }
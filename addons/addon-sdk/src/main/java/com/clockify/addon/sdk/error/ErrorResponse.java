@@ -1,8 +1,9 @@
 package com.clockify.addon.sdk.error;
 
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import java.util.Map;
 
@@ -11,7 +12,7 @@ import java.util.Map;
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class ErrorResponse {
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectWriter writer = JsonCodec.writerFor(ErrorResponse.class);
     private static final String ERROR_TYPE_BASE_URI = "https://developer.clockify.me/addons/errors/";
 
     private String type;
@@ -145,7 +146,7 @@ public class ErrorResponse {
      */
     public String toJson() {
         try {
-            return objectMapper.writeValueAsString(this);
+            return writer.writeValueAsString(this);
         } catch (JsonProcessingException e) {
             // Fallback to simple JSON if serialization fails
             return String.format("{\"type\":\"%s\",\"title\":\"%s\",\"detail\":\"%s\",\"status\":%d,\"timestamp\":%d}",
@@ -2,29 +2,75 @@ package com.clockify.addon.sdk.health;
 
 import com.clockify.addon.sdk.HttpResponse;
 import com.clockify.addon.sdk.RequestHandler;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
 import java.lang.management.RuntimeMXBean;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Health check endpoint for monitoring and load balancers.
  * Returns application health status, version info, and system metrics.
+ *
+ * <p>Checks do not run per request. Once the endpoint is first used (or {@link #start()} is
+ * called), a background task runs all providers in parallel every refresh interval, each bounded
+ * by a timeout, and stores the result as a pre-serialized snapshot that {@code /health} returns
+ * as-is. A provider that is still running from a previous round is not started again. Probes from
+ * many load balancers therefore cost one check round per interval, not one per probe.</p>
+ *
+ * <p>{@link #readinessHandler()} is the cheap {@code /ready} counterpart: 503 while warming up
+ * (no snapshot yet) or while any provider is DOWN, 200 otherwise, with a tiny body.</p>
+ *
+ * <p>Defaults: {@code ADDON_HEALTH_REFRESH_SECONDS} (5) and {@code ADDON_HEALTH_CHECK_TIMEOUT_MS} (2000).</p>
  */
 public class HealthCheck implements RequestHandler {
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Logger logger = LoggerFactory.getLogger(HealthCheck.class);
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
     private final String appName;
     private final String appVersion;
-    private final List<HealthCheckProvider> customChecks = new ArrayList<>();
+    private final Duration refreshInterval;
+    private final Duration checkTimeout;
+    private final List<HealthCheckProvider> customChecks = new CopyOnWriteArrayList<>();
+    private final Map<HealthCheckProvider, CompletableFuture<HealthCheckResult>> inFlight = new ConcurrentHashMap<>();
+    private final Object refreshLock = new Object();
+
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService checkPool;
 
     public HealthCheck(String appName, String appVersion) {
+        this(appName, appVersion,
+                Duration.ofSeconds(EnvironmentInspector.longSetting("ADDON_HEALTH_REFRESH_SECONDS", 5)),
+                Duration.ofMillis(EnvironmentInspector.longSetting("ADDON_HEALTH_CHECK_TIMEOUT_MS", 2000)));
+    }
+
+    public HealthCheck(String appName, String appVersion, Duration refreshInterval, Duration checkTimeout) {
         this.appName = appName;
         this.appVersion = appVersion;
+        this.refreshInterval = refreshInterval;
+        this.checkTimeout = checkTimeout;
     }
 
     /**
@@ -36,70 +82,192 @@ public class HealthCheck implements RequestHandler {
         customChecks.add(provider);
     }
 
+    /**
+     * Starts the background refresh. Called automatically on first use of either endpoint.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        checkPool = Executors.newCachedThreadPool(daemon("health-check"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemon("health-refresh"));
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background refresh; the last snapshot keeps being served.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            checkPool.shutdownNow();
+            scheduler = null;
+            checkPool = null;
+        }
+    }
+
     @Override
     public HttpResponse handle(HttpServletRequest request) throws Exception {
-        ObjectNode health = objectMapper.createObjectNode();
-
-        // Basic info
-        health.put("status", "UP");
-        health.put("application", appName);
-        health.put("version", appVersion);
-        health.put("timestamp", System.currentTimeMillis());
-
-        // Runtime info
-        RuntimeMXBean runtimeBean = ManagementFactory.getRuntimeMXBean();
-        ObjectNode runtime = health.putObject("runtime");
-        runtime.put("uptime", runtimeBean.getUptime());
-        runtime.put("startTime", runtimeBean.getStartTime());
-
-        // Memory info
-        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
-        ObjectNode memory = health.putObject("memory");
-        memory.put("heapUsed", memoryBean.getHeapMemoryUsage().getUsed());
-        memory.put("heapMax", memoryBean.getHeapMemoryUsage().getMax());
-        memory.put("heapCommitted", memoryBean.getHeapMemoryUsage().getCommitted());
-        memory.put("heapUsagePercent",
-                (memoryBean.getHeapMemoryUsage().getUsed() * 100.0) / memoryBean.getHeapMemoryUsage().getMax());
-
-        // System info
-        ObjectNode system = health.putObject("system");
-        system.put("availableProcessors", Runtime.getRuntime().availableProcessors());
-        system.put("totalMemory", Runtime.getRuntime().totalMemory());
-        system.put("freeMemory", Runtime.getRuntime().freeMemory());
-        system.put("maxMemory", Runtime.getRuntime().maxMemory());
-
-        // Custom health checks
-        boolean allHealthy = true;
-        ObjectNode checks = health.putObject("checks");
-        for (HealthCheckProvider provider : customChecks) {
-            try {
-                HealthCheckResult result = provider.check();
-                ObjectNode checkNode = checks.putObject(result.getName());
-                checkNode.put("status", result.isHealthy() ? "UP" : "DOWN");
-                if (result.getMessage() != null) {
-                    checkNode.put("message", result.getMessage());
-                }
-                if (result.getDetails() != null) {
-                    checkNode.set("details", objectMapper.valueToTree(result.getDetails()));
-                }
+        start();
+        Snapshot current = snapshot;
+        if (current == null) {
+            // First probe before the first round finished: wait for it (bounded by the check timeout)
+            synchronized (refreshLock) {
+                current = snapshot != null ? snapshot : refresh();
+            }
+        }
+        return HttpResponse.ok(current.json(), "application/json");
+    }
 
-                if (!result.isHealthy()) {
+    /**
+     * Readiness endpoint backed by the latest snapshot; never runs checks itself.
+     */
+    public RequestHandler readinessHandler() {
+        return request -> {
+            start();
+            Snapshot current = snapshot;
+            if (current == null) {
+                return HttpResponse.error(503, "{\"status\":\"WARMING_UP\"}", "application/json");
+            }
+            if (!current.healthy()) {
+                return HttpResponse.error(503, "{\"status\":\"DEGRADED\"}", "application/json");
+            }
+            return HttpResponse.ok("{\"status\":\"READY\"}", "application/json");
+        };
+    }
+
+    /**
+     * @return {@code true} once a snapshot exists and every provider in it was UP
+     */
+    public boolean isReady() {
+        Snapshot current = snapshot;
+        return current != null && current.healthy();
+    }
+
+    /**
+     * Runs one round of checks now and publishes the snapshot.
+     */
+    Snapshot refresh() {
+        synchronized (refreshLock) {
+            ExecutorService pool;
+            synchronized (this) {
+                pool = checkPool;
+            }
+            List<HealthCheckProvider> providers = new ArrayList<>(customChecks);
+            List<CompletableFuture<HealthCheckResult>> futures = new ArrayList<>(providers.size());
+            for (HealthCheckProvider provider : providers) {
+                futures.add(inFlight.compute(provider, (key, previous) ->
+                        previous != null && !previous.isDone()
+                                ? previous
+                                : CompletableFuture.supplyAsync(key::check, pool != null ? pool : Runnable::run)));
+            }
+
+            ObjectNode health = JsonCodec.object();
+
+            // Basic info
+            health.put("status", "UP");
+            health.put("application", appName);
+            health.put("version", appVersion);
+            health.put("timestamp", System.currentTimeMillis());
+
+            // Runtime info
+            RuntimeMXBean runtimeBean = ManagementFactory.getRuntimeMXBean();
+            ObjectNode runtime = health.putObject("runtime");
+            runtime.put("uptime", runtimeBean.getUptime());
+            runtime.put("startTime", runtimeBean.getStartTime());
+
+            // Memory info
+            MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+            MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+            ObjectNode memory = health.putObject("memory");
+            memory.put("heapUsed", heap.getUsed());
+            memory.put("heapMax", heap.getMax());
+            memory.put("heapCommitted", heap.getCommitted());
+            memory.put("heapUsagePercent", (heap.getUsed() * 100.0) / heap.getMax());
+
+            // System info
+            ObjectNode system = health.putObject("system");
+            system.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+            system.put("totalMemory", Runtime.getRuntime().totalMemory());
+            system.put("freeMemory", Runtime.getRuntime().freeMemory());
+            system.put("maxMemory", Runtime.getRuntime().maxMemory());
+
+            // Custom health checks, all sharing one deadline
+            boolean allHealthy = true;
+            ObjectNode checks = health.putObject("checks");
+            long deadline = System.nanoTime() + checkTimeout.toNanos();
+            for (int i = 0; i < providers.size(); i++) {
+                HealthCheckProvider provider = providers.get(i);
+                try {
+                    HealthCheckResult result = futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    ObjectNode checkNode = checks.putObject(result.getName());
+                    checkNode.put("status", result.isHealthy() ? "UP" : "DOWN");
+                    if (result.getMessage() != null) {
+                        checkNode.put("message", result.getMessage());
+                    }
+                    if (result.getDetails() != null) {
+                        checkNode.set("details", JsonCodec.tree(result.getDetails()));
+                    }
+
+                    if (!result.isHealthy()) {
+                        allHealthy = false;
+                    }
+                } catch (TimeoutException e) {
+                    ObjectNode checkNode = checks.putObject(provider.getName());
+                    checkNode.put("status", "DOWN");
+                    checkNode.put("error", "timed out after " + checkTimeout.toMillis() + " ms");
+                    allHealthy = false;
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    ObjectNode checkNode = checks.putObject(provider.getName());
+                    checkNode.put("status", "DOWN");
+                    checkNode.put("error", cause.getMessage());
                     allHealthy = false;
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
                 }
+            }
+            inFlight.keySet().retainAll(providers);
+
+            if (!allHealthy) {
+                health.put("status", "DEGRADED");
+            }
+
+            Snapshot next;
+            try {
+                next = new Snapshot(JsonCodec.write(health), allHealthy, System.nanoTime());
             } catch (Exception e) {
-                ObjectNode checkNode = checks.putObject(provider.getName());
-                checkNode.put("status", "DOWN");
-                checkNode.put("error", e.getMessage());
-                allHealthy = false;
+                throw new IllegalStateException("Failed to serialize health snapshot", e);
             }
+            snapshot = next;
+            return next;
         }
+    }
 
-        if (!allHealthy) {
-            health.put("status", "DEGRADED");
+    private void refreshQuietly() {
+        try {
+            synchronized (refreshLock) {
+                Snapshot current = snapshot;
+                if (current != null && System.nanoTime() - current.takenAtNanos() < refreshInterval.toNanos() / 2) {
+                    return; // a first probe just produced one
+                }
+                refresh();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Health check refresh failed: {}", e.getMessage());
         }
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + THREAD_IDS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 
-        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(health);
-        return HttpResponse.ok(json, "application/json");
+    record Snapshot(String json, boolean healthy, long takenAtNanos) {
     }
 
     /**
@@ -0,0 +1,82 @@
+package com.clockify.addon.sdk.http;
+
+import java.time.Duration;
+
+/**
+ * AIMD (additive-increase / multiplicative-decrease) concurrency limit for outbound calls.
+ *
+ * <p>The limiter never blocks: {@link #tryAcquire()} either admits the call or returns
+ * {@code false} so the caller can fail fast instead of parking a request thread behind a
+ * slow upstream. The limit grows by one after a fast success while the limiter is actually
+ * being used (in-flight at least half of the limit), and shrinks by {@code backoffRatio} on
+ * every drop signal: a transport failure, a 429/5xx response, or a success slower than
+ * {@code latencyThreshold}.</p>
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, Duration latencyThreshold) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("require 1 <= minLimit <= maxLimit");
+        }
+        if (backoffRatio <= 0.0 || backoffRatio >= 1.0) {
+            throw new IllegalArgumentException("backoffRatio must be in (0, 1)");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @return {@code true} if a slot was reserved; the caller must then report exactly one of
+     * {@link #onSuccess(long)}, {@link #onDropped()} or {@link #onIgnored()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void onSuccess(long rttNanos) {
+        inFlight = Math.max(0, inFlight - 1);
+        if (rttNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (inFlight * 2 >= (int) limit - 1) {
+            limit = Math.min(maxLimit, limit + 1.0);
+        }
+    }
+
+    public synchronized void onDropped() {
+        inFlight = Math.max(0, inFlight - 1);
+        decrease();
+    }
+
+    /** Releases the slot without adjusting the limit (e.g. the call was interrupted locally). */
+    public synchronized void onIgnored() {
+        inFlight = Math.max(0, inFlight - 1);
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
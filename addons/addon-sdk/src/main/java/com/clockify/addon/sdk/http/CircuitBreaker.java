@@ -0,0 +1,184 @@
+package com.clockify.addon.sdk.http;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker for a single upstream host.
+ *
+ * <p>CLOSED: every call is admitted and its outcome lands in a sliding window of the last
+ * {@code windowSize} calls. Once at least {@code minimumCalls} outcomes are recorded and the
+ * failure ratio reaches {@code failureRateThreshold}, the breaker trips to OPEN.</p>
+ *
+ * <p>OPEN: calls are rejected immediately until {@code openDuration} has elapsed, after which
+ * the breaker moves to HALF_OPEN.</p>
+ *
+ * <p>HALF_OPEN: up to {@code halfOpenProbes} calls are admitted. If all of them succeed the
+ * breaker closes with a fresh window; a single failure re-opens it.</p>
+ *
+ * <p>Callers must pair every successful {@link #tryAcquirePermission()} with exactly one of
+ * {@link #onSuccess()}, {@link #onFailure()} or {@link #releasePermission()}.</p>
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED(0), HALF_OPEN(1), OPEN(2);
+
+        private final int code;
+
+        State(int code) {
+            this.code = code;
+        }
+
+        /** Numeric value exported through the state gauge. */
+        public int code() {
+            return code;
+        }
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+    private final LongSupplier nanoClock;
+
+    private final boolean[] outcomes;
+    private int cursor;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int halfOpenProbes) {
+        this(windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenProbes, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                   Duration openDuration, int halfOpenProbes, LongSupplier nanoClock) {
+        if (windowSize < 1 || minimumCalls < 1 || halfOpenProbes < 1) {
+            throw new IllegalArgumentException("windowSize, minimumCalls and halfOpenProbes must be positive");
+        }
+        if (failureRateThreshold <= 0.0 || failureRateThreshold > 1.0) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+        this.nanoClock = nanoClock;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * @return {@code true} if the call may proceed; {@code false} if it must fail fast
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openDurationNanos) {
+                return false;
+            }
+            transitionToHalfOpen();
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= halfOpenProbes) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a permission without recording an outcome (e.g. the call was throttled or
+     * rejected by a downstream limiter and says nothing about upstream health).
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight > 0) {
+                probesInFlight--;
+            }
+            probeSuccesses++;
+            if (probeSuccesses >= halfOpenProbes) {
+                transitionToClosed();
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionToOpen();
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                transitionToOpen();
+            }
+        }
+    }
+
+    public synchronized State state() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+            transitionToHalfOpen();
+        }
+        return state;
+    }
+
+    /** Failure ratio of the current CLOSED window, or 0 when no calls have been recorded. */
+    public synchronized double failureRate() {
+        return recorded == 0 ? 0.0 : (double) failures / recorded;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[cursor]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[cursor] = failure;
+        if (failure) {
+            failures++;
+        }
+        cursor = (cursor + 1) % windowSize;
+    }
+
+    private void transitionToOpen() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        probesInFlight = 0;
+        probeSuccesses = 0;
+    }
+
+    private void transitionToHalfOpen() {
+        state = State.HALF_OPEN;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+    }
+
+    private void transitionToClosed() {
+        state = State.CLOSED;
+        cursor = 0;
+        recorded = 0;
+        failures = 0;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+    }
+}
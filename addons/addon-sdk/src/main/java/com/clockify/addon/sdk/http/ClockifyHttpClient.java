@@ -1,5 +1,7 @@
 package com.clockify.addon.sdk.http;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -12,22 +14,36 @@ import java.util.UUID;
 /**
  * Minimal HTTP client wrapper with sane timeouts and retries for 429/5xx.
  * Adds the x-addon-token header for workspace-scoped requests.
+ * Every call goes through the host's {@link OutboundCallGuard}, so a degraded upstream trips a
+ * circuit breaker and shrinks the concurrency limit instead of piling up request threads, and
+ * through the shared {@link WorkspaceQuotaScheduler}, which paces calls to each workspace under
+ * the API's rate limit (writes ahead of reads) and pauses the workspace on a 429.
+ * Large list endpoints can be read page by page with {@link #streamList}.
  */
 public class ClockifyHttpClient {
     private final HttpClient client;
     private final String baseUrl;
     private final Duration timeout;
     private final int maxRetries;
+    private final OutboundCallGuard guard;
+    private final WorkspaceQuotaScheduler quota;
 
     public ClockifyHttpClient(String baseUrl) {
         this(baseUrl, Duration.ofSeconds(10), 3);
     }
 
     public ClockifyHttpClient(String baseUrl, Duration timeout, int maxRetries) {
+        this(baseUrl, timeout, maxRetries, null, WorkspaceQuotaScheduler.shared());
+    }
+
+    ClockifyHttpClient(String baseUrl, Duration timeout, int maxRetries,
+                       OutboundCallGuard guard, WorkspaceQuotaScheduler quota) {
         this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
         this.timeout = timeout;
         this.maxRetries = maxRetries;
         this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.guard = guard != null ? guard : OutboundCallGuard.forUri(URI.create(this.baseUrl));
+        this.quota = quota;
     }
 
     public HttpResponse<String> get(String path, String addonToken, Map<String, String> headers) throws Exception {
@@ -35,6 +51,22 @@ public class ClockifyHttpClient {
         return sendWithRetry(b.build());
     }
 
+    /**
+     * Iterates over every element of the paginated list at {@code path}, requesting
+     * {@code page-size=pageSize} pages one after another (the next one prefetched while the
+     * current one is read) and parsing them incrementally; see {@link PagedListIterator}. Each
+     * page goes through the same guard, quota and retries as {@link #get}. Close the iterator if
+     * you stop before the end.
+     *
+     * @param path list path, optionally with a query string; {@code page} and {@code page-size} are appended
+     */
+    public PagedListIterator streamList(String path, String addonToken, Map<String, String> headers, int pageSize) {
+        String separator = path.contains("?") ? "&" : "?";
+        return new PagedListIterator(page -> sendWithRetry(
+                baseRequest(path + separator + "page=" + page + "&page-size=" + pageSize, addonToken, headers).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream()), normalize(path), pageSize);
+    }
+
     public HttpResponse<String> postJson(String path, String addonToken, String jsonBody, Map<String, String> headers) throws Exception {
         HttpRequest.Builder b = baseRequest(path, addonToken, headers)
                 .header("Content-Type", "application/json")
@@ -87,27 +119,73 @@ public class ClockifyHttpClient {
     }
 
     private HttpResponse<String> sendWithRetry(HttpRequest req) throws Exception {
+        return sendWithRetry(req, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Each attempt first waits for the workspace's quota and only then opens a guarded call, so
+     * a long quota wait never holds the host's breaker permission or a concurrency slot. Only the
+     * last attempt reports an outcome, so the breaker still counts one per logical call.
+     */
+    private <T> HttpResponse<T> sendWithRetry(HttpRequest req, HttpResponse.BodyHandler<T> bodyHandler) throws Exception {
+        String workspaceId = WorkspaceQuotaScheduler.workspaceOf(req.uri());
+        WorkspaceQuotaScheduler.Priority priority = WorkspaceQuotaScheduler.Priority.of(req.method());
         int attempt = 0;
         long backoffMs = 300L;
         while (true) {
             attempt++;
-            HttpResponse<String> resp = client.send(req, HttpResponse.BodyHandlers.ofString());
-            int code = resp.statusCode();
-
-            if (code < 500 && code != 429) {
-                return resp; // success or client error
-            }
-
-            if (attempt > maxRetries) {
-                return resp; // give up
+            quota.acquire(workspaceId, priority);
+            OutboundCallGuard.Call call = guard.begin();
+            HttpResponse<T> resp;
+            try {
+                call.startAttempt();
+                try {
+                    resp = client.send(req, bodyHandler);
+                } catch (IOException e) {
+                    call.attemptFailed();
+                    call.complete(false);
+                    throw e;
+                }
+                int code = resp.statusCode();
+
+                if (code < 500 && code != 429) {
+                    call.attemptSucceeded();
+                    call.complete(true);
+                    return resp; // success or client error
+                }
+                call.attemptFailed();
+                boolean last = attempt > maxRetries || !call.mayRetry();
+                if (code == 429 || !last) {
+                    call.abandon(); // throttling says nothing about upstream health; a retry decides the outcome
+                } else {
+                    call.complete(false);
+                }
+                if (last) {
+                    return resp; // give up
+                }
+            } finally {
+                call.abandon(); // no-op when an outcome was already recorded
             }
 
+            discard(resp);
             long sleep = retryAfterMillis(resp).orElse(backoffMs);
-            Thread.sleep(sleep);
+            if (resp.statusCode() == 429) {
+                quota.throttled(workspaceId, Duration.ofMillis(sleep));
+            }
+            if (resp.statusCode() != 429 || workspaceId == null || !quota.enabled()) {
+                Thread.sleep(sleep);
+            }
             backoffMs = Math.min(backoffMs * 2, 3000L);
         }
     }
 
+    /** Releases the connection of a streamed response that is about to be retried. */
+    private static void discard(HttpResponse<?> resp) throws IOException {
+        if (resp.body() instanceof InputStream in) {
+            in.close();
+        }
+    }
+
     private Optional<Long> retryAfterMillis(HttpResponse<?> resp) {
         return resp.headers().firstValue("Retry-After").map(v -> {
             try { return Long.parseLong(v) * 1000L; } catch (NumberFormatException e) { return 0L; }
@@ -0,0 +1,246 @@
+package com.clockify.addon.sdk.http;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-host protection for outbound Clockify API calls: a {@link CircuitBreaker} that fails fast
+ * while the upstream is unhealthy, plus an {@link AdaptiveConcurrencyLimiter} that caps how many
+ * request threads may be waiting on that host at once.
+ *
+ * <p>A logical call (including its retries) is opened with {@link #begin()}. The breaker is
+ * consulted once per logical call and records one outcome for it; the concurrency limiter is
+ * consulted for every network attempt and is released during retry backoff sleeps.</p>
+ *
+ * <p>Guards are shared per host ({@code host[:port]}) via {@link #forUri(URI)} so that short-lived
+ * clients (one per webhook, for instance) still see a common view of upstream health. Tuning is
+ * read from system properties or environment variables:</p>
+ * <ul>
+ *   <li>{@code CLOCKIFY_OUTBOUND_BREAKER_WINDOW} (default 20 calls)</li>
+ *   <li>{@code CLOCKIFY_OUTBOUND_BREAKER_MIN_CALLS} (default 20 calls)</li>
+ *   <li>{@code CLOCKIFY_OUTBOUND_BREAKER_FAILURE_RATE} (default 0.5)</li>
+ *   <li>{@code CLOCKIFY_OUTBOUND_BREAKER_OPEN_SECONDS} (default 30)</li>
+ *   <li>{@code CLOCKIFY_OUTBOUND_CONCURRENCY_INITIAL} / {@code _MIN} / {@code _MAX} (default 20 / 2 / 200)</li>
+ *   <li>{@code CLOCKIFY_OUTBOUND_SLOW_CALL_MS} (default 5000)</li>
+ * </ul>
+ */
+public final class OutboundCallGuard {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundCallGuard.class);
+    private static final ConcurrentMap<String, OutboundCallGuard> GUARDS = new ConcurrentHashMap<>();
+
+    private final String host;
+    private final CircuitBreaker breaker;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public OutboundCallGuard(String host, CircuitBreaker breaker, AdaptiveConcurrencyLimiter limiter) {
+        this.host = host;
+        this.breaker = breaker;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Returns the shared guard for the URI's authority, creating it (and its gauges) on first use.
+     */
+    public static OutboundCallGuard forUri(URI uri) {
+        String authority = uri.getAuthority();
+        String key = authority == null ? "unknown" : authority.toLowerCase(Locale.ROOT);
+        return GUARDS.computeIfAbsent(key, OutboundCallGuard::createShared);
+    }
+
+    private static OutboundCallGuard createShared(String host) {
+        CircuitBreaker breaker = new CircuitBreaker(
+                EnvironmentInspector.intSetting("CLOCKIFY_OUTBOUND_BREAKER_WINDOW", 20),
+                EnvironmentInspector.intSetting("CLOCKIFY_OUTBOUND_BREAKER_MIN_CALLS", 20),
+                EnvironmentInspector.doubleSetting("CLOCKIFY_OUTBOUND_BREAKER_FAILURE_RATE", 0.5),
+                Duration.ofSeconds(EnvironmentInspector.intSetting("CLOCKIFY_OUTBOUND_BREAKER_OPEN_SECONDS", 30)),
+                1);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                EnvironmentInspector.intSetting("CLOCKIFY_OUTBOUND_CONCURRENCY_INITIAL", 20),
+                EnvironmentInspector.intSetting("CLOCKIFY_OUTBOUND_CONCURRENCY_MIN", 2),
+                EnvironmentInspector.intSetting("CLOCKIFY_OUTBOUND_CONCURRENCY_MAX", 200),
+                0.5,
+                Duration.ofMillis(EnvironmentInspector.intSetting("CLOCKIFY_OUTBOUND_SLOW_CALL_MS", 5000)));
+        OutboundCallGuard guard = new OutboundCallGuard(host, breaker, limiter);
+        guard.registerGauges(MetricsHandler.registry());
+        return guard;
+    }
+
+    private void registerGauges(MeterRegistry registry) {
+        Gauge.builder("clockify_outbound_circuit_state", breaker, b -> b.state().code())
+                .description("Outbound circuit breaker state (0=closed, 1=half_open, 2=open)")
+                .tag("host", host)
+                .register(registry);
+        Gauge.builder("clockify_outbound_failure_rate", breaker, CircuitBreaker::failureRate)
+                .description("Failure ratio of the outbound circuit breaker window")
+                .tag("host", host)
+                .register(registry);
+        Gauge.builder("clockify_outbound_concurrency_limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive concurrency limit for outbound calls")
+                .tag("host", host)
+                .register(registry);
+        Gauge.builder("clockify_outbound_inflight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Outbound calls currently in flight")
+                .tag("host", host)
+                .register(registry);
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    public AdaptiveConcurrencyLimiter limiter() {
+        return limiter;
+    }
+
+    /**
+     * Opens a logical call. Fails fast when the breaker is open (or HALF_OPEN with its probe
+     * already taken).
+     */
+    public Call begin() throws OutboundCallRejectedException {
+        if (!breaker.tryAcquirePermission()) {
+            reject(OutboundCallRejectedException.REASON_CIRCUIT_OPEN);
+        }
+        return new Call();
+    }
+
+    /**
+     * Convenience wrapper for a single, non-retried exchange. 5xx and transport errors count as
+     * failures, 429 as a throttle signal only.
+     */
+    public <T> HttpResponse<T> execute(Exchange<T> exchange) throws IOException, InterruptedException {
+        Call call = begin();
+        try {
+            call.startAttempt();
+            HttpResponse<T> response;
+            try {
+                response = exchange.send();
+            } catch (IOException e) {
+                call.attemptFailed();
+                call.complete(false);
+                throw e;
+            }
+            int code = response.statusCode();
+            if (code >= 500) {
+                call.attemptFailed();
+                call.complete(false);
+            } else if (code == 429) {
+                call.attemptFailed();
+                call.abandon();
+            } else {
+                call.attemptSucceeded();
+                call.complete(true);
+            }
+            return response;
+        } catch (InterruptedException | RuntimeException e) {
+            call.abandon();
+            throw e;
+        }
+    }
+
+    private void reject(String reason) throws OutboundCallRejectedException {
+        Counter.builder("clockify_outbound_rejected_total")
+                .description("Outbound calls refused locally by the circuit breaker or concurrency limiter")
+                .tag("host", host)
+                .tag("reason", reason)
+                .register(MetricsHandler.registry())
+                .increment();
+        logger.debug("Outbound call to {} rejected: {}", host, reason);
+        throw new OutboundCallRejectedException(host, reason);
+    }
+
+    /** A single network exchange guarded by {@link #execute(Exchange)}. */
+    @FunctionalInterface
+    public interface Exchange<T> {
+        HttpResponse<T> send() throws IOException, InterruptedException;
+    }
+
+    /**
+     * State for one logical call. Not thread-safe; owned by the calling thread.
+     */
+    public final class Call {
+        private boolean attemptActive;
+        private long attemptStartedAt;
+        private boolean completed;
+
+        private Call() {
+        }
+
+        /** Reserves a concurrency slot for one network attempt. */
+        public void startAttempt() throws OutboundCallRejectedException {
+            if (!limiter.tryAcquire()) {
+                abandon();
+                reject(OutboundCallRejectedException.REASON_CONCURRENCY_LIMIT);
+            }
+            attemptActive = true;
+            attemptStartedAt = System.nanoTime();
+        }
+
+        public void attemptSucceeded() {
+            if (attemptActive) {
+                attemptActive = false;
+                limiter.onSuccess(System.nanoTime() - attemptStartedAt);
+            }
+        }
+
+        /** Transport error, timeout, 429 or 5xx: the limiter backs off. */
+        public void attemptFailed() {
+            if (attemptActive) {
+                attemptActive = false;
+                limiter.onDropped();
+            }
+        }
+
+        /** @return {@code false} once the breaker has opened, so retry loops can stop early */
+        public boolean mayRetry() {
+            return breaker.state() != CircuitBreaker.State.OPEN;
+        }
+
+        /** Records the logical call's outcome with the breaker. */
+        public void complete(boolean success) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            releaseAttempt();
+            if (success) {
+                breaker.onSuccess();
+            } else {
+                breaker.onFailure();
+            }
+        }
+
+        /** Ends the call without recording an outcome (throttled, interrupted, rejected locally). */
+        public void abandon() {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            releaseAttempt();
+            breaker.releasePermission();
+        }
+
+        private void releaseAttempt() {
+            if (attemptActive) {
+                attemptActive = false;
+                limiter.onIgnored();
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.clockify.addon.sdk.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an outbound call is refused locally, before any bytes hit the network,
+ * because the host's circuit breaker is open, its concurrency limit is saturated, or the
+ * workspace's API quota did not free up in time.
+ */
+public class OutboundCallRejectedException extends IOException {
+    public static final String REASON_CIRCUIT_OPEN = "circuit_open";
+    public static final String REASON_CONCURRENCY_LIMIT = "concurrency_limit";
+    public static final String REASON_QUOTA_WAIT = "quota_wait";
+
+    private final String host;
+    private final String reason;
+
+    public OutboundCallRejectedException(String host, String reason) {
+        super("Outbound call to " + host + " rejected: " + reason);
+        this.host = host;
+        this.reason = reason;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public String reason() {
+        return reason;
+    }
+}
@@ -0,0 +1,196 @@
+package com.clockify.addon.sdk.http;
+
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lazily iterates over every element of a paginated Clockify list endpoint
+ * ({@code ?page=N&page-size=M}); see {@link ClockifyHttpClient#streamList}.
+ *
+ * <p>Each page is parsed element by element straight from the response stream, so only the
+ * current element is held as a tree, however many pages the list has. Once half of a page has
+ * been consumed, the next page is requested in the background, so its first bytes are usually
+ * waiting by the time the current page runs out. A page shorter than the page size is the last;
+ * when that page was prefetched speculatively, the extra response is discarded.</p>
+ *
+ * <p>Failures surface from {@link #hasNext()}/{@link #next()} as {@link UncheckedIOException}
+ * (a non-2xx status, a rejected call or malformed JSON). Close the iterator when stopping early so
+ * open responses are released; it closes itself after the last element.</p>
+ */
+public final class PagedListIterator implements Iterator<JsonNode>, Closeable {
+    private static final AtomicInteger prefetchThreads = new AtomicInteger();
+    private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "clockify-list-prefetch-" + prefetchThreads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Fetches one page, 1-based, with its body still unread. */
+    @FunctionalInterface
+    interface PageFetcher {
+        HttpResponse<InputStream> fetch(int page) throws Exception;
+    }
+
+    private final PageFetcher fetcher;
+    private final String description;
+    private final int pageSize;
+    private final int prefetchAt;
+    private int page;
+    private int readOnPage;
+    private JsonParser parser;
+    private CompletableFuture<HttpResponse<InputStream>> prefetched;
+    private JsonNode next;
+    private boolean finished;
+
+    PagedListIterator(PageFetcher fetcher, String description, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.fetcher = fetcher;
+        this.description = description;
+        this.pageSize = pageSize;
+        this.prefetchAt = Math.max(1, pageSize / 2);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = advance();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public JsonNode next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JsonNode element = next;
+        next = null;
+        return element;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        closeParser();
+        CompletableFuture<HttpResponse<InputStream>> pending = prefetched;
+        prefetched = null;
+        if (pending != null) {
+            pending.cancel(true);
+            pending.whenComplete((resp, error) -> discard(resp));
+        }
+    }
+
+    private JsonNode advance() throws IOException {
+        while (true) {
+            if (parser == null) {
+                if (page > 0 && readOnPage < pageSize) {
+                    close();
+                    return null;
+                }
+                openPage(page + 1);
+            }
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                closeParser();
+                continue;
+            }
+            JsonNode element = parser.readValueAsTree();
+            readOnPage++;
+            if (readOnPage == prefetchAt && prefetched == null) {
+                int following = page + 1;
+                prefetched = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return fetcher.fetch(following);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, PREFETCH);
+            }
+            return element;
+        }
+    }
+
+    private void openPage(int number) throws IOException {
+        HttpResponse<InputStream> resp;
+        CompletableFuture<HttpResponse<InputStream>> pending = prefetched;
+        prefetched = null;
+        try {
+            resp = pending != null ? pending.get() : fetcher.fetch(number);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted listing " + description);
+        } catch (ExecutionException | CancellationException e) {
+            throw asIOException(e.getCause() != null ? e.getCause() : e);
+        } catch (Exception e) {
+            throw asIOException(e);
+        }
+        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+            String error;
+            try (InputStream body = resp.body()) {
+                error = new String(body.readNBytes(512), StandardCharsets.UTF_8);
+            }
+            throw new IOException("Clockify API status " + resp.statusCode() + " listing " + description + ": " + error);
+        }
+        page = number;
+        readOnPage = 0;
+        parser = JsonCodec.createParser(resp.body());
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            closeParser();
+            throw new IOException("Expected a JSON array listing " + description);
+        }
+    }
+
+    private void closeParser() {
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // the page is being abandoned anyway
+            }
+            parser = null;
+        }
+    }
+
+    private static void discard(HttpResponse<InputStream> resp) {
+        if (resp != null) {
+            try {
+                resp.body().close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+
+    private static IOException asIOException(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+    }
+}
@@ -0,0 +1,270 @@
+package com.clockify.addon.sdk.http;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces outbound Clockify API calls per workspace so they stay under the API's rate limit
+ * instead of discovering it through 429s.
+ *
+ * <p>Each workspace has a token bucket refilled at {@code permitsPerSecond} up to {@code burst}.
+ * A call takes one token per network attempt with {@link #acquire}; when the bucket is empty the
+ * caller waits in line rather than failing. Waiting {@link Priority#URGENT} calls (writes) are
+ * served before {@link Priority#BACKGROUND} ones (reads), FIFO within a priority. If a 429 gets
+ * through anyway (another replica, a different client), {@link #throttled} empties the bucket
+ * and holds every caller for that workspace until the {@code Retry-After} has passed, instead of
+ * each thread sleeping on its own and retrying at once.</p>
+ *
+ * <p>A call that cannot get a token within {@code maxWait} fails with
+ * {@link OutboundCallRejectedException} ({@code quota_wait}). Calls without a workspace are not
+ * paced. Metrics: {@code clockify_outbound_quota_wait_seconds{priority}},
+ * {@code clockify_outbound_quota_queued} and {@code clockify_outbound_throttled_total}.</p>
+ *
+ * <p>{@link #shared()} is configured from system properties or environment variables:</p>
+ * <ul>
+ *   <li>{@code CLOCKIFY_OUTBOUND_WORKSPACE_RPS} (default 40, under the API's 50 per workspace; 0 disables pacing)</li>
+ *   <li>{@code CLOCKIFY_OUTBOUND_WORKSPACE_BURST} (default: the rate)</li>
+ *   <li>{@code CLOCKIFY_OUTBOUND_QUOTA_MAX_WAIT_MS} (default 30000)</li>
+ * </ul>
+ */
+public final class WorkspaceQuotaScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(WorkspaceQuotaScheduler.class);
+    private static final String RPS_SETTING = "CLOCKIFY_OUTBOUND_WORKSPACE_RPS";
+    private static final long IDLE_EXPIRY_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int SWEEP_EVERY = 1024;
+    private static volatile WorkspaceQuotaScheduler shared;
+
+    /** Order in which waiting calls get tokens. */
+    public enum Priority {
+        URGENT, BACKGROUND;
+
+        /** Writes are urgent, reads can wait. */
+        public static Priority of(String method) {
+            return method == null || "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method)
+                    ? BACKGROUND : URGENT;
+        }
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final double permitsPerNano;
+    private final double burst;
+    private final long maxWaitNanos;
+    private final ConcurrentHashMap<String, Quota> quotas = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final Timer[] waits = new Timer[Priority.values().length];
+    private final Counter throttles;
+
+    /**
+     * @param permitsPerSecond sustained calls per second per workspace; 0 disables pacing
+     * @param burst            calls a workspace may make at once after being idle
+     */
+    public WorkspaceQuotaScheduler(double permitsPerSecond, double burst, Duration maxWait) {
+        if (permitsPerSecond < 0 || (permitsPerSecond > 0 && burst < 1)) {
+            throw new IllegalArgumentException("rate must not be negative and burst must be at least 1");
+        }
+        this.permitsPerNano = permitsPerSecond / 1e9;
+        this.burst = burst;
+        this.maxWaitNanos = maxWait.toNanos();
+        for (Priority priority : Priority.values()) {
+            waits[priority.ordinal()] = Timer.builder("clockify_outbound_quota_wait_seconds")
+                    .description("Time outbound calls waited for their workspace's API quota")
+                    .tag("priority", priority.tag())
+                    .register(MetricsHandler.registry());
+        }
+        this.throttles = Counter.builder("clockify_outbound_throttled_total")
+                .description("429 responses received from the Clockify API")
+                .register(MetricsHandler.registry());
+        Gauge.builder("clockify_outbound_quota_queued", queued, AtomicInteger::get)
+                .description("Outbound calls waiting for workspace API quota")
+                .register(MetricsHandler.registry());
+    }
+
+    /** The process-wide scheduler shared by every client, configured from the environment. */
+    public static WorkspaceQuotaScheduler shared() {
+        WorkspaceQuotaScheduler scheduler = shared;
+        if (scheduler == null) {
+            synchronized (WorkspaceQuotaScheduler.class) {
+                scheduler = shared;
+                if (scheduler == null) {
+                    double rps = pacingDisabled() ? 0 : EnvironmentInspector.doubleSetting(RPS_SETTING, 40);
+                    double burst = EnvironmentInspector.doubleSetting("CLOCKIFY_OUTBOUND_WORKSPACE_BURST", Math.max(1, rps));
+                    long maxWaitMs = EnvironmentInspector.longSetting("CLOCKIFY_OUTBOUND_QUOTA_MAX_WAIT_MS", 30_000);
+                    scheduler = new WorkspaceQuotaScheduler(rps, Math.max(1, burst), Duration.ofMillis(maxWaitMs));
+                    shared = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /** {@code CLOCKIFY_OUTBOUND_WORKSPACE_RPS=0}, which the positive-number helper would reject. */
+    private static boolean pacingDisabled() {
+        String raw = EnvironmentInspector.setting(RPS_SETTING);
+        try {
+            return raw != null && Double.parseDouble(raw.trim()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Workspace id of a Clockify API URI ({@code .../workspaces/{id}/...}), or {@code null}.
+     */
+    public static String workspaceOf(URI uri) {
+        String path = uri == null ? null : uri.getPath();
+        if (path == null) {
+            return null;
+        }
+        int idx = path.indexOf("/workspaces/");
+        if (idx < 0) {
+            return null;
+        }
+        int start = idx + "/workspaces/".length();
+        int end = path.indexOf('/', start);
+        String id = end < 0 ? path.substring(start) : path.substring(start, end);
+        return id.isEmpty() ? null : id;
+    }
+
+    /**
+     * Waits until {@code workspaceId} may make one more call.
+     *
+     * @throws OutboundCallRejectedException if no token became available within the wait limit
+     */
+    public void acquire(String workspaceId, Priority priority) throws InterruptedException, OutboundCallRejectedException {
+        if (workspaceId == null || permitsPerNano == 0) {
+            return;
+        }
+        if (acquisitions.incrementAndGet() % SWEEP_EVERY == 0) {
+            sweep();
+        }
+        long start = System.nanoTime();
+        Quota quota = quotas.computeIfAbsent(workspaceId, k -> new Quota(start));
+        synchronized (quota) {
+            quota.lastUsed = start;
+            if (quota.urgent.isEmpty() && quota.background.isEmpty() && quota.tryTake(start)) {
+                waits[priority.ordinal()].record(0, TimeUnit.NANOSECONDS);
+                return;
+            }
+            Object ticket = new Object();
+            ArrayDeque<Object> line = priority == Priority.URGENT ? quota.urgent : quota.background;
+            line.addLast(ticket);
+            queued.incrementAndGet();
+            try {
+                long deadline = start + maxWaitNanos;
+                while (true) {
+                    long now = System.nanoTime();
+                    boolean next = quota.next() == ticket;
+                    if (next && quota.tryTake(now)) {
+                        waits[priority.ordinal()].record(now - start, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                    long remaining = deadline - now;
+                    if (remaining <= 0) {
+                        logger.warn("Gave up waiting {} ms for workspace API quota", TimeUnit.NANOSECONDS.toMillis(now - start));
+                        throw new OutboundCallRejectedException("workspace " + workspaceId, OutboundCallRejectedException.REASON_QUOTA_WAIT);
+                    }
+                    long wait = next ? Math.min(quota.nanosUntilToken(now), remaining) : remaining;
+                    TimeUnit.NANOSECONDS.timedWait(quota, Math.max(wait, TimeUnit.MICROSECONDS.toNanos(100)));
+                }
+            } finally {
+                line.remove(ticket);
+                queued.decrementAndGet();
+                quota.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Records a 429 for {@code workspaceId}: no call for it starts again before {@code retryAfter}.
+     */
+    public void throttled(String workspaceId, Duration retryAfter) {
+        throttles.increment();
+        if (workspaceId == null || permitsPerNano == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        Quota quota = quotas.computeIfAbsent(workspaceId, k -> new Quota(now));
+        synchronized (quota) {
+            long until = now + Math.max(0, retryAfter.toNanos());
+            quota.tokens = 0;
+            quota.refilledAt = Math.max(quota.refilledAt, until);
+            quota.notifyAll();
+        }
+    }
+
+    /** Whether calls are paced at all ({@code false} when the rate is 0). */
+    public boolean enabled() {
+        return permitsPerNano > 0;
+    }
+
+    /** Calls currently waiting for quota, across workspaces. */
+    public int queued() {
+        return queued.get();
+    }
+
+    /** Drops idle workspaces whose buckets are full again. */
+    private void sweep() {
+        long now = System.nanoTime();
+        quotas.forEach((workspaceId, quota) -> {
+            synchronized (quota) {
+                if (quota.urgent.isEmpty() && quota.background.isEmpty() && now - quota.lastUsed > IDLE_EXPIRY_NANOS) {
+                    quotas.remove(workspaceId, quota);
+                }
+            }
+        });
+    }
+
+    /** Token bucket and waiting line of one workspace; guarded by its own monitor. */
+    private final class Quota {
+        final ArrayDeque<Object> urgent = new ArrayDeque<>();
+        final ArrayDeque<Object> background = new ArrayDeque<>();
+        double tokens;
+        long refilledAt;
+        long lastUsed;
+
+        Quota(long now) {
+            this.tokens = burst;
+            this.refilledAt = now;
+            this.lastUsed = now;
+        }
+
+        Object next() {
+            return urgent.isEmpty() ? background.peekFirst() : urgent.peekFirst();
+        }
+
+        boolean tryTake(long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+                refilledAt = now;
+            }
+            if (now < refilledAt || tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        long nanosUntilToken(long now) {
+            long pause = Math.max(0, refilledAt - now);
+            return pause + (long) Math.ceil(Math.max(0, 1 - tokens) / permitsPerNano);
+        }
+    }
+}
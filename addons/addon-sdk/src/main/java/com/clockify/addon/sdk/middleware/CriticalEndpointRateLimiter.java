@@ -1,9 +1,9 @@
 package com.clockify.addon.sdk.middleware;
 
+import com.clockify.addon.sdk.ratelimit.LeasingRateLimiter;
+import com.clockify.addon.sdk.ratelimit.SharedRateLimitBackend;
+import com.clockify.addon.sdk.ratelimit.StripedTokenBucketLimiter;
 import com.clockify.addon.sdk.security.AuditLogger;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,8 +11,10 @@ import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * SECURITY: Mandatory rate limiting for critical endpoints (lifecycle, webhooks, token operations).
@@ -27,6 +29,18 @@ import java.util.concurrent.TimeUnit;
  * - Resource exhaustion from event floods
  *
  * Fail-closed: If rate limiter initialization fails, requests are BLOCKED (security-first approach).
+ *
+ * Each scope has its own lock-free {@link StripedTokenBucketLimiter} keyed by identifier, so the hot
+ * path allocates no composite key. Rejections are always counted but audit-logged at most once per
+ * identifier per sampling window, with the number of suppressed rejections attached.
+ *
+ * Limits are per replica by default. Pass a {@link SharedRateLimitBackend} to enforce them
+ * cluster-wide: each replica then leases permits in batches from the shared store.
+ *
+ * This filter runs before any signature or token check, so the workspace it keys by is only the
+ * unauthenticated {@link RequestContext#workspaceHint()}. The hint is used only when it has the
+ * shape of a workspace id (at most 64 characters of letters, digits, '-' and '_'); anything else
+ * is keyed by client IP, so a caller cannot mint arbitrarily long or shaped keys in the shared store.
  */
 public class CriticalEndpointRateLimiter implements Filter {
     private static final Logger logger = LoggerFactory.getLogger(CriticalEndpointRateLimiter.class);
@@ -40,7 +54,10 @@ public class CriticalEndpointRateLimiter implements Filter {
     // Default catch-all for other sensitive paths
     private static final double DEFAULT_PERMITS_PER_SECOND = 0.5;    // 1 per 2 seconds
 
-    private final LoadingCache<LimiterKey, com.google.common.util.concurrent.RateLimiter> limiters;
+    private static final Pattern WORKSPACE_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Map<Scope, StripedTokenBucketLimiter> limiters = new EnumMap<>(Scope.class);
+    private final Map<Scope, LeasingRateLimiter> sharedLimiters = new EnumMap<>(Scope.class);
     private final boolean failClosed;
 
     /**
@@ -50,20 +67,27 @@ public class CriticalEndpointRateLimiter implements Filter {
      *                   If false, allow requests (fail-open, less secure).
      */
     public CriticalEndpointRateLimiter(boolean failClosed) {
+        this(failClosed, null);
+    }
+
+    /**
+     * Creates a critical endpoint rate limiter whose limits are shared across replicas.
+     *
+     * @param failClosed If true, block requests when rate limiter fails (security-first).
+     * @param backend    Shared store for cluster-wide limits, or {@code null} for per-replica limits.
+     */
+    public CriticalEndpointRateLimiter(boolean failClosed, SharedRateLimitBackend backend) {
         this.failClosed = failClosed;
-        this.limiters = CacheBuilder.newBuilder()
-                .expireAfterAccess(10, TimeUnit.MINUTES)
-                .maximumSize(5000)  // Smaller cache for critical paths
-                .build(new CacheLoader<LimiterKey, com.google.common.util.concurrent.RateLimiter>() {
-                    @Override
-                    public com.google.common.util.concurrent.RateLimiter load(LimiterKey key) {
-                        double rate = getPermitRate(key.scope());
-                        logger.debug("Creating critical endpoint rate limiter for: {} ({}) -> {} permits/sec",
-                                key.identifier(), key.scope(), rate);
-                        return com.google.common.util.concurrent.RateLimiter.create(rate);
-                    }
-                });
-        logger.info("Critical endpoint rate limiter initialized (fail-closed: {})", failClosed);
+        for (Scope scope : Scope.values()) {
+            double rate = getPermitRate(scope);
+            // Smaller table for critical paths; one second of burst like the previous limiter
+            limiters.put(scope, new StripedTokenBucketLimiter(rate, rate, Duration.ofMinutes(10), 5000));
+            if (backend != null) {
+                sharedLimiters.put(scope, new LeasingRateLimiter(backend, "critical:" + scope.name().toLowerCase(),
+                        rate, rate, LeasingRateLimiter.defaultLeaseSize(rate), Duration.ofSeconds(1)));
+            }
+        }
+        logger.info("Critical endpoint rate limiter initialized (fail-closed: {}, shared: {})", failClosed, backend != null);
     }
 
     /**
@@ -96,26 +120,33 @@ public class CriticalEndpointRateLimiter implements Filter {
         String identifier = getIdentifier(httpRequest);
 
         try {
-            LimiterKey limiterKey = new LimiterKey(scope, identifier);
-            com.google.common.util.concurrent.RateLimiter limiter = limiters.get(limiterKey);
-            double permitsPerSecond = getPermitRate(scope);
+            StripedTokenBucketLimiter limiter = limiters.get(scope);
+            StripedTokenBucketLimiter.Bucket bucket = limiter.bucket(identifier);
 
-            if (limiter.tryAcquire()) {
+            LeasingRateLimiter shared = sharedLimiters.get(scope);
+            boolean allowed = shared != null ? shared.tryAcquire(identifier) : limiter.tryAcquire(bucket);
+
+            if (allowed) {
                 // Request allowed
                 chain.doFilter(request, response);
             } else {
-                // Rate limit exceeded - log audit event
-                logger.warn("CRITICAL: Rate limit exceeded for path: {} identifier: {}", path, identifier);
-                AuditLogger.log(AuditLogger.AuditEvent.RATE_LIMIT_EXCEEDED)
-                        .clientIp(identifier)
-                        .detail("path", path)
-                        .detail("scope", scope.name())
-                        .detail("limit_permits_sec", permitsPerSecond)
-                        .error();
+                double permitsPerSecond = limiter.permitsPerSecond();
+                long suppressed = limiter.sampleRejection(bucket);
+                if (suppressed >= 0) {
+                    // Rate limit exceeded - log audit event (sampled per identifier)
+                    logger.warn("CRITICAL: Rate limit exceeded for path: {} identifier: {}", path, identifier);
+                    AuditLogger.log(AuditLogger.AuditEvent.RATE_LIMIT_EXCEEDED)
+                            .clientIp(identifier)
+                            .detail("path", path)
+                            .detail("scope", scope.name())
+                            .detail("limit_permits_sec", permitsPerSecond)
+                            .detail("suppressed_since_last", suppressed)
+                            .error();
+                }
                 sendRateLimitError(httpResponse, permitsPerSecond);
             }
 
-        } catch (ExecutionException e) {
+        } catch (RuntimeException e) {
             logger.error("CRITICAL: Error in rate limiter for path: {} identifier: {}", path, identifier, e);
 
             if (failClosed) {
@@ -163,45 +194,11 @@ public class CriticalEndpointRateLimiter implements Filter {
     /**
      * Gets the identifier for rate limiting (workspace ID preferred).
      */
-    private String getIdentifier(HttpServletRequest request) {
-        // Try to get workspace ID from header (preferred)
-        String workspaceId = request.getHeader("X-Workspace-Id");
-        if (workspaceId != null && !workspaceId.isEmpty()) {
-            return workspaceId;
-        }
-
-        // Try to extract from path
-        String path = request.getRequestURI();
-        if (path.contains("workspace/")) {
-            String[] parts = path.split("/");
-            for (int i = 0; i < parts.length - 1; i++) {
-                if ("workspace".equals(parts[i]) && i + 1 < parts.length) {
-                    return parts[i + 1];
-                }
-            }
-        }
-
-        // Fallback to IP address
-        return getClientIp(request);
-    }
-
-    /**
-     * Gets client IP, accounting for proxies.
-     */
-    private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("X-Real-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
-        }
-
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
-        }
-
-        return ip != null ? ip : "unknown";
+    static String getIdentifier(HttpServletRequest request) {
+        // Well-formed workspace ID from header or path, falling back to IP address
+        RequestContext context = RequestContext.of(request);
+        String workspaceId = context.workspaceHint();
+        return workspaceId != null && WORKSPACE_ID.matcher(workspaceId).matches() ? workspaceId : context.clientIp();
     }
 
     /**
@@ -231,12 +228,10 @@ public class CriticalEndpointRateLimiter implements Filter {
 
     @Override
     public void destroy() {
-        limiters.invalidateAll();
+        limiters.values().forEach(StripedTokenBucketLimiter::clear);
         logger.info("Critical endpoint rate limiter destroyed");
     }
 
-    private record LimiterKey(Scope scope, String identifier) { }
-
     private enum Scope {
         LIFECYCLE,
         WEBHOOK
@@ -246,9 +241,14 @@ public class CriticalEndpointRateLimiter implements Filter {
      * Returns cache statistics for monitoring.
      */
     public String getStats() {
-        return String.format("Critical rate limiter - Size: %d, Hits: %d, Misses: %d",
-                limiters.size(),
-                limiters.stats().hitCount(),
-                limiters.stats().missCount());
+        long size = 0;
+        long hits = 0;
+        long misses = 0;
+        for (StripedTokenBucketLimiter limiter : limiters.values()) {
+            size += limiter.size();
+            hits += limiter.hitCount();
+            misses += limiter.missCount();
+        }
+        return String.format("Critical rate limiter - Size: %d, Hits: %d, Misses: %d", size, hits, misses);
     }
 }
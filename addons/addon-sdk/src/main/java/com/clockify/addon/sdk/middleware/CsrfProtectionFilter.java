@@ -1,6 +1,10 @@
 package com.clockify.addon.sdk.middleware;
 
 import com.clockify.addon.sdk.security.AuditLogger;
+import com.clockify.addon.sdk.security.CsrfTokenSigner;
+import com.clockify.addon.sdk.security.jwt.AuthTokenVerifier;
+import com.clockify.addon.sdk.security.jwt.JwtVerifier;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,7 +16,6 @@ import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.Base64;
-import java.util.Set;
 
 /**
  * SECURITY: CSRF (Cross-Site Request Forgery) protection filter.
@@ -31,12 +34,21 @@ import java.util.Set;
  * - Tokens must be provided via header (X-CSRF-Token) or parameter (__csrf)
  * - Webhook endpoints automatically bypass CSRF (they use signature validation)
  *
+ * Stateless mode ({@code ADDON_CSRF_MODE=stateless}, or a {@link CsrfTokenSigner} passed in)
+ * needs no HttpSession: tokens are HMAC-signed by {@link CsrfTokenSigner}, bound to the workspace
+ * and user of the request's <em>verified</em> platform JWT, and validated on any replica sharing
+ * {@code ADDON_CSRF_SECRET}. The JWT is taken from a {@link VerifiedPrincipal} already published on
+ * the request, or verified here with the {@link AuthTokenVerifier} the filter was given. The token
+ * is issued as a cookie (and echoed in the X-CSRF-Token response header) on safe requests that
+ * carry a verified JWT; state-changing requests must send it back in the header or parameter and
+ * in the cookie (double submit), and are rejected when the request has no verified JWT.
+ *
  * Note: Clockify webhooks are NOT vulnerable to CSRF because they:
  * 1. Use HMAC-SHA256 signatures (cryptographic authentication)
  * 2. Require specific content-type headers
  * 3. Cannot be triggered by browser form submissions
  */
-public class CsrfProtectionFilter implements Filter {
+public class CsrfProtectionFilter implements Filter, FilterPipeline.RouteAware {
     private static final Logger logger = LoggerFactory.getLogger(CsrfProtectionFilter.class);
 
     private static final String CSRF_TOKEN_ATTR = "_csrf_token";
@@ -57,13 +69,8 @@ public class CsrfProtectionFilter implements Filter {
 
     private final SecureRandom random = new SecureRandom();
     private final String sameSiteAttribute;
-
-    private static final Set<String> EXEMPT_PREFIXES = Set.of(
-            "/webhook",
-            "/lifecycle",
-            "/health",
-            "/actuator"
-    );
+    private final CsrfTokenSigner signer;
+    private final AuthTokenVerifier tokenVerifier;
 
     private static final String[] SIGNATURE_HEADERS = {
             "clockify-webhook-signature",
@@ -73,11 +80,59 @@ public class CsrfProtectionFilter implements Filter {
     };
 
     public CsrfProtectionFilter() {
-        this(System.getenv().getOrDefault("ADDON_CSRF_SAMESITE", "None"));
+        this(defaultSameSite(),
+                "stateless".equalsIgnoreCase(System.getenv("ADDON_CSRF_MODE")) ? CsrfTokenSigner.fromEnvironment() : null);
     }
 
     public CsrfProtectionFilter(String sameSiteAttribute) {
+        this(sameSiteAttribute, null);
+    }
+
+    /**
+     * @param signer enables stateless tokens; {@code null} keeps tokens in the HttpSession
+     */
+    public CsrfProtectionFilter(String sameSiteAttribute, CsrfTokenSigner signer) {
+        this(sameSiteAttribute, signer, null);
+    }
+
+    /**
+     * @param signer        enables stateless tokens; {@code null} keeps tokens in the HttpSession
+     * @param tokenVerifier verifies the platform JWT that stateless tokens are bound to, when no
+     *                      earlier filter has published a {@link VerifiedPrincipal}
+     */
+    public CsrfProtectionFilter(String sameSiteAttribute, CsrfTokenSigner signer, AuthTokenVerifier tokenVerifier) {
         this.sameSiteAttribute = normalizeSameSite(sameSiteAttribute);
+        this.signer = signer;
+        this.tokenVerifier = tokenVerifier;
+    }
+
+    /**
+     * Stateless filter configured from the environment; never touches the HttpSession.
+     */
+    public static CsrfProtectionFilter stateless() {
+        return stateless(null);
+    }
+
+    /**
+     * Stateless filter configured from the environment that verifies the platform JWT with
+     * {@code tokenVerifier}.
+     */
+    public static CsrfProtectionFilter stateless(AuthTokenVerifier tokenVerifier) {
+        return new CsrfProtectionFilter(defaultSameSite(), CsrfTokenSigner.fromEnvironment(), tokenVerifier);
+    }
+
+    /**
+     * Environment-configured filter (session or stateless per {@code ADDON_CSRF_MODE}) that binds
+     * stateless tokens to JWTs verified with {@code tokenVerifier}.
+     */
+    public static CsrfProtectionFilter fromEnvironment(AuthTokenVerifier tokenVerifier) {
+        return "stateless".equalsIgnoreCase(System.getenv("ADDON_CSRF_MODE"))
+                ? stateless(tokenVerifier)
+                : new CsrfProtectionFilter(defaultSameSite(), null, tokenVerifier);
+    }
+
+    public boolean isStateless() {
+        return signer != null;
     }
 
     @Override
@@ -107,6 +162,11 @@ public class CsrfProtectionFilter implements Filter {
 
         logger.debug("CSRF filter processing {} {} from {}", method, path, getClientIp(httpRequest));
 
+        if (signer != null) {
+            doFilterStateless(httpRequest, httpResponse, chain, method, path);
+            return;
+        }
+
         if (isExempt(httpRequest, path, method)) {
             logger.debug("CSRF check exempted for path: {}", path);
             chain.doFilter(request, response);
@@ -151,6 +211,118 @@ public class CsrfProtectionFilter implements Filter {
         chain.doFilter(request, response);
     }
 
+    private void doFilterStateless(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                                   String method, String path) throws IOException, ServletException {
+        if (path == null || isExemptRoute(request) || hasSignatureHeader(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String subject = bindingSubject(request);
+        String cookieToken = readCookie(request);
+        if (isSafeMethod(method)) {
+            // Tokens are only minted for a verified caller; anonymous pages get none.
+            if (!subject.isEmpty() && !signer.verify(cookieToken, subject)) {
+                String token = signer.issue(subject);
+                sendTokenCookie(response, request, token);
+                response.setHeader(CSRF_HEADER, token);
+                AuditLogger.log(AuditLogger.AuditEvent.CSRF_TOKEN_GENERATED)
+                        .clientIp(getClientIp(request))
+                        .detail("path", path)
+                        .detail("mode", "stateless")
+                        .info();
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String providedToken = extractCsrfToken(request);
+        boolean valid = !subject.isEmpty()
+                && providedToken != null
+                && cookieToken != null
+                && constantTimeEquals(cookieToken, providedToken)
+                && signer.verify(providedToken, subject);
+        if (!valid) {
+            logger.warn("SECURITY: CSRF token validation failed for {} {} from {}",
+                    method, path, getClientIp(request));
+            AuditLogger.log(AuditLogger.AuditEvent.CSRF_TOKEN_INVALID)
+                    .clientIp(getClientIp(request))
+                    .detail("path", path)
+                    .detail("method", method)
+                    .detail("mode", "stateless")
+                    .error();
+            sendCsrfError(response);
+            return;
+        }
+
+        AuditLogger.log(AuditLogger.AuditEvent.CSRF_TOKEN_VALIDATED)
+                .clientIp(getClientIp(request))
+                .detail("path", path)
+                .detail("method", method)
+                .info();
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * {@code workspace|user} of the request's verified platform JWT, or {@code ""} when the request
+     * has none (no token, a token that fails verification, or no verifier configured). Unverified
+     * claims are never used: a client could otherwise name any subject and be handed a valid token.
+     */
+    private String bindingSubject(HttpServletRequest request) {
+        JsonNode payload = VerifiedPrincipal.current(request).map(VerifiedPrincipal::payload).orElse(null);
+        if (payload == null) {
+            String jwt = extractJwt(request);
+            if (jwt == null || tokenVerifier == null) {
+                return "";
+            }
+            try {
+                payload = VerifiedPrincipal.verify(request, jwt, tokenVerifier).payload();
+            } catch (JwtVerifier.JwtVerificationException e) {
+                return "";
+            }
+        }
+        String workspace = text(payload, "workspaceId", "workspace_id", "wid");
+        String user = text(payload, "user", "userId", "user_id", "uid", "sub");
+        return workspace.isEmpty() || user.isEmpty() ? "" : workspace + "|" + user;
+    }
+
+    private static String extractJwt(HttpServletRequest request) {
+        for (String name : new String[]{"auth_token", "token", "jwt"}) {
+            String value = request.getParameter(name);
+            if (value != null && !value.isBlank()) {
+                return value.trim();
+            }
+        }
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7).trim();
+        }
+        return null;
+    }
+
+    private static String text(JsonNode payload, String... fields) {
+        for (String field : fields) {
+            JsonNode node = payload.get(field);
+            if (node != null && node.isValueNode() && !node.asText().isBlank()) {
+                return node.asText();
+            }
+        }
+        return "";
+    }
+
+    private static String readCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (CSRF_COOKIE_NAME.equals(cookie.getName()) && cookie.getValue() != null && !cookie.getValue().isEmpty()) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
     /**
      * Gets existing CSRF token from session, or creates a new one.
      */
@@ -222,10 +394,8 @@ public class CsrfProtectionFilter implements Filter {
 
     private boolean isExempt(HttpServletRequest request, String path, String method) {
         if (path == null) return true;
-        for (String prefix : EXEMPT_PREFIXES) {
-            if (path.startsWith(prefix)) {
-                return true;
-            }
+        if (isExemptRoute(request)) {
+            return true;
         }
         if (hasSignatureHeader(request)) {
             return true;
@@ -233,6 +403,22 @@ public class CsrfProtectionFilter implements Filter {
         return isSafeMethod(method);
     }
 
+    /**
+     * Exemption is decided by the request's route class, so this filter never acts outside
+     * {@link FilterPipeline.Route#OTHER}.
+     */
+    @Override
+    public boolean appliesTo(FilterPipeline.Route route) {
+        return route == FilterPipeline.Route.OTHER;
+    }
+
+    /**
+     * Webhook, lifecycle, health and actuator routes (see {@link PathClassifier}) are exempt.
+     */
+    private static boolean isExemptRoute(HttpServletRequest request) {
+        return RequestContext.of(request).route() != FilterPipeline.Route.OTHER;
+    }
+
     private boolean hasSignatureHeader(HttpServletRequest request) {
         for (String header : SIGNATURE_HEADERS) {
             if (request.getHeader(header) != null) {
@@ -280,7 +466,7 @@ public class CsrfProtectionFilter implements Filter {
             cookie.setPath("/");
             cookie.setHttpOnly(false); // exposed to JS for double-submit header
             cookie.setSecure(secure);
-            cookie.setMaxAge(-1);
+            cookie.setMaxAge(signer != null ? (int) signer.ttl().toSeconds() : -1);
             cookie.setAttribute("SameSite", sameSiteAttribute);
             response.addCookie(cookie);
             logger.debug("Added CSRF cookie via Cookie object: {}", cookie.getValue());
@@ -290,6 +476,9 @@ public class CsrfProtectionFilter implements Filter {
         // Fallback for Servlet containers that do not support Cookie#setAttribute (Servlet <= 5)
         StringBuilder sb = new StringBuilder();
         sb.append(CSRF_COOKIE_NAME).append("=").append(token).append("; Path=/");
+        if (signer != null) {
+            sb.append("; Max-Age=").append(signer.ttl().toSeconds());
+        }
         if (secure) {
             sb.append("; Secure");
         }
@@ -298,6 +487,10 @@ public class CsrfProtectionFilter implements Filter {
         logger.debug("Added CSRF cookie via Set-Cookie header: {}", sb.toString());
     }
 
+    private static String defaultSameSite() {
+        return System.getenv().getOrDefault("ADDON_CSRF_SAMESITE", "None");
+    }
+
     private static String normalizeSameSite(String value) {
         if (value == null) {
             return "None";
@@ -330,19 +523,7 @@ public class CsrfProtectionFilter implements Filter {
     }
 
     private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty()) {
-            ip = request.getHeader("X-Real-IP");
-        }
-        if (ip == null || ip.isEmpty()) {
-            ip = request.getRemoteAddr();
-        }
-
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
-        }
-
-        return ip != null ? ip : "unknown";
+        return RequestContext.of(request).clientIp();
     }
 
     private String requestPath(HttpServletRequest request) {
@@ -10,17 +10,36 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.MDC;
 
 import java.io.IOException;
-import java.util.UUID;
 
 /**
  * Populates SLF4J MDC with request-scoped metadata (requestId, workspaceId, userId).
  * Also ensures the requestId is propagated via the {@code X-Request-Id} header.
+ * <p>
+ * This is the single request-context stage: it resolves the request id (incoming header or a
+ * new time-ordered id), client IP, workspace hint and route class once and publishes them as a
+ * {@link RequestContext} that downstream filters read. The response header is set before the
+ * chain runs and re-applied afterwards if a handler reset the response, which covers what
+ * {@link RequestIdPropagationFilter} used to do as a separate filter.
+ * </p>
  */
 public class DiagnosticContextFilter implements Filter {
     public static final String REQUEST_ID_ATTR = "clockify.requestId";
     public static final String WORKSPACE_ID_ATTR = "clockify.workspaceId";
     public static final String USER_ID_ATTR = "clockify.userId";
-    private static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final String REQUEST_ID_HEADER = RequestContext.REQUEST_ID_HEADER;
+
+    private final PathClassifier classifier;
+
+    public DiagnosticContextFilter() {
+        this(PathClassifier.defaults());
+    }
+
+    /**
+     * @param classifier route classifier for the published context, e.g. {@link PathClassifier#forAddon}
+     */
+    public DiagnosticContextFilter(PathClassifier classifier) {
+        this.classifier = classifier;
+    }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -31,7 +50,7 @@ public class DiagnosticContextFilter implements Filter {
             return;
         }
 
-        String requestId = resolveRequestId(httpRequest);
+        String requestId = RequestContext.of(httpRequest, classifier).requestId();
         MDC.put("requestId", requestId);
         httpRequest.setAttribute(REQUEST_ID_ATTR, requestId);
         httpResponse.setHeader(REQUEST_ID_HEADER, requestId);
@@ -39,17 +58,12 @@ public class DiagnosticContextFilter implements Filter {
         try {
             chain.doFilter(request, response);
         } finally {
+            if (httpResponse.getHeader(REQUEST_ID_HEADER) == null) {
+                httpResponse.setHeader(REQUEST_ID_HEADER, requestId);
+            }
             MDC.remove("requestId");
             MDC.remove("workspaceId");
             MDC.remove("userId");
         }
     }
-
-    private String resolveRequestId(HttpServletRequest request) {
-        String headerId = request.getHeader(REQUEST_ID_HEADER);
-        if (headerId != null && !headerId.isBlank()) {
-            return headerId.trim();
-        }
-        return UUID.randomUUID().toString();
-    }
 }
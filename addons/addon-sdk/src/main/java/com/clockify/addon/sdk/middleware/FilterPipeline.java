@@ -0,0 +1,134 @@
+package com.clockify.addon.sdk.middleware;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Runs an ordered list of filters as a single servlet filter.
+ *
+ * <p>Instead of one container {@code FilterHolder} per policy, the stages are compiled into a
+ * plan per {@link Route}: a stage that implements {@link RouteAware} and declares it cannot act on
+ * a route is left out of that route's plan (e.g. CSRF on {@code /webhook}), every other stage is
+ * kept. Each request is classified once by {@link PathClassifier} and walks its plan with a
+ * single lightweight chain object; stages run in the same order and see the same request and
+ * response objects as they would in the container chain, so behaviour is unchanged.</p>
+ */
+public final class FilterPipeline implements Filter {
+
+    /**
+     * Route families: by prefix of the path within the context (plain {@code startsWith}, the
+     * same test the SDK filters use for their exemptions), or by an exact registered webhook or
+     * lifecycle path. See {@link PathClassifier}.
+     */
+    public enum Route {
+        WEBHOOK("/webhook"),
+        LIFECYCLE("/lifecycle"),
+        HEALTH("/health"),
+        ACTUATOR("/actuator"),
+        OTHER(null);
+
+        private final String prefix;
+
+        Route(String prefix) {
+            this.prefix = prefix;
+        }
+
+        /** Path prefix for this route, or {@code null} for {@link #OTHER}. */
+        public String prefix() {
+            return prefix;
+        }
+    }
+
+    /**
+     * Implemented by filters that are pass-through for some routes, so the pipeline can leave
+     * them out of those routes' plans. Answer {@code true} whenever unsure.
+     */
+    public interface RouteAware {
+        boolean appliesTo(Route route);
+    }
+
+    private final PathClassifier classifier;
+    private final Filter[] stages;
+    private final Map<Route, Filter[]> plans = new EnumMap<>(Route.class);
+
+    public FilterPipeline(List<? extends Filter> stages) {
+        this(stages, PathClassifier.defaults());
+    }
+
+    /**
+     * @param classifier classifies each request once; the result is published on its {@link RequestContext}
+     */
+    public FilterPipeline(List<? extends Filter> stages, PathClassifier classifier) {
+        this.classifier = Objects.requireNonNull(classifier, "classifier");
+        this.stages = stages.toArray(new Filter[0]);
+        for (Filter stage : this.stages) {
+            Objects.requireNonNull(stage, "stage");
+        }
+        for (Route route : Route.values()) {
+            List<Filter> plan = new ArrayList<>(this.stages.length);
+            for (Filter stage : this.stages) {
+                if (!(stage instanceof RouteAware aware) || aware.appliesTo(route)) {
+                    plan.add(stage);
+                }
+            }
+            plans.put(route, plan.toArray(new Filter[0]));
+        }
+    }
+
+    /** Stages that run for {@code route}, in order. */
+    public List<Filter> plan(Route route) {
+        return List.of(plans.get(route));
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        for (Filter stage : stages) {
+            stage.init(filterConfig);
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        Route route = RequestContext.of(request, classifier).route();
+        new PlanChain(plans.get(route), chain).doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {
+        for (int i = stages.length - 1; i >= 0; i--) {
+            stages[i].destroy();
+        }
+    }
+
+    private static final class PlanChain implements FilterChain {
+        private final Filter[] plan;
+        private final FilterChain tail;
+        private int next;
+
+        PlanChain(Filter[] plan, FilterChain tail) {
+            this.plan = plan;
+            this.tail = tail;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+            if (next < plan.length) {
+                plan[next++].doFilter(request, response, this);
+            } else {
+                tail.doFilter(request, response);
+            }
+        }
+    }
+}
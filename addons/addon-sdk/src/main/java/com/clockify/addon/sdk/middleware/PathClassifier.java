@@ -0,0 +1,164 @@
+package com.clockify.addon.sdk.middleware;
+
+import com.clockify.addon.sdk.ClockifyAddon;
+import com.clockify.addon.sdk.util.PathSanitizer;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Classifies a request URI into a {@link FilterPipeline.Route} in one pass, without allocating.
+ *
+ * <p>The URI is walked character by character against a trie built once at startup: the route
+ * prefixes ({@code /webhook}, {@code /lifecycle}, {@code /health}, {@code /actuator}, matched with
+ * plain {@code startsWith} like the filters' exemptions) plus the exact webhook and lifecycle paths
+ * registered on a {@link ClockifyAddon}, so a webhook registered on a custom path is classified as
+ * a webhook too. The context path is skipped and a trailing slash is ignored for exact paths. An
+ * exact path wins over a prefix.</p>
+ *
+ * <p>Routes decide which security filters are skipped, so only canonical paths are recognised:
+ * repeated slashes are not collapsed, and {@code //webhook} classifies as {@link
+ * FilterPipeline.Route#OTHER} and gets the full filter chain, as it does with the filters' own
+ * {@code startsWith} checks.</p>
+ *
+ * <p>{@link RequestContext} runs the classifier once per request and exposes the result as
+ * {@link RequestContext#route()}.</p>
+ */
+public final class PathClassifier {
+    private static final PathClassifier DEFAULTS = new PathClassifier(null, null);
+
+    private final Node root = new Node();
+
+    private PathClassifier(Collection<String> webhookPaths, Collection<String> lifecyclePaths) {
+        for (FilterPipeline.Route route : FilterPipeline.Route.values()) {
+            if (route.prefix() != null) {
+                insert(route.prefix()).prefixRoute = route;
+            }
+        }
+        addExact(webhookPaths, FilterPipeline.Route.WEBHOOK);
+        addExact(lifecyclePaths, FilterPipeline.Route.LIFECYCLE);
+    }
+
+    /** Classifier knowing only the route prefixes. */
+    public static PathClassifier defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Classifier that also recognises the webhook and lifecycle paths registered on {@code addon}.
+     * Build it after all handlers are registered.
+     */
+    public static PathClassifier forAddon(ClockifyAddon addon) {
+        Objects.requireNonNull(addon, "addon is required");
+        return new PathClassifier(addon.getWebhookHandlersByPath().keySet(), addon.getLifecycleHandlersByPath().keySet());
+    }
+
+    /**
+     * @param uri         raw request URI (no query string)
+     * @param contextPath servlet context path, skipped when {@code uri} starts with it
+     */
+    public FilterPipeline.Route classify(String uri, String contextPath) {
+        if (uri == null) {
+            return FilterPipeline.Route.OTHER;
+        }
+        int i = 0;
+        if (contextPath != null && !contextPath.isBlank() && uri.startsWith(contextPath)) {
+            i = contextPath.length();
+        }
+        Node node = root;
+        Node beforeSlash = null;
+        FilterPipeline.Route prefixMatch = null;
+        char previous = 0;
+        for (int length = uri.length(); i < length; i++) {
+            char c = uri.charAt(i);
+            previous = c;
+            if (c == '/') {
+                beforeSlash = node;
+            }
+            Node next = node.child(c);
+            if (next == null) {
+                if (c == '/' && node.exactRoute != null && onlySlashes(uri, i)) {
+                    return node.exactRoute;
+                }
+                return prefixMatch != null ? prefixMatch : FilterPipeline.Route.OTHER;
+            }
+            node = next;
+            if (node.prefixRoute != null) {
+                prefixMatch = node.prefixRoute;
+            }
+        }
+        FilterPipeline.Route exact = node.exactRoute;
+        if (exact == null && previous == '/' && beforeSlash != null) {
+            exact = beforeSlash.exactRoute;
+        }
+        if (exact != null) {
+            return exact;
+        }
+        return prefixMatch != null ? prefixMatch : FilterPipeline.Route.OTHER;
+    }
+
+    private static boolean onlySlashes(String uri, int from) {
+        for (int i = from; i < uri.length(); i++) {
+            if (uri.charAt(i) != '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addExact(Collection<String> paths, FilterPipeline.Route route) {
+        if (paths == null) {
+            return;
+        }
+        for (String path : paths) {
+            if (path == null || path.isEmpty()) {
+                continue;
+            }
+            String key = PathSanitizer.normalize(path);
+            Node node = insert(key);
+            if (node.exactRoute == null) {
+                node.exactRoute = route;
+            }
+        }
+    }
+
+    private Node insert(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+        }
+        return node;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private FilterPipeline.Route prefixRoute;
+        private FilterPipeline.Route exactRoute;
+
+        Node child(char c) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrCreate(char c) {
+            Node existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node();
+            int n = keys.length;
+            keys = Arrays.copyOf(keys, n + 1);
+            children = Arrays.copyOf(children, n + 1);
+            keys[n] = c;
+            children[n] = created;
+            return created;
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.clockify.addon.sdk.middleware;
 
+import com.clockify.addon.sdk.security.jwt.AuthTokenVerifier;
 import com.clockify.addon.sdk.security.jwt.JwtVerifier;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
@@ -18,16 +18,18 @@ import java.util.Set;
 
 /**
  * Servlet filter that enforces Clockify platform auth tokens on protected endpoints.
+ *
+ * <p>If an earlier filter already verified the same token (see {@link VerifiedPrincipal}), that
+ * result is reused rather than checking the signature again.</p>
  */
 public final class PlatformAuthFilter implements Filter {
     public static final String ATTR_INSTALLATION_ID = "clockify.installationId";
     public static final String ATTR_WORKSPACE_ID = "clockify.workspaceId";
     public static final String ATTR_USER_ID = "clockify.userId";
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
-    private final JwtVerifier verifier;
+    private final AuthTokenVerifier verifier;
 
-    public PlatformAuthFilter(JwtVerifier verifier) {
+    public PlatformAuthFilter(AuthTokenVerifier verifier) {
         this.verifier = verifier;
     }
 
@@ -50,7 +52,7 @@ public final class PlatformAuthFilter implements Filter {
         String token = auth.substring("Bearer ".length()).trim();
 
         try {
-            JwtVerifier.DecodedJwt jwt = verifier.verify(token);
+            JwtVerifier.DecodedJwt jwt = VerifiedPrincipal.verify(request, token, verifier);
             JsonNode payload = jwt.payload();
             String installationId = text(payload, "installation_id", "installationId");
             String workspaceId = text(payload, "workspace_id", "workspaceId", "wid");
@@ -102,7 +104,7 @@ public final class PlatformAuthFilter implements Filter {
             var keySource = new com.clockify.addon.sdk.security.jwt.JwksBasedKeySource(java.net.URI.create(jwksUri));
             verifier = JwtVerifier.fromKeySource(keySource, constraints);
         } else if (map != null && !map.isBlank()) {
-            Map<String, String> pemMap = MAPPER.readValue(map, MAPPER.getTypeFactory().constructMapType(Map.class, String.class, String.class));
+            Map<String, String> pemMap = JwtVerifier.parsePemMap(map);
             verifier = JwtVerifier.fromPemMap(pemMap, System.getenv("CLOCKIFY_JWT_DEFAULT_KID"), constraints);
         } else if (pem != null && !pem.isBlank()) {
             verifier = JwtVerifier.fromPem(pem, constraints);
@@ -1,10 +1,6 @@
 package com.clockify.addon.sdk.middleware;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-// Do not import Guava RateLimiter by simple name to avoid clashing with this class name
-// Use the fully-qualified name com.google.common.util.concurrent.RateLimiter instead
+import com.clockify.addon.sdk.ratelimit.StripedTokenBucketLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,17 +8,17 @@ import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
 
 /**
  * Rate limiting middleware using token bucket algorithm.
  * Prevents abuse by limiting requests per IP address or workspace.
+ * Buckets live in a lock-free {@link StripedTokenBucketLimiter} (one second of burst per key).
  */
 public class RateLimiter implements Filter {
     private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
 
-    private final LoadingCache<String, com.google.common.util.concurrent.RateLimiter> limiters;
+    private final StripedTokenBucketLimiter limiters;
     private final double permitsPerSecond;
     private final String limitBy;
 
@@ -36,18 +32,13 @@ public class RateLimiter implements Filter {
         this.permitsPerSecond = permitsPerSecond;
         this.limitBy = limitBy;
 
-        // Cache of rate limiters, one per unique identifier
+        // One bucket per unique identifier
         // Expires after 5 minutes of inactivity to prevent memory leaks
-        this.limiters = CacheBuilder.newBuilder()
-                .expireAfterAccess(5, TimeUnit.MINUTES)
-                .maximumSize(10000) // Max 10k unique identifiers
-                .build(new CacheLoader<String, com.google.common.util.concurrent.RateLimiter>() {
-                    @Override
-                    public com.google.common.util.concurrent.RateLimiter load(String key) {
-                        logger.debug("Creating new rate limiter for: {}", key);
-                        return com.google.common.util.concurrent.RateLimiter.create(permitsPerSecond);
-                    }
-                });
+        this.limiters = new StripedTokenBucketLimiter(
+                permitsPerSecond,
+                permitsPerSecond,
+                Duration.ofMinutes(5),
+                10000); // Max ~10k unique identifiers
 
         logger.info("Rate limiter initialized: {} permits/sec, limit by: {}", permitsPerSecond, limitBy);
     }
@@ -73,23 +64,14 @@ public class RateLimiter implements Filter {
 
         String identifier = getIdentifier(httpRequest);
 
-        try {
-            com.google.common.util.concurrent.RateLimiter limiter = limiters.get(identifier);
-
-            // Try to acquire a permit (non-blocking)
-            if (limiter.tryAcquire()) {
-                // Request allowed
-                chain.doFilter(request, response);
-            } else {
-                // Rate limit exceeded
-                logger.warn("Rate limit exceeded for: {} ({})", identifier, limitBy);
-                sendRateLimitError(httpResponse, identifier);
-            }
-
-        } catch (ExecutionException e) {
-            logger.error("Error getting rate limiter for: " + identifier, e);
-            // Fail open: allow the request if rate limiter fails
+        // Try to acquire a permit (non-blocking)
+        if (limiters.tryAcquire(identifier)) {
+            // Request allowed
             chain.doFilter(request, response);
+        } else {
+            // Rate limit exceeded
+            logger.warn("Rate limit exceeded for: {} ({})", identifier, limitBy);
+            sendRateLimitError(httpResponse, identifier);
         }
     }
 
@@ -111,42 +93,42 @@ public class RateLimiter implements Filter {
      * Extracts workspace ID from request.
      */
     private String extractWorkspaceId(HttpServletRequest request) {
-        // Try header first
-        String workspaceId = request.getHeader("X-Workspace-Id");
-        if (workspaceId != null && !workspaceId.isEmpty()) {
-            return workspaceId;
-        }
+        // X-Workspace-Id header, then path: /workspace/{id}/...
+        return RequestContext.of(request).workspaceHint();
+    }
 
-        // Try path: /workspace/{id}/...
-        String path = request.getRequestURI();
-        String[] parts = path.split("/");
-        for (int i = 0; i < parts.length - 1; i++) {
-            if ("workspace".equals(parts[i]) && i + 1 < parts.length) {
-                return parts[i + 1];
+    /**
+     * Returns the segment following a {@code workspace} segment without splitting the path.
+     */
+    static String workspaceSegment(String path) {
+        if (path == null) {
+            return null;
+        }
+        int from = 0;
+        while (true) {
+            int idx = path.indexOf("workspace/", from);
+            if (idx < 0) {
+                return null;
             }
+            int start = idx + "workspace/".length();
+            if (idx == 0 || path.charAt(idx - 1) == '/') {
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    end = path.length();
+                }
+                if (end > start) {
+                    return path.substring(start, end);
+                }
+            }
+            from = start;
         }
-
-        return null;
     }
 
     /**
-     * Gets the client IP address, accounting for proxies.
+     * Client IP, accounting for proxies; resolved once per request by {@link RequestContext}.
      */
     private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("X-Real-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
-        }
-
-        // X-Forwarded-For can contain multiple IPs, take the first
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
-        }
-
-        return ip != null ? ip : "unknown";
+        return RequestContext.of(request).clientIp();
     }
 
     /**
@@ -172,8 +154,8 @@ public class RateLimiter implements Filter {
 
     @Override
     public void destroy() {
-        // Clean up cache
-        limiters.invalidateAll();
+        // Clean up buckets
+        limiters.clear();
         logger.info("Rate limiter destroyed");
     }
 
@@ -183,7 +165,7 @@ public class RateLimiter implements Filter {
     public String getStats() {
         return String.format("Rate limiter stats - Size: %d, Hits: %d, Misses: %d",
                 limiters.size(),
-                limiters.stats().hitCount(),
-                limiters.stats().missCount());
+                limiters.hitCount(),
+                limiters.missCount());
     }
 }
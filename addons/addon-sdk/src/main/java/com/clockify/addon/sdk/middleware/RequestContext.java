@@ -0,0 +1,137 @@
+package com.clockify.addon.sdk.middleware;
+
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-request facts resolved once, at the front of the filter chain, by
+ * {@link DiagnosticContextFilter}: the request id, the client IP and the (unauthenticated)
+ * workspace hint used for rate limiting, and the route class from {@link PathClassifier}.
+ * Downstream filters read them with
+ * {@link #of(ServletRequest)} instead of re-parsing headers; when no context was published
+ * (e.g. a filter used on its own) one is resolved on first use and cached on the request.
+ */
+public final class RequestContext {
+    public static final String ATTR = "clockify.requestContext";
+    static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    private final String requestId;
+    private final String clientIp;
+    private final String workspaceHeader;
+    private final String requestUri;
+    private final FilterPipeline.Route route;
+    private String workspaceHint;
+    private boolean workspaceResolved;
+
+    private RequestContext(String requestId, String clientIp, String workspaceHeader, String requestUri,
+                           FilterPipeline.Route route) {
+        this.requestId = requestId;
+        this.clientIp = clientIp;
+        this.workspaceHeader = workspaceHeader;
+        this.requestUri = requestUri;
+        this.route = route;
+    }
+
+    /**
+     * Returns the context published on this request, resolving and publishing it if absent.
+     */
+    public static RequestContext of(ServletRequest request) {
+        return of(request, PathClassifier.defaults());
+    }
+
+    /**
+     * As {@link #of(ServletRequest)}, classifying with {@code classifier} if the context has to be resolved.
+     */
+    public static RequestContext of(ServletRequest request, PathClassifier classifier) {
+        if (request.getAttribute(ATTR) instanceof RequestContext context) {
+            return context;
+        }
+        return resolve(request, classifier);
+    }
+
+    static RequestContext resolve(ServletRequest request, PathClassifier classifier) {
+        RequestContext context;
+        if (request instanceof HttpServletRequest http) {
+            String headerId = http.getHeader(REQUEST_ID_HEADER);
+            String uri = http.getRequestURI();
+            context = new RequestContext(
+                    headerId != null && !headerId.isBlank() ? headerId.trim() : newRequestId(),
+                    clientIp(http),
+                    http.getHeader("X-Workspace-Id"),
+                    uri,
+                    classifier.classify(uri, http.getContextPath()));
+        } else {
+            String remote = request.getRemoteAddr();
+            context = new RequestContext(newRequestId(), remote != null ? remote : "unknown", null, null,
+                    FilterPipeline.Route.OTHER);
+        }
+        request.setAttribute(ATTR, context);
+        return context;
+    }
+
+    public String requestId() {
+        return requestId;
+    }
+
+    /**
+     * Route class of the path within the context, computed once when the context was resolved.
+     */
+    public FilterPipeline.Route route() {
+        return route;
+    }
+
+    /**
+     * First address of {@code X-Forwarded-For}, else {@code X-Real-IP}, else the peer address.
+     */
+    public String clientIp() {
+        return clientIp;
+    }
+
+    /**
+     * Workspace claimed by the {@code X-Workspace-Id} header or a {@code /workspace/{id}} path
+     * segment. Not authenticated: use it for bucketing, never for authorization.
+     */
+    public String workspaceHint() {
+        if (!workspaceResolved) {
+            workspaceHint = workspaceHeader != null && !workspaceHeader.isEmpty()
+                    ? workspaceHeader
+                    : RateLimiter.workspaceSegment(requestUri);
+            workspaceResolved = true;
+        }
+        return workspaceHint;
+    }
+
+    /**
+     * A time-ordered (UUID version 7 layout) id: 48 bits of epoch millis followed by random bits
+     * from {@link ThreadLocalRandom}, so generating one never contends on a shared
+     * {@code SecureRandom}. Ids sort roughly by creation time; they are not secrets.
+     */
+    public static String newRequestId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextInt() & 0x0FFFL);
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb).toString();
+    }
+
+    private static String clientIp(HttpServletRequest request) {
+        String ip = usable(request.getHeader("X-Forwarded-For"));
+        if (ip == null) {
+            ip = usable(request.getHeader("X-Real-IP"));
+        }
+        if (ip == null) {
+            ip = request.getRemoteAddr();
+        }
+        if (ip == null) {
+            return "unknown";
+        }
+        int comma = ip.indexOf(',');
+        return comma >= 0 ? ip.substring(0, comma).trim() : ip;
+    }
+
+    private static String usable(String header) {
+        return header == null || header.isEmpty() || "unknown".equalsIgnoreCase(header) ? null : header;
+    }
+}
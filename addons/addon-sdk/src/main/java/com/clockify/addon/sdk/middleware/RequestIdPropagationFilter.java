@@ -18,6 +18,10 @@ import java.io.IOException;
  * simply copies the attribute (or current MDC value) onto the response headers after
  * the downstream handlers finish.
  * </p>
+ * <p>
+ * {@link com.clockify.addon.sdk.EmbeddedServer} no longer installs it: {@link DiagnosticContextFilter} now sets and
+ * re-applies the header itself. It remains for servers that assemble their own chain.
+ * </p>
  */
 public class RequestIdPropagationFilter implements Filter {
     private static final String REQUEST_ID_HEADER = "X-Request-Id";
@@ -111,22 +111,10 @@ public class RequestSizeLimitFilter implements Filter {
     }
 
     /**
-     * Gets client IP address, accounting for proxies.
+     * Client IP, accounting for proxies; resolved once per request by {@link RequestContext}.
      */
     private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty()) {
-            ip = request.getHeader("X-Real-IP");
-        }
-        if (ip == null || ip.isEmpty()) {
-            ip = request.getRemoteAddr();
-        }
-
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
-        }
-
-        return ip != null ? ip : "unknown";
+        return RequestContext.of(request).clientIp();
     }
 
     /**
@@ -17,7 +17,7 @@ import java.util.Set;
  * Wraps {@link PlatformAuthFilter} (or any servlet {@link Filter}) so that authentication
  * is enforced only for selected request paths.
  */
-public final class ScopedPlatformAuthFilter implements Filter {
+public final class ScopedPlatformAuthFilter implements Filter, FilterPipeline.RouteAware {
     private final Filter delegate;
     private final Set<String> exactPaths;
     private final List<String> protectedPrefixes;
@@ -55,6 +55,33 @@ public final class ScopedPlatformAuthFilter implements Filter {
         delegate.destroy();
     }
 
+    /**
+     * {@code false} only when no protected path can start with the route's prefix. Webhook and
+     * lifecycle routes also cover registered paths outside their prefix, so they always apply.
+     */
+    @Override
+    public boolean appliesTo(FilterPipeline.Route route) {
+        String routePrefix = route.prefix();
+        if (routePrefix == null || route == FilterPipeline.Route.WEBHOOK || route == FilterPipeline.Route.LIFECYCLE) {
+            return true;
+        }
+        for (String path : exactPaths) {
+            if (path != null && path.startsWith(routePrefix)) {
+                return true;
+            }
+        }
+        for (String prefix : protectedPrefixes) {
+            if (prefix == null || prefix.isBlank()) {
+                continue;
+            }
+            String normalized = prefix.endsWith("/") ? prefix : prefix + "/";
+            if (prefix.startsWith(routePrefix) || normalized.startsWith(routePrefix) || routePrefix.startsWith(normalized)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean shouldProtect(String path) {
         if (path == null || path.isBlank()) {
             return false;
@@ -0,0 +1,72 @@
+package com.clockify.addon.sdk.middleware;
+
+import com.clockify.addon.sdk.security.jwt.AuthTokenVerifier;
+import com.clockify.addon.sdk.security.jwt.JwtVerifier;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.servlet.ServletRequest;
+
+import java.util.Optional;
+
+/**
+ * Request-scoped result of verifying the platform JWT.
+ *
+ * <p>The first component that verifies a request's token (normally {@link WorkspaceContextFilter})
+ * publishes the outcome under {@link #REQUEST_ATTR}; {@link PlatformAuthFilter} and controllers
+ * then call {@link #verify(ServletRequest, String, AuthTokenVerifier)} and get the published
+ * result back instead of paying for a second signature check. Failures are published too, so a
+ * rejected token is not re-verified further down the chain. The result is only reused for the
+ * exact same token string.</p>
+ */
+public final class VerifiedPrincipal {
+    public static final String REQUEST_ATTR = "clockify.verifiedJwt";
+
+    private final String token;
+    private final JwtVerifier.DecodedJwt jwt;
+    private final String failure;
+
+    private VerifiedPrincipal(String token, JwtVerifier.DecodedJwt jwt, String failure) {
+        this.token = token;
+        this.jwt = jwt;
+        this.failure = failure;
+    }
+
+    public JwtVerifier.DecodedJwt jwt() {
+        return jwt;
+    }
+
+    public JsonNode payload() {
+        return jwt.payload();
+    }
+
+    /**
+     * Returns the successfully verified principal published on this request, if any.
+     */
+    public static Optional<VerifiedPrincipal> current(ServletRequest request) {
+        if (request.getAttribute(REQUEST_ATTR) instanceof VerifiedPrincipal principal && principal.jwt != null) {
+            return Optional.of(principal);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Verifies {@code token} at most once per request, publishing the outcome for later callers.
+     */
+    public static JwtVerifier.DecodedJwt verify(ServletRequest request, String token, AuthTokenVerifier verifier)
+            throws JwtVerifier.JwtVerificationException {
+        if (request.getAttribute(REQUEST_ATTR) instanceof VerifiedPrincipal published
+                && published.token.equals(token)) {
+            if (published.jwt == null) {
+                throw new JwtVerifier.JwtVerificationException(published.failure);
+            }
+            return published.jwt;
+        }
+        try {
+            JwtVerifier.DecodedJwt decoded = verifier.verify(token);
+            request.setAttribute(REQUEST_ATTR, new VerifiedPrincipal(token, decoded, null));
+            return decoded;
+        } catch (JwtVerifier.JwtVerificationException e) {
+            request.setAttribute(REQUEST_ATTR, new VerifiedPrincipal(token, null, e.getMessage()));
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.clockify.addon.sdk.middleware;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import com.clockify.addon.sdk.security.WebhookSignatureValidator;
+import com.clockify.addon.sdk.webhook.IdempotencyStore;
+import com.clockify.addon.sdk.webhook.InMemoryIdempotencyStore;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Answers webhook redeliveries from the response given to the first delivery.
+ *
+ * <p>Clockify redelivers a webhook when it does not get a timely answer. Each delivery on a
+ * webhook route is fingerprinted as SHA-256 over the event type, the signature header and the raw
+ * body; a redelivery repeats all three, while distinct events always differ in the body (the
+ * signature alone is not enough: a webhook JWT can be the same for every delivery). A delivery
+ * whose fingerprint was answered with a 2xx within the window gets that response again, with
+ * {@code X-Idempotent-Replay: true}, and the handler does not run. A duplicate arriving while the
+ * first is still being handled gets 409 with {@code Retry-After}. Only 2xx responses are
+ * remembered, so failures and signature rejections are always handled afresh.</p>
+ *
+ * <p>This filter runs before the signature is checked, so a response is only remembered when the
+ * request was verified further down the chain ({@link WebhookSignatureValidator#VERIFIED_ATTR} set
+ * by {@code AddonServlet} or by a handler calling {@link WebhookSignatureValidator#verify}).
+ * Otherwise anyone could post a body of their choosing, have its 2xx stored, and get it replayed;
+ * routes whose handlers never verify are simply not deduplicated.</p>
+ *
+ * <p>Fingerprints live in a bounded in-process window and, optionally, in a shared
+ * {@link IdempotencyStore} (e.g. {@link com.clockify.addon.sdk.webhook.PostgresIdempotencyStore})
+ * so replicas and restarts see the same history; if the shared store fails the delivery is
+ * handled normally. Outcomes are counted in {@code webhook_dedup_total{result}}
+ * ({@code hit}, {@code miss}, {@code in_flight}).</p>
+ *
+ * <p>The raw body is read here and cached as the {@code clockify.rawBody} request attribute that
+ * {@code AddonServlet} and the signature validator already use.</p>
+ */
+public final class WebhookIdempotencyFilter implements Filter, FilterPipeline.RouteAware {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookIdempotencyFilter.class);
+
+    static final Duration DEFAULT_WINDOW = Duration.ofMinutes(10);
+    static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final int MAX_REMEMBERED_BODY = 64 * 1024;
+    private static final String REPLAY_HEADER = "X-Idempotent-Replay";
+    private static final String[] SIGNATURE_HEADERS = {
+            "Clockify-Signature",
+            "clockify-webhook-signature",
+            "x-clockify-webhook-signature",
+            "X-Clockify-Signature"
+    };
+
+    private final Duration window;
+    private final IdempotencyStore local;
+    private final IdempotencyStore shared;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter duplicatesInFlight;
+
+    public WebhookIdempotencyFilter() {
+        this(DEFAULT_WINDOW, DEFAULT_MAX_ENTRIES, null);
+    }
+
+    /**
+     * @param shared optional store shared by all replicas; {@code null} keeps fingerprints in this process only
+     */
+    public WebhookIdempotencyFilter(Duration window, int maxEntries, IdempotencyStore shared) {
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        this.window = window;
+        this.local = new InMemoryIdempotencyStore(maxEntries);
+        this.shared = shared;
+        this.hits = outcome("hit");
+        this.misses = outcome("miss");
+        this.duplicatesInFlight = outcome("in_flight");
+    }
+
+    /**
+     * Filter configured by {@code ADDON_WEBHOOK_DEDUP_WINDOW_SECONDS} and
+     * {@code ADDON_WEBHOOK_DEDUP_MAX_ENTRIES}, with an optional shared store.
+     */
+    public static WebhookIdempotencyFilter fromEnvironment(IdempotencyStore shared) {
+        long windowSeconds = EnvironmentInspector.longSetting("ADDON_WEBHOOK_DEDUP_WINDOW_SECONDS", DEFAULT_WINDOW.toSeconds());
+        long maxEntries = EnvironmentInspector.longSetting("ADDON_WEBHOOK_DEDUP_MAX_ENTRIES", DEFAULT_MAX_ENTRIES);
+        return new WebhookIdempotencyFilter(Duration.ofSeconds(windowSeconds),
+                (int) Math.min(maxEntries, Integer.MAX_VALUE), shared);
+    }
+
+    @Override
+    public boolean appliesTo(FilterPipeline.Route route) {
+        return route == FilterPipeline.Route.WEBHOOK;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest http) || !(response instanceof HttpServletResponse httpResponse)
+                || !"POST".equalsIgnoreCase(http.getMethod())
+                || RequestContext.of(request).route() != FilterPipeline.Route.WEBHOOK) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String key = fingerprint(http);
+        Optional<IdempotencyStore.StoredResponse> previous = lookup(key);
+        if (previous.isPresent()) {
+            hits.increment();
+            logger.debug("Replaying response for duplicate webhook delivery {}", key);
+            write(httpResponse, previous.get());
+            return;
+        }
+        if (!inFlight.add(key)) {
+            duplicatesInFlight.increment();
+            httpResponse.setStatus(409);
+            httpResponse.setHeader("Retry-After", "1");
+            httpResponse.setContentType("application/json");
+            httpResponse.getWriter().write("{\"error\":\"duplicate delivery in progress\"}");
+            return;
+        }
+        misses.increment();
+        try {
+            CapturingResponse capturing = new CapturingResponse(httpResponse);
+            chain.doFilter(request, capturing);
+            int status = capturing.getStatus();
+            if (status >= 200 && status < 300 && capturing.capturable()
+                    && request.getAttribute(WebhookSignatureValidator.VERIFIED_ATTR) != null) {
+                remember(key, new IdempotencyStore.StoredResponse(status, capturing.getContentType(), capturing.captured()));
+            }
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    private Optional<IdempotencyStore.StoredResponse> lookup(String key) {
+        Optional<IdempotencyStore.StoredResponse> found = local.find(key);
+        if (found.isPresent() || shared == null) {
+            return found;
+        }
+        try {
+            found = shared.find(key);
+            found.ifPresent(stored -> local.remember(key, stored, window));
+            return found;
+        } catch (IdempotencyStore.IdempotencyStoreException e) {
+            logger.warn("Shared webhook delivery store unavailable, handling delivery normally: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void remember(String key, IdempotencyStore.StoredResponse stored) {
+        local.remember(key, stored, window);
+        if (shared != null) {
+            try {
+                shared.remember(key, stored, window);
+            } catch (IdempotencyStore.IdempotencyStoreException e) {
+                logger.warn("Failed to record webhook delivery in shared store: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void write(HttpServletResponse response, IdempotencyStore.StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAY_HEADER, "true");
+        if (stored.body() != null) {
+            response.getWriter().write(stored.body());
+        }
+    }
+
+    static String fingerprint(HttpServletRequest request) throws IOException {
+        MessageDigest digest = sha256();
+        update(digest, request.getHeader("clockify-webhook-event-type"));
+        update(digest, signature(request));
+        update(digest, rawBody(request));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String signature(HttpServletRequest request) {
+        for (String header : SIGNATURE_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null && !value.isBlank()) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
+
+    private static String rawBody(HttpServletRequest request) throws IOException {
+        if (request.getAttribute("clockify.rawBody") instanceof String cached) {
+            return cached;
+        }
+        String body = request.getReader().lines().collect(Collectors.joining());
+        request.setAttribute("clockify.rawBody", body);
+        return body;
+    }
+
+    private static void update(MessageDigest digest, String part) {
+        if (part != null) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Counter outcome(String result) {
+        return Counter.builder("webhook_dedup_total")
+                .tag("result", result)
+                .register(MetricsHandler.registry());
+    }
+
+    /** Passes the response through while keeping a copy of what the handler writes. */
+    private static final class CapturingResponse extends HttpServletResponseWrapper {
+        private final StringBuilder copy = new StringBuilder();
+        private PrintWriter writer;
+        private boolean overflow;
+
+        CapturingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                Writer target = super.getWriter();
+                writer = new PrintWriter(new Writer() {
+                    @Override
+                    public void write(char[] buf, int off, int len) throws IOException {
+                        target.write(buf, off, len);
+                        if (!overflow) {
+                            if (copy.length() + len > MAX_REMEMBERED_BODY) {
+                                overflow = true;
+                            } else {
+                                copy.append(buf, off, len);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        target.close();
+                    }
+                });
+            }
+            return writer;
+        }
+
+        @Override
+        public jakarta.servlet.ServletOutputStream getOutputStream() throws IOException {
+            // Binary responses are passed through but not remembered.
+            overflow = true;
+            return super.getOutputStream();
+        }
+
+        boolean capturable() {
+            if (writer != null) {
+                writer.flush();
+            }
+            return !overflow;
+        }
+
+        String captured() {
+            return copy.toString();
+        }
+    }
+}
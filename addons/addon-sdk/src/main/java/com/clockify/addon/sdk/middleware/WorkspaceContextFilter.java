@@ -1,5 +1,6 @@
 package com.clockify.addon.sdk.middleware;
 
+import com.clockify.addon.sdk.security.jwt.AuthTokenVerifier;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +30,10 @@ import java.io.IOException;
  * <p><strong>Architecture:</strong> This filter is intentionally simple and delegates
  * JWT verification to addon-specific verifiers. The SDK provides the extraction
  * mechanism, but addons control verification policy.
+ *
+ * <p>Filters built with {@link #forVerifier(AuthTokenVerifier)} publish the verified token as a
+ * {@link VerifiedPrincipal}, so {@link PlatformAuthFilter} and controllers further down the chain
+ * reuse it instead of verifying the same JWT again.
  */
 public class WorkspaceContextFilter implements Filter {
     private static final Logger logger = LoggerFactory.getLogger(WorkspaceContextFilter.class);
@@ -37,6 +42,7 @@ public class WorkspaceContextFilter implements Filter {
     public static final String USER_ID_ATTR = "clockify.userId";
 
     private final JwtVerifierFunction verifierFunction;
+    private final AuthTokenVerifier tokenVerifier;
 
     /**
      * Functional interface for JWT verification to avoid coupling SDK to specific verifier implementations.
@@ -54,6 +60,23 @@ public class WorkspaceContextFilter implements Filter {
             throw new IllegalArgumentException("JWT verifier function is required");
         }
         this.verifierFunction = verifierFunction;
+        this.tokenVerifier = null;
+    }
+
+    private WorkspaceContextFilter(AuthTokenVerifier tokenVerifier) {
+        this.verifierFunction = null;
+        this.tokenVerifier = tokenVerifier;
+    }
+
+    /**
+     * Creates a filter that verifies through {@link VerifiedPrincipal}, sharing the result with
+     * later filters and controllers on the same request.
+     */
+    public static WorkspaceContextFilter forVerifier(AuthTokenVerifier verifier) {
+        if (verifier == null) {
+            throw new IllegalArgumentException("JWT verifier is required");
+        }
+        return new WorkspaceContextFilter(verifier);
     }
 
     @Override
@@ -70,7 +93,9 @@ public class WorkspaceContextFilter implements Filter {
 
         if (jwt != null && !jwt.isBlank()) {
             try {
-                JsonNode payload = verifierFunction.verify(jwt);
+                JsonNode payload = tokenVerifier != null
+                        ? VerifiedPrincipal.verify(request, jwt, tokenVerifier).payload()
+                        : verifierFunction.verify(jwt);
                 if (payload != null) {
                     String workspaceId = payload.path("workspaceId").asText(null);
                     String userId = payload.path("userId").asText(null);
@@ -0,0 +1,272 @@
+package com.clockify.addon.sdk.outbox;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.clockify.addon.sdk.webhook.WebhookInbox;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link OutboxStore} kept in a local append-only log, for single-replica deployments without a
+ * database.
+ *
+ * <p>Entries are written to a log with the {@link WebhookInbox} segment layout (segment files under
+ * the given directory, fsync'd before {@link #append} returns) and removed from it with a
+ * completion record, so whatever was not sent survives a restart. Each log entry is of type
+ * {@value #RECORD_TYPE} and carries the outbox's own record (workspace, kind and payload) as JSON
+ * in its body. Attempt counts and backoff deadlines are kept in
+ * memory only: after a restart every surviving entry is due at once, with its attempt count reset.
+ * Claims are in memory too, so one directory must belong to one process.</p>
+ *
+ * <p>Dead letters are appended to a second log in the {@code dead-letter} subdirectory, as
+ * {@value #DEAD_LETTER_TYPE} entries carrying the record plus the attempt count and last error,
+ * before they are removed from the outbox. Nothing reads that log back; it is kept for
+ * operators.</p>
+ *
+ * <p>{@link #fromEnvironment()} uses {@code CLOCKIFY_OUTBOX_DIR} (system property or environment
+ * variable).</p>
+ */
+public final class LogOutboxStore implements OutboxStore, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(LogOutboxStore.class);
+    private static final int SEGMENT_BYTES = 4 * 1024 * 1024;
+    static final String RECORD_TYPE = "outbox-entry/1";
+    static final String DEAD_LETTER_TYPE = "outbox-dead-letter/1";
+    private static final ObjectReader RECORD_READER = JsonCodec.readerFor(OutboxRecord.class);
+    private static final ObjectWriter RECORD_WRITER = JsonCodec.writerFor(OutboxRecord.class);
+    private static final ObjectWriter DEAD_LETTER_WRITER = JsonCodec.writerFor(DeadLetterRecord.class);
+
+    private final WebhookInbox log;
+    private final WebhookInbox deadLetters;
+    // Guarded by this. Workspaces in the order they were last served, each with its entries by id.
+    private final LinkedHashMap<String, ArrayDeque<Pending>> queues = new LinkedHashMap<>();
+    private final Map<Long, Pending> byId = new HashMap<>();
+
+    public LogOutboxStore(Path directory) throws IOException {
+        this.log = new WebhookInbox(directory, SEGMENT_BYTES, true, "outbox_log");
+        this.deadLetters = new WebhookInbox(directory.resolve("dead-letter"), SEGMENT_BYTES, true, "outbox_dead_letter_log");
+        List<Long> unreadable = new ArrayList<>();
+        log.replay(entry -> {
+            OutboxRecord record = decode(entry);
+            if (record == null) {
+                unreadable.add(entry.sequence());
+            } else {
+                add(entry.sequence(), record.workspaceId(), record.kind(), record.payload(), entry.receivedAt());
+            }
+        });
+        for (long sequence : unreadable) {
+            log.markDone(sequence);
+        }
+        if (!byId.isEmpty()) {
+            logger.info("Outbox at {} has {} unsent mutation(s)", directory, byId.size());
+        }
+    }
+
+    /** Store at {@code CLOCKIFY_OUTBOX_DIR}, or empty when it is not set. */
+    public static Optional<LogOutboxStore> fromEnvironment() {
+        String dir = EnvironmentInspector.setting("CLOCKIFY_OUTBOX_DIR");
+        if (dir == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new LogOutboxStore(Paths.get(dir)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open outbox at " + dir, e);
+        }
+    }
+
+    @Override
+    public Entry append(String workspaceId, String kind, String payload) {
+        WebhookInbox.Entry written;
+        try {
+            written = log.append(RECORD_TYPE, null, RECORD_WRITER.writeValueAsString(new OutboxRecord(workspaceId, kind, payload)));
+        } catch (IOException e) {
+            throw new OutboxStoreException("Outbox append failed", e);
+        }
+        synchronized (this) {
+            return add(written.sequence(), workspaceId, kind, payload, written.receivedAt()).entry();
+        }
+    }
+
+    @Override
+    public synchronized List<Entry> claim(int maxWorkspaces, int batchSize) {
+        long now = System.currentTimeMillis();
+        List<Entry> claimed = new ArrayList<>();
+        List<String> served = new ArrayList<>();
+        for (Map.Entry<String, ArrayDeque<Pending>> queue : queues.entrySet()) {
+            if (served.size() >= maxWorkspaces) {
+                break;
+            }
+            Pending head = queue.getValue().peekFirst();
+            if (head == null || head.claimed || head.nextAttemptAtMs > now) {
+                continue;
+            }
+            int taken = 0;
+            for (Pending pending : queue.getValue()) {
+                if (taken == batchSize || pending.claimed) {
+                    break;
+                }
+                pending.claimed = true;
+                claimed.add(pending.entry());
+                taken++;
+            }
+            served.add(queue.getKey());
+        }
+        // Served workspaces go to the back so the others are looked at first next time.
+        for (String workspaceId : served) {
+            queues.put(workspaceId, queues.remove(workspaceId));
+        }
+        return claimed;
+    }
+
+    @Override
+    public void complete(long id) {
+        synchronized (this) {
+            Pending pending = byId.remove(id);
+            if (pending == null) {
+                return;
+            }
+            ArrayDeque<Pending> queue = queues.get(pending.workspaceId);
+            queue.remove(pending);
+            if (queue.isEmpty()) {
+                queues.remove(pending.workspaceId);
+            }
+        }
+        try {
+            log.markDone(id);
+        } catch (IOException e) {
+            // The entry stays in the log and is sent again after a restart.
+            logger.warn("Failed to record outbox entry {} as sent: {}", id, e.getMessage());
+        }
+    }
+
+    @Override
+    public void deadLetter(long id, String error) {
+        Pending pending;
+        synchronized (this) {
+            pending = byId.get(id);
+        }
+        if (pending == null) {
+            return;
+        }
+        DeadLetterRecord record = new DeadLetterRecord(pending.workspaceId, pending.kind, pending.payload,
+                pending.attempts + 1, error, pending.createdAtMs);
+        try {
+            deadLetters.append(DEAD_LETTER_TYPE, null, DEAD_LETTER_WRITER.writeValueAsString(record));
+        } catch (IOException e) {
+            // Leave it queued rather than lose it; it is attempted again.
+            logger.error("Failed to dead-letter outbox entry {}; leaving it queued: {}", id, e.getMessage());
+            release(id);
+            return;
+        }
+        complete(id);
+    }
+
+    @Override
+    public synchronized void retry(long id, long nextAttemptAtMs, String error) {
+        Pending pending = byId.get(id);
+        if (pending != null) {
+            pending.attempts++;
+            pending.nextAttemptAtMs = nextAttemptAtMs;
+            pending.claimed = false;
+        }
+    }
+
+    @Override
+    public synchronized void release(long id) {
+        Pending pending = byId.get(id);
+        if (pending != null) {
+            pending.claimed = false;
+        }
+    }
+
+    @Override
+    public synchronized Backlog backlog() {
+        long oldest = 0;
+        for (ArrayDeque<Pending> queue : queues.values()) {
+            Iterator<Pending> it = queue.iterator();
+            long created = it.hasNext() ? it.next().createdAtMs : 0;
+            if (created > 0 && (oldest == 0 || created < oldest)) {
+                oldest = created;
+            }
+        }
+        return new Backlog(byId.size(), oldest);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            log.close();
+        } finally {
+            deadLetters.close();
+        }
+    }
+
+    private static OutboxRecord decode(WebhookInbox.Entry entry) {
+        if (RECORD_TYPE.equals(entry.event())) {
+            try {
+                OutboxRecord record = RECORD_READER.readValue(entry.body());
+                if (record.workspaceId() != null && record.kind() != null) {
+                    return record;
+                }
+            } catch (IOException e) {
+                // fall through
+            }
+        }
+        logger.warn("Dropping unreadable outbox entry {} of type {}", entry.sequence(), entry.event());
+        return null;
+    }
+
+    private Pending add(long id, String workspaceId, String kind, String payload, long createdAtMs) {
+        Pending pending = new Pending(id, workspaceId, kind, payload, createdAtMs);
+        byId.put(id, pending);
+        queues.computeIfAbsent(workspaceId, k -> new ArrayDeque<>()).addLast(pending);
+        return pending;
+    }
+
+    /** What the outbox stores per entry; serialized as the body of a {@value #RECORD_TYPE} log entry. */
+    record OutboxRecord(String workspaceId, String kind, String payload) {
+    }
+
+    /** A dead-lettered entry; serialized as the body of a {@value #DEAD_LETTER_TYPE} log entry. */
+    record DeadLetterRecord(String workspaceId, String kind, String payload, int attempts, String error,
+                            long createdAtMs) {
+    }
+
+    private static final class Pending {
+        final long id;
+        final String workspaceId;
+        final String kind;
+        final String payload;
+        final long createdAtMs;
+        int attempts;
+        long nextAttemptAtMs;
+        boolean claimed;
+
+        Pending(long id, String workspaceId, String kind, String payload, long createdAtMs) {
+            this.id = id;
+            this.workspaceId = workspaceId;
+            this.kind = kind;
+            this.payload = payload;
+            this.createdAtMs = createdAtMs;
+        }
+
+        Entry entry() {
+            return new Entry(id, workspaceId, kind, payload, attempts, createdAtMs);
+        }
+    }
+}
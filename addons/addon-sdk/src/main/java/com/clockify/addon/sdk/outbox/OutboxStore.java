@@ -0,0 +1,65 @@
+package com.clockify.addon.sdk.outbox;
+
+import java.util.List;
+
+/**
+ * Durable queue of outbound mutations (tag writes, time-entry updates) waiting to be sent to the
+ * Clockify API by an {@link OutboxWorker}.
+ *
+ * <p>Entries are ordered per workspace: {@link #claim} only hands out a workspace's entries while
+ * its oldest one is due and none of them is already claimed, so the writes for one workspace are
+ * applied in the order they were enqueued even with several workers or replicas.</p>
+ */
+public interface OutboxStore {
+
+    /**
+     * Stores a mutation. {@code kind} selects the {@link OutboxWorker.Handler} that sends it and
+     * {@code payload} is whatever that handler needs (usually JSON).
+     *
+     * @throws OutboxStoreException if the entry could not be stored
+     */
+    Entry append(String workspaceId, String kind, String payload);
+
+    /**
+     * Claims due work from up to {@code maxWorkspaces} workspaces: for each, its oldest entry
+     * and the ones after it, up to {@code batchSize} in all. Entries come back ordered by id.
+     */
+    List<Entry> claim(int maxWorkspaces, int batchSize);
+
+    /** Removes a sent entry. */
+    void complete(long id);
+
+    /**
+     * Moves an entry that will never be sent out of the queue and into the store's dead letters,
+     * with the last {@code error}, so it can be inspected or replayed by hand.
+     */
+    void deadLetter(long id, String error);
+
+    /** Counts a failed attempt and makes the entry due again at {@code nextAttemptAtMs}. */
+    void retry(long id, long nextAttemptAtMs, String error);
+
+    /** Returns a claimed entry untouched, e.g. one queued behind an entry that failed. */
+    void release(long id);
+
+    /** Entries not yet completed, and how old the oldest is. */
+    Backlog backlog();
+
+    /**
+     * A queued mutation.
+     *
+     * @param attempts failed attempts so far
+     */
+    record Entry(long id, String workspaceId, String kind, String payload, int attempts, long createdAtMs) {
+    }
+
+    /** @param oldestCreatedAtMs creation time of the oldest entry, or 0 when empty */
+    record Backlog(long depth, long oldestCreatedAtMs) {
+    }
+
+    /** Raised when the store cannot be read or written. */
+    class OutboxStoreException extends RuntimeException {
+        public OutboxStoreException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
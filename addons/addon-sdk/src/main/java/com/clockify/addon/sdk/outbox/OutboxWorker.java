@@ -0,0 +1,319 @@
+package com.clockify.addon.sdk.outbox;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains an {@link OutboxStore} in the background, so webhook handlers only enqueue their
+ * outbound writes and answer at once instead of holding the request while the Clockify API is
+ * slow or failing.
+ *
+ * <p>A dispatcher thread claims due work for as many workspaces as there are idle workers, up to
+ * {@value #DEFAULT_BATCH_SIZE} entries per workspace, and hands each workspace's batch to one
+ * worker, which sends the entries in order through the {@link Handler} registered for their kind.
+ * When an entry fails, it is retried after an exponential backoff with jitter (from
+ * {@code 1s} up to {@code 5min}) and the rest of that workspace's batch is put back behind it, so a
+ * workspace's writes are never applied out of order. After {@code maxAttempts} failed attempts, or
+ * at once for a {@link PermanentFailure}, the entry is moved to the store's dead letters
+ * ({@link OutboxStore#deadLetter}) and counted.</p>
+ *
+ * <p>Metrics: {@code outbox_backlog_depth} and {@code outbox_backlog_age_seconds} (refreshed by the
+ * dispatcher at most once a second), {@code outbox_delivered_total{kind}},
+ * {@code outbox_retries_total{kind}} and {@code outbox_dead_letter_total{kind}}.</p>
+ *
+ * <p>Configuration for {@link #OutboxWorker(OutboxStore)} (system property or environment
+ * variable): {@code CLOCKIFY_OUTBOX_WORKERS} (default {@value #DEFAULT_WORKERS}) and
+ * {@code CLOCKIFY_OUTBOX_MAX_ATTEMPTS} (default {@value #DEFAULT_MAX_ATTEMPTS}).
+ * {@link #fromEnvironment()} picks the store: {@link PostgresOutboxStore#fromEnvironment()} when
+ * {@code CLOCKIFY_OUTBOX_STORE=postgres}, otherwise {@link LogOutboxStore#fromEnvironment()}.</p>
+ */
+public final class OutboxWorker implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxWorker.class);
+
+    static final int DEFAULT_WORKERS = 4;
+    static final int DEFAULT_BATCH_SIZE = 20;
+    static final int DEFAULT_MAX_ATTEMPTS = 10;
+    private static final Duration DEFAULT_BASE_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMinutes(5);
+    private static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(1);
+    private static final long BACKLOG_REFRESH_MS = 1000;
+
+    /** Sends one queued mutation; throw to have it retried. */
+    @FunctionalInterface
+    public interface Handler {
+        void deliver(OutboxStore.Entry entry) throws Exception;
+    }
+
+    /** Thrown by a {@link Handler} for a mutation that will never succeed (e.g. a 4xx); it is not retried. */
+    public static class PermanentFailure extends Exception {
+        public PermanentFailure(String message) {
+            super(message);
+        }
+
+        public PermanentFailure(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final OutboxStore store;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final long pollIntervalMs;
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+    private final Semaphore idle;
+    private final ExecutorService pool;
+    private final MeterRegistry registry = MetricsHandler.registry();
+    private final Object wakeup = new Object();
+    // Guarded by wakeup.
+    private boolean signalled;
+    private volatile boolean running;
+    private volatile Thread dispatcher;
+    private volatile long backlogDepth;
+    private volatile long backlogOldestMs;
+    private long backlogRefreshedAt;
+
+    public OutboxWorker(OutboxStore store) {
+        this(store, EnvironmentInspector.intSetting("CLOCKIFY_OUTBOX_WORKERS", DEFAULT_WORKERS), DEFAULT_BATCH_SIZE,
+                EnvironmentInspector.intSetting("CLOCKIFY_OUTBOX_MAX_ATTEMPTS", DEFAULT_MAX_ATTEMPTS),
+                DEFAULT_BASE_BACKOFF, DEFAULT_MAX_BACKOFF, DEFAULT_POLL_INTERVAL);
+    }
+
+    public OutboxWorker(OutboxStore store, int workers, int batchSize, int maxAttempts,
+                        Duration baseBackoff, Duration maxBackoff, Duration pollInterval) {
+        if (workers < 1 || batchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("workers, batchSize and maxAttempts must be positive");
+        }
+        this.store = Objects.requireNonNull(store, "store");
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = Math.max(1, baseBackoff.toMillis());
+        this.maxBackoffMs = Math.max(baseBackoffMs, maxBackoff.toMillis());
+        this.pollIntervalMs = Math.max(1, pollInterval.toMillis());
+        this.idle = new Semaphore(workers);
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "outbox-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("outbox_backlog_depth", this, w -> w.backlogDepth)
+                .description("Outbound mutations waiting in the outbox")
+                .register(registry);
+        Gauge.builder("outbox_backlog_age_seconds", this, OutboxWorker::backlogAgeSeconds)
+                .description("Age of the oldest outbound mutation waiting in the outbox")
+                .register(registry);
+    }
+
+    /**
+     * Worker over the configured store, or empty when no outbox is configured. Register handlers,
+     * then {@link #start()} it.
+     */
+    public static Optional<OutboxWorker> fromEnvironment() {
+        Optional<? extends OutboxStore> store = PostgresOutboxStore.fromEnvironment();
+        if (store.isEmpty()) {
+            store = LogOutboxStore.fromEnvironment();
+        }
+        return store.map(OutboxWorker::new);
+    }
+
+    /** Registers the handler that sends mutations of {@code kind}. Register before {@link #start()}. */
+    public OutboxWorker register(String kind, Handler handler) {
+        handlers.put(Objects.requireNonNull(kind, "kind"), Objects.requireNonNull(handler, "handler"));
+        return this;
+    }
+
+    /**
+     * Stores a mutation and wakes the dispatcher.
+     *
+     * @throws OutboxStore.OutboxStoreException if the store cannot be written
+     */
+    public OutboxStore.Entry enqueue(String workspaceId, String kind, String payload) {
+        OutboxStore.Entry entry = store.append(workspaceId, kind, payload);
+        wake();
+        return entry;
+    }
+
+    /** Starts draining, including whatever a previous run left in the store. */
+    public synchronized void start() {
+        if (dispatcher != null) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::dispatchLoop, "outbox-dispatcher");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    /** Outbound mutations waiting in the store, as of the last refresh. */
+    public long backlogDepth() {
+        return backlogDepth;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        wake();
+        Thread thread = dispatcher;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                refreshBacklog();
+                int free = idle.availablePermits();
+                List<OutboxStore.Entry> claimed = free == 0 ? List.of() : store.claim(free, batchSize);
+                if (claimed.isEmpty()) {
+                    await(pollIntervalMs);
+                    continue;
+                }
+                Map<String, List<OutboxStore.Entry>> byWorkspace = new LinkedHashMap<>();
+                for (OutboxStore.Entry entry : claimed) {
+                    byWorkspace.computeIfAbsent(entry.workspaceId(), k -> new ArrayList<>()).add(entry);
+                }
+                for (List<OutboxStore.Entry> batch : byWorkspace.values()) {
+                    idle.acquire();
+                    pool.execute(() -> {
+                        try {
+                            deliver(batch);
+                        } finally {
+                            idle.release();
+                            wake();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Outbox dispatch failed: {}", e.getMessage());
+                try {
+                    await(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Sends one workspace's batch in order, stopping at the first entry that has to be retried. */
+    private void deliver(List<OutboxStore.Entry> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxStore.Entry entry = batch.get(i);
+            try {
+                Handler handler = handlers.get(entry.kind());
+                if (handler == null) {
+                    throw new IllegalStateException("no outbox handler for " + entry.kind());
+                }
+                handler.deliver(entry);
+                store.complete(entry.id());
+                registry.counter("outbox_delivered_total", "kind", entry.kind()).increment();
+            } catch (Exception e) {
+                if (!failed(entry, e)) {
+                    for (OutboxStore.Entry rest : batch.subList(i + 1, batch.size())) {
+                        store.release(rest.id());
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Records a failed attempt; returns {@code true} when the entry was dead-lettered rather than rescheduled. */
+    private boolean failed(OutboxStore.Entry entry, Exception e) {
+        int attempts = entry.attempts() + 1;
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        if (e instanceof PermanentFailure || attempts >= maxAttempts) {
+            logger.error("Dead-lettering outbox entry {} ({}) for workspace {} after {} attempt(s): {}",
+                    entry.id(), entry.kind(), entry.workspaceId(), attempts, error);
+            store.deadLetter(entry.id(), error);
+            registry.counter("outbox_dead_letter_total", "kind", entry.kind()).increment();
+            return true;
+        }
+        long delay = backoffMs(attempts);
+        logger.warn("Outbox entry {} ({}) failed on attempt {}, retrying in {} ms: {}",
+                entry.id(), entry.kind(), attempts, delay, error);
+        store.retry(entry.id(), System.currentTimeMillis() + delay, error);
+        registry.counter("outbox_retries_total", "kind", entry.kind()).increment();
+        return false;
+    }
+
+    /** Exponential backoff with jitter: between half and all of {@code base * 2^(attempts-1)}, capped. */
+    long backoffMs(int attempts) {
+        long delay = baseBackoffMs << Math.min(attempts - 1, 30);
+        delay = Math.min(delay < 0 ? maxBackoffMs : delay, maxBackoffMs);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    private void refreshBacklog() {
+        long now = System.currentTimeMillis();
+        if (now - backlogRefreshedAt < BACKLOG_REFRESH_MS) {
+            return;
+        }
+        backlogRefreshedAt = now;
+        OutboxStore.Backlog backlog = store.backlog();
+        backlogDepth = backlog.depth();
+        backlogOldestMs = backlog.oldestCreatedAtMs();
+    }
+
+    private double backlogAgeSeconds() {
+        long oldest = backlogOldestMs;
+        return oldest <= 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest) / 1000.0;
+    }
+
+    private void wake() {
+        synchronized (wakeup) {
+            signalled = true;
+            wakeup.notifyAll();
+        }
+    }
+
+    private void await(long timeoutMs) throws InterruptedException {
+        synchronized (wakeup) {
+            if (!signalled && running) {
+                wakeup.wait(timeoutMs);
+            }
+            signalled = false;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.clockify.addon.sdk.outbox;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * PostgreSQL-backed {@link OutboxStore}, one row per mutation in {@code addon_outbox}, shared by
+ * every replica.
+ *
+ * <p>{@link #append(Connection, String, String, String)} writes through the caller's connection so
+ * the mutation commits or rolls back with the caller's own changes. Claims are leases: a claimed
+ * row is not handed out again until it is completed, retried or released, or until the lease
+ * (five minutes) runs out because its replica died. Pass the {@link DataSource} of an existing
+ * pool, e.g. {@code PooledDatabaseTokenStore#dataSource()}.</p>
+ *
+ * <p>Dead letters are moved, in one statement, to {@code addon_outbox_dead} with their attempt
+ * count, last error and {@code dead_at_ms}; nothing reads that table, it is kept for operators.</p>
+ *
+ * <p>{@link #fromEnvironment()} opens a store on a small pool of its own when
+ * {@code CLOCKIFY_OUTBOX_STORE=postgres}, connecting with {@code DB_URL}, {@code DB_USERNAME}
+ * (or {@code DB_USER}) and {@code DB_PASSWORD}.</p>
+ */
+public final class PostgresOutboxStore implements OutboxStore {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresOutboxStore.class);
+
+    private static final long LEASE_MS = Duration.ofMinutes(5).toMillis();
+    private static final String INSERT_SQL =
+            "INSERT INTO addon_outbox (workspace_id, kind, payload, created_at_ms) VALUES (?, ?, ?, ?) RETURNING id";
+    // Oldest row per workspace; a workspace is ready when that row is due and none of its rows is leased.
+    private static final String CLAIM_SQL =
+            "WITH heads AS ("
+                    + " SELECT DISTINCT ON (workspace_id) workspace_id, id, next_attempt_at_ms"
+                    + " FROM addon_outbox ORDER BY workspace_id, id),"
+                    + " busy AS (SELECT DISTINCT workspace_id FROM addon_outbox WHERE claimed_until_ms > ?),"
+                    + " ready AS ("
+                    + " SELECT h.workspace_id FROM heads h"
+                    + " WHERE h.next_attempt_at_ms <= ? AND h.workspace_id NOT IN (SELECT workspace_id FROM busy)"
+                    + " ORDER BY h.id LIMIT ?),"
+                    + " batch AS ("
+                    + " SELECT id FROM ("
+                    + " SELECT o.id, row_number() OVER (PARTITION BY o.workspace_id ORDER BY o.id) AS n"
+                    + " FROM addon_outbox o JOIN ready r ON r.workspace_id = o.workspace_id) ranked"
+                    + " WHERE n <= ?)"
+                    + " UPDATE addon_outbox o SET claimed_until_ms = ? FROM batch"
+                    + " WHERE o.id = batch.id AND o.claimed_until_ms <= ?"
+                    + " RETURNING o.id, o.workspace_id, o.kind, o.payload, o.attempts, o.created_at_ms";
+    private static final String COMPLETE_SQL = "DELETE FROM addon_outbox WHERE id = ?";
+    private static final String RETRY_SQL =
+            "UPDATE addon_outbox SET attempts = attempts + 1, next_attempt_at_ms = ?, last_error = ?, "
+                    + "claimed_until_ms = 0 WHERE id = ?";
+    private static final String DEAD_LETTER_SQL =
+            "WITH dead AS (DELETE FROM addon_outbox WHERE id = ?"
+                    + " RETURNING id, workspace_id, kind, payload, attempts, created_at_ms)"
+                    + " INSERT INTO addon_outbox_dead (id, workspace_id, kind, payload, attempts, last_error, created_at_ms, dead_at_ms)"
+                    + " SELECT id, workspace_id, kind, payload, attempts + 1, ?, created_at_ms, ? FROM dead";
+    private static final String RELEASE_SQL = "UPDATE addon_outbox SET claimed_until_ms = 0 WHERE id = ?";
+    private static final String BACKLOG_SQL = "SELECT count(*), coalesce(min(created_at_ms), 0) FROM addon_outbox";
+
+    private final DataSource dataSource;
+
+    public PostgresOutboxStore(DataSource dataSource) {
+        this.dataSource = dataSource;
+        ensureTable();
+    }
+
+    /** Store configured by {@code CLOCKIFY_OUTBOX_STORE=postgres} and {@code DB_*}, or empty. */
+    public static Optional<PostgresOutboxStore> fromEnvironment() {
+        if (!"postgres".equalsIgnoreCase(EnvironmentInspector.setting("CLOCKIFY_OUTBOX_STORE"))) {
+            return Optional.empty();
+        }
+        String url = EnvironmentInspector.setting("DB_URL");
+        if (url == null) {
+            throw new IllegalStateException("DB_URL is required when CLOCKIFY_OUTBOX_STORE=postgres");
+        }
+        String user = EnvironmentInspector.setting("DB_USERNAME");
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(user != null ? user : EnvironmentInspector.setting("DB_USER"));
+        config.setPassword(EnvironmentInspector.setting("DB_PASSWORD"));
+        // The dispatcher's claim plus one statement per busy worker.
+        int workers = EnvironmentInspector.intSetting("CLOCKIFY_OUTBOX_WORKERS", OutboxWorker.DEFAULT_WORKERS);
+        config.setMaximumPoolSize(workers + 1);
+        config.setMinimumIdle(1);
+        config.setPoolName("ClockifyOutboxPool");
+        logger.info("Outbox stored in PostgreSQL at {}", url);
+        return Optional.of(new PostgresOutboxStore(new HikariDataSource(config)));
+    }
+
+    @Override
+    public Entry append(String workspaceId, String kind, String payload) {
+        try (Connection c = dataSource.getConnection()) {
+            return append(c, workspaceId, kind, payload);
+        } catch (SQLException e) {
+            throw new OutboxStoreException("Outbox append failed", e);
+        }
+    }
+
+    /**
+     * Stores a mutation using {@code connection}, inside whatever transaction it has open.
+     */
+    public Entry append(Connection connection, String workspaceId, String kind, String payload) throws SQLException {
+        long now = System.currentTimeMillis();
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            ps.setString(1, workspaceId);
+            ps.setString(2, kind);
+            ps.setString(3, payload);
+            ps.setLong(4, now);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new Entry(rs.getLong(1), workspaceId, kind, payload, 0, now);
+            }
+        }
+    }
+
+    @Override
+    public List<Entry> claim(int maxWorkspaces, int batchSize) {
+        long now = System.currentTimeMillis();
+        List<Entry> claimed = new ArrayList<>();
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(CLAIM_SQL)) {
+            ps.setLong(1, now);
+            ps.setLong(2, now);
+            ps.setInt(3, maxWorkspaces);
+            ps.setInt(4, batchSize);
+            ps.setLong(5, now + LEASE_MS);
+            ps.setLong(6, now);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    claimed.add(new Entry(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                            rs.getInt(5), rs.getLong(6)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new OutboxStoreException("Outbox claim failed", e);
+        }
+        claimed.sort(Comparator.comparingLong(Entry::id));
+        return claimed;
+    }
+
+    @Override
+    public void complete(long id) {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(COMPLETE_SQL)) {
+            ps.setLong(1, id);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new OutboxStoreException("Outbox complete failed", e);
+        }
+    }
+
+    @Override
+    public void retry(long id, long nextAttemptAtMs, String error) {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(RETRY_SQL)) {
+            ps.setLong(1, nextAttemptAtMs);
+            ps.setString(2, error);
+            ps.setLong(3, id);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new OutboxStoreException("Outbox retry failed", e);
+        }
+    }
+
+    @Override
+    public void deadLetter(long id, String error) {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(DEAD_LETTER_SQL)) {
+            ps.setLong(1, id);
+            ps.setString(2, error);
+            ps.setLong(3, System.currentTimeMillis());
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new OutboxStoreException("Outbox dead-letter failed", e);
+        }
+    }
+
+    @Override
+    public void release(long id) {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(RELEASE_SQL)) {
+            ps.setLong(1, id);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new OutboxStoreException("Outbox release failed", e);
+        }
+    }
+
+    @Override
+    public Backlog backlog() {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(BACKLOG_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return new Backlog(rs.getLong(1), rs.getLong(2));
+        } catch (SQLException e) {
+            throw new OutboxStoreException("Outbox backlog query failed", e);
+        }
+    }
+
+    private void ensureTable() {
+        try (Connection c = dataSource.getConnection(); Statement st = c.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS addon_outbox (" +
+                    "id BIGSERIAL PRIMARY KEY," +
+                    "workspace_id VARCHAR(255) NOT NULL," +
+                    "kind VARCHAR(128) NOT NULL," +
+                    "payload TEXT NOT NULL," +
+                    "attempts INTEGER NOT NULL DEFAULT 0," +
+                    "next_attempt_at_ms BIGINT NOT NULL DEFAULT 0," +
+                    "claimed_until_ms BIGINT NOT NULL DEFAULT 0," +
+                    "last_error TEXT," +
+                    "created_at_ms BIGINT NOT NULL)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS addon_outbox_workspace_idx ON addon_outbox (workspace_id, id)");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS addon_outbox_dead (" +
+                    "id BIGINT PRIMARY KEY," +
+                    "workspace_id VARCHAR(255) NOT NULL," +
+                    "kind VARCHAR(128) NOT NULL," +
+                    "payload TEXT NOT NULL," +
+                    "attempts INTEGER NOT NULL," +
+                    "last_error TEXT," +
+                    "created_at_ms BIGINT NOT NULL," +
+                    "dead_at_ms BIGINT NOT NULL)");
+        } catch (SQLException e) {
+            logger.warn("Could not ensure addon_outbox tables: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.clockify.addon.sdk.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Single-process stand-in for a shared rate-limit store. Share one instance between several
+ * {@link LeasingRateLimiter}s to simulate replicas in tests or local development.
+ */
+public final class InMemoryRateLimitBackend implements SharedRateLimitBackend {
+    private final Map<String, double[]> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier clockMillis;
+    private final AtomicLong leaseCalls = new AtomicLong();
+
+    public InMemoryRateLimitBackend() {
+        this(System::currentTimeMillis);
+    }
+
+    public InMemoryRateLimitBackend(LongSupplier clockMillis) {
+        this.clockMillis = clockMillis;
+    }
+
+    @Override
+    public int lease(String key, int requested, double permitsPerSecond, double burstPermits) {
+        long now = clockMillis.getAsLong();
+        double burst = Math.max(1.0, burstPermits);
+        int[] granted = new int[1];
+        // compute() runs atomically per key, standing in for the row lock a database would take
+        buckets.compute(key, (k, state) -> {
+            double tokens;
+            if (state == null) {
+                tokens = burst;
+            } else {
+                long elapsed = Math.max(0L, now - (long) state[1]);
+                tokens = Math.min(burst, state[0] + elapsed / 1000.0 * permitsPerSecond);
+            }
+            granted[0] = (int) Math.min(requested, Math.floor(tokens));
+            return new double[]{tokens - granted[0], Math.max(now, state == null ? now : state[1])};
+        });
+        leaseCalls.incrementAndGet();
+        return granted[0];
+    }
+
+    /** Number of {@link #lease} calls served, for asserting how often the store is touched. */
+    public long leaseCalls() {
+        return leaseCalls.get();
+    }
+}
@@ -0,0 +1,231 @@
+package com.clockify.addon.sdk.ratelimit;
+
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cluster-wide keyed limiter that borrows permits from a {@link SharedRateLimitBackend} in batches.
+ *
+ * <p>Each key holds a node-local lease: a count of pre-granted permits that expires after
+ * {@code leaseTtl} so an idle replica cannot hoard capacity. Requests spend the lease with a CAS;
+ * only when it is exhausted does one thread per key go to the backend for the next batch. When the
+ * backend grants nothing the key is negatively cached until roughly one permit should have
+ * refilled, so a flood of rejected requests does not become a flood of store round trips.</p>
+ *
+ * <p>If the backend is unreachable the limiter degrades to the per-replica
+ * {@link StripedTokenBucketLimiter} at the same rate, which is the pre-cluster behaviour. After a
+ * connection, pool or timeout failure the backend is left alone for
+ * {@link #BACKEND_FAILURE_BACKOFF_MS} and every key limits locally, so an outage does not queue
+ * requests behind calls to a dead store. Any other failure (a data error for one row) only sends
+ * that key to local limiting for the same window.</p>
+ *
+ * <p>Store keys are {@code namespace:key}; a key that would exceed {@link #MAX_STORE_KEY_LENGTH}
+ * is replaced by its SHA-256 so the backend never sees an oversized key.</p>
+ */
+public final class LeasingRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(LeasingRateLimiter.class);
+    private static final long MAX_NEGATIVE_CACHE_MS = 1_000L;
+    static final long BACKEND_FAILURE_BACKOFF_MS = 5_000L;
+    static final int MAX_STORE_KEY_LENGTH = 512;
+    private static final int MAX_NAMESPACE_LENGTH = 128;
+
+    private final SharedRateLimitBackend backend;
+    private final String namespace;
+    private final double permitsPerSecond;
+    private final double burstPermits;
+    private final int leaseSize;
+    private final long leaseTtlMs;
+    private final long negativeCacheMs;
+    private final StripedTokenBucketLimiter fallback;
+    private final LongSupplier clockMillis;
+
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepAt = new AtomicLong();
+    private volatile long backendDownUntil;
+    private final Counter leaseCounter;
+    private final Counter backendErrors;
+
+    /**
+     * @param namespace prefix separating this limiter's keys in the shared store (e.g. the scope)
+     * @param leaseSize permits borrowed per backend call
+     * @param leaseTtl  how long unused borrowed permits stay valid on this node
+     */
+    public LeasingRateLimiter(SharedRateLimitBackend backend, String namespace, double permitsPerSecond,
+                              double burstPermits, int leaseSize, Duration leaseTtl) {
+        this(backend, namespace, permitsPerSecond, burstPermits, leaseSize, leaseTtl, System::currentTimeMillis);
+    }
+
+    LeasingRateLimiter(SharedRateLimitBackend backend, String namespace, double permitsPerSecond,
+                       double burstPermits, int leaseSize, Duration leaseTtl, LongSupplier clockMillis) {
+        if (namespace.length() > MAX_NAMESPACE_LENGTH) {
+            throw new IllegalArgumentException("Rate limit namespace longer than " + MAX_NAMESPACE_LENGTH + " characters");
+        }
+        this.backend = backend;
+        this.namespace = namespace;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burstPermits = Math.max(1.0, burstPermits);
+        this.leaseSize = Math.max(1, leaseSize);
+        this.leaseTtlMs = Math.max(1L, leaseTtl.toMillis());
+        this.negativeCacheMs = Math.min(MAX_NEGATIVE_CACHE_MS, Math.max(1L, (long) (1000.0 / permitsPerSecond)));
+        this.fallback = new StripedTokenBucketLimiter(permitsPerSecond, this.burstPermits, Duration.ofMinutes(10), 5000);
+        this.clockMillis = clockMillis;
+        this.leaseCounter = Counter.builder("rate_limit_leases_total")
+                .description("Permit batches borrowed from the shared rate limit store")
+                .tag("namespace", namespace)
+                .register(MetricsHandler.registry());
+        this.backendErrors = Counter.builder("rate_limit_backend_errors_total")
+                .description("Shared rate limit store failures (requests fell back to local limiting)")
+                .tag("namespace", namespace)
+                .register(MetricsHandler.registry());
+    }
+
+    /** Default lease size: a tenth of a second's worth of permits, at least one. */
+    public static int defaultLeaseSize(double permitsPerSecond) {
+        return Math.max(1, (int) (permitsPerSecond / 10.0));
+    }
+
+    public double permitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public boolean tryAcquire(String key) {
+        long now = clockMillis.getAsLong();
+        maybeSweep(now);
+        Lease lease = leases.computeIfAbsent(key, k -> new Lease(storeKey(k)));
+        if (lease.tryTake(now)) {
+            return true;
+        }
+        if (now < backendDownUntil || now < lease.localUntil) {
+            return fallback.tryAcquire(key);
+        }
+        synchronized (lease) {
+            if (lease.tryTake(now)) {
+                return true;
+            }
+            if (now < lease.retryAt) {
+                return false;
+            }
+            if (now < backendDownUntil || now < lease.localUntil) {
+                return fallback.tryAcquire(key);
+            }
+            int granted;
+            try {
+                granted = backend.lease(lease.storeKey, leaseSize, permitsPerSecond, burstPermits);
+            } catch (RuntimeException e) {
+                backendErrors.increment();
+                if (storeUnavailable(e)) {
+                    backendDownUntil = now + BACKEND_FAILURE_BACKOFF_MS;
+                    logger.warn("Shared rate limit store unavailable for {}; limiting locally for {} ms: {}",
+                            namespace, BACKEND_FAILURE_BACKOFF_MS, e.getMessage());
+                } else {
+                    lease.localUntil = now + BACKEND_FAILURE_BACKOFF_MS;
+                    logger.warn("Shared rate limit store failed for key {}; limiting it locally for {} ms: {}",
+                            lease.storeKey, BACKEND_FAILURE_BACKOFF_MS, e.getMessage());
+                }
+                return fallback.tryAcquire(key);
+            }
+            leaseCounter.increment();
+            if (granted <= 0) {
+                lease.retryAt = now + negativeCacheMs;
+                return false;
+            }
+            lease.refill(granted - 1, now + leaseTtlMs);
+            return true;
+        }
+    }
+
+    private void maybeSweep(long now) {
+        long due = nextSweepAt.get();
+        if (now >= due && nextSweepAt.compareAndSet(due, now + leaseTtlMs * 10)) {
+            leases.values().removeIf(l -> l.expiresAt < now && l.retryAt < now && l.localUntil < now);
+        }
+    }
+
+    String storeKey(String key) {
+        String storeKey = namespace + ":" + key;
+        if (storeKey.length() <= MAX_STORE_KEY_LENGTH) {
+            return storeKey;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return namespace + ":sha256:" + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * True when the failure means the store itself is unreachable (connection refused or lost,
+     * pool exhausted, statement timeout), as opposed to a problem with one key's row.
+     */
+    static boolean storeUnavailable(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException
+                    || t instanceof SQLNonTransientConnectionException
+                    || t instanceof SQLTimeoutException
+                    || t instanceof SocketTimeoutException
+                    || t instanceof ConnectException) {
+                return true;
+            }
+            // SQLState class 08 is "connection exception"; PostgreSQL reports it without the subclasses above
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static final class Lease {
+        private final String storeKey;
+        private final AtomicInteger remaining = new AtomicInteger();
+        private volatile long expiresAt;
+        private volatile long retryAt;
+        private volatile long localUntil;
+
+        Lease(String storeKey) {
+            this.storeKey = storeKey;
+        }
+
+        boolean tryTake(long now) {
+            if (now >= expiresAt) {
+                return false;
+            }
+            while (true) {
+                int left = remaining.get();
+                if (left <= 0) {
+                    return false;
+                }
+                if (remaining.compareAndSet(left, left - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void refill(int permits, long expiresAt) {
+            remaining.set(permits);
+            this.expiresAt = expiresAt;
+            this.retryAt = 0L;
+        }
+    }
+}
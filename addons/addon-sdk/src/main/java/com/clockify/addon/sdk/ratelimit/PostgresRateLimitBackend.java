@@ -0,0 +1,132 @@
+package com.clockify.addon.sdk.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PostgreSQL-backed shared token buckets, one row per key in {@code addon_rate_limits}.
+ *
+ * <p>A lease is one short transaction: an upsert that refills the row from the database clock
+ * (so replica clock skew does not matter) and holds its row lock, then an update that deducts the
+ * granted permits. Pass the {@link DataSource} of an existing pool, e.g.
+ * {@code PooledDatabaseTokenStore#dataSource()}, so rate limiting does not open its own
+ * connections.</p>
+ *
+ * <p>A bucket untouched for longer than {@code idleTtl} has refilled to its burst, so its row
+ * carries no state: idle rows are deleted in bulk at most once a minute, piggybacking on leases,
+ * and a key seen again simply starts from a full bucket. This keeps the table bounded by the keys
+ * active within the TTL rather than every key ever seen.</p>
+ */
+public final class PostgresRateLimitBackend implements SharedRateLimitBackend {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresRateLimitBackend.class);
+
+    private static final String REFILL_SQL =
+            "INSERT INTO addon_rate_limits AS b (bucket_key, tokens, updated_at_ms) "
+                    + "VALUES (?, ?, (EXTRACT(EPOCH FROM clock_timestamp()) * 1000)::BIGINT) "
+                    + "ON CONFLICT (bucket_key) DO UPDATE SET "
+                    + "tokens = LEAST(?, b.tokens + GREATEST(0, EXCLUDED.updated_at_ms - b.updated_at_ms) / 1000.0 * ?), "
+                    + "updated_at_ms = GREATEST(b.updated_at_ms, EXCLUDED.updated_at_ms) "
+                    + "RETURNING tokens";
+    private static final String DEDUCT_SQL =
+            "UPDATE addon_rate_limits SET tokens = tokens - ? WHERE bucket_key = ?";
+    private static final String PURGE_SQL =
+            "DELETE FROM addon_rate_limits WHERE updated_at_ms < (EXTRACT(EPOCH FROM clock_timestamp()) * 1000)::BIGINT - ?";
+    private static final long PURGE_INTERVAL_MS = Duration.ofMinutes(1).toMillis();
+    private static final Duration DEFAULT_IDLE_TTL = Duration.ofMinutes(10);
+
+    private final DataSource dataSource;
+    private final long idleTtlMs;
+    private final AtomicLong nextPurgeAt = new AtomicLong();
+
+    public PostgresRateLimitBackend(DataSource dataSource) {
+        this(dataSource, DEFAULT_IDLE_TTL);
+    }
+
+    /**
+     * @param idleTtl how long an untouched bucket is kept; must exceed the slowest bucket's refill
+     *                time ({@code burstPermits / permitsPerSecond}) so no partially drained row is purged
+     */
+    public PostgresRateLimitBackend(DataSource dataSource, Duration idleTtl) {
+        this.dataSource = dataSource;
+        this.idleTtlMs = Math.max(PURGE_INTERVAL_MS, idleTtl.toMillis());
+        ensureTable();
+    }
+
+    @Override
+    public int lease(String key, int requested, double permitsPerSecond, double burstPermits) {
+        double burst = Math.max(1.0, burstPermits);
+        try (Connection c = dataSource.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            int granted;
+            try {
+                double tokens;
+                try (PreparedStatement ps = c.prepareStatement(REFILL_SQL)) {
+                    ps.setString(1, key);
+                    ps.setDouble(2, burst);
+                    ps.setDouble(3, burst);
+                    ps.setDouble(4, permitsPerSecond);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        tokens = rs.getDouble(1);
+                    }
+                }
+                granted = (int) Math.min(requested, Math.floor(tokens));
+                if (granted > 0) {
+                    try (PreparedStatement ps = c.prepareStatement(DEDUCT_SQL)) {
+                        ps.setInt(1, granted);
+                        ps.setString(2, key);
+                        ps.executeUpdate();
+                    }
+                }
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+            maybePurge(c);
+            return granted;
+        } catch (SQLException e) {
+            throw new RateLimitBackendException("Rate limit lease failed for " + key, e);
+        }
+    }
+
+    private void maybePurge(Connection c) {
+        long now = System.currentTimeMillis();
+        long purgeAt = nextPurgeAt.get();
+        if (now < purgeAt || !nextPurgeAt.compareAndSet(purgeAt, now + PURGE_INTERVAL_MS)) {
+            return;
+        }
+        try (PreparedStatement ps = c.prepareStatement(PURGE_SQL)) {
+            ps.setLong(1, idleTtlMs);
+            int purged = ps.executeUpdate();
+            logger.debug("Purged {} idle rate limit buckets", purged);
+        } catch (SQLException e) {
+            // The lease itself succeeded; the next purge window retries
+            logger.warn("Could not purge idle rate limit buckets: {}", e.getMessage());
+        }
+    }
+
+    private void ensureTable() {
+        try (Connection c = dataSource.getConnection(); Statement st = c.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS addon_rate_limits (" +
+                    "bucket_key VARCHAR(512) PRIMARY KEY," +
+                    "tokens DOUBLE PRECISION NOT NULL," +
+                    "updated_at_ms BIGINT NOT NULL)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_rate_limits_updated ON addon_rate_limits(updated_at_ms)");
+        } catch (SQLException e) {
+            logger.warn("Could not ensure addon_rate_limits table: {}", e.getMessage());
+        }
+    }
+}
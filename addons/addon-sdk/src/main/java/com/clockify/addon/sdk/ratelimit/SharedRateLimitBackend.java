@@ -0,0 +1,27 @@
+package com.clockify.addon.sdk.ratelimit;
+
+/**
+ * Cluster-wide token store used by {@link LeasingRateLimiter}.
+ *
+ * <p>Each key names one shared token bucket refilled at {@code permitsPerSecond} up to
+ * {@code burstPermits}. Replicas borrow permits in batches through {@link #lease}, so the store is
+ * touched once per lease rather than once per request. Implementations must make a lease atomic
+ * with respect to other replicas.</p>
+ */
+public interface SharedRateLimitBackend {
+
+    /**
+     * Takes up to {@code requested} whole permits from the shared bucket for {@code key}.
+     *
+     * @return the number of permits granted, between 0 and {@code requested}
+     * @throws RateLimitBackendException if the store cannot be reached
+     */
+    int lease(String key, int requested, double permitsPerSecond, double burstPermits);
+
+    /** Raised when the shared store is unavailable; callers fall back to local limiting. */
+    class RateLimitBackendException extends RuntimeException {
+        public RateLimitBackendException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
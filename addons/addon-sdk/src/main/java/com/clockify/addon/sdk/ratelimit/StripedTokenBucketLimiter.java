@@ -0,0 +1,264 @@
+package com.clockify.addon.sdk.ratelimit;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Keyed, lock-free token-bucket limiter.
+ *
+ * <p>Each bucket's whole state lives in one {@code long}: the upper {@value #TIME_BITS} bits hold
+ * the last refill time (milliseconds since the limiter was created) and the lower
+ * {@value #TOKEN_BITS} bits hold the token count in 1/{@value #UNITS_PER_PERMIT} permit units.
+ * Acquisition is a read, an arithmetic refill and a single CAS; rejections never write, so a
+ * flooded key does not turn into a contended cache line.</p>
+ *
+ * <p>Buckets are spread over a power-of-two number of stripes. Expiry is amortised: a stripe is
+ * swept for idle buckets at most once per sweep interval, by whichever caller first touches it
+ * after the interval elapses, instead of maintaining access-order bookkeeping on every hit.</p>
+ *
+ * <p>New buckets start with a single permit (matching the previous Guava behaviour) and refill up
+ * to {@code burstPermits}.</p>
+ */
+public final class StripedTokenBucketLimiter {
+    static final int TOKEN_BITS = 22;
+    static final int TIME_BITS = Long.SIZE - TOKEN_BITS;
+    static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    static final long UNITS_PER_PERMIT = 1024L;
+
+    /** Largest burst a bucket can hold. */
+    public static final double MAX_BURST_PERMITS = (double) TOKEN_MASK / UNITS_PER_PERMIT;
+
+    private static final int STRIPES = 64;
+    private static final long DEFAULT_REJECTION_SAMPLE_MS = 10_000L;
+
+    private final double permitsPerSecond;
+    private final long capacityUnits;
+    private final long initialUnits;
+    private final double unitsPerMs;
+    private final long idleExpiryMs;
+    private final int maxEntriesPerStripe;
+    private final long rejectionSampleMs;
+    private final LongSupplier clock;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param permitsPerSecond sustained rate per key
+     * @param burstPermits     bucket capacity (at least one permit)
+     * @param idleExpiry       buckets untouched for this long are dropped
+     * @param maxEntries       soft cap on tracked keys across all stripes
+     */
+    public StripedTokenBucketLimiter(double permitsPerSecond, double burstPermits, Duration idleExpiry, int maxEntries) {
+        this(permitsPerSecond, burstPermits, idleExpiry, maxEntries, DEFAULT_REJECTION_SAMPLE_MS, System::nanoTime);
+    }
+
+    StripedTokenBucketLimiter(double permitsPerSecond, double burstPermits, Duration idleExpiry, int maxEntries,
+                              long rejectionSampleMs, LongSupplier nanoClock) {
+        if (!(permitsPerSecond > 0.0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        double burst = Math.max(1.0, burstPermits);
+        if (burst > MAX_BURST_PERMITS) {
+            throw new IllegalArgumentException("burstPermits must not exceed " + MAX_BURST_PERMITS);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacityUnits = (long) (burst * UNITS_PER_PERMIT);
+        this.initialUnits = Math.min(UNITS_PER_PERMIT, capacityUnits);
+        this.unitsPerMs = permitsPerSecond * UNITS_PER_PERMIT / 1000.0;
+        this.idleExpiryMs = Math.max(1L, idleExpiry.toMillis());
+        this.maxEntriesPerStripe = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+        this.rejectionSampleMs = rejectionSampleMs;
+        long origin = nanoClock.getAsLong();
+        this.clock = () -> (nanoClock.getAsLong() - origin) / 1_000_000L;
+        long sweepInterval = Math.max(1_000L, idleExpiryMs / 4);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(sweepInterval);
+        }
+    }
+
+    public double permitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /** Takes one permit for {@code key}; never blocks. */
+    public boolean tryAcquire(String key) {
+        return tryAcquire(bucket(key));
+    }
+
+    public boolean tryAcquire(Bucket bucket) {
+        long now = clock.getAsLong();
+        while (true) {
+            long state = bucket.state;
+            long refilled = refill(state, now);
+            long tokens = refilled & TOKEN_MASK;
+            if (tokens < UNITS_PER_PERMIT) {
+                return false;
+            }
+            if (Bucket.STATE.compareAndSet(bucket, state, refilled - UNITS_PER_PERMIT)) {
+                return true;
+            }
+        }
+    }
+
+    /** Returns the bucket for {@code key}, creating it (with one permit) on first use. */
+    public Bucket bucket(String key) {
+        Stripe stripe = stripes[spread(key.hashCode()) & (STRIPES - 1)];
+        long now = clock.getAsLong();
+        stripe.maybeSweep(now, this);
+        Bucket bucket = stripe.buckets.get(key);
+        if (bucket != null) {
+            hits.increment();
+            return bucket;
+        }
+        misses.increment();
+        bucket = stripe.buckets.computeIfAbsent(key, k -> new Bucket(pack(now, initialUnits)));
+        if (stripe.buckets.size() > maxEntriesPerStripe) {
+            stripe.evictOverflow(now, this, key);
+        }
+        return bucket;
+    }
+
+    /**
+     * Rate-limits reporting of rejections for one bucket.
+     *
+     * @return {@code -1} if this rejection should not be reported; otherwise the number of
+     * rejections suppressed since the previous report
+     */
+    public long sampleRejection(Bucket bucket) {
+        long now = clock.getAsLong();
+        long last = bucket.lastReportMs;
+        if (last != Long.MIN_VALUE && now - last < rejectionSampleMs) {
+            Bucket.SUPPRESSED.getAndAdd(bucket, 1L);
+            return -1L;
+        }
+        if (!Bucket.LAST_REPORT.compareAndSet(bucket, last, now)) {
+            Bucket.SUPPRESSED.getAndAdd(bucket, 1L);
+            return -1L;
+        }
+        return (long) Bucket.SUPPRESSED.getAndSet(bucket, 0L);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.buckets.clear();
+        }
+    }
+
+    long refill(long state, long now) {
+        long last = state >>> TOKEN_BITS;
+        long tokens = state & TOKEN_MASK;
+        long elapsed = now - last;
+        if (elapsed <= 0 || tokens >= capacityUnits) {
+            // Keep a full bucket's timestamp current so later refills start from "now".
+            return tokens >= capacityUnits && elapsed > 0 ? pack(now, capacityUnits) : state;
+        }
+        long added = (long) (elapsed * unitsPerMs);
+        if (added <= 0) {
+            return state;
+        }
+        long total = tokens + added;
+        if (total >= capacityUnits) {
+            return pack(now, capacityUnits);
+        }
+        // Advance the clock only by the time those whole units represent so fractions carry over.
+        long consumedMs = Math.min(elapsed, (long) Math.ceil(added / unitsPerMs));
+        return pack(last + consumedMs, total);
+    }
+
+    static long pack(long timeMs, long tokenUnits) {
+        return (timeMs << TOKEN_BITS) | (tokenUnits & TOKEN_MASK);
+    }
+
+    private boolean idle(Bucket bucket, long now) {
+        return now - (bucket.state >>> TOKEN_BITS) >= idleExpiryMs;
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    /** Per-key state. Only the limiter mutates it. */
+    public static final class Bucket {
+        private static final VarHandle STATE;
+        private static final VarHandle LAST_REPORT;
+        private static final VarHandle SUPPRESSED;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                STATE = lookup.findVarHandle(Bucket.class, "state", long.class);
+                LAST_REPORT = lookup.findVarHandle(Bucket.class, "lastReportMs", long.class);
+                SUPPRESSED = lookup.findVarHandle(Bucket.class, "suppressed", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private volatile long state;
+        private volatile long lastReportMs = Long.MIN_VALUE;
+        private volatile long suppressed;
+
+        Bucket(long state) {
+            this.state = state;
+        }
+
+        /** Whole permits currently available (without applying a refill). */
+        public double availablePermits() {
+            return (double) (state & TOKEN_MASK) / UNITS_PER_PERMIT;
+        }
+    }
+
+    private static final class Stripe {
+        final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+        final AtomicLong nextSweepAt;
+        final long sweepIntervalMs;
+
+        Stripe(long sweepIntervalMs) {
+            this.sweepIntervalMs = sweepIntervalMs;
+            this.nextSweepAt = new AtomicLong(sweepIntervalMs);
+        }
+
+        void maybeSweep(long now, StripedTokenBucketLimiter owner) {
+            long due = nextSweepAt.get();
+            if (now < due || !nextSweepAt.compareAndSet(due, now + sweepIntervalMs)) {
+                return;
+            }
+            buckets.values().removeIf(b -> owner.idle(b, now));
+        }
+
+        void evictOverflow(long now, StripedTokenBucketLimiter owner, String keep) {
+            buckets.values().removeIf(b -> owner.idle(b, now));
+            Iterator<String> it = buckets.keySet().iterator();
+            while (buckets.size() > owner.maxEntriesPerStripe && it.hasNext()) {
+                String candidate = it.next();
+                if (!candidate.equals(keep)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package com.clockify.addon.sdk.security;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.time.Instant;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -17,6 +15,9 @@ import java.util.Objects;
  * - Data access (token lookups, storage)
  * - Suspicious activity (invalid event types, oversized requests)
  *
+ * Entries are handed to a background writer ({@link AuditPipeline}) so logging never blocks the
+ * request path on I/O; by default they are written to the {@code com.clockify.addon.audit} logger.
+ *
  * Output format: JSON for easy parsing by log aggregation systems.
  * Example:
  * <pre>{@code
@@ -39,49 +40,50 @@ import java.util.Objects;
  * }</pre>
  */
 public class AuditLogger {
-    private static final Logger auditLog = LoggerFactory.getLogger("com.clockify.addon.audit");
-
     /**
      * Audit events with security significance.
      */
     public enum AuditEvent {
         // Authentication/Authorization
-        TOKEN_VALIDATION_SUCCESS("Token validation succeeded"),
-        TOKEN_VALIDATION_FAILURE("Token validation failed"),
-        TOKEN_SAVED("Token saved to storage"),
-        TOKEN_ROTATED("Token rotated"),
-        TOKEN_REMOVED("Token removed from storage"),
-        TOKEN_LOOKUP_FAILURE("Token lookup failed"),
+        TOKEN_VALIDATION_SUCCESS("Token validation succeeded", false),
+        TOKEN_VALIDATION_FAILURE("Token validation failed", true),
+        TOKEN_SAVED("Token saved to storage", true),
+        TOKEN_ROTATED("Token rotated", true),
+        TOKEN_REMOVED("Token removed from storage", true),
+        TOKEN_LOOKUP_FAILURE("Token lookup failed", true),
 
         // Rate Limiting
-        RATE_LIMIT_EXCEEDED("Rate limit exceeded"),
-        RATE_LIMIT_ENFORCED("Rate limit enforcement triggered"),
+        RATE_LIMIT_EXCEEDED("Rate limit exceeded", false),
+        RATE_LIMIT_ENFORCED("Rate limit enforcement triggered", false),
 
         // CSRF Protection
-        CSRF_TOKEN_GENERATED("CSRF token generated"),
-        CSRF_TOKEN_VALIDATED("CSRF token validated successfully"),
-        CSRF_TOKEN_INVALID("CSRF token validation failed"),
+        CSRF_TOKEN_GENERATED("CSRF token generated", false),
+        CSRF_TOKEN_VALIDATED("CSRF token validated successfully", false),
+        CSRF_TOKEN_INVALID("CSRF token validation failed", true),
 
         // Input Validation
-        INVALID_EVENT_TYPE("Invalid webhook event type received"),
-        INVALID_PAYLOAD_SIZE("Payload size exceeds limit"),
-        INVALID_JSON("Malformed JSON payload"),
+        INVALID_EVENT_TYPE("Invalid webhook event type received", false),
+        INVALID_PAYLOAD_SIZE("Payload size exceeds limit", false),
+        INVALID_JSON("Malformed JSON payload", false),
 
         // HTTPS Enforcement
-        INSECURE_CONNECTION_REJECTED("Non-HTTPS request rejected"),
+        INSECURE_CONNECTION_REJECTED("Non-HTTPS request rejected", true),
 
         // Database Operations
-        DATABASE_CONNECTION_ERROR("Database connection failed"),
-        DATABASE_QUERY_ERROR("Database query failed"),
+        DATABASE_CONNECTION_ERROR("Database connection failed", false),
+        DATABASE_QUERY_ERROR("Database query failed", false),
 
         // Suspicious Activity
-        SUSPICIOUS_REQUEST("Suspicious request detected"),
-        MULTIPLE_AUTH_FAILURES("Multiple authentication failures from IP");
+        SUSPICIOUS_REQUEST("Suspicious request detected", true),
+        MULTIPLE_AUTH_FAILURES("Multiple authentication failures from IP", true);
 
         public final String description;
+        /** Critical entries are never dropped when the audit queue is full. */
+        public final boolean securityCritical;
 
-        AuditEvent(String description) {
+        AuditEvent(String description, boolean securityCritical) {
             this.description = description;
+            this.securityCritical = securityCritical;
         }
     }
 
@@ -95,6 +97,23 @@ public class AuditLogger {
         return new AuditEntry(event);
     }
 
+    /**
+     * Registers an additional destination for audit entries; it receives every entry logged
+     * afterwards, on the audit writer thread.
+     */
+    public static void addSink(AuditSink sink) {
+        AuditPipeline.shared().addSink(Objects.requireNonNull(sink, "sink"));
+    }
+
+    /**
+     * Waits until all entries logged so far have been written.
+     *
+     * @return {@code false} if the timeout elapsed first
+     */
+    public static boolean flush(Duration timeout) {
+        return AuditPipeline.shared().flush(timeout);
+    }
+
     /**
      * Builder for audit log entries with fluent API.
      */
@@ -153,87 +172,32 @@ public class AuditLogger {
          * Logs this entry as INFO level (default).
          */
         public void info() {
-            if (auditLog.isInfoEnabled()) {
-                auditLog.info("{}", toJson("INFO"));
-            }
+            submit("INFO");
         }
 
         /**
          * Logs this entry as WARN level (security issue detected).
          */
         public void warn() {
-            if (auditLog.isWarnEnabled()) {
-                auditLog.warn("{}", toJson("WARN"));
-            }
+            submit("WARN");
         }
 
         /**
          * Logs this entry as ERROR level (security violation detected).
          */
         public void error() {
-            if (auditLog.isErrorEnabled()) {
-                auditLog.error("{}", toJson("ERROR"));
-            }
+            submit("ERROR");
         }
 
-        /**
-         * Converts this entry to JSON format for log aggregation.
-         */
-        private String toJson(String level) {
-            StringBuilder json = new StringBuilder();
-            json.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(timestamp).toString()).append("\"");
-            json.append(",\"event\":\"").append(event.name()).append("\"");
-            json.append(",\"level\":\"").append(level).append("\"");
-
-            if (workspace != null) {
-                json.append(",\"workspace\":\"").append(escapeJson(workspace)).append("\"");
-            }
-            if (clientIp != null) {
-                json.append(",\"clientIp\":\"").append(escapeJson(clientIp)).append("\"");
-            }
-            if (userId != null) {
-                json.append(",\"userId\":\"").append(escapeJson(userId)).append("\"");
-            }
-
-            if (!details.isEmpty()) {
-                json.append(",\"details\":{");
-                boolean first = true;
-                for (Map.Entry<String, Object> entry : details.entrySet()) {
-                    if (!first) json.append(",");
-                    json.append("\"").append(escapeJson(entry.getKey())).append("\":");
-
-                    Object value = entry.getValue();
-                    if (value instanceof String) {
-                        json.append("\"").append(escapeJson((String) value)).append("\"");
-                    } else if (value instanceof Number || value instanceof Boolean) {
-                        json.append(value);
-                    } else {
-                        json.append("\"").append(escapeJson(String.valueOf(value))).append("\"");
-                    }
-
-                    first = false;
-                }
-                json.append("}");
+        private void submit(String level) {
+            AuditPipeline pipeline = AuditPipeline.shared();
+            if (pipeline.accepts(level)) {
+                pipeline.submit(toRecord(level));
             }
-
-            json.append("}");
-            return json.toString();
         }
 
-        /**
-         * Escapes special characters in JSON strings.
-         */
-        private static String escapeJson(String input) {
-            if (input == null) return "";
-
-            return input
-                    .replace("\\", "\\\\")
-                    .replace("\"", "\\\"")
-                    .replace("\b", "\\b")
-                    .replace("\f", "\\f")
-                    .replace("\n", "\\n")
-                    .replace("\r", "\\r")
-                    .replace("\t", "\\t");
+        private AuditRecord toRecord(String level) {
+            return new AuditRecord(timestamp, event, level, workspace, clientIp, userId, new LinkedHashMap<>(details));
         }
     }
 }
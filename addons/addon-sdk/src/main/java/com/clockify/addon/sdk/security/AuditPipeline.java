@@ -0,0 +1,284 @@
+package com.clockify.addon.sdk.security;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves audit entries off request threads.
+ *
+ * <p>Producers enqueue {@link AuditRecord}s into a bounded lock-free ring buffer and return
+ * immediately; a single daemon writer thread drains the buffer in batches, encodes each entry into
+ * a reused buffer and hands it to the {@link AuditSink}s, which are flushed once per batch.</p>
+ *
+ * <p>When the buffer is full, routine entries are dropped and counted
+ * ({@code audit_events_dropped_total}). Security-critical entries (see {@link AuditRecord#critical()})
+ * wait for space up to the configured timeout ({@code audit_events_blocked_total}) and are written
+ * inline on the caller's thread if the writer still has not caught up, so they are never lost;
+ * such inline writes may appear out of order relative to queued entries.</p>
+ *
+ * <p>Configuration (system property or environment variable):</p>
+ * <ul>
+ *   <li>{@code CLOCKIFY_AUDIT_ASYNC} - {@code false} writes every entry inline (default {@code true})</li>
+ *   <li>{@code CLOCKIFY_AUDIT_QUEUE_CAPACITY} - ring buffer size (default 8192)</li>
+ *   <li>{@code CLOCKIFY_AUDIT_BLOCK_TIMEOUT_MS} - how long critical entries wait for space (default 1000)</li>
+ * </ul>
+ */
+final class AuditPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(AuditPipeline.class);
+    private static final Logger auditLog = LoggerFactory.getLogger("com.clockify.addon.audit");
+
+    static final int DEFAULT_CAPACITY = 8192;
+    static final long DEFAULT_BLOCK_TIMEOUT_MS = 1000;
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = Duration.ofMillis(100).toNanos();
+    private static final long FULL_RETRY_NANOS = Duration.ofMillis(1).toNanos();
+
+    private final AuditRingBuffer<AuditRecord> queue;
+    private final boolean async;
+    private final long blockTimeoutNanos;
+    private final List<AuditSink> sinks = new CopyOnWriteArrayList<>();
+    private final boolean defaultSinkOnly;
+    private final ReentrantLock sinkLock = new ReentrantLock();
+    private final StringBuilder inlineBuffer = new StringBuilder(256);
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+    private volatile boolean extraSinks;
+
+    AuditPipeline(AuditSink sink, int capacity, boolean async, Duration blockTimeout) {
+        this.queue = new AuditRingBuffer<>(capacity);
+        this.async = async;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+        this.defaultSinkOnly = sink instanceof Slf4jAuditSink;
+        this.sinks.add(sink);
+        if (async) {
+            writer = new Thread(this::runWriter, "audit-writer");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writer = null;
+        }
+    }
+
+    static AuditPipeline shared() {
+        return Holder.INSTANCE;
+    }
+
+    void addSink(AuditSink sink) {
+        sinks.add(sink);
+        extraSinks = true;
+    }
+
+    /**
+     * Cheap pre-check so disabled audit levels cost nothing on the request path.
+     */
+    boolean accepts(String level) {
+        if (extraSinks || !defaultSinkOnly) {
+            return true;
+        }
+        return switch (level) {
+            case "ERROR" -> auditLog.isErrorEnabled();
+            case "WARN" -> auditLog.isWarnEnabled();
+            default -> auditLog.isInfoEnabled();
+        };
+    }
+
+    void submit(AuditRecord record) {
+        if (!async || closed) {
+            writeInline(record);
+            return;
+        }
+        if (enqueue(record)) {
+            return;
+        }
+        if (!record.critical()) {
+            Counter.builder("audit_events_dropped_total")
+                    .description("Audit entries dropped because the audit queue was full")
+                    .tag("event", record.event().name())
+                    .register(MetricsHandler.registry())
+                    .increment();
+            return;
+        }
+        Counter.builder("audit_events_blocked_total")
+                .description("Security-critical audit entries that waited for audit queue space")
+                .tag("event", record.event().name())
+                .register(MetricsHandler.registry())
+                .increment();
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        while (System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(FULL_RETRY_NANOS);
+            if (enqueue(record)) {
+                return;
+            }
+        }
+        writeInline(record);
+    }
+
+    int queueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Waits until every entry submitted so far has been handed to the sinks.
+     *
+     * @return {@code false} if the timeout elapsed first
+     */
+    boolean flush(Duration timeout) {
+        if (writer == null) {
+            return true;
+        }
+        long target = submitted.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (completed.get() < target) {
+            if (System.nanoTime() - deadline >= 0 || !writer.isAlive()) {
+                return false;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FULL_RETRY_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Stops the writer after draining what is queued; later entries are written inline.
+     */
+    void close(Duration timeout) {
+        flush(timeout);
+        closed = true;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private boolean enqueue(AuditRecord record) {
+        if (!queue.offer(record)) {
+            return false;
+        }
+        submitted.incrementAndGet();
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void runWriter() {
+        List<AuditRecord> batch = new ArrayList<>(BATCH_SIZE);
+        StringBuilder json = new StringBuilder(256);
+        while (true) {
+            queue.drainTo(batch, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                if (closed) {
+                    return;
+                }
+                sleeping = true;
+                if (queue.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+                continue;
+            }
+            sinkLock.lock();
+            try {
+                for (AuditRecord record : batch) {
+                    write(record, json);
+                }
+                flushSinks();
+            } finally {
+                sinkLock.unlock();
+            }
+            completed.addAndGet(batch.size());
+            batch.clear();
+        }
+    }
+
+    private void writeInline(AuditRecord record) {
+        sinkLock.lock();
+        try {
+            write(record, inlineBuffer);
+            flushSinks();
+        } finally {
+            sinkLock.unlock();
+        }
+    }
+
+    private void write(AuditRecord record, StringBuilder json) {
+        json.setLength(0);
+        record.appendJson(json);
+        for (AuditSink sink : sinks) {
+            try {
+                sink.write(record, json);
+            } catch (RuntimeException e) {
+                logger.warn("Audit sink {} failed to write {}: {}", sink.getClass().getSimpleName(),
+                        record.event(), e.getMessage());
+            }
+        }
+    }
+
+    private void flushSinks() {
+        for (AuditSink sink : sinks) {
+            try {
+                sink.flush();
+            } catch (RuntimeException e) {
+                logger.warn("Audit sink {} failed to flush: {}", sink.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes each entry as one line to the {@code com.clockify.addon.audit} logger at its level.
+     */
+    static final class Slf4jAuditSink implements AuditSink {
+        @Override
+        public void write(AuditRecord record, CharSequence json) {
+            switch (record.level()) {
+                case "ERROR" -> {
+                    if (auditLog.isErrorEnabled()) {
+                        auditLog.error("{}", json);
+                    }
+                }
+                case "WARN" -> {
+                    if (auditLog.isWarnEnabled()) {
+                        auditLog.warn("{}", json);
+                    }
+                }
+                default -> {
+                    if (auditLog.isInfoEnabled()) {
+                        auditLog.info("{}", json);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Holder {
+        static final AuditPipeline INSTANCE = create();
+
+        private static AuditPipeline create() {
+            AuditPipeline pipeline = new AuditPipeline(
+                    new Slf4jAuditSink(),
+                    EnvironmentInspector.intSetting("CLOCKIFY_AUDIT_QUEUE_CAPACITY", DEFAULT_CAPACITY),
+                    !"false".equalsIgnoreCase(EnvironmentInspector.setting("CLOCKIFY_AUDIT_ASYNC")),
+                    Duration.ofMillis(EnvironmentInspector.intSetting("CLOCKIFY_AUDIT_BLOCK_TIMEOUT_MS", (int) DEFAULT_BLOCK_TIMEOUT_MS)));
+            Gauge.builder("audit_queue_depth", pipeline, AuditPipeline::queueDepth)
+                    .description("Audit entries waiting for the audit writer")
+                    .register(MetricsHandler.registry());
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(() -> pipeline.close(Duration.ofSeconds(2)), "audit-flush"));
+            return pipeline;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.clockify.addon.sdk.security;
+
+import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.RequestHandler;
+import com.clockify.addon.sdk.middleware.PlatformAuthFilter;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Read-only endpoint over a {@link FileAuditStore}.
+ *
+ * <p>Register it next to {@code /metrics} and put it behind {@link PlatformAuthFilter} the same
+ * way. Results are always scoped to the workspace of the authenticated request, so a token for
+ * one workspace never sees another workspace's trail.</p>
+ *
+ * <p>Query parameters (all optional): {@code event} (an {@link AuditLogger.AuditEvent} name),
+ * {@code since} / {@code until} (epoch millis or ISO-8601 instant) and {@code limit}
+ * (default 100, max 1000).</p>
+ */
+public class AuditQueryHandler implements RequestHandler {
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private final FileAuditStore store;
+
+    public AuditQueryHandler(FileAuditStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public HttpResponse handle(HttpServletRequest request) throws Exception {
+        if (!"GET".equalsIgnoreCase(request.getMethod())) {
+            return HttpResponse.error(405, "{\"error\":\"method not allowed\"}", "application/json");
+        }
+        String workspaceId = workspaceOf(request);
+        if (workspaceId == null) {
+            return HttpResponse.error(403, "{\"error\":\"workspace context required\"}", "application/json");
+        }
+
+        FileAuditStore.Query query;
+        try {
+            String event = request.getParameter("event");
+            query = new FileAuditStore.Query(
+                    workspaceId,
+                    event == null || event.isBlank() ? null : AuditLogger.AuditEvent.valueOf(event.trim()),
+                    parseTime(request.getParameter("since"), 0L),
+                    parseTime(request.getParameter("until"), Long.MAX_VALUE),
+                    parseLimit(request.getParameter("limit")));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return HttpResponse.error(400, "{\"error\":\"invalid query\"}", "application/json");
+        }
+
+        List<String> lines = store.query(query);
+        StringBuilder json = new StringBuilder(64 + lines.size() * 200);
+        json.append("{\"events\":[");
+        for (int i = 0; i < lines.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(lines.get(i));
+        }
+        json.append("],\"count\":").append(lines.size()).append('}');
+        return HttpResponse.ok(json.toString(), "application/json");
+    }
+
+    private static String workspaceOf(HttpServletRequest request) {
+        // PlatformAuthFilter and WorkspaceContextFilter publish the workspace under the same attribute
+        if (request.getAttribute(PlatformAuthFilter.ATTR_WORKSPACE_ID) instanceof String value && !value.isBlank()) {
+            return value;
+        }
+        return null;
+    }
+
+    private static long parseTime(String value, long defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        String trimmed = value.trim();
+        if (trimmed.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(trimmed);
+        }
+        return Instant.parse(trimmed).toEpochMilli();
+    }
+
+    private static int parseLimit(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT_LIMIT;
+        }
+        int limit = Integer.parseInt(value.trim());
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
@@ -0,0 +1,113 @@
+package com.clockify.addon.sdk.security;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * An immutable audit entry as handed to {@link AuditSink}s.
+ *
+ * @param level {@code INFO}, {@code WARN} or {@code ERROR}
+ */
+public record AuditRecord(long timestamp,
+                          AuditLogger.AuditEvent event,
+                          String level,
+                          String workspace,
+                          String clientIp,
+                          String userId,
+                          Map<String, Object> details) {
+
+    /**
+     * Security-critical entries are never dropped under back-pressure.
+     */
+    public boolean critical() {
+        return event.securityCritical || "ERROR".equals(level);
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(128);
+        appendJson(json);
+        return json.toString();
+    }
+
+    /**
+     * Appends this entry as one JSON object, escaping every string in a single pass.
+     */
+    public void appendJson(StringBuilder json) {
+        json.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(timestamp)).append('"');
+        json.append(",\"event\":\"").append(event.name()).append('"');
+        json.append(",\"level\":\"").append(level).append('"');
+        if (workspace != null) {
+            json.append(",\"workspace\":");
+            appendString(json, workspace);
+        }
+        if (clientIp != null) {
+            json.append(",\"clientIp\":");
+            appendString(json, clientIp);
+        }
+        if (userId != null) {
+            json.append(",\"userId\":");
+            appendString(json, userId);
+        }
+        if (!details.isEmpty()) {
+            json.append(",\"details\":{");
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : details.entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                appendString(json, entry.getKey());
+                json.append(':');
+                Object value = entry.getValue();
+                if (value instanceof Number || value instanceof Boolean) {
+                    json.append(value);
+                } else {
+                    appendString(json, String.valueOf(value));
+                }
+            }
+            json.append('}');
+        }
+        json.append('}');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        appendEscaped(json, value);
+        json.append('"');
+    }
+
+    /**
+     * JSON string escaping in one pass: unescaped runs are copied in bulk, and every control
+     * character (not only the common ones) is escaped.
+     */
+    static void appendEscaped(StringBuilder out, String input) {
+        int runStart = 0;
+        int length = input.length();
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.append(input, runStart, i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    out.append("\\u");
+                    String hex = Integer.toHexString(c);
+                    for (int pad = hex.length(); pad < 4; pad++) {
+                        out.append('0');
+                    }
+                    out.append(hex);
+                }
+            }
+            runStart = i + 1;
+        }
+        out.append(input, runStart, length);
+    }
+}
@@ -0,0 +1,90 @@
+package com.clockify.addon.sdk.security;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer / single-consumer ring buffer.
+ *
+ * <p>Each slot carries a sequence number: producers claim a position with one CAS on the tail and
+ * publish the element by advancing the slot's sequence; the single consumer reads slots in order
+ * and hands them back by advancing the sequence a full lap. {@link #offer(Object)} never blocks
+ * and fails only when the buffer is full.</p>
+ */
+final class AuditRingBuffer<E> {
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    AuditRingBuffer(int requestedCapacity) {
+        int capacity = requestedCapacity <= 2 ? 2 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.buffer = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    /** @return {@code false} if the buffer is full */
+    boolean offer(E element) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer[index] = element;
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /** Consumer only. */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long pos = head;
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E element = (E) buffer[index];
+        buffer[index] = null;
+        sequences.set(index, pos + buffer.length);
+        head = pos + 1;
+        return element;
+    }
+
+    /** Consumer only: moves up to {@code max} elements into {@code sink}. */
+    int drainTo(List<E> sink, int max) {
+        int drained = 0;
+        E element;
+        while (drained < max && (element = poll()) != null) {
+            sink.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
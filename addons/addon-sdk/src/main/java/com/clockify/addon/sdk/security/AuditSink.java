@@ -0,0 +1,19 @@
+package com.clockify.addon.sdk.security;
+
+/**
+ * Destination for audit entries, fed by the audit writer thread.
+ *
+ * <p>{@link #write} is called for every entry of a batch and {@link #flush()} once at the end of
+ * the batch, so sinks can buffer and pay for I/O once per batch. Calls are serialised by the
+ * pipeline; implementations do not need to be thread-safe.</p>
+ */
+public interface AuditSink {
+
+    /**
+     * @param json the entry already encoded as a single-line JSON object; only valid during the call
+     */
+    void write(AuditRecord record, CharSequence json);
+
+    default void flush() {
+    }
+}
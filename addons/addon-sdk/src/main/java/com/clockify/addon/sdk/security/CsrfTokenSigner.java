@@ -0,0 +1,124 @@
+package com.clockify.addon.sdk.security;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Issues and checks stateless CSRF tokens.
+ *
+ * <p>A token is {@code <issuedAt>.<mac>}, where {@code mac} is HMAC-SHA256 over the issue time
+ * and a binding subject (the workspace and user of the platform JWT). Any replica configured with
+ * the same secret can validate it, so no server-side session is needed; a token minted for one
+ * principal does not validate for another, and tokens expire after the configured TTL.</p>
+ *
+ * <p>Configuration for {@link #fromEnvironment()}: {@code ADDON_CSRF_SECRET} (shared by all
+ * replicas, at least 32 characters) and {@code ADDON_CSRF_TTL_SECONDS} (default 43200).</p>
+ */
+public final class CsrfTokenSigner {
+    private static final Logger logger = LoggerFactory.getLogger(CsrfTokenSigner.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    static final Duration DEFAULT_TTL = Duration.ofHours(12);
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Clock clock;
+    private final ThreadLocal<Mac> macs;
+
+    public CsrfTokenSigner(byte[] secret, Duration ttl) {
+        this(secret, ttl, Clock.systemUTC());
+    }
+
+    CsrfTokenSigner(byte[] secret, Duration ttl, Clock clock) {
+        Objects.requireNonNull(secret, "secret is required");
+        if (secret.length < 32) {
+            throw new IllegalArgumentException("CSRF secret must be at least 32 bytes");
+        }
+        this.key = new SecretKeySpec(secret.clone(), ALGORITHM);
+        this.ttl = Objects.requireNonNull(ttl, "ttl is required");
+        this.clock = Objects.requireNonNull(clock, "clock is required");
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * Creates a signer from {@code ADDON_CSRF_SECRET}. Without a secret a random per-process key
+     * is used, which only works when a single replica serves the UI.
+     */
+    public static CsrfTokenSigner fromEnvironment() {
+        String secret = EnvironmentInspector.setting("ADDON_CSRF_SECRET");
+        long ttlSeconds = Math.max(60, EnvironmentInspector.longSetting("ADDON_CSRF_TTL_SECONDS", DEFAULT_TTL.toSeconds()));
+        byte[] key;
+        if (secret == null) {
+            logger.warn("ADDON_CSRF_SECRET not set; stateless CSRF tokens will not validate across replicas or restarts");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        return new CsrfTokenSigner(key, Duration.ofSeconds(ttlSeconds));
+    }
+
+    public Duration ttl() {
+        return ttl;
+    }
+
+    public String issue(String subject) {
+        long issuedAt = clock.millis() / 1000;
+        return Long.toString(issuedAt, 36) + "." + ENCODER.encodeToString(mac(subject, issuedAt));
+    }
+
+    /**
+     * @return {@code true} if {@code token} was issued by this signer for {@code subject} and has not expired
+     */
+    public boolean verify(String token, String subject) {
+        if (token == null || token.length() > 128) {
+            return false;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return false;
+        }
+        long issuedAt;
+        byte[] provided;
+        try {
+            issuedAt = Long.parseLong(token, 0, dot, 36);
+            provided = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        long now = clock.millis() / 1000;
+        if (issuedAt > now + 60 || now - issuedAt > ttl.toSeconds()) {
+            return false;
+        }
+        return MessageDigest.isEqual(mac(subject, issuedAt), provided);
+    }
+
+    private byte[] mac(String subject, long issuedAt) {
+        Mac mac = macs.get();
+        mac.update(("v1|" + issuedAt + "|" + (subject == null ? "" : subject)).getBytes(StandardCharsets.UTF_8));
+        return mac.doFinal();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+}
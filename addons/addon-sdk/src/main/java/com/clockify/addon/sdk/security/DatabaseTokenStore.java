@@ -1,7 +1,7 @@
 package com.clockify.addon.sdk.security;
 
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,7 +24,6 @@ import java.util.Optional;
  */
 public class DatabaseTokenStore implements TokenStoreSPI {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseTokenStore.class);
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     private final String jdbcUrl;
     private final String username;
@@ -191,7 +190,7 @@ public class DatabaseTokenStore implements TokenStoreSPI {
             return null;
         }
         try {
-            JsonNode node = OBJECT_MAPPER.readTree(trimmed);
+            JsonNode node = JsonCodec.readTree(trimmed);
             JsonNode current = node.get("current");
             if (current != null && current.hasNonNull("apiBaseUrl")) {
                 return current.get("apiBaseUrl").asText();
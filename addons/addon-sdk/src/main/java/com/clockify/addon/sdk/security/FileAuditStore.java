@@ -0,0 +1,492 @@
+package com.clockify.addon.sdk.security;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Durable, queryable audit trail kept in local JSONL segment files.
+ *
+ * <p>Register it with {@link AuditLogger#addSink(AuditSink)}; entries are then appended by the
+ * audit writer thread, sequentially, into a memory-mapped segment preallocated to the segment
+ * size. A segment is sealed (truncated to its content) when it is full or an hour old, and sealed
+ * segments older than the retention period are deleted. Each segment keeps an in-memory index by
+ * workspace and by event type, so {@link #query(Query)} reads only matching lines. On startup
+ * existing segments are re-indexed; a segment left unsealed by a crash is trimmed at its first
+ * unused (zero) byte.</p>
+ *
+ * <p>Files are plain JSONL ({@code audit-<sequence>.jsonl}), one {@link AuditRecord#toJson()} per
+ * line, so they remain greppable. Mapped pages survive a process crash; set
+ * {@code CLOCKIFY_AUDIT_STORE_FSYNC=true} to also force them to disk after every batch.</p>
+ *
+ * <p>Configuration for {@link #fromEnvironment()} (system property or environment variable):</p>
+ * <ul>
+ *   <li>{@code CLOCKIFY_AUDIT_STORE_DIR} - directory for segments; the store is disabled when unset</li>
+ *   <li>{@code CLOCKIFY_AUDIT_STORE_RETENTION_DAYS} - default 7</li>
+ *   <li>{@code CLOCKIFY_AUDIT_STORE_SEGMENT_MB} - default 16</li>
+ *   <li>{@code CLOCKIFY_AUDIT_STORE_FSYNC} - default {@code false}</li>
+ * </ul>
+ */
+public final class FileAuditStore implements AuditSink, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FileAuditStore.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".jsonl";
+    static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+    static final Duration DEFAULT_RETENTION = Duration.ofDays(7);
+    private static final Duration MAX_SEGMENT_AGE = Duration.ofHours(1);
+    private static final long PRUNE_INTERVAL_MS = Duration.ofMinutes(1).toMillis();
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Duration retention;
+    private final boolean fsync;
+    private final Clock clock;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private Segment active;
+    private long nextSequence;
+    private long nextPruneAt;
+    private boolean closed;
+
+    public FileAuditStore(Path directory, int segmentBytes, Duration retention, boolean fsync) throws IOException {
+        this(directory, segmentBytes, retention, fsync, Clock.systemUTC());
+    }
+
+    FileAuditStore(Path directory, int segmentBytes, Duration retention, boolean fsync, Clock clock) throws IOException {
+        if (segmentBytes < 1024) {
+            throw new IllegalArgumentException("segmentBytes must be at least 1024");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retention = retention;
+        this.fsync = fsync;
+        this.clock = clock;
+        Files.createDirectories(directory);
+        recover();
+        prune(clock.millis());
+    }
+
+    /**
+     * Creates the store configured by {@code CLOCKIFY_AUDIT_STORE_*}, or empty when
+     * {@code CLOCKIFY_AUDIT_STORE_DIR} is not set.
+     */
+    public static Optional<FileAuditStore> fromEnvironment() {
+        String dir = EnvironmentInspector.setting("CLOCKIFY_AUDIT_STORE_DIR");
+        if (dir == null) {
+            return Optional.empty();
+        }
+        long retentionDays = EnvironmentInspector.longSetting("CLOCKIFY_AUDIT_STORE_RETENTION_DAYS", DEFAULT_RETENTION.toDays());
+        long segmentMb = EnvironmentInspector.longSetting("CLOCKIFY_AUDIT_STORE_SEGMENT_MB", DEFAULT_SEGMENT_BYTES / (1024 * 1024));
+        boolean fsync = "true".equalsIgnoreCase(EnvironmentInspector.setting("CLOCKIFY_AUDIT_STORE_FSYNC"));
+        try {
+            FileAuditStore store = new FileAuditStore(Paths.get(dir),
+                    (int) Math.min(segmentMb * 1024 * 1024, Integer.MAX_VALUE),
+                    Duration.ofDays(retentionDays), fsync);
+            logger.info("Audit store enabled at {} (retention {} days)", dir, retentionDays);
+            return Optional.of(store);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open audit store at " + dir, e);
+        }
+    }
+
+    /**
+     * Filter for {@link #query(Query)}. {@code workspace} and {@code event} are optional
+     * ({@code null} matches all); results are newest first.
+     */
+    public record Query(String workspace, AuditLogger.AuditEvent event, long sinceMillis, long untilMillis, int limit) {
+        public Query {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("limit must be positive");
+            }
+        }
+    }
+
+    @Override
+    public void write(AuditRecord record, CharSequence json) {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            long now = clock.millis();
+            if (active == null || (active.entries.size() > 0 && now - active.minTimestamp >= maxSegmentAgeMs())) {
+                roll();
+            }
+            int offset = active.size;
+            int length = append(json);
+            if (length < 0) {
+                if (active.size == 0) {
+                    logger.warn("Audit entry {} larger than a segment ({} bytes); not stored", record.event(), segmentBytes);
+                    return;
+                }
+                roll();
+                offset = 0;
+                length = append(json);
+                if (length < 0) {
+                    logger.warn("Audit entry {} larger than a segment ({} bytes); not stored", record.event(), segmentBytes);
+                    return;
+                }
+            }
+            active.index(new IndexEntry(record.timestamp(), offset, length, record.workspace(), record.event()));
+        } catch (IOException e) {
+            logger.warn("Failed to append audit entry {}: {}", record.event(), e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (fsync && active != null) {
+                active.buffer.force();
+            }
+            long now = clock.millis();
+            if (now >= nextPruneAt) {
+                prune(now);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns matching entries as their stored JSON lines, newest first.
+     */
+    public List<String> query(Query query) throws IOException {
+        List<String> results = new ArrayList<>(Math.min(query.limit(), 256));
+        lock.readLock().lock();
+        try {
+            Iterator<Segment> newestFirst = segments.descendingIterator();
+            while (newestFirst.hasNext() && results.size() < query.limit()) {
+                Segment segment = newestFirst.next();
+                if (segment.entries.isEmpty()
+                        || segment.maxTimestamp < query.sinceMillis()
+                        || segment.minTimestamp > query.untilMillis()) {
+                    continue;
+                }
+                segment.collect(query, results);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                if (active != null) {
+                    active.seal(fsync);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long maxSegmentAgeMs() {
+        return Math.min(MAX_SEGMENT_AGE.toMillis(), retention.toMillis());
+    }
+
+    /** @return bytes written including the newline, or -1 if the entry does not fit */
+    private int append(CharSequence json) {
+        ByteBuffer out = active.buffer;
+        int start = out.position();
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(json), out, true);
+        if (!result.isOverflow()) {
+            result = encoder.flush(out);
+        }
+        if (result.isOverflow() || !out.hasRemaining()) {
+            out.position(start);
+            return -1;
+        }
+        out.put((byte) '\n');
+        active.size = out.position();
+        return active.size - start;
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            active.seal(fsync);
+        }
+        Path path = directory.resolve(fileName(nextSequence++));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = new Segment(path);
+        active.channel = channel;
+        active.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segments.addLast(active);
+    }
+
+    private void prune(long now) {
+        nextPruneAt = now + PRUNE_INTERVAL_MS;
+        long cutoff = now - retention.toMillis();
+        Iterator<Segment> oldestFirst = segments.iterator();
+        while (oldestFirst.hasNext()) {
+            Segment segment = oldestFirst.next();
+            if (segment == active || (!segment.entries.isEmpty() && segment.maxTimestamp >= cutoff)) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segment.path);
+                oldestFirst.remove();
+            } catch (IOException e) {
+                logger.warn("Failed to delete expired audit segment {}: {}", segment.path, e.getMessage());
+                break;
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        for (Path file : files) {
+            long sequence = sequenceOf(file);
+            if (sequence < 0) {
+                continue;
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            segments.addLast(reindex(file));
+        }
+    }
+
+    private static Segment reindex(Path file) throws IOException {
+        Segment segment = new Segment(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Audit segment too large: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            byte[] line = new byte[1024];
+            int start = 0;
+            int end = (int) fileSize;
+            for (int i = 0; i < fileSize; i++) {
+                byte b = data.get(i);
+                if (b == 0) {
+                    end = i;
+                    break;
+                }
+                if (b == '\n') {
+                    int length = i - start;
+                    if (line.length < length) {
+                        line = new byte[Math.max(length, line.length * 2)];
+                    }
+                    data.get(start, line, 0, length);
+                    IndexEntry entry = parseIndexEntry(line, length, start);
+                    if (entry != null) {
+                        segment.index(entry);
+                    }
+                    start = i + 1;
+                }
+            }
+            // Drop the unused preallocated tail (and any partial last line) of an unsealed segment.
+            int used = end == fileSize ? (int) fileSize : start;
+            segment.size = used;
+            if (used < fileSize) {
+                data = null;
+                channel.truncate(used);
+            }
+        }
+        return segment;
+    }
+
+    private static IndexEntry parseIndexEntry(byte[] line, int length, int offset) {
+        long timestamp = -1;
+        String workspace = null;
+        AuditLogger.AuditEvent event = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(line, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "timestamp" -> timestamp = Instant.parse(parser.getText()).toEpochMilli();
+                    case "workspace" -> workspace = parser.getText();
+                    case "event" -> event = AuditLogger.AuditEvent.valueOf(parser.getText());
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Skipping unreadable audit line at offset {}: {}", offset, e.getMessage());
+            return null;
+        }
+        if (timestamp < 0 || event == null) {
+            return null;
+        }
+        return new IndexEntry(timestamp, offset, length + 1, workspace, event);
+    }
+
+    private static String fileName(long sequence) {
+        return PREFIX + String.format("%020d", sequence) + SUFFIX;
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private record IndexEntry(long timestamp, int offset, int length, String workspace, AuditLogger.AuditEvent event) {
+        boolean matches(Query query) {
+            return timestamp >= query.sinceMillis() && timestamp <= query.untilMillis()
+                    && (query.event() == null || query.event() == event)
+                    && (query.workspace() == null || query.workspace().equals(workspace));
+        }
+    }
+
+    private static final class Segment {
+        final Path path;
+        final List<IndexEntry> entries = new ArrayList<>();
+        final Map<String, List<IndexEntry>> byWorkspace = new HashMap<>();
+        final Map<AuditLogger.AuditEvent, List<IndexEntry>> byEvent = new EnumMap<>(AuditLogger.AuditEvent.class);
+        FileChannel channel;
+        MappedByteBuffer buffer;
+        int size;
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+
+        Segment(Path path) {
+            this.path = path;
+        }
+
+        void index(IndexEntry entry) {
+            entries.add(entry);
+            if (entry.workspace() != null) {
+                byWorkspace.computeIfAbsent(entry.workspace(), k -> new ArrayList<>()).add(entry);
+            }
+            byEvent.computeIfAbsent(entry.event(), k -> new ArrayList<>()).add(entry);
+            minTimestamp = Math.min(minTimestamp, entry.timestamp());
+            maxTimestamp = Math.max(maxTimestamp, entry.timestamp());
+        }
+
+        void collect(Query query, List<String> results) throws IOException {
+            List<IndexEntry> candidates;
+            if (query.workspace() != null) {
+                candidates = byWorkspace.getOrDefault(query.workspace(), List.of());
+                List<IndexEntry> forEvent = query.event() == null ? null : byEvent.getOrDefault(query.event(), List.of());
+                if (forEvent != null && forEvent.size() < candidates.size()) {
+                    candidates = forEvent;
+                }
+            } else if (query.event() != null) {
+                candidates = byEvent.getOrDefault(query.event(), List.of());
+            } else {
+                candidates = entries;
+            }
+            if (candidates.isEmpty()) {
+                return;
+            }
+            FileChannel reader = null;
+            try {
+                for (int i = candidates.size() - 1; i >= 0 && results.size() < query.limit(); i--) {
+                    IndexEntry entry = candidates.get(i);
+                    if (!entry.matches(query)) {
+                        continue;
+                    }
+                    // length includes the trailing newline
+                    byte[] bytes = new byte[entry.length() - 1];
+                    if (buffer != null) {
+                        buffer.get(entry.offset(), bytes);
+                    } else {
+                        if (reader == null) {
+                            reader = FileChannel.open(path, StandardOpenOption.READ);
+                        }
+                        ByteBuffer target = ByteBuffer.wrap(bytes);
+                        long position = entry.offset();
+                        while (target.hasRemaining()) {
+                            int read = reader.read(target, position);
+                            if (read < 0) {
+                                throw new IOException("Audit segment truncated: " + path);
+                            }
+                            position += read;
+                        }
+                    }
+                    results.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+            } finally {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+        }
+
+        void seal(boolean fsync) throws IOException {
+            if (buffer == null) {
+                return;
+            }
+            if (fsync) {
+                buffer.force();
+            }
+            buffer = null;
+            try {
+                channel.truncate(size);
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
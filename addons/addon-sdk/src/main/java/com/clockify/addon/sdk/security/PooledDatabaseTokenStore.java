@@ -1,7 +1,7 @@
 package com.clockify.addon.sdk.security;
 
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
@@ -41,7 +41,6 @@ import java.util.Optional;
  */
 public class PooledDatabaseTokenStore implements TokenStoreSPI, AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(PooledDatabaseTokenStore.class);
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     private final HikariDataSource dataSource;
 
@@ -265,6 +264,14 @@ public class PooledDatabaseTokenStore implements TokenStoreSPI, AutoCloseable {
         }
     }
 
+    /**
+     * Exposes the underlying pool so other SDK components (e.g. the shared rate limit backend)
+     * can reuse its connections instead of opening their own.
+     */
+    public javax.sql.DataSource dataSource() {
+        return dataSource;
+    }
+
     /**
      * Gets HikariCP pool statistics for monitoring.
      */
@@ -347,7 +354,7 @@ public class PooledDatabaseTokenStore implements TokenStoreSPI, AutoCloseable {
             return null;
         }
         try {
-            JsonNode node = OBJECT_MAPPER.readTree(trimmed);
+            JsonNode node = JsonCodec.readTree(trimmed);
             JsonNode current = node.get("current");
             if (current != null && current.hasNonNull("apiBaseUrl")) {
                 return current.get("apiBaseUrl").asText();
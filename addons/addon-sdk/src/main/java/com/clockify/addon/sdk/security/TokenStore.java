@@ -1,6 +1,8 @@
 package com.clockify.addon.sdk.security;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,7 +23,8 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public final class TokenStore {
     private static final Logger logger = LoggerFactory.getLogger(TokenStore.class);
-    private static final ObjectMapper PERSISTENCE_MAPPER = new ObjectMapper();
+    private static final ObjectReader STATE_READER = JsonCodec.readerFor(PersistentState.class);
+    private static final ObjectWriter STATE_WRITER = JsonCodec.writerFor(PersistentState.class);
 
     private TokenStore() {}
 
@@ -155,9 +158,6 @@ public final class TokenStore {
         AuditLogger.log(AuditLogger.AuditEvent.TOKEN_ROTATED)
                 .workspace(workspaceId)
                 .detail("rotatedAt", now)
-                .info();
-        AuditLogger.log(AuditLogger.AuditEvent.TOKEN_SAVED)
-                .workspace(workspaceId)
                 .detail("apiBaseUrl", apiBaseUrl)
                 .detail("expiresAt", now + tokenTtlMs())
                 .info();
@@ -254,7 +254,7 @@ public final class TokenStore {
         }
         try {
             PersistentState state = new PersistentState(STORE.get(workspaceId), ROTATED.get(workspaceId));
-            String payload = PERSISTENCE_MAPPER.writeValueAsString(state);
+            String payload = STATE_WRITER.writeValueAsString(state);
             persistentStore.save(workspaceId, payload);
         } catch (Exception e) {
             logger.warn("Failed to persist token for {}: {}", workspaceId, e.getMessage());
@@ -272,7 +272,7 @@ public final class TokenStore {
             }
             String serialized = raw.get();
             if (looksLikeJson(serialized)) {
-                PersistentState state = PERSISTENCE_MAPPER.readValue(serialized, PersistentState.class);
+                PersistentState state = STATE_READER.readValue(serialized);
                 if (state.current != null) {
                     STORE.put(workspaceId, state.current);
                 }
@@ -1,8 +1,8 @@
 package com.clockify.addon.sdk.security;
 
 import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +10,7 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Counter;
 import com.clockify.addon.sdk.config.EnvironmentInspector;
 import com.clockify.addon.sdk.metrics.MetricsHandler;
+import com.clockify.addon.sdk.security.jwt.CompactJwt;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -30,7 +31,6 @@ import java.util.Optional;
  */
 public final class WebhookSignatureValidator {
     private static final Logger logger = LoggerFactory.getLogger(WebhookSignatureValidator.class);
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     // Clock skew configuration for temporal claim checks
     private static final long DEFAULT_SKEW = 30L;
     private static long skewSeconds() {
@@ -43,6 +43,8 @@ public final class WebhookSignatureValidator {
     private WebhookSignatureValidator() {}
 
     public static final String SIGNATURE_HEADER = "clockify-webhook-signature";
+    /** Request attribute recording the {@code workspaceId + '\n' + addonKey} this request was verified for. */
+    public static final String VERIFIED_ATTR = "clockify.webhookVerified";
     private static final String[] ALT_HEADERS = new String[]{
             "x-clockify-webhook-signature",
             "Clockify-Webhook-Signature",
@@ -105,12 +107,25 @@ public final class WebhookSignatureValidator {
 
     /**
      * Validates webhook request authenticity with an expected add-on key for JWT 'sub' claim checking.
+     * A request that already passed for the same workspace and key is not verified again.
      */
     public static VerificationResult verify(HttpServletRequest request, String workspaceId, String expectedAddonKey) {
         if (workspaceId == null || workspaceId.isBlank()) {
             logger.warn("Webhook signature validation failed: workspaceId is missing or blank");
             return new VerificationResult(false, HttpResponse.error(401, "{\"error\":\"workspaceId missing\"}", "application/json"));
         }
+        String verifiedFor = workspaceId + '\n' + expectedAddonKey;
+        if (verifiedFor.equals(request.getAttribute(VERIFIED_ATTR))) {
+            return VerificationResult.ok();
+        }
+        VerificationResult result = verifySignature(request, workspaceId, expectedAddonKey);
+        if (result.isValid()) {
+            request.setAttribute(VERIFIED_ATTR, verifiedFor);
+        }
+        return result;
+    }
+
+    private static VerificationResult verifySignature(HttpServletRequest request, String workspaceId, String expectedAddonKey) {
 
         var tokenOpt = TokenStore.get(workspaceId);
         if (tokenOpt.isEmpty()) {
@@ -244,7 +259,9 @@ public final class WebhookSignatureValidator {
     }
 
     private static boolean looksLikeJwt(String sig) {
-        return sig != null && sig.contains(".") && sig.split("\\.").length >= 2;
+        if (sig == null) return false;
+        int dot = sig.indexOf('.');
+        return dot >= 0 && dot < sig.length() - 1;
     }
 
     /**
@@ -257,68 +274,27 @@ public final class WebhookSignatureValidator {
                 && EnvironmentInspector.isDevEnvironment();
     }
 
-    private static String decodeJwtPayload(String jwt) {
-        String[] parts = jwt.split("\\.");
-        if (parts.length < 2) return "";
-        String b64 = parts[1]
-                .replace('-', '+')
-                .replace('_', '/')
-                .trim();
-        // pad base64url if needed
-        while (b64.length() % 4 != 0) b64 += "=";
-        byte[] bytes = java.util.Base64.getDecoder().decode(b64);
-        return new String(bytes, StandardCharsets.UTF_8);
-    }
-
-    private static String extractJsonString(String json, String key) {
-        // very small parser: looks for "key":"value"
-        if (json == null || key == null) return null;
-        String pattern = "\"" + key + "\"\s*:\s*\""; // "key":"
-        java.util.regex.Matcher m = java.util.regex.Pattern.compile(pattern).matcher(json);
-        if (m.find()) {
-            int start = m.end();
-            int end = json.indexOf('"', start);
-            if (end > start) return json.substring(start, end);
-        }
-        return null;
-    }
-
-    /** Extracts numeric (seconds) claim value; returns null if not found. */
-    private static Long extractJsonLong(String json, String key) {
-        if (json == null || key == null) return null;
-        String pattern = "\"" + key + "\"\\s*:\\s*"; // "key":
-        java.util.regex.Matcher m = java.util.regex.Pattern.compile(pattern).matcher(json);
-        if (m.find()) {
-            int start = m.end();
-            StringBuilder sb = new StringBuilder();
-            while (start < json.length()) {
-                char c = json.charAt(start);
-                if ((c >= '0' && c <= '9')) { sb.append(c); start++; continue; }
-                break;
-            }
-            if (sb.length() > 0) return Long.parseLong(sb.toString());
-        }
-        return null;
-    }
-
     /**
      * Verifies a JWT using RSA256 and required claims per Clockify guide.
      * Returns null when JWT format invalid so caller can fallback to other strategies.
      */
     private static VerificationResult verifyJwtSignature(String jwt, String expectedAddonKey, String workspaceIdParam) {
         try {
-            String[] parts = jwt.split("\\.");
-            if (parts.length != 3) return null; // not a JWT
+            CompactJwt token;
+            try {
+                token = CompactJwt.parse(jwt);
+            } catch (IllegalArgumentException notJwt) {
+                return null; // not a JWT
+            }
 
-            JsonNode header = OBJECT_MAPPER.readTree(Base64.getUrlDecoder().decode(parts[0]));
-            String alg = header.path("alg").asText(null);
-            String kid = header.path("kid").asText(null);
+            CompactJwt.Header header = token.header();
+            String alg = header.alg();
+            String kid = header.kid();
             if (alg == null || !"RS256".equalsIgnoreCase(alg)) {
                 logger.warn("JWT alg is not RS256: {}", alg);
                 if (acceptJwtDevSignature()) {
                     // validate workspaceId constraint if present
-                    JsonNode payloadNode = safeDecodePayload(parts[1]);
-                    if (workspaceMismatch(payloadNode, workspaceIdParam)) {
+                    if (workspaceMismatch(safeClaims(token), workspaceIdParam)) {
                         return new VerificationResult(false, HttpResponse.error(403, "{\"error\":\"invalid workspace\"}", "application/json"));
                     }
                     return VerificationResult.ok();
@@ -330,8 +306,7 @@ public final class WebhookSignatureValidator {
             if (keyOpt.isEmpty()) {
                 logger.warn("No public key configured or found for kid={}", kid);
                 if (acceptJwtDevSignature()) {
-                    JsonNode payloadNode = safeDecodePayload(parts[1]);
-                    if (workspaceMismatch(payloadNode, workspaceIdParam)) {
+                    if (workspaceMismatch(safeClaims(token), workspaceIdParam)) {
                         return new VerificationResult(false, HttpResponse.error(403, "{\"error\":\"invalid workspace\"}", "application/json"));
                     }
                     return VerificationResult.ok();
@@ -340,16 +315,12 @@ public final class WebhookSignatureValidator {
             }
             PublicKey key = keyOpt.get();
 
-            String signingInput = parts[0] + "." + parts[1];
-            byte[] signatureBytes = Base64.getUrlDecoder().decode(parts[2]);
             Signature sig = Signature.getInstance("SHA256withRSA");
             sig.initVerify(key);
-            sig.update(signingInput.getBytes(StandardCharsets.US_ASCII));
-            if (!sig.verify(signatureBytes)) {
+            if (!token.verify(sig)) {
                 logger.warn("JWT signature verification failed");
                 if (acceptJwtDevSignature()) {
-                    JsonNode payloadNode = safeDecodePayload(parts[1]);
-                    if (workspaceMismatch(payloadNode, workspaceIdParam)) {
+                    if (workspaceMismatch(safeClaims(token), workspaceIdParam)) {
                         return new VerificationResult(false, HttpResponse.error(403, "{\"error\":\"invalid workspace\"}", "application/json"));
                     }
                     return VerificationResult.ok();
@@ -357,11 +328,11 @@ public final class WebhookSignatureValidator {
                 return new VerificationResult(false, HttpResponse.error(403, "{\"error\":\"invalid jwt signature\"}", "application/json"));
             }
 
-            JsonNode payload = OBJECT_MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1]));
-            String iss = normalize(payload.path("iss").asText(null));
-            String typ = normalize(payload.path("type").asText(null));
-            String sub = normalize(payload.path("sub").asText(null));
-            long exp = payload.path("exp").asLong(0L);
+            CompactJwt.Claims payload = token.claims();
+            String iss = normalize(payload.issuer());
+            String typ = normalize(payload.type());
+            String sub = normalize(payload.subject());
+            long exp = payload.expiresAt() == null ? 0L : payload.expiresAt();
 
             String expectedIss = Optional
                     .ofNullable(System.getProperty("CLOCKIFY_JWT_EXPECTED_ISS"))
@@ -409,7 +380,7 @@ public final class WebhookSignatureValidator {
             }
             // Strict workspaceId enforcement (if claim is present)
             if (workspaceMismatch(payload, workspaceIdParam)) {
-                logger.warn("JWT workspaceId mismatch: expected={}, got={}", workspaceIdParam, payload.path("workspaceId").asText(""));
+                logger.warn("JWT workspaceId mismatch: expected={}, got={}", workspaceIdParam, Optional.ofNullable(payload.workspaceId()).orElse(""));
                 return new VerificationResult(false, HttpResponse.error(403, "{\"error\":\"workspace mismatch\"}", "application/json"));
             }
 
@@ -439,9 +410,7 @@ public final class WebhookSignatureValidator {
                 logger.warn("DEV MODE: Accepting JWT without strict verification due to error: {}", e.getMessage());
                 // Best-effort workspace check
                 try {
-                    String[] parts = jwt.split("\\.");
-                    JsonNode payload = safeDecodePayload(parts.length > 1 ? parts[1] : "");
-                    if (workspaceMismatch(payload, workspaceIdParam)) {
+                    if (workspaceMismatch(safeClaims(CompactJwt.parse(jwt)), workspaceIdParam)) {
                         return new VerificationResult(false, HttpResponse.error(403, "{\"error\":\"invalid workspace\"}", "application/json"));
                     }
                 } catch (Exception ignored) {}
@@ -457,15 +426,15 @@ public final class WebhookSignatureValidator {
         private static final java.util.concurrent.atomic.AtomicBoolean ISSUER_WARNED = new java.util.concurrent.atomic.AtomicBoolean(false);
     }
 
-    private static JsonNode safeDecodePayload(String payloadPartB64Url) {
+    private static CompactJwt.Claims safeClaims(CompactJwt token) {
         try {
-            return OBJECT_MAPPER.readTree(Base64.getUrlDecoder().decode(payloadPartB64Url));
-        } catch (Exception e) { return OBJECT_MAPPER.createObjectNode(); }
+            return token.claims();
+        } catch (Exception e) { return new CompactJwt.Claims(null, null, null, null, null, null, null, null); }
     }
 
-    private static boolean workspaceMismatch(JsonNode payload, String expectedWorkspaceId) {
+    private static boolean workspaceMismatch(CompactJwt.Claims payload, String expectedWorkspaceId) {
         if (expectedWorkspaceId == null || expectedWorkspaceId.isBlank()) return false;
-        String tokenWs = payload.path("workspaceId").asText(null);
+        String tokenWs = payload.workspaceId();
         return tokenWs != null && !tokenWs.isBlank() && !expectedWorkspaceId.equals(tokenWs);
     }
 
@@ -526,7 +495,7 @@ public final class WebhookSignatureValidator {
                     var req = java.net.http.HttpRequest.newBuilder(java.net.URI.create(url)).GET().build();
                     var resp = client.send(req, java.net.http.HttpResponse.BodyHandlers.ofString());
                     if (resp.statusCode() / 100 != 2) { expiresAt = now + 30_000L; return; }
-                    var json = OBJECT_MAPPER.readTree(resp.body());
+                    var json = JsonCodec.readTree(resp.body());
                     var arr = json.path("keys");
                     java.util.Map<String, PublicKey> next = new java.util.HashMap<>();
                     if (arr.isArray()) {
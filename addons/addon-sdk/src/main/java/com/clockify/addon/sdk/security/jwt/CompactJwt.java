@@ -0,0 +1,234 @@
+package com.clockify.addon.sdk.security.jwt;
+
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A JWS compact-serialization token split into its three segments without copying them.
+ *
+ * <p>Segment boundaries are found by index over the token's ASCII bytes; the signing input is fed
+ * to {@link Signature#update(byte[], int, int)} straight from those bytes, and each segment is
+ * Base64url-decoded only when it is needed. The header and the registered claims are read with a
+ * streaming {@link JsonParser} into small records, so a token can be checked (and rejected)
+ * without building Jackson trees; {@link #headerTree()} and {@link #payloadTree()} are there for
+ * callers that need the full documents once verification has succeeded.</p>
+ *
+ * <p>Instances are cheap, single-use and not thread-safe.</p>
+ */
+public final class CompactJwt {
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final byte[] bytes;
+    private final int firstDot;
+    private final int secondDot;
+
+    private byte[] headerJson;
+    private byte[] payloadJson;
+    private Header header;
+    private Claims claims;
+
+    private CompactJwt(byte[] bytes, int firstDot, int secondDot) {
+        this.bytes = bytes;
+        this.firstDot = firstDot;
+        this.secondDot = secondDot;
+    }
+
+    /**
+     * Splits {@code token} into header, payload and signature segments.
+     *
+     * @throws IllegalArgumentException unless the token has exactly three segments and a non-empty header
+     */
+    public static CompactJwt parse(String token) {
+        if (token == null) {
+            throw new IllegalArgumentException("JWT token is required");
+        }
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw new IllegalArgumentException("Malformed JWT token");
+        }
+        return new CompactJwt(token.getBytes(StandardCharsets.US_ASCII), firstDot, secondDot);
+    }
+
+    /** Registered JOSE header parameters. Absent values are {@code null}. */
+    public record Header(String alg, String kid, String typ) {}
+
+    /**
+     * Claims this SDK checks. Absent string claims are {@code null}; absent numeric claims are
+     * {@code null} as well, mirroring {@code JsonNode.has(...)}. {@code audience} is {@code null}
+     * when there is no {@code aud} claim and empty when it has no textual values.
+     */
+    public record Claims(String issuer,
+                         String subject,
+                         String type,
+                         List<String> audience,
+                         Long expiresAt,
+                         Long notBefore,
+                         Long issuedAt,
+                         String workspaceId) {}
+
+    public Header header() throws IOException {
+        if (header == null) {
+            String alg = null;
+            String kid = null;
+            String typ = null;
+            byte[] json = headerJson();
+            try (JsonParser parser = JsonCodec.createParser(json)) {
+                expectObject(parser);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (name) {
+                        case "alg" -> alg = scalarText(parser, value);
+                        case "kid" -> kid = scalarText(parser, value);
+                        case "typ" -> typ = scalarText(parser, value);
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+            header = new Header(alg, kid, typ);
+        }
+        return header;
+    }
+
+    public Claims claims() throws IOException {
+        if (claims == null) {
+            String iss = null;
+            String sub = null;
+            String type = null;
+            List<String> aud = null;
+            Long exp = null;
+            Long nbf = null;
+            Long iat = null;
+            String workspaceId = null;
+            try (JsonParser parser = JsonCodec.createParser(payloadJson())) {
+                expectObject(parser);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (name) {
+                        case "iss" -> iss = scalarText(parser, value);
+                        case "sub" -> sub = scalarText(parser, value);
+                        case "type" -> type = scalarText(parser, value);
+                        case "workspaceId" -> workspaceId = scalarText(parser, value);
+                        case "exp" -> exp = number(parser, value);
+                        case "nbf" -> nbf = number(parser, value);
+                        case "iat" -> iat = number(parser, value);
+                        case "aud" -> aud = audience(parser, value);
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+            claims = new Claims(iss, sub, type, aud, exp, nbf, iat, workspaceId);
+        }
+        return claims;
+    }
+
+    /**
+     * Verifies the signature with an already initialised {@link Signature}.
+     */
+    public boolean verify(Signature signature) throws SignatureException {
+        signature.update(bytes, 0, secondDot);
+        return signature.verify(decode(secondDot + 1, bytes.length));
+    }
+
+    /** The decoded header as a tree; built on demand. */
+    public JsonNode headerTree() throws IOException {
+        return JsonCodec.readTree(headerJson());
+    }
+
+    /** The decoded payload as a tree; built on demand. */
+    public JsonNode payloadTree() throws IOException {
+        return JsonCodec.readTree(payloadJson());
+    }
+
+    private byte[] headerJson() {
+        if (headerJson == null) {
+            headerJson = decode(0, firstDot);
+        }
+        return headerJson;
+    }
+
+    private byte[] payloadJson() {
+        if (payloadJson == null) {
+            payloadJson = decode(firstDot + 1, secondDot);
+        }
+        return payloadJson;
+    }
+
+    private byte[] decode(int from, int to) {
+        ByteBuffer decoded = DECODER.decode(ByteBuffer.wrap(bytes, from, to - from));
+        if (decoded.hasArray() && decoded.arrayOffset() == 0 && decoded.remaining() == decoded.array().length) {
+            return decoded.array();
+        }
+        byte[] out = new byte[decoded.remaining()];
+        decoded.get(out);
+        return out;
+    }
+
+    private static void expectObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("JWT segment is not a JSON object");
+        }
+    }
+
+    /** Same text a {@code JsonNode.asText()} would give for scalars; structures and null read as absent. */
+    private static String scalarText(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return value == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    /** Same value {@code JsonNode.asLong()} would give. */
+    private static Long number(JsonParser parser, JsonToken value) throws IOException {
+        return switch (value) {
+            case VALUE_NUMBER_INT -> parser.getLongValue();
+            case VALUE_NUMBER_FLOAT -> (long) parser.getDoubleValue();
+            case VALUE_TRUE -> 1L;
+            case VALUE_STRING -> {
+                try {
+                    yield Long.parseLong(parser.getText().trim());
+                } catch (NumberFormatException e) {
+                    yield 0L;
+                }
+            }
+            case START_OBJECT, START_ARRAY -> {
+                parser.skipChildren();
+                yield 0L;
+            }
+            default -> 0L;
+        };
+    }
+
+    private static List<String> audience(JsonParser parser, JsonToken value) throws IOException {
+        List<String> values = new ArrayList<>(1);
+        if (value == JsonToken.VALUE_STRING) {
+            values.add(parser.getText());
+        } else if (value == JsonToken.START_ARRAY) {
+            JsonToken element;
+            while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (element == JsonToken.VALUE_STRING) {
+                    values.add(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+        return values;
+    }
+}
@@ -18,7 +18,11 @@ public class JwksBasedKeySource implements JwksKeySource {
     }
 
     public JwksBasedKeySource(URI jwksUri, HttpClient httpClient, Duration cacheTtl, Duration timeout) {
-        this.jwksClient = new JwksClient(jwksUri, httpClient, cacheTtl, timeout);
+        this(new JwksClient(jwksUri, httpClient, cacheTtl, timeout));
+    }
+
+    JwksBasedKeySource(JwksClient jwksClient) {
+        this.jwksClient = jwksClient;
     }
 
     @Override
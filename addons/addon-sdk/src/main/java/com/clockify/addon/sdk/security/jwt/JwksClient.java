@@ -1,7 +1,10 @@
 package com.clockify.addon.sdk.security.jwt;
 
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,29 +15,56 @@ import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 /**
  * JWKS (JSON Web Key Set) client for dynamic key discovery and rotation.
- * Supports automatic key refresh with caching and rotation alarms.
+ *
+ * <p>Lookups never touch the network once the first key set is loaded. A daemon thread refreshes
+ * the set at 80% of the cache TTL; if that refresh is late or failing, readers keep getting the
+ * stale keys and schedule a background revalidation instead of fetching inline. A lookup for an
+ * unknown {@code kid} (typically a freshly rotated signing key) fails fast but kicks off an
+ * on-demand refresh, rate-limited to one per {@code onDemandInterval} so a stream of tokens with
+ * bogus kids cannot hammer the JWKS endpoint.</p>
+ *
+ * <p>Refreshes are recorded in {@code jwks_refresh_seconds} (tags {@code trigger}, {@code outcome})
+ * and failures in {@code jwks_refresh_failures_total}.</p>
  */
 final class JwksClient {
     private static final Logger logger = LoggerFactory.getLogger(JwksClient.class);
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Duration DEFAULT_ON_DEMAND_INTERVAL = Duration.ofSeconds(30);
+
+    static final String TRIGGER_SCHEDULED = "scheduled";
+    static final String TRIGGER_STALE = "stale";
+    static final String TRIGGER_UNKNOWN_KID = "unknown_kid";
+    static final String TRIGGER_MANUAL = "manual";
 
     private final URI jwksUri;
     private final HttpClient httpClient;
     private final Duration cacheTtl;
     private final Duration timeout;
+    private final long onDemandIntervalMs;
+    private final LongSupplier clockMillis;
+    private final ScheduledExecutorService refresher;
+    private final Object refreshLock = new Object();
+    private final AtomicBoolean refreshInFlight = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong lastOnDemandAt = new AtomicLong(Long.MIN_VALUE);
 
     private volatile Map<String, PublicKey> cachedKeys = new ConcurrentHashMap<>();
     private volatile Instant lastFetchTime = Instant.MIN;
+    private volatile long lastFetchMillis = Long.MIN_VALUE;
     private volatile boolean rotationAlarmTriggered = false;
 
     JwksClient(URI jwksUri) {
@@ -42,27 +72,37 @@ final class JwksClient {
     }
 
     JwksClient(URI jwksUri, HttpClient httpClient, Duration cacheTtl, Duration timeout) {
+        this(jwksUri, httpClient, cacheTtl, timeout, DEFAULT_ON_DEMAND_INTERVAL, System::currentTimeMillis,
+                Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "jwks-refresh");
+                    t.setDaemon(true);
+                    return t;
+                }));
+    }
+
+    JwksClient(URI jwksUri, HttpClient httpClient, Duration cacheTtl, Duration timeout,
+               Duration onDemandInterval, LongSupplier clockMillis, ScheduledExecutorService refresher) {
         this.jwksUri = jwksUri;
         this.httpClient = httpClient;
         this.cacheTtl = cacheTtl;
         this.timeout = timeout;
+        this.onDemandIntervalMs = onDemandInterval.toMillis();
+        this.clockMillis = clockMillis;
+        this.refresher = refresher;
     }
 
     /**
-     * Get a public key by kid from JWKS endpoint.
-     * Automatically refreshes keys if cache is expired.
+     * Get a public key by kid from the cached key set. Never blocks on the network: a stale
+     * cache, an empty cache or an unknown kid triggers a background refresh instead.
      */
     PublicKey getKey(String kid) throws JwksException {
-        if (isCacheExpired()) {
-            synchronized (this) {
-                if (isCacheExpired()) {
-                    refreshKeys();
-                }
-            }
+        if (lastFetchMillis != Long.MIN_VALUE && isCacheExpired()) {
+            refreshAsync(TRIGGER_STALE);
         }
 
         PublicKey key = cachedKeys.get(kid);
         if (key == null) {
+            requestOnDemandRefresh();
             throw new JwksException("Key not found in JWKS: " + kid);
         }
 
@@ -70,27 +110,103 @@ final class JwksClient {
     }
 
     /**
-     * Get all currently cached keys.
+     * Get all currently cached keys. Loads synchronously only if nothing has been fetched yet.
      */
     Map<String, PublicKey> getAllKeys() {
-        if (isCacheExpired()) {
-            synchronized (this) {
-                if (isCacheExpired()) {
-                    try {
-                        refreshKeys();
-                    } catch (JwksException e) {
-                        logger.warn("Failed to refresh JWKS keys, using stale cache", e);
-                    }
-                }
+        if (lastFetchMillis == Long.MIN_VALUE) {
+            try {
+                loadInitial();
+            } catch (JwksException e) {
+                logger.warn("Failed to load JWKS keys from {}: {}", jwksUri, e.getMessage());
             }
+        } else if (isCacheExpired()) {
+            refreshAsync(TRIGGER_STALE);
         }
         return new HashMap<>(cachedKeys);
     }
 
+    /**
+     * Cold start: nothing to serve yet, so the first caller fetches inline (normally at startup,
+     * when the verifier is built) and the periodic refresher is started.
+     */
+    private void loadInitial() throws JwksException {
+        synchronized (refreshLock) {
+            if (lastFetchMillis == Long.MIN_VALUE) {
+                refresh(TRIGGER_MANUAL);
+            }
+        }
+    }
+
+    private void startScheduler() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long periodMs = Math.max(1_000L, cacheTtl.toMillis() * 4 / 5);
+        refresher.scheduleWithFixedDelay(() -> {
+            if (refreshInFlight.compareAndSet(false, true)) {
+                try {
+                    refreshQuietly(TRIGGER_SCHEDULED);
+                } finally {
+                    refreshInFlight.set(false);
+                }
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a single background refresh unless one is already running.
+     */
+    void refreshAsync(String trigger) {
+        if (!refreshInFlight.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    refreshQuietly(trigger);
+                } finally {
+                    refreshInFlight.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshInFlight.set(false);
+            logger.warn("Could not schedule JWKS refresh: {}", e.getMessage());
+        }
+    }
+
+    private void requestOnDemandRefresh() {
+        long now = clockMillis.getAsLong();
+        long last = lastOnDemandAt.get();
+        if (last != Long.MIN_VALUE && now - last < onDemandIntervalMs) {
+            return;
+        }
+        if (lastOnDemandAt.compareAndSet(last, now)) {
+            refreshAsync(TRIGGER_UNKNOWN_KID);
+        }
+    }
+
+    private void refreshQuietly(String trigger) {
+        try {
+            synchronized (refreshLock) {
+                refresh(trigger);
+            }
+        } catch (JwksException e) {
+            logger.warn("Background JWKS refresh ({}) failed, serving cached keys: {}", trigger, e.getMessage());
+        }
+    }
+
     /**
      * Force refresh of JWKS keys.
      */
     void refreshKeys() throws JwksException {
+        synchronized (refreshLock) {
+            refresh(TRIGGER_MANUAL);
+        }
+    }
+
+    private void refresh(String trigger) throws JwksException {
+        long started = System.nanoTime();
+        String failure = null;
         try {
             logger.debug("Refreshing JWKS keys from: {}", jwksUri);
 
@@ -107,7 +223,7 @@ final class JwksClient {
                 throw new JwksException("JWKS endpoint returned status: " + response.statusCode());
             }
 
-            JsonNode jwks = OBJECT_MAPPER.readTree(response.body());
+            JsonNode jwks = JsonCodec.readTree(response.body());
             JsonNode keys = jwks.path("keys");
 
             if (!keys.isArray()) {
@@ -147,18 +263,45 @@ final class JwksClient {
 
             cachedKeys = newKeys;
             lastFetchTime = Instant.now();
+            lastFetchMillis = clockMillis.getAsLong();
+            startScheduler();
 
             logger.info("Successfully refreshed JWKS keys. Loaded {} keys from {}", keyCount, jwksUri);
 
         } catch (JwksException e) {
+            failure = "invalid_response";
             throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "interrupted";
+            throw new JwksException("Interrupted while fetching JWKS keys", e);
         } catch (Exception e) {
+            failure = "fetch_error";
             throw new JwksException("Failed to fetch JWKS keys", e);
+        } finally {
+            recordRefresh(trigger, failure, System.nanoTime() - started);
+        }
+    }
+
+    private static void recordRefresh(String trigger, String failure, long elapsedNanos) {
+        Timer.builder("jwks_refresh_seconds")
+                .description("JWKS key set refresh latency")
+                .tag("trigger", trigger)
+                .tag("outcome", failure == null ? "success" : "failure")
+                .register(MetricsHandler.registry())
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (failure != null) {
+            Counter.builder("jwks_refresh_failures_total")
+                    .description("Failed JWKS key set refreshes")
+                    .tag("trigger", trigger)
+                    .tag("reason", failure)
+                    .register(MetricsHandler.registry())
+                    .increment();
         }
     }
 
     private boolean isCacheExpired() {
-        return Instant.now().isAfter(lastFetchTime.plus(cacheTtl));
+        return clockMillis.getAsLong() - lastFetchMillis > cacheTtl.toMillis();
     }
 
     private PublicKey parseJwk(JsonNode jwk) throws Exception {
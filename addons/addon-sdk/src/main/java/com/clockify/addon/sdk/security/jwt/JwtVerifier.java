@@ -1,10 +1,10 @@
 package com.clockify.addon.sdk.security.jwt;
 
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
-import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.PublicKey;
 import java.security.Signature;
@@ -20,12 +20,15 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * JWT verifier for Clockify marketplace tokens (RS256/ES256).
  */
 public final class JwtVerifier implements AuthTokenVerifier {
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectReader PEM_MAP_READER = JsonCodec.readerFor(new TypeReference<Map<String, String>>() {});
+    private static final int MAX_CACHED_TOKENS = 1024;
+    private static final Duration VERIFIED_TOKEN_TTL = Duration.ofMinutes(1);
 
     private final PublicKey defaultKey;
     private final Map<String, PublicKey> kidKeys;
@@ -33,6 +36,8 @@ public final class JwtVerifier implements AuthTokenVerifier {
     private final String defaultKid;
     private final Clock clock;
     private final String expectedSubject;
+    private final JwksKeySource keySource;
+    private final ConcurrentHashMap<String, CachedToken> verifiedTokens = new ConcurrentHashMap<>();
 
     private JwtVerifier(PublicKey defaultKey,
                        Map<String, PublicKey> kidKeys,
@@ -48,12 +53,23 @@ public final class JwtVerifier implements AuthTokenVerifier {
                         String defaultKid,
                         Clock clock,
                         String expectedSubject) {
+        this(defaultKey, kidKeys, constraints, defaultKid, clock, expectedSubject, null);
+    }
+
+    private JwtVerifier(PublicKey defaultKey,
+                        Map<String, PublicKey> kidKeys,
+                        Constraints constraints,
+                        String defaultKid,
+                        Clock clock,
+                        String expectedSubject,
+                        JwksKeySource keySource) {
         this.defaultKey = defaultKey;
         this.kidKeys = kidKeys == null ? Map.of() : Collections.unmodifiableMap(new HashMap<>(kidKeys));
         this.constraints = constraints == null ? Constraints.defaults() : constraints;
         this.defaultKid = defaultKid == null ? null : defaultKid.trim();
         this.clock = clock == null ? Clock.systemUTC() : clock;
         this.expectedSubject = normalize(expectedSubject);
+        this.keySource = keySource;
     }
 
     public static JwtVerifier fromPem(String pem) throws Exception {
@@ -119,46 +135,97 @@ public final class JwtVerifier implements AuthTokenVerifier {
     }
 
     public static JwtVerifier fromKeySource(JwksKeySource keySource, Constraints constraints) throws Exception {
-        Map<String, PublicKey> allKeys = keySource.getAllKeys();
-        if (allKeys.isEmpty()) {
-            throw new IllegalArgumentException("Key source returned no keys");
-        }
-        String firstKid = allKeys.keySet().iterator().next();
-        return new JwtVerifier(allKeys.get(firstKid), allKeys, constraints, firstKid, Clock.systemUTC());
+        return fromKeySource(keySource, constraints, null);
     }
 
+    /**
+     * Builds a verifier seeded with the key source's current keys. Tokens whose kid is not in that
+     * snapshot are looked up in the key source again, so keys rotated in after startup are accepted
+     * once the source has refreshed.
+     */
     public static JwtVerifier fromKeySource(JwksKeySource keySource, Constraints constraints, String expectedSubject) throws Exception {
         Map<String, PublicKey> allKeys = keySource.getAllKeys();
         if (allKeys.isEmpty()) {
             throw new IllegalArgumentException("Key source returned no keys");
         }
         String firstKid = allKeys.keySet().iterator().next();
-        return new JwtVerifier(allKeys.get(firstKid), allKeys, constraints, firstKid, Clock.systemUTC(), expectedSubject);
+        return new JwtVerifier(allKeys.get(firstKid), allKeys, constraints, firstKid, Clock.systemUTC(),
+                expectedSubject, keySource);
     }
 
+    /**
+     * Verifies the token's signature and claims.
+     *
+     * <p>Successfully verified tokens are remembered for up to a minute, so the repeated calls an
+     * iframe session makes with the same token skip the decode and signature check; time-based
+     * claims are still re-validated on every call.</p>
+     */
     public DecodedJwt verify(String token) throws JwtVerificationException {
         if (token == null || token.isBlank()) {
             throw new JwtVerificationException("JWT token is required");
         }
-        String[] parts = token.split("\\.");
-        if (parts.length != 3) {
+        long nowMillis = clock.millis();
+        CachedToken cached = verifiedTokens.get(token);
+        if (cached != null && nowMillis < cached.expiresAtMillis()) {
+            try {
+                validateClaims(cached.claims());
+            } catch (JwtVerificationException e) {
+                verifiedTokens.remove(token, cached);
+                throw e;
+            }
+            return cached.jwt();
+        }
+
+        CompactJwt jwt;
+        try {
+            jwt = CompactJwt.parse(token);
+        } catch (IllegalArgumentException e) {
             throw new JwtVerificationException("Malformed JWT token");
         }
+        CompactJwt.Header header;
+        try {
+            header = jwt.header();
+        } catch (Exception e) {
+            throw new JwtVerificationException("Failed to decode JWT header", e);
+        }
+        enforceAlgorithm(header.alg());
+        PublicKey keyToUse = selectKey(header.kid());
+        CompactJwt.Claims claims;
+        try {
+            claims = jwt.claims();
+        } catch (Exception e) {
+            throw new JwtVerificationException("Failed to decode JWT payload", e);
+        }
+        verifySignature(jwt, keyToUse);
+        validateClaims(claims);
+
+        // Trees are only built for tokens that passed every check.
+        DecodedJwt decoded;
+        try {
+            decoded = new DecodedJwt(jwt.headerTree(), jwt.payloadTree());
+        } catch (Exception e) {
+            throw new JwtVerificationException("Failed to decode JWT payload", e);
+        }
+        rememberVerified(token, decoded, claims, nowMillis);
+        return decoded;
+    }
 
-        JsonNode header = decodeSegment(parts[0], "header");
-        enforceAlgorithm(header);
-        PublicKey keyToUse = selectKey(header.path("kid").asText(null));
-        JsonNode payload = decodeSegment(parts[1], "payload");
-        verifySignature(parts[0] + "." + parts[1], parts[2], keyToUse);
-        validateClaims(payload);
-        return new DecodedJwt(header, payload);
+    private void rememberVerified(String token, DecodedJwt decoded, CompactJwt.Claims claims, long nowMillis) {
+        if (verifiedTokens.size() >= MAX_CACHED_TOKENS) {
+            verifiedTokens.values().removeIf(entry -> entry.expiresAtMillis() <= nowMillis);
+            if (verifiedTokens.size() >= MAX_CACHED_TOKENS) {
+                verifiedTokens.clear();
+            }
+        }
+        verifiedTokens.put(token, new CachedToken(decoded, claims, nowMillis + VERIFIED_TOKEN_TTL.toMillis()));
     }
 
+    private record CachedToken(DecodedJwt jwt, CompactJwt.Claims claims, long expiresAtMillis) {}
+
     private static final Set<String> SAFE_ALGS = Set.of("RS256", "ES256");
     private static final Duration MAX_TTL = Duration.ofHours(24);
 
-    private void enforceAlgorithm(JsonNode header) throws JwtVerificationException {
-        String alg = header.hasNonNull("alg") ? header.get("alg").asText() : null;
+    private void enforceAlgorithm(String alg) throws JwtVerificationException {
         if (alg == null || alg.isBlank()) {
             throw new JwtVerificationException("Missing JWT algorithm");
         }
@@ -171,6 +238,13 @@ public final class JwtVerifier implements AuthTokenVerifier {
     private PublicKey selectKey(String kid) throws JwtVerificationException {
         if (kid != null && !kid.isBlank()) {
             PublicKey key = kidKeys.get(kid);
+            if (key == null && keySource != null) {
+                try {
+                    key = keySource.getKey(kid);
+                } catch (JwksKeySource.KeySourceException e) {
+                    key = null;
+                }
+            }
             if (key == null) {
                 throw new JwtVerificationException("Unknown JWT kid: " + kid);
             }
@@ -188,22 +262,11 @@ public final class JwtVerifier implements AuthTokenVerifier {
         throw new JwtVerificationException("No default JWT key configured");
     }
 
-    private JsonNode decodeSegment(String segment, String description) throws JwtVerificationException {
+    private void verifySignature(CompactJwt jwt, PublicKey key) throws JwtVerificationException {
         try {
-            byte[] decoded = Base64.getUrlDecoder().decode(segment);
-            return OBJECT_MAPPER.readTree(new String(decoded, StandardCharsets.UTF_8));
-        } catch (Exception e) {
-            throw new JwtVerificationException("Failed to decode JWT " + description, e);
-        }
-    }
-
-    private void verifySignature(String signedData, String signaturePart, PublicKey key) throws JwtVerificationException {
-        try {
-            byte[] signatureBytes = Base64.getUrlDecoder().decode(signaturePart);
             Signature signature = Signature.getInstance("SHA256withRSA");
             signature.initVerify(key);
-            signature.update(signedData.getBytes(StandardCharsets.US_ASCII));
-            if (!signature.verify(signatureBytes)) {
+            if (!jwt.verify(signature)) {
                 throw new JwtVerificationException("Invalid JWT signature");
             }
         } catch (JwtVerificationException e) {
@@ -213,16 +276,16 @@ public final class JwtVerifier implements AuthTokenVerifier {
         }
     }
 
-    private void validateClaims(JsonNode payload) throws JwtVerificationException {
+    private void validateClaims(CompactJwt.Claims claims) throws JwtVerificationException {
         long now = clock.instant().getEpochSecond();
 
-        if (payload.has("exp")) {
-            long exp = payload.get("exp").asLong();
+        if (claims.expiresAt() != null) {
+            long exp = claims.expiresAt();
             long adjustedExp = exp + constraints.clockSkewSeconds();
             if (adjustedExp < now) {
                 throw new JwtVerificationException("JWT expired");
             }
-            long issuedAt = payload.has("iat") ? payload.get("iat").asLong() : now;
+            long issuedAt = claims.issuedAt() != null ? claims.issuedAt() : now;
             long ttl = exp - issuedAt;
             if (ttl > MAX_TTL.toSeconds()) {
                 throw new JwtVerificationException("JWT TTL exceeds maximum allowed duration");
@@ -231,17 +294,15 @@ public final class JwtVerifier implements AuthTokenVerifier {
             throw new JwtVerificationException("JWT missing exp claim");
         }
 
-        if (payload.has("nbf")) {
-            long nbf = payload.get("nbf").asLong();
-            long adjustedNbf = nbf - constraints.clockSkewSeconds();
+        if (claims.notBefore() != null) {
+            long adjustedNbf = claims.notBefore() - constraints.clockSkewSeconds();
             if (adjustedNbf > now) {
                 throw new JwtVerificationException("JWT not yet valid");
             }
         }
 
-        if (payload.has("iss")) {
-            String iss = payload.get("iss").asText();
-            if (!constraints.allowedIssuers().isEmpty() && !constraints.allowedIssuers().contains(iss)) {
+        if (claims.issuer() != null) {
+            if (!constraints.allowedIssuers().isEmpty() && !constraints.allowedIssuers().contains(claims.issuer())) {
                 throw new JwtVerificationException("Unexpected JWT issuer");
             }
         } else if (!constraints.allowedIssuers().isEmpty()) {
@@ -249,40 +310,21 @@ public final class JwtVerifier implements AuthTokenVerifier {
         }
 
         if (!constraints.allowedAudiences().isEmpty()) {
-            if (payload.has("aud")) {
-                if (!audienceMatches(payload.get("aud"), constraints.allowedAudiences())) {
-                    throw new JwtVerificationException("JWT audience mismatch");
-                }
-            } else {
+            if (claims.audience() == null) {
                 throw new JwtVerificationException("JWT missing aud claim");
             }
+            if (claims.audience().stream().noneMatch(constraints.allowedAudiences()::contains)) {
+                throw new JwtVerificationException("JWT audience mismatch");
+            }
         }
 
         if (expectedSubject != null && !expectedSubject.isBlank()) {
-            String sub = payload.has("sub") ? payload.get("sub").asText() : null;
-            if (!expectedSubject.equals(sub)) {
+            if (!expectedSubject.equals(claims.subject())) {
                 throw new JwtVerificationException("JWT subject mismatch");
             }
         }
     }
 
-    private static boolean audienceMatches(JsonNode aud, Set<String> allowedAud) {
-        if (aud == null) {
-            return false;
-        }
-        if (aud.isTextual()) {
-            return allowedAud.contains(aud.asText());
-        }
-        if (aud.isArray()) {
-            for (JsonNode value : aud) {
-                if (value.isTextual() && allowedAud.contains(value.asText())) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
     public record DecodedJwt(JsonNode header, JsonNode payload) {}
 
     public static final class Constraints {
@@ -364,7 +406,7 @@ public final class JwtVerifier implements AuthTokenVerifier {
         if (json == null || json.isBlank()) {
             return Map.of();
         }
-        return OBJECT_MAPPER.readValue(json, new TypeReference<Map<String, String>>() {});
+        return PEM_MAP_READER.readValue(json);
     }
 
     public Constraints constraints() {
@@ -0,0 +1,107 @@
+package com.clockify.addon.sdk.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The one Jackson mapper shared by the SDK and the addons built on it.
+ *
+ * <p>A mapper caches the serializers and deserializers it builds, so a single shared instance
+ * warms up once instead of once per class. {@link #readerFor(Class)} and {@link #writerFor(Class)}
+ * hand out {@link ObjectReader}/{@link ObjectWriter} instances that are resolved on first use and
+ * then reused, which skips the per-call type lookup of {@code readValue}/{@code writeValueAsString}.
+ * The mapper keeps Jackson's default features, the same as the {@code new ObjectMapper()} instances
+ * it replaces.</p>
+ *
+ * <p>The mapper itself is not handed out, so nothing can reconfigure it for everyone else. Readers
+ * and writers are immutable; derive variants from them (e.g. {@code readerFor(type).without(...)})
+ * where one call site needs different settings.</p>
+ */
+public final class JsonCodec {
+    private static final ObjectMapper MAPPER = JsonMapper.builder().build();
+    private static final ObjectReader TREE_READER = MAPPER.readerFor(JsonNode.class);
+    private static final ObjectWriter WRITER = MAPPER.writer();
+    private static final ObjectWriter PRETTY_WRITER = MAPPER.writerWithDefaultPrettyPrinter();
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    private JsonCodec() {
+        // Utility class
+    }
+
+    /** Reusable reader binding JSON to {@code type}. */
+    public static ObjectReader readerFor(Class<?> type) {
+        return READERS.computeIfAbsent(type, MAPPER::readerFor);
+    }
+
+    /** Reader for a generic type such as {@code Map<String, String>}; not cached, so keep it. */
+    public static ObjectReader readerFor(TypeReference<?> type) {
+        return MAPPER.readerFor(type);
+    }
+
+    /** Reusable writer for values of {@code type}. */
+    public static ObjectWriter writerFor(Class<?> type) {
+        return WRITERS.computeIfAbsent(type, MAPPER::writerFor);
+    }
+
+    /** Parses {@code json} into a tree. */
+    public static JsonNode readTree(String json) throws JsonProcessingException {
+        return TREE_READER.readTree(json);
+    }
+
+    /** Parses UTF-8 encoded {@code json} into a tree. */
+    public static JsonNode readTree(byte[] json) throws IOException {
+        return TREE_READER.readTree(json);
+    }
+
+    /** Streaming parser over {@code json}; {@code readValueAsTree()} works on it. */
+    public static JsonParser createParser(String json) throws IOException {
+        return TREE_READER.createParser(json);
+    }
+
+    /** Streaming parser over UTF-8 encoded {@code json}. */
+    public static JsonParser createParser(byte[] json) throws IOException {
+        return TREE_READER.createParser(json);
+    }
+
+    /** Streaming parser over {@code json}; closing the parser closes the stream. */
+    public static JsonParser createParser(InputStream json) throws IOException {
+        return TREE_READER.createParser(json);
+    }
+
+    /** Serializes any value, including trees built with {@link #object()}. */
+    public static String write(Object value) throws JsonProcessingException {
+        return WRITER.writeValueAsString(value);
+    }
+
+    /** Writer that indents its output. */
+    public static ObjectWriter prettyWriter() {
+        return PRETTY_WRITER;
+    }
+
+    /** {@code value} converted to a tree, e.g. a list to an {@link ArrayNode}. */
+    public static <T extends JsonNode> T tree(Object value) {
+        return MAPPER.valueToTree(value);
+    }
+
+    public static ObjectNode object() {
+        return MAPPER.createObjectNode();
+    }
+
+    public static ArrayNode array() {
+        return MAPPER.createArrayNode();
+    }
+}
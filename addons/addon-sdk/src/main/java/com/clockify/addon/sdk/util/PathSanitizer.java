@@ -17,6 +17,9 @@ public class PathSanitizer {
     /**
      * Sanitizes a path to prevent security vulnerabilities.
      *
+     * <p>Validation is a single scan of the input; a path that is already canonical is returned
+     * as-is, otherwise the canonical form is built in one copy.</p>
+     *
      * @param path The path to sanitize
      * @return Sanitized path starting with /
      * @throws IllegalArgumentException if path contains malicious patterns
@@ -26,108 +29,64 @@ public class PathSanitizer {
             return "/";
         }
 
-        // Pre-trim checks: examine the raw input to avoid trim() hiding trailing control chars
-        String raw = path;
-        boolean rawHasNullChar = raw.indexOf('\u0000') >= 0;
-        boolean rawHasPercent00 = raw.toLowerCase().contains("%00");
-        boolean rawHasBackslashZero = false; // "\\0"
-        boolean rawHasUnicodeLiteralNull = raw.toLowerCase().contains("\\u0000"); // literal text "\u0000"
-        for (int i = 0; i + 1 < raw.length(); i++) {
-            if (raw.charAt(i) == '\\' && raw.charAt(i + 1) == '0') {
-                rawHasBackslashZero = true;
+        // Examine the raw input so trim() cannot hide trailing control chars. Null bytes (and their
+        // common encodings: %00, a literal backslash-u0000 or backslash-0) take precedence over control
+        // characters. Whitespace control characters at the very start are left for trim().
+        boolean nullByte = false;
+        boolean control = false;
+        for (int i = 0, n = path.length(); i < n; i++) {
+            char ch = path.charAt(i);
+            if (ch == '\u0000'
+                    || (ch == '%' && path.startsWith("00", i + 1))
+                    || (ch == '\\' && i + 1 < n && path.charAt(i + 1) == '0')
+                    || (ch == '\\' && path.regionMatches(true, i, "\\u0000", 0, 6))) {
+                nullByte = true;
                 break;
             }
+            if (i > 0 && ch <= 0x1F && !isWhitespaceControl(ch)) {
+                control = true;
+            }
         }
-        if (rawHasNullChar || rawHasBackslashZero || rawHasPercent00 || rawHasUnicodeLiteralNull) {
-            logger.warn("Path contains null byte or encoding before trim (nullChar?={}, \\0?={}, %00?={}, \\u0000?={}): {}",
-                rawHasNullChar, rawHasBackslashZero, rawHasPercent00, rawHasUnicodeLiteralNull, path);
+        if (nullByte) {
+            logger.warn("Path contains null byte or encoding: {}", path);
             throw new IllegalArgumentException("Path contains null bytes");
         }
-
-        // Check for control characters in the middle and end of the path BEFORE trim
-        // This ensures control characters like \u0001, \u0007, \u001F are rejected even when not at the very beginning
-        // We allow specific whitespace control characters (\t, \n, \r, \f, \u000B) at the beginning to be handled by trim()
-        for (int i = 0; i < path.length(); i++) {
-            char ch = path.charAt(i);
-            // Only check characters that are not at the very beginning
-            // This allows trim() to handle whitespace control characters at the start, but rejects them elsewhere
-            if (i > 0 && ch <= 0x1F) {
-                // Check if this is a whitespace control character that should be allowed at beginning
-                boolean isWhitespaceControlChar = (ch == '\t' || ch == '\n' || ch == '\r' || ch == '\f' || ch == '\u000B');
-                // If it's a whitespace control character at the beginning, allow it to be handled by trim()
-                // Otherwise, reject it
-                if (!isWhitespaceControlChar) {
-                    logger.warn("Path contains control characters (<=0x1F): {}", path);
-                    throw new IllegalArgumentException("Path contains control characters");
-                }
-            }
+        if (control) {
+            logger.warn("Path contains control characters (<=0x1F): {}", path);
+            throw new IllegalArgumentException("Path contains control characters");
         }
 
-        // Now trim and continue normalization/validation
         String sanitized = path.trim();
-
-        // Final check for any remaining control characters after trim
-        // This catches any control characters that weren't at the edges
-        for (int i = 0; i < sanitized.length(); i++) {
+        int length = sanitized.length();
+        boolean traversal = false;
+        boolean canonical = sanitized.charAt(0) == '/' && (length == 1 || sanitized.charAt(length - 1) != '/');
+        char dangerous = 0;
+        for (int i = 0; i < length; i++) {
             char ch = sanitized.charAt(i);
             if (ch <= 0x1F) {
                 logger.warn("Path contains control characters after trim (<=0x1F): {}", path);
                 throw new IllegalArgumentException("Path contains control characters");
             }
-        }
-
-        // Detect common null-byte representations again after trim
-        boolean hasNullChar = sanitized.indexOf('\u0000') >= 0;
-        boolean hasPercent00 = sanitized.toLowerCase().contains("%00"); // URL-encoded null byte
-        boolean hasUnicodeLiteralNull = sanitized.toLowerCase().contains("\\u0000"); // literal text "\u0000"
-        boolean hasBackslashZero = false; // robust detection for "\\0" (backslash then zero)
-        for (int i = 0; i + 1 < sanitized.length(); i++) {
-            if (sanitized.charAt(i) == '\\' && sanitized.charAt(i + 1) == '0') {
-                hasBackslashZero = true;
-                break;
+            if (ch == '.' && i + 1 < length && sanitized.charAt(i + 1) == '.') {
+                traversal = true;
+            } else if (ch == '/' && i + 1 < length && sanitized.charAt(i + 1) == '/') {
+                canonical = false;
+            } else if (dangerous == 0 && isDangerous(ch)) {
+                dangerous = ch;
             }
         }
 
-        // Check for null bytes (potential security issue) or common encodings
-        if (hasNullChar || hasBackslashZero || hasPercent00 || hasUnicodeLiteralNull) {
-            logger.warn("Path contains null byte or encoding (nullChar?={}, \\0?={}, %00?={}, \\u0000?={}): {}",
-                    hasNullChar, hasBackslashZero, hasPercent00, hasUnicodeLiteralNull, path);
-            throw new IllegalArgumentException("Path contains null bytes");
-        }
-
-        // Check for path traversal attempts
-        if (sanitized.contains("..")) {
+        if (traversal) {
             logger.warn("Path contains directory traversal attempt: {}", path);
             throw new IllegalArgumentException("Path contains directory traversal patterns (..)");
         }
-
-        // Remove duplicate slashes
-        while (sanitized.contains("//")) {
-            sanitized = sanitized.replace("//", "/");
-        }
-
-        // Ensure path starts with /
-        if (!sanitized.startsWith("/")) {
-            sanitized = "/" + sanitized;
-        }
-
-        // Remove trailing slash (except for root path)
-        if (sanitized.length() > 1 && sanitized.endsWith("/")) {
-            sanitized = sanitized.substring(0, sanitized.length() - 1);
-        }
-
-        // Validate characters - allow most Unicode characters, but explicitly reject dangerous ones
-        // We'll check for specific dangerous characters rather than using a restrictive regex
-        for (int i = 0; i < sanitized.length(); i++) {
-            char ch = sanitized.charAt(i);
-            // Reject specific dangerous characters
-            if (ch == '<' || ch == '>' || ch == '\"' || ch == '\\' || ch == '`' || ch == '{' || ch == '}' || ch == '|' || ch == '^') {
-                logger.warn("Path contains dangerous character '{}': {}", ch, path);
-                throw new IllegalArgumentException("Path contains dangerous characters");
-            }
+        // Allow most Unicode characters, but explicitly reject dangerous ones
+        if (dangerous != 0) {
+            logger.warn("Path contains dangerous character '{}': {}", dangerous, path);
+            throw new IllegalArgumentException("Path contains dangerous characters");
         }
 
-        return sanitized;
+        return canonical ? sanitized : canonicalize(sanitized);
     }
 
     /**
@@ -138,33 +97,46 @@ public class PathSanitizer {
      * @return Normalized path
      */
     public static String normalize(String path) {
-        if (path == null) {
+        if (path == null || path.trim().isEmpty()) {
             return "/";
         }
-
-        // Check if path is empty or contains only whitespace
-        if (path.isEmpty() || path.trim().isEmpty()) {
-            return "/";
+        int length = path.length();
+        if (path.charAt(0) == '/' && (length == 1 || path.charAt(length - 1) != '/') && path.indexOf("//") < 0) {
+            return path;
         }
+        return canonicalize(path);
+    }
 
-        String normalized = path;
-
-        // Remove duplicate slashes
-        while (normalized.contains("//")) {
-            normalized = normalized.replace("//", "/");
+    /**
+     * Collapses slash runs, adds a leading slash and drops a trailing one (except for the root) in one copy.
+     */
+    private static String canonicalize(String path) {
+        StringBuilder out = new StringBuilder(path.length() + 1);
+        char previous = 0;
+        if (path.charAt(0) != '/') {
+            out.append('/');
+            previous = '/';
+        }
+        for (int i = 0, n = path.length(); i < n; i++) {
+            char ch = path.charAt(i);
+            if (ch == '/' && previous == '/') {
+                continue;
+            }
+            out.append(ch);
+            previous = ch;
         }
-
-        // Ensure path starts with /
-        if (!normalized.startsWith("/")) {
-            normalized = "/" + normalized;
+        if (out.length() > 1 && previous == '/') {
+            out.setLength(out.length() - 1);
         }
+        return out.toString();
+    }
 
-        // Remove trailing slash (except for root path)
-        if (normalized.length() > 1 && normalized.endsWith("/")) {
-            normalized = normalized.substring(0, normalized.length() - 1);
-        }
+    private static boolean isWhitespaceControl(char ch) {
+        return ch == '\t' || ch == '\n' || ch == '\r' || ch == '\f' || ch == '\u000B';
+    }
 
-        return normalized;
+    private static boolean isDangerous(char ch) {
+        return ch == '<' || ch == '>' || ch == '\"' || ch == '\\' || ch == '`' || ch == '{' || ch == '}' || ch == '|' || ch == '^';
     }
 
     /**
@@ -176,9 +148,17 @@ public class PathSanitizer {
      */
     public static String sanitizeLifecyclePath(String lifecycleType, String path) {
         if (path == null || path.trim().isEmpty()) {
-            // Generate safe default path
-            String safeLcType = lifecycleType.replaceAll("[^a-zA-Z0-9_-]", "").toLowerCase();
-            return "/lifecycle/" + safeLcType;
+            // Generate safe default path: keep [a-zA-Z0-9_-], lower-cased
+            StringBuilder safe = new StringBuilder("/lifecycle/".length() + lifecycleType.length()).append("/lifecycle/");
+            for (int i = 0; i < lifecycleType.length(); i++) {
+                char ch = lifecycleType.charAt(i);
+                if ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9') || ch == '_' || ch == '-') {
+                    safe.append(ch);
+                } else if (ch >= 'A' && ch <= 'Z') {
+                    safe.append((char) (ch + ('a' - 'A')));
+                }
+            }
+            return safe.toString();
         }
 
         return sanitize(path);
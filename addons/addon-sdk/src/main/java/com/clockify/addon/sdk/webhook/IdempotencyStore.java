@@ -0,0 +1,40 @@
+package com.clockify.addon.sdk.webhook;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Remembers the response given to a webhook delivery so a redelivery of the same event can be
+ * answered without running the handler again.
+ *
+ * <p>Keys are opaque delivery fingerprints computed by
+ * {@link com.clockify.addon.sdk.middleware.WebhookIdempotencyFilter}. Only successful responses are
+ * stored, and each for a limited window after which the delivery is handled normally again.</p>
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Response remembered for {@code key}, if any and not yet expired.
+     *
+     * @throws IdempotencyStoreException if the store cannot be reached
+     */
+    Optional<StoredResponse> find(String key);
+
+    /**
+     * Remembers {@code response} for {@code key} during {@code ttl}.
+     *
+     * @throws IdempotencyStoreException if the store cannot be reached
+     */
+    void remember(String key, StoredResponse response, Duration ttl);
+
+    /** The parts of a handler response that are replayed to a duplicate delivery. */
+    record StoredResponse(int status, String contentType, String body) {
+    }
+
+    /** Raised when a shared store is unavailable; the filter then handles the delivery normally. */
+    class IdempotencyStoreException extends RuntimeException {
+        public IdempotencyStoreException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
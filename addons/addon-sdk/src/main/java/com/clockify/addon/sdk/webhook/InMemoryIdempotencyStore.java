@@ -0,0 +1,69 @@
+package com.clockify.addon.sdk.webhook;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, time-windowed {@link IdempotencyStore} local to this process.
+ *
+ * <p>Entries are kept in insertion order; expired entries are dropped from the head on every write
+ * and the oldest entry is evicted once {@code maxEntries} is reached, so memory stays bounded even
+ * during a redelivery storm.</p>
+ */
+public final class InMemoryIdempotencyStore implements IdempotencyStore {
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Held> entries = new LinkedHashMap<>();
+
+    public InMemoryIdempotencyStore(int maxEntries) {
+        this(maxEntries, System::currentTimeMillis);
+    }
+
+    InMemoryIdempotencyStore(int maxEntries, LongSupplier clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized Optional<StoredResponse> find(String key) {
+        Held held = entries.get(key);
+        if (held == null) {
+            return Optional.empty();
+        }
+        if (held.expiresAt <= clock.getAsLong()) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(held.response);
+    }
+
+    @Override
+    public synchronized void remember(String key, StoredResponse response, Duration ttl) {
+        long now = clock.getAsLong();
+        Iterator<Map.Entry<String, Held>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Held> eldest = it.next();
+            if (eldest.getValue().expiresAt > now && entries.size() < maxEntries) {
+                break;
+            }
+            it.remove();
+        }
+        entries.remove(key);
+        entries.put(key, new Held(response, now + ttl.toMillis()));
+    }
+
+    /** Number of deliveries currently remembered, expired ones included until the next write. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Held(StoredResponse response, long expiresAt) {
+    }
+}
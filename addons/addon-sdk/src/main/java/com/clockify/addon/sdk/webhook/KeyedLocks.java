@@ -0,0 +1,121 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs tasks one at a time per key on the caller's own thread, in arrival order.
+ *
+ * <p>Each active key has a fair lock; a caller waits for it at most {@code maxWait} and then gets
+ * a {@link TimeoutException}, so a slow or hung task for one key ties up only the threads of that
+ * key, and only for that long. Concurrency across keys is that of the calling threads (the
+ * servlet container's pool for webhooks), with no extra pool to size. A lock exists only while it
+ * has holders or waiters; once {@code maxWaitingPerKey} callers are queued for a key, further
+ * callers are rejected with {@link RejectedExecutionException}.</p>
+ *
+ * <p>Metrics: {@code webhook_ordered_locked_keys} (active keys),
+ * {@code webhook_ordered_rejected_total} and {@code webhook_ordered_wait_timeouts_total}.</p>
+ *
+ * <p>Configuration for {@link #fromEnvironment()} (system property or environment variable):</p>
+ * <ul>
+ *   <li>{@code ADDON_WEBHOOK_ORDER_MAX_WAIT_MS} - longest wait for the key, default 10000</li>
+ *   <li>{@code ADDON_WEBHOOK_ORDER_QUEUE} - callers that may wait per key, default 64</li>
+ * </ul>
+ */
+public final class KeyedLocks {
+    static final int DEFAULT_MAX_WAITING_PER_KEY = 64;
+    static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(10);
+
+    private final Duration maxWait;
+    private final int maxWaitingPerKey;
+    private final ConcurrentHashMap<String, KeyLock> locks = new ConcurrentHashMap<>();
+    private final Counter rejected;
+    private final Counter timeouts;
+
+    public KeyedLocks(Duration maxWait, int maxWaitingPerKey) {
+        if (maxWait.isNegative() || maxWaitingPerKey < 1) {
+            throw new IllegalArgumentException("maxWait must not be negative and maxWaitingPerKey must be positive");
+        }
+        this.maxWait = maxWait;
+        this.maxWaitingPerKey = maxWaitingPerKey;
+        this.rejected = Counter.builder("webhook_ordered_rejected_total").register(MetricsHandler.registry());
+        this.timeouts = Counter.builder("webhook_ordered_wait_timeouts_total").register(MetricsHandler.registry());
+        Gauge.builder("webhook_ordered_locked_keys", locks, ConcurrentHashMap::size).register(MetricsHandler.registry());
+    }
+
+    /** Locks configured by {@code ADDON_WEBHOOK_ORDER_*}. */
+    public static KeyedLocks fromEnvironment() {
+        long maxWaitMs = EnvironmentInspector.longSetting("ADDON_WEBHOOK_ORDER_MAX_WAIT_MS", DEFAULT_MAX_WAIT.toMillis());
+        int queue = EnvironmentInspector.intSetting("ADDON_WEBHOOK_ORDER_QUEUE", DEFAULT_MAX_WAITING_PER_KEY);
+        return new KeyedLocks(Duration.ofMillis(maxWaitMs), queue);
+    }
+
+    /**
+     * Runs {@code task} once the tasks that arrived earlier for {@code key} have finished.
+     *
+     * @throws RejectedExecutionException if too many callers are already waiting for {@code key}
+     * @throws TimeoutException           if the key did not become free within the wait bound
+     */
+    public <T> T call(String key, Callable<T> task) throws Exception {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(task, "task");
+        boolean[] full = new boolean[1];
+        KeyLock lock = locks.compute(key, (k, current) -> {
+            KeyLock l = current != null ? current : new KeyLock();
+            if (l.users > maxWaitingPerKey) {
+                full[0] = true;
+            } else {
+                l.users++;
+            }
+            return l;
+        });
+        if (full[0]) {
+            rejected.increment();
+            throw new RejectedExecutionException("Too many callers waiting for key");
+        }
+        try {
+            if (!lock.tryLock(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                timeouts.increment();
+                throw new TimeoutException("Timed out after " + maxWait.toMillis() + " ms waiting for earlier work on the key");
+            }
+            try {
+                return task.call();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            locks.computeIfPresent(key, (k, current) -> --current.users == 0 ? null : current);
+        }
+    }
+
+    /** Keys with a running or waiting caller. */
+    public int activeKeys() {
+        return locks.size();
+    }
+
+    /** Callers holding or waiting for {@code key}. */
+    int callers(String key) {
+        KeyLock lock = locks.get(key);
+        return lock == null ? 0 : lock.users;
+    }
+
+    private static final class KeyLock extends ReentrantLock {
+        // Changed only inside compute, which serialises access per key; volatile for callers(key).
+        volatile int users;
+
+        KeyLock() {
+            super(true);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks in submission order per key, and tasks of different keys in parallel.
+ *
+ * <p>Each active key has a lane: a bounded FIFO queue of which at most one task is running at a
+ * time, on a shared pool of the given size. A lane exists only while it has work, so there is no
+ * per-key thread and no head-of-line blocking between keys that happen to hash alike. When a
+ * lane already holds {@code maxQueuedPerKey} tasks, {@link #submit} rejects the new one with
+ * {@link RejectedExecutionException}, bounding memory under a flood for a single key.</p>
+ *
+ * <p>Metrics: {@code webhook_ordered_lanes} (active keys) and
+ * {@code webhook_ordered_rejected_total}.</p>
+ *
+ * <p>Used for background work such as the {@link WebhookInboxConsumer}; request threads that must
+ * answer with the handler's own response use {@link KeyedLocks} instead.</p>
+ */
+public final class KeyedOrderedExecutor implements Closeable {
+    static final int DEFAULT_MAX_QUEUED_PER_KEY = 64;
+
+    private final ExecutorService pool;
+    private final int maxQueuedPerKey;
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final Counter rejected;
+
+    public KeyedOrderedExecutor(int threads, int maxQueuedPerKey) {
+        if (threads < 1 || maxQueuedPerKey < 1) {
+            throw new IllegalArgumentException("threads and maxQueuedPerKey must be positive");
+        }
+        this.maxQueuedPerKey = maxQueuedPerKey;
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "ordered-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rejected = Counter.builder("webhook_ordered_rejected_total").register(MetricsHandler.registry());
+        Gauge.builder("webhook_ordered_lanes", lanes, ConcurrentHashMap::size).register(MetricsHandler.registry());
+    }
+
+    /**
+     * Queues {@code task} behind the tasks already submitted for {@code key}.
+     *
+     * @throws RejectedExecutionException if the lane for {@code key} is full or the executor is shut down
+     */
+    public <T> CompletableFuture<T> submit(String key, Callable<T> task) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(task, "task");
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable step = () -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        };
+        boolean[] start = new boolean[1];
+        boolean[] full = new boolean[1];
+        lanes.compute(key, (k, lane) -> {
+            if (lane == null) {
+                lane = new Lane();
+            }
+            if (lane.queue.size() >= maxQueuedPerKey) {
+                full[0] = true;
+                return lane;
+            }
+            lane.queue.addLast(step);
+            if (!lane.running) {
+                lane.running = true;
+                start[0] = true;
+            }
+            return lane;
+        });
+        if (full[0]) {
+            rejected.increment();
+            throw new RejectedExecutionException("Too many queued tasks for key");
+        }
+        if (start[0]) {
+            schedule(key);
+        }
+        return result;
+    }
+
+    /** Keys with queued or running work. */
+    public int activeKeys() {
+        return lanes.size();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        }
+    }
+
+    private void schedule(String key) {
+        try {
+            pool.execute(() -> drain(key));
+        } catch (RejectedExecutionException e) {
+            lanes.remove(key);
+            throw e;
+        }
+    }
+
+    /** Runs the head of the lane, then hands the lane on or retires it when empty. */
+    private void drain(String key) {
+        // Lanes are only read and changed inside compute, which serialises access per key.
+        Runnable[] head = new Runnable[1];
+        lanes.computeIfPresent(key, (k, lane) -> {
+            head[0] = lane.queue.peekFirst();
+            return lane;
+        });
+        head[0].run();
+        boolean[] more = new boolean[1];
+        lanes.computeIfPresent(key, (k, current) -> {
+            current.queue.pollFirst();
+            if (current.queue.isEmpty()) {
+                current.running = false;
+                return null;
+            }
+            more[0] = true;
+            return current;
+        });
+        if (more[0]) {
+            schedule(key);
+        }
+    }
+
+    private static final class Lane {
+        final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        boolean running;
+    }
+}
@@ -0,0 +1,44 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Declares, at registration, which webhooks must be handled one after another.
+ *
+ * <p>Deliveries that map to the same key are handled in arrival order, one at a time; deliveries
+ * with different keys run in parallel. A {@code null} key means the delivery needs no ordering.
+ * See {@link com.clockify.addon.sdk.ClockifyAddon#registerWebhookHandler(String, OrderingKey,
+ * com.clockify.addon.sdk.RequestHandler)}.</p>
+ */
+@FunctionalInterface
+public interface OrderingKey {
+
+    String keyOf(JsonNode payload);
+
+    /**
+     * Orders by {@code (workspaceId, entity id)}, the entity being {@code timeEntry} when present,
+     * else the payload itself. Serialises read-modify-write updates of one time entry.
+     */
+    static OrderingKey byEntity() {
+        return payload -> {
+            if (payload == null) {
+                return null;
+            }
+            String workspaceId = payload.path("workspaceId").asText(null);
+            JsonNode entity = payload.has("timeEntry") ? payload.get("timeEntry") : payload;
+            String entityId = entity.path("id").asText(null);
+            if (workspaceId == null || workspaceId.isBlank() || entityId == null || entityId.isBlank()) {
+                return null;
+            }
+            return workspaceId + '\n' + entityId;
+        };
+    }
+
+    /** Orders all deliveries of a workspace. */
+    static OrderingKey byWorkspace() {
+        return payload -> {
+            String workspaceId = payload == null ? null : payload.path("workspaceId").asText(null);
+            return workspaceId == null || workspaceId.isBlank() ? null : workspaceId;
+        };
+    }
+}
@@ -0,0 +1,212 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The JSON pointers a webhook handler reads, extracted in one streaming pass instead of building
+ * the whole payload tree.
+ *
+ * <p>{@link #extract(String)} walks the body with a {@link JsonParser}, skipping every subtree no
+ * pointer leads into and stopping as soon as all pointers are resolved, so a handler that needs
+ * {@code /workspaceId} and {@code /timeEntry/timeInterval} does not pay for a large
+ * {@code customFieldValues} array. A pointer to an object or array captures that whole subtree.
+ * Pointers that are absent from the body resolve to {@link MissingNode}. The full tree is still
+ * available from {@link ProjectedPayload#tree()}, parsed on first use.</p>
+ *
+ * <p>Because extraction may stop before the end of the body, a body that is malformed after the
+ * last projected field is only rejected if the full tree is requested.</p>
+ *
+ * <p>Register with {@link com.clockify.addon.sdk.ClockifyAddon#registerWebhookHandler(String,
+ * PayloadProjection, com.clockify.addon.sdk.RequestHandler)}.</p>
+ */
+public final class PayloadProjection {
+
+    /** Fields the SDK itself reads to route, order and schedule a webhook. */
+    public static final PayloadProjection ROUTING =
+            of("/event", "/workspaceId", "/id", "/timeEntry/id");
+
+    private final List<String> pointers;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final Node root = new Node();
+    // Compiled pointers, parents before their fields, for ProjectedPayload#view().
+    private final JsonPointer[] viewOrder;
+    private final int[] viewSlots;
+
+    private PayloadProjection(Collection<String> pointers) {
+        List<String> normalized = new ArrayList<>();
+        Set<String> seen = new LinkedHashSet<>();
+        for (String pointer : pointers) {
+            JsonPointer compiled = JsonPointer.compile(pointer);
+            if (compiled.matches()) {
+                throw new IllegalArgumentException("Project the whole payload with ProjectedPayload#tree(), not \"\"");
+            }
+            String canonical = compiled.toString();
+            if (seen.add(canonical)) {
+                slots.put(canonical, normalized.size());
+                normalized.add(canonical);
+            }
+        }
+        this.pointers = List.copyOf(normalized);
+        for (int slot = 0; slot < this.pointers.size(); slot++) {
+            Node node = root;
+            for (JsonPointer p = JsonPointer.compile(this.pointers.get(slot)); !p.matches(); p = p.tail()) {
+                node = node.children.computeIfAbsent(p.getMatchingProperty(), k -> new Node());
+            }
+            node.slot = slot;
+            node.pointer = this.pointers.get(slot);
+        }
+        root.collectNested(this.pointers, slots);
+        List<String> byDepth = new ArrayList<>(this.pointers);
+        byDepth.sort(Comparator.comparingInt(String::length));
+        viewOrder = new JsonPointer[byDepth.size()];
+        viewSlots = new int[byDepth.size()];
+        for (int i = 0; i < byDepth.size(); i++) {
+            viewOrder[i] = JsonPointer.compile(byDepth.get(i));
+            viewSlots[i] = slots.get(byDepth.get(i));
+        }
+    }
+
+    /**
+     * @param pointers RFC 6901 JSON pointers, e.g. {@code /timeEntry/timeInterval/start}
+     * @throws IllegalArgumentException if a pointer is malformed or empty
+     */
+    public static PayloadProjection of(String... pointers) {
+        return new PayloadProjection(Arrays.asList(pointers));
+    }
+
+    /** This projection plus {@code other}'s pointers. */
+    public PayloadProjection and(PayloadProjection other) {
+        List<String> union = new ArrayList<>(pointers);
+        union.addAll(other.pointers);
+        return new PayloadProjection(union);
+    }
+
+    /** The projected pointers, normalised and without duplicates. */
+    public List<String> pointers() {
+        return pointers;
+    }
+
+    /**
+     * Extracts the projected values from {@code body}.
+     *
+     * @throws IOException if the body is not valid JSON up to the last projected field
+     */
+    public ProjectedPayload extract(String body) throws IOException {
+        JsonNode[] values = new JsonNode[pointers.size()];
+        Arrays.fill(values, MissingNode.getInstance());
+        if (body != null && !body.isBlank()) {
+            try (JsonParser parser = JsonCodec.createParser(body)) {
+                if (parser.nextToken() != null) {
+                    walk(parser, root, values, new int[]{pointers.size()});
+                }
+            }
+        }
+        return new ProjectedPayload(this, body, values);
+    }
+
+    JsonPointer[] viewOrder() {
+        return viewOrder;
+    }
+
+    int[] viewSlots() {
+        return viewSlots;
+    }
+
+    int slotOf(String pointer) {
+        Integer slot = slots.get(pointer);
+        if (slot == null) {
+            slot = slots.get(JsonPointer.compile(pointer).toString());
+        }
+        if (slot == null) {
+            throw new IllegalArgumentException("Pointer " + pointer + " is not projected");
+        }
+        return slot;
+    }
+
+    /**
+     * Reads the value the parser is positioned on. Returns {@code true} once every pointer is
+     * resolved, leaving the rest of the body unread.
+     */
+    private static boolean walk(JsonParser parser, Node node, JsonNode[] values, int[] remaining) throws IOException {
+        if (node.slot >= 0) {
+            JsonNode value = parser.readValueAsTree();
+            values[node.slot] = value == null ? MissingNode.getInstance() : value;
+            remaining[0]--;
+            for (int i = 0; i < node.nestedSlots.length; i++) {
+                values[node.nestedSlots[i]] = value == null ? MissingNode.getInstance() : value.at(node.nestedPointers[i]);
+                remaining[0]--;
+            }
+            return remaining[0] == 0;
+        }
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.children.get(parser.currentName());
+                parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                } else if (walk(parser, child, values, remaining)) {
+                    return true;
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            for (JsonToken next = parser.nextToken(); next != null && next != JsonToken.END_ARRAY; next = parser.nextToken()) {
+                Node child = node.children.get(Integer.toString(index++));
+                if (child == null) {
+                    parser.skipChildren();
+                } else if (walk(parser, child, values, remaining)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** A step of some projected pointer; {@code slot} is set where a pointer ends. */
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        int slot = -1;
+        String pointer;
+        // Pointers below a captured subtree, resolved from it instead of from the stream.
+        int[] nestedSlots = new int[0];
+        JsonPointer[] nestedPointers = new JsonPointer[0];
+
+        void collectNested(List<String> all, Map<String, Integer> slots) {
+            if (slot >= 0) {
+                List<String> nested = new ArrayList<>();
+                for (String candidate : all) {
+                    if (candidate.startsWith(pointer + "/")) {
+                        nested.add(candidate);
+                    }
+                }
+                nestedSlots = new int[nested.size()];
+                nestedPointers = new JsonPointer[nested.size()];
+                for (int i = 0; i < nested.size(); i++) {
+                    nestedSlots[i] = slots.get(nested.get(i));
+                    nestedPointers[i] = JsonPointer.compile(nested.get(i).substring(pointer.length()));
+                }
+                return;
+            }
+            for (Node child : children.values()) {
+                child.collectNested(all, slots);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.clockify.addon.sdk.webhook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PostgreSQL-backed {@link IdempotencyStore}, one row per delivery in {@code addon_webhook_deliveries},
+ * so a redelivery is recognised whichever replica it lands on and across restarts.
+ *
+ * <p>Expired rows are ignored on read and deleted in bulk at most once a minute, piggybacking on
+ * writes. Pass the {@link DataSource} of an existing pool, e.g.
+ * {@code PooledDatabaseTokenStore#dataSource()}.</p>
+ */
+public final class PostgresIdempotencyStore implements IdempotencyStore {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresIdempotencyStore.class);
+
+    private static final long PURGE_INTERVAL_MS = Duration.ofMinutes(1).toMillis();
+    private static final String FIND_SQL =
+            "SELECT status, content_type, body FROM addon_webhook_deliveries WHERE delivery_key = ? AND expires_at_ms > ?";
+    private static final String UPSERT_SQL =
+            "INSERT INTO addon_webhook_deliveries (delivery_key, status, content_type, body, expires_at_ms) "
+                    + "VALUES (?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (delivery_key) DO UPDATE SET status = EXCLUDED.status, "
+                    + "content_type = EXCLUDED.content_type, body = EXCLUDED.body, expires_at_ms = EXCLUDED.expires_at_ms";
+    private static final String PURGE_SQL = "DELETE FROM addon_webhook_deliveries WHERE expires_at_ms <= ?";
+
+    private final DataSource dataSource;
+    private final AtomicLong nextPurgeAt = new AtomicLong();
+
+    public PostgresIdempotencyStore(DataSource dataSource) {
+        this.dataSource = dataSource;
+        ensureTable();
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(FIND_SQL)) {
+            ps.setString(1, key);
+            ps.setLong(2, System.currentTimeMillis());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(new StoredResponse(rs.getInt(1), rs.getString(2), rs.getString(3)));
+                }
+                return Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new IdempotencyStoreException("Delivery lookup failed", e);
+        }
+    }
+
+    @Override
+    public void remember(String key, StoredResponse response, Duration ttl) {
+        long now = System.currentTimeMillis();
+        try (Connection c = dataSource.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(UPSERT_SQL)) {
+                ps.setString(1, key);
+                ps.setInt(2, response.status());
+                ps.setString(3, response.contentType());
+                ps.setString(4, response.body());
+                ps.setLong(5, now + ttl.toMillis());
+                ps.executeUpdate();
+            }
+            long purgeAt = nextPurgeAt.get();
+            if (now >= purgeAt && nextPurgeAt.compareAndSet(purgeAt, now + PURGE_INTERVAL_MS)) {
+                try (PreparedStatement ps = c.prepareStatement(PURGE_SQL)) {
+                    ps.setLong(1, now);
+                    int purged = ps.executeUpdate();
+                    logger.debug("Purged {} expired webhook deliveries", purged);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IdempotencyStoreException("Delivery write failed", e);
+        }
+    }
+
+    private void ensureTable() {
+        try (Connection c = dataSource.getConnection(); Statement st = c.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS addon_webhook_deliveries (" +
+                    "delivery_key VARCHAR(128) PRIMARY KEY," +
+                    "status INTEGER NOT NULL," +
+                    "content_type VARCHAR(255)," +
+                    "body TEXT," +
+                    "expires_at_ms BIGINT NOT NULL)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_webhook_deliveries_expires ON addon_webhook_deliveries(expires_at_ms)");
+        } catch (SQLException e) {
+            logger.warn("Could not ensure addon_webhook_deliveries table: {}", e.getMessage());
+        }
+    }
+}
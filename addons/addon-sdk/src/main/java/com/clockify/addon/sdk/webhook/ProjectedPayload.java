@@ -0,0 +1,113 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * The fields a {@link PayloadProjection} extracted from one webhook body.
+ *
+ * <p>For handlers registered with a projection, the servlet stores this as the
+ * {@value #ATTRIBUTE} request attribute instead of parsing the body into
+ * {@code clockify.jsonBody}; read it with {@link #from(HttpServletRequest)}.</p>
+ */
+public final class ProjectedPayload {
+    /** Request attribute holding the payload of a projected webhook. */
+    public static final String ATTRIBUTE = "clockify.projectedPayload";
+
+    private final PayloadProjection projection;
+    private final String body;
+    private final JsonNode[] values;
+    private ObjectNode view;
+    private JsonNode tree;
+
+    ProjectedPayload(PayloadProjection projection, String body, JsonNode[] values) {
+        this.projection = projection;
+        this.body = body;
+        this.values = values;
+    }
+
+    /** The projected payload of {@code request}, if its handler was registered with a projection. */
+    public static Optional<ProjectedPayload> from(HttpServletRequest request) {
+        return request.getAttribute(ATTRIBUTE) instanceof ProjectedPayload payload
+                ? Optional.of(payload) : Optional.empty();
+    }
+
+    /**
+     * Value at {@code pointer}, or {@link MissingNode} when the body has none.
+     *
+     * @throws IllegalArgumentException if {@code pointer} is not part of the projection
+     */
+    public JsonNode get(String pointer) {
+        return values[projection.slotOf(pointer)];
+    }
+
+    /** Text of the value at {@code pointer}, or {@code null} when it is absent or JSON null. */
+    public String text(String pointer) {
+        JsonNode value = get(pointer);
+        return value.isMissingNode() || value.isNull() ? null : value.asText(null);
+    }
+
+    /**
+     * The projected values as a sparse tree shaped like the payload, for code written against
+     * {@link JsonNode} (e.g. {@link OrderingKey}). Only projected fields are present.
+     */
+    public synchronized JsonNode view() {
+        if (view == null) {
+            ObjectNode sparse = JsonCodec.object();
+            JsonPointer[] pointers = projection.viewOrder();
+            int[] slots = projection.viewSlots();
+            // Parents first, so a captured subtree is not overwritten by one of its own fields.
+            for (int i = 0; i < pointers.length; i++) {
+                JsonNode value = values[slots[i]];
+                if (!value.isMissingNode()) {
+                    place(sparse, pointers[i], value);
+                }
+            }
+            view = sparse;
+        }
+        return view;
+    }
+
+    /**
+     * The whole payload, parsed on first call.
+     *
+     * @throws IOException if the body is not valid JSON
+     */
+    public synchronized JsonNode tree() throws IOException {
+        if (tree == null) {
+            tree = body == null || body.isBlank() ? MissingNode.getInstance() : JsonCodec.readTree(body);
+        }
+        return tree;
+    }
+
+    /** The raw body. */
+    public String body() {
+        return body;
+    }
+
+    private static void place(ObjectNode parent, JsonPointer pointer, JsonNode value) {
+        ObjectNode node = parent;
+        while (!pointer.tail().matches()) {
+            String name = pointer.getMatchingProperty();
+            JsonNode next = node.get(name);
+            if (next == null) {
+                next = node.putObject(name);
+            } else if (!(next instanceof ObjectNode)) {
+                return;
+            }
+            node = (ObjectNode) next;
+            pointer = pointer.tail();
+        }
+        String name = pointer.getMatchingProperty();
+        if (!node.has(name)) {
+            node.set(name, value);
+        }
+    }
+}
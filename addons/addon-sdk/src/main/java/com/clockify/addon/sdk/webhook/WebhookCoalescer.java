@@ -0,0 +1,226 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Debounces bursts of webhooks about the same entity so the handler sees only the latest state.
+ *
+ * <p>Editing one time entry can fire several {@code TIME_ENTRY_UPDATED} webhooks within a second,
+ * each carrying the full entry. Events of the configured types are grouped by
+ * {@code (workspaceId, entity id)}; a burst stays open while events keep arriving within
+ * {@code window} of each other, but never longer than {@code maxDelay} after its first event, which
+ * caps the added latency. When the burst closes the newest event runs its handler; the older ones
+ * are answered {@code 200 {"status":"coalesced"}} once it succeeds. If the newest one fails (e.g. a
+ * forged event failing its signature check) the next newest runs instead, so a bad event cannot
+ * suppress a genuine one. Events without a workspace or entity id are dispatched directly.</p>
+ *
+ * <p>An older event waits for the newest one's handler for at most {@code maxDelay} plus a fixed
+ * grace of {@value #HANDLER_GRACE_SECONDS} s. If that runs out it is answered
+ * {@code 202 {"status":"accepted"}} and drops out of the burst, so a slow or stuck handler cannot pin
+ * request threads indefinitely. Coalesced events are counted in
+ * {@code webhook_coalesced_total{event}}, events that gave up waiting in
+ * {@code webhook_coalesce_timeouts_total{event}}, and the time events spend held in
+ * {@code webhook_coalesce_wait_seconds}.</p>
+ *
+ * <p>Configuration for {@link #fromEnvironment()} (system property or environment variable):</p>
+ * <ul>
+ *   <li>{@code ADDON_WEBHOOK_COALESCE_MS} - debounce window; coalescing is disabled when unset</li>
+ *   <li>{@code ADDON_WEBHOOK_COALESCE_MAX_DELAY_MS} - latency cap, default 2000</li>
+ *   <li>{@code ADDON_WEBHOOK_COALESCE_EVENTS} - CSV of event types, default {@code TIME_ENTRY_UPDATED}</li>
+ * </ul>
+ */
+public final class WebhookCoalescer {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookCoalescer.class);
+
+    static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(2);
+    static final long HANDLER_GRACE_SECONDS = 10;
+    private static final String COALESCED_BODY = "{\"status\":\"coalesced\"}";
+    private static final String ACCEPTED_BODY = "{\"status\":\"accepted\"}";
+
+    private final Set<String> events;
+    private final long windowNanos;
+    private final long maxDelayNanos;
+    private final long graceNanos;
+    private final Map<String, Burst> bursts = new ConcurrentHashMap<>();
+
+    public WebhookCoalescer(Set<String> events, Duration window, Duration maxDelay) {
+        this(events, window, maxDelay, Duration.ofSeconds(HANDLER_GRACE_SECONDS));
+    }
+
+    WebhookCoalescer(Set<String> events, Duration window, Duration maxDelay, Duration grace) {
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        if (maxDelay == null || maxDelay.compareTo(window) < 0) {
+            throw new IllegalArgumentException("maxDelay must be at least the window");
+        }
+        this.events = Set.copyOf(events);
+        this.windowNanos = window.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.graceNanos = grace.toNanos();
+    }
+
+    /**
+     * Creates the coalescer configured by {@code ADDON_WEBHOOK_COALESCE_*}, or empty when
+     * {@code ADDON_WEBHOOK_COALESCE_MS} is not set.
+     */
+    public static Optional<WebhookCoalescer> fromEnvironment() {
+        long windowMs = EnvironmentInspector.longSetting("ADDON_WEBHOOK_COALESCE_MS", 0);
+        if (windowMs <= 0) {
+            return Optional.empty();
+        }
+        long maxDelayMs = Math.max(windowMs, EnvironmentInspector.longSetting("ADDON_WEBHOOK_COALESCE_MAX_DELAY_MS", DEFAULT_MAX_DELAY.toMillis()));
+        String csv = EnvironmentInspector.setting("ADDON_WEBHOOK_COALESCE_EVENTS");
+        Set<String> events = csv == null
+                ? Set.of("TIME_ENTRY_UPDATED")
+                : Arrays.stream(csv.split(",")).map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toSet());
+        logger.info("Coalescing {} webhooks per entity within {} ms (max delay {} ms)", events, windowMs, maxDelayMs);
+        return Optional.of(new WebhookCoalescer(events, Duration.ofMillis(windowMs), Duration.ofMillis(maxDelayMs)));
+    }
+
+    public boolean appliesTo(String event) {
+        return events.contains(event);
+    }
+
+    /**
+     * Runs {@code handler} for this event, or answers "coalesced" if a newer event about the same
+     * entity arrives within the window and is handled successfully, or "accepted" if that newer
+     * event is still being handled once this one has waited {@code maxDelay} plus the grace.
+     */
+    public HttpResponse dispatch(String event, JsonNode payload, Callable<HttpResponse> handler) throws Exception {
+        String key = key(event, payload);
+        if (key == null) {
+            return handler.call();
+        }
+        long arrived = System.nanoTime();
+        Burst burst;
+        int index;
+        while (true) {
+            burst = bursts.computeIfAbsent(key, k -> new Burst(arrived));
+            synchronized (burst) {
+                if (burst.closed) {
+                    continue;
+                }
+                index = burst.arrivals++;
+                burst.lastArrival = Math.max(burst.lastArrival, arrived);
+                break;
+            }
+        }
+
+        synchronized (burst) {
+            while (!burst.closed) {
+                long deadline = Math.min(burst.lastArrival + windowNanos, burst.started + maxDelayNanos);
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    burst.closed = true;
+                    burst.turn = burst.arrivals - 1;
+                    burst.departed = new boolean[burst.arrivals];
+                    bursts.remove(key, burst);
+                    burst.notifyAll();
+                    break;
+                }
+                TimeUnit.NANOSECONDS.timedWait(burst, remaining);
+            }
+            long giveUp = arrived + maxDelayNanos + graceNanos;
+            while (!burst.resolved && burst.turn != index) {
+                long remaining = giveUp - System.nanoTime();
+                if (remaining <= 0) {
+                    burst.departed[index] = true;
+                    recordWait(event, arrived);
+                    Counter.builder("webhook_coalesce_timeouts_total")
+                            .tag("event", event)
+                            .register(MetricsHandler.registry())
+                            .increment();
+                    logger.warn("Gave up waiting for a newer {} event after {} ms; answering 202",
+                            event, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - arrived));
+                    return new HttpResponse(202, ACCEPTED_BODY, "application/json");
+                }
+                TimeUnit.NANOSECONDS.timedWait(burst, remaining);
+            }
+            recordWait(event, arrived);
+            if (burst.resolved) {
+                Counter.builder("webhook_coalesced_total")
+                        .tag("event", event)
+                        .register(MetricsHandler.registry())
+                        .increment();
+                return HttpResponse.ok(COALESCED_BODY, "application/json");
+            }
+        }
+
+        boolean handled = false;
+        try {
+            HttpResponse response = handler.call();
+            handled = response.getStatusCode() >= 200 && response.getStatusCode() < 300;
+            return response;
+        } finally {
+            synchronized (burst) {
+                if (handled) {
+                    burst.resolved = true;
+                } else {
+                    do {
+                        burst.turn--;
+                    } while (burst.turn >= 0 && burst.departed[burst.turn]);
+                    burst.resolved = burst.turn < 0;
+                }
+                burst.notifyAll();
+            }
+        }
+    }
+
+    static String key(String event, JsonNode payload) {
+        if (payload == null) {
+            return null;
+        }
+        String workspaceId = text(payload, "workspaceId");
+        JsonNode entity = payload.has("timeEntry") ? payload.get("timeEntry") : payload;
+        String entityId = text(entity, "id");
+        if (workspaceId == null || workspaceId.isBlank() || entityId == null || entityId.isBlank()) {
+            return null;
+        }
+        return event + '\n' + workspaceId + '\n' + entityId;
+    }
+
+    private static void recordWait(String event, long arrived) {
+        Timer.builder("webhook_coalesce_wait_seconds")
+                .tag("event", event)
+                .register(MetricsHandler.registry())
+                .record(System.nanoTime() - arrived, TimeUnit.NANOSECONDS);
+    }
+
+    private static String text(JsonNode node, String field) {
+        return node != null && node.hasNonNull(field) ? node.get(field).asText(null) : null;
+    }
+
+    /** Events about one entity; guarded by its own monitor. */
+    private static final class Burst {
+        final long started;
+        long lastArrival;
+        int arrivals;
+        boolean closed;
+        int turn;
+        boolean[] departed;
+        boolean resolved;
+
+        Burst(long started) {
+            this.started = started;
+            this.lastArrival = started;
+        }
+    }
+}
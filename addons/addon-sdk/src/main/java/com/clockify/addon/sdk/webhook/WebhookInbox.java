@@ -0,0 +1,561 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable local inbox for accepted webhooks: a write-ahead log of memory-mapped segment files.
+ *
+ * <p>{@link #append} writes the event to the active segment and, when fsync is enabled, returns
+ * only once it is on disk, so a webhook can be acknowledged as soon as it is appended. Concurrent
+ * appenders share fsyncs (group commit): one thread forces the segment while the others wait and
+ * are released together by that single force. Once an entry has been processed the consumer calls
+ * {@link #markDone(long)}, which appends a small completion record without waiting for disk; after
+ * a crash an entry may therefore be delivered again, never lost. Segments whose entries are all
+ * done are deleted from the head of the log.</p>
+ *
+ * <p>Records are framed as {@code length, crc32c, type, payload}. On startup every segment is
+ * scanned up to its first empty or corrupt frame, which is where a crash may have torn the tail;
+ * entries without a completion record are then handed back by {@link #replay(Consumer)}. Writing
+ * always continues in a fresh segment.</p>
+ *
+ * <p>Configuration for {@link #fromEnvironment()} (system property or environment variable):</p>
+ * <ul>
+ *   <li>{@code CLOCKIFY_WEBHOOK_INBOX_DIR} - directory for segments; the inbox is disabled when unset</li>
+ *   <li>{@code CLOCKIFY_WEBHOOK_INBOX_SEGMENT_MB} - default 16</li>
+ *   <li>{@code CLOCKIFY_WEBHOOK_INBOX_FSYNC} - default {@code true}; when {@code false} appends
+ *       survive a process crash but not a host crash</li>
+ * </ul>
+ *
+ * <p>{@link #deadLettersFromEnvironment()} opens a second log in the {@code dead-letter}
+ * subdirectory for events the consumer gave up on.</p>
+ */
+public final class WebhookInbox implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookInbox.class);
+
+    private static final String PREFIX = "inbox-";
+    private static final String SUFFIX = ".wal";
+    static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+    private static final int FRAME_HEADER = 8;
+    private static final byte TYPE_ENTRY = 1;
+    private static final byte TYPE_DONE = 2;
+    private static final int DONE_PAYLOAD = 1 + 8;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<Long, Location> pending = new HashMap<>();
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition committed = commitLock.newCondition();
+    private final AtomicLong durableLsn = new AtomicLong();
+    private final Counter appends;
+    private final Counter fsyncs;
+    private Segment active;
+    private long nextSegmentId;
+    private long nextSequence = 1;
+    private long writtenLsn;
+    private boolean forcing;
+    private boolean closed;
+
+    public WebhookInbox(Path directory, int segmentBytes, boolean fsync) throws IOException {
+        this(directory, segmentBytes, fsync, "webhook_inbox");
+    }
+
+    /**
+     * @param metricPrefix prefix of this log's metrics ({@code <prefix>_appends_total},
+     *                     {@code <prefix>_fsyncs_total}, {@code <prefix>_pending}), for logs other
+     *                     than the webhook inbox that reuse the format
+     */
+    public WebhookInbox(Path directory, int segmentBytes, boolean fsync, String metricPrefix) throws IOException {
+        if (segmentBytes < 4096) {
+            throw new IllegalArgumentException("segmentBytes must be at least 4096");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        this.appends = Counter.builder(metricPrefix + "_appends_total").register(MetricsHandler.registry());
+        this.fsyncs = Counter.builder(metricPrefix + "_fsyncs_total").register(MetricsHandler.registry());
+        Gauge.builder(metricPrefix + "_pending", this, WebhookInbox::pendingCount).register(MetricsHandler.registry());
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Creates the inbox configured by {@code CLOCKIFY_WEBHOOK_INBOX_*}, or empty when
+     * {@code CLOCKIFY_WEBHOOK_INBOX_DIR} is not set.
+     */
+    public static Optional<WebhookInbox> fromEnvironment() {
+        String dir = EnvironmentInspector.setting("CLOCKIFY_WEBHOOK_INBOX_DIR");
+        if (dir == null) {
+            return Optional.empty();
+        }
+        long segmentMb = EnvironmentInspector.longSetting("CLOCKIFY_WEBHOOK_INBOX_SEGMENT_MB", DEFAULT_SEGMENT_BYTES / (1024 * 1024));
+        boolean fsync = !"false".equalsIgnoreCase(EnvironmentInspector.setting("CLOCKIFY_WEBHOOK_INBOX_FSYNC"));
+        try {
+            WebhookInbox inbox = new WebhookInbox(Paths.get(dir),
+                    (int) Math.min(segmentMb * 1024 * 1024, Integer.MAX_VALUE), fsync);
+            logger.info("Webhook inbox enabled at {} ({} pending)", dir, inbox.pendingCount());
+            return Optional.of(inbox);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open webhook inbox at " + dir, e);
+        }
+    }
+
+    /**
+     * Creates the dead-letter log under {@code CLOCKIFY_WEBHOOK_INBOX_DIR/dead-letter} (metrics
+     * prefixed {@code webhook_dead_letter}), or empty when {@code CLOCKIFY_WEBHOOK_INBOX_DIR} is not set.
+     */
+    public static Optional<WebhookInbox> deadLettersFromEnvironment() {
+        String dir = EnvironmentInspector.setting("CLOCKIFY_WEBHOOK_INBOX_DIR");
+        if (dir == null) {
+            return Optional.empty();
+        }
+        Path path = Paths.get(dir, "dead-letter");
+        try {
+            long segmentMb = EnvironmentInspector.longSetting("CLOCKIFY_WEBHOOK_INBOX_SEGMENT_MB", DEFAULT_SEGMENT_BYTES / (1024 * 1024));
+            WebhookInbox log = new WebhookInbox(path, (int) Math.min(segmentMb * 1024 * 1024, Integer.MAX_VALUE), true,
+                    "webhook_dead_letter");
+            if (log.pendingCount() > 0) {
+                logger.warn("Webhook dead-letter log at {} holds {} event(s)", path, log.pendingCount());
+            }
+            return Optional.of(log);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open webhook dead-letter log at " + path, e);
+        }
+    }
+
+    /**
+     * An accepted webhook. {@code path} is the request path it arrived on and {@code body} the raw
+     * payload, exactly as signed.
+     */
+    public record Entry(long sequence, String event, String path, String body, long receivedAt) {
+    }
+
+    /**
+     * Appends an accepted webhook; durable on return when fsync is enabled.
+     */
+    public Entry append(String event, String path, String body) throws IOException {
+        byte[] eventBytes = bytes(event);
+        byte[] pathBytes = bytes(path);
+        byte[] bodyBytes = bytes(body);
+        int payloadLength = 1 + 8 + 8 + 4 + eventBytes.length + 4 + pathBytes.length + 4 + bodyBytes.length;
+        long receivedAt = System.currentTimeMillis();
+        long sequence;
+        long lsn;
+        lock.lock();
+        try {
+            ensureOpen();
+            if (FRAME_HEADER + payloadLength > segmentBytes) {
+                throw new IOException("Webhook of " + bodyBytes.length + " bytes does not fit an inbox segment");
+            }
+            Segment segment = reserve(FRAME_HEADER + payloadLength);
+            sequence = nextSequence++;
+            int offset = segment.size;
+            ByteBuffer out = segment.buffer.duplicate();
+            out.position(offset + FRAME_HEADER);
+            out.put(TYPE_ENTRY).putLong(sequence).putLong(receivedAt);
+            putBytes(out, eventBytes);
+            putBytes(out, pathBytes);
+            putBytes(out, bodyBytes);
+            seal(segment, offset, payloadLength);
+            segment.pending++;
+            pending.put(sequence, new Location(segment, offset));
+            lsn = writtenLsn;
+        } finally {
+            lock.unlock();
+        }
+        appends.increment();
+        if (fsync) {
+            awaitDurable(lsn);
+        }
+        return new Entry(sequence, event, path, body, receivedAt);
+    }
+
+    /**
+     * Records that {@code sequence} has been processed. Not forced to disk: a crash before the
+     * next fsync replays the entry once more.
+     */
+    public void markDone(long sequence) throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            Location location = pending.remove(sequence);
+            if (location == null) {
+                return;
+            }
+            Segment segment = reserve(FRAME_HEADER + DONE_PAYLOAD);
+            int offset = segment.size;
+            segment.buffer.put(offset + FRAME_HEADER, TYPE_DONE);
+            segment.buffer.putLong(offset + FRAME_HEADER + 1, sequence);
+            seal(segment, offset, DONE_PAYLOAD);
+            location.segment.pending--;
+            compact();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands every entry not yet marked done to {@code sink}, oldest first.
+     */
+    public void replay(Consumer<Entry> sink) throws IOException {
+        TreeMap<Long, Location> snapshot;
+        lock.lock();
+        try {
+            ensureOpen();
+            snapshot = new TreeMap<>(pending);
+        } finally {
+            lock.unlock();
+        }
+        Map<Segment, FileChannel> channels = new HashMap<>();
+        try {
+            for (Map.Entry<Long, Location> candidate : snapshot.entrySet()) {
+                Location location = candidate.getValue();
+                Entry entry;
+                lock.lock();
+                try {
+                    // Entries accepted after the snapshot may already be done, and their segment gone.
+                    if (!pending.containsKey(candidate.getKey())) {
+                        continue;
+                    }
+                    FileChannel channel = channels.get(location.segment);
+                    if (channel == null) {
+                        channel = FileChannel.open(location.segment.path, StandardOpenOption.READ);
+                        channels.put(location.segment, channel);
+                    }
+                    entry = read(channel, location.offset);
+                } finally {
+                    lock.unlock();
+                }
+                sink.accept(entry);
+            }
+        } finally {
+            for (FileChannel channel : channels.values()) {
+                channel.close();
+            }
+        }
+    }
+
+    /** Entries appended but not yet marked done. */
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of segment files currently on disk. */
+    int segmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (active != null) {
+                active.close(fsync);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitDurable(long lsn) throws IOException {
+        while (true) {
+            commitLock.lock();
+            try {
+                while (forcing && durableLsn.get() < lsn) {
+                    committed.awaitUninterruptibly();
+                }
+                if (durableLsn.get() >= lsn) {
+                    return;
+                }
+                forcing = true;
+            } finally {
+                commitLock.unlock();
+            }
+            // This thread leads the next fsync; everything written before it reads writtenLsn rides along.
+            long target;
+            MappedByteBuffer buffer;
+            lock.lock();
+            try {
+                target = writtenLsn;
+                buffer = active != null ? active.buffer : null;
+            } finally {
+                lock.unlock();
+            }
+            boolean forced = false;
+            try {
+                if (buffer != null) {
+                    buffer.force();
+                }
+                fsyncs.increment();
+                forced = true;
+            } catch (RuntimeException e) {
+                throw new IOException("Failed to force webhook inbox segment", e);
+            } finally {
+                commitLock.lock();
+                try {
+                    forcing = false;
+                    if (forced) {
+                        durableLsn.accumulateAndGet(target, Math::max);
+                    }
+                    committed.signalAll();
+                } finally {
+                    commitLock.unlock();
+                }
+            }
+        }
+    }
+
+    /** Active segment with room for {@code frameLength} more bytes, rolling if needed. Caller holds the lock. */
+    private Segment reserve(int frameLength) throws IOException {
+        if (active == null || segmentBytes - active.size < frameLength) {
+            roll();
+        }
+        return active;
+    }
+
+    /** Writes the frame header last, so a frame is only visible once its payload is complete. */
+    private void seal(Segment segment, int offset, int payloadLength) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer payload = segment.buffer.duplicate();
+        payload.position(offset + FRAME_HEADER).limit(offset + FRAME_HEADER + payloadLength);
+        crc.update(payload);
+        segment.buffer.putInt(offset + 4, (int) crc.getValue());
+        segment.buffer.putInt(offset, payloadLength);
+        segment.size = offset + FRAME_HEADER + payloadLength;
+        writtenLsn += FRAME_HEADER + payloadLength;
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            // Everything appended so far must be durable before writes move to another file.
+            active.close(fsync);
+            if (fsync) {
+                fsyncs.increment();
+            }
+            durableLsn.accumulateAndGet(writtenLsn, Math::max);
+        }
+        Segment segment = new Segment(directory.resolve(fileName(nextSegmentId++)));
+        segment.open(segmentBytes);
+        segments.addLast(segment);
+        active = segment;
+        compact();
+    }
+
+    /** Deletes fully processed segments from the head. Caller holds the lock. */
+    private void compact() {
+        while (!segments.isEmpty()) {
+            Segment head = segments.peekFirst();
+            if (head == active || head.pending > 0) {
+                return;
+            }
+            segments.removeFirst();
+            try {
+                Files.deleteIfExists(head.path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete webhook inbox segment {}: {}", head.path, e.getMessage());
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                if (sequenceOf(file) >= 0) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+        for (Path file : files) {
+            Segment segment = new Segment(file);
+            scan(segment);
+            segments.addLast(segment);
+            nextSegmentId = Math.max(nextSegmentId, sequenceOf(file) + 1);
+        }
+        compact();
+    }
+
+    private void scan(Segment segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize == 0) {
+                return;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int limit = (int) Math.min(fileSize, Integer.MAX_VALUE);
+            int position = 0;
+            CRC32C crc = new CRC32C();
+            while (position + FRAME_HEADER <= limit) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || length > limit - position - FRAME_HEADER) {
+                    break;
+                }
+                ByteBuffer payload = buffer.duplicate();
+                payload.position(position + FRAME_HEADER).limit(position + FRAME_HEADER + length);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                    logger.warn("Webhook inbox segment {} has a torn record at offset {}; ignoring the rest",
+                            segment.path, position);
+                    break;
+                }
+                byte type = buffer.get(position + FRAME_HEADER);
+                long sequence = buffer.getLong(position + FRAME_HEADER + 1);
+                if (type == TYPE_ENTRY) {
+                    pending.put(sequence, new Location(segment, position));
+                    segment.pending++;
+                    nextSequence = Math.max(nextSequence, sequence + 1);
+                } else if (type == TYPE_DONE) {
+                    Location location = pending.remove(sequence);
+                    if (location != null) {
+                        location.segment.pending--;
+                    }
+                }
+                position += FRAME_HEADER + length;
+            }
+            segment.size = position;
+        }
+    }
+
+    private static Entry read(FileChannel channel, int offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        readFully(channel, header, offset);
+        int length = header.getInt(0);
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + FRAME_HEADER);
+        payload.flip();
+        payload.get();
+        long sequence = payload.getLong();
+        long receivedAt = payload.getLong();
+        String event = getString(payload);
+        String path = getString(payload);
+        String body = getString(payload);
+        return new Entry(sequence, event, path, body, receivedAt);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + target.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of webhook inbox segment");
+            }
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer out, byte[] value) {
+        out.putInt(value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] value = new byte[in.getInt()];
+        in.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Webhook inbox is closed");
+        }
+    }
+
+    static String fileName(long sequence) {
+        return PREFIX + String.format("%020d", sequence) + SUFFIX;
+    }
+
+    static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private record Location(Segment segment, int offset) {
+    }
+
+    private static final class Segment {
+        final Path path;
+        int size;
+        int pending;
+        FileChannel channel;
+        MappedByteBuffer buffer;
+
+        Segment(Path path) {
+            this.path = path;
+        }
+
+        void open(int capacity) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        /** Stops writing to this segment. The file keeps its preallocated size until compaction deletes it. */
+        void close(boolean force) throws IOException {
+            if (channel == null) {
+                return;
+            }
+            if (force) {
+                buffer.force();
+            }
+            buffer = null;
+            channel.close();
+            channel = null;
+        }
+    }
+}
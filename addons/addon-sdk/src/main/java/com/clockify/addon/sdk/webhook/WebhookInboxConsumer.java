@@ -0,0 +1,332 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.RequestHandler;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import com.clockify.addon.sdk.security.WebhookSignatureValidator;
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Acknowledges webhooks once they are durable in a {@link WebhookInbox} and processes them on a
+ * worker pool.
+ *
+ * <p>{@link #handler} returns the {@link RequestHandler} to register for an event: it verifies the
+ * signature, appends the raw payload to the inbox and answers {@code 200 {"status":"accepted"}}
+ * without waiting for the processor. If the inbox cannot be written it answers 503 so Clockify
+ * redelivers. Workers then run the processor; an entry is marked done when it succeeds. A processor
+ * reports failure by throwing: the entry is retried with exponential backoff and, after
+ * {@value #DEFAULT_MAX_ATTEMPTS} failed attempts (or at once for a {@link PermanentFailure}), is
+ * dead-lettered: counted in {@code webhook_inbox_dead_letter_total} and, when a log was given to
+ * {@link #deadLetterTo(WebhookInbox)}, copied there before it is marked done. {@link #start()}
+ * replays what a previous process left unprocessed.</p>
+ *
+ * <p>Delivery is at least once: a processor may see an entry again after a crash, so it should be
+ * idempotent (tagging an entry that already has the tag is a no-op).</p>
+ */
+public final class WebhookInboxConsumer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookInboxConsumer.class);
+
+    static final int DEFAULT_WORKERS = 4;
+    static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final Duration DEFAULT_BACKOFF = Duration.ofMillis(500);
+
+    /** Checks the webhook signature before the event is accepted. */
+    @FunctionalInterface
+    public interface Verifier {
+        WebhookSignatureValidator.VerificationResult verify(HttpServletRequest request, JsonNode payload) throws Exception;
+    }
+
+    /**
+     * Processes an accepted event. Returning normally marks it done, so a processor must throw when
+     * the work did not happen: any exception is retried, a {@link PermanentFailure} is not.
+     */
+    @FunctionalInterface
+    public interface Processor {
+        void process(WebhookInbox.Entry entry, JsonNode payload) throws Exception;
+    }
+
+    /** Thrown by a {@link Processor} for an event that will never succeed (e.g. it lacks required fields); it is not retried. */
+    public static class PermanentFailure extends Exception {
+        public PermanentFailure(String message) {
+            super(message);
+        }
+
+        public PermanentFailure(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final WebhookInbox inbox;
+    private final ScheduledExecutorService workers;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Map<String, Processor> processors = new ConcurrentHashMap<>();
+    private final Map<String, OrderingKey> orderings = new ConcurrentHashMap<>();
+    private final KeyedOrderedExecutor ordered;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile WebhookInbox deadLetters;
+    private volatile boolean started;
+
+    /**
+     * Consumer with {@code CLOCKIFY_WEBHOOK_INBOX_WORKERS} workers (system property or environment
+     * variable, default {@value #DEFAULT_WORKERS}).
+     */
+    public WebhookInboxConsumer(WebhookInbox inbox) {
+        this(inbox, workersSetting());
+    }
+
+    public WebhookInboxConsumer(WebhookInbox inbox, int workers) {
+        this(inbox, workers, DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF);
+    }
+
+    public WebhookInboxConsumer(WebhookInbox inbox, int workers, int maxAttempts, Duration backoff) {
+        if (workers < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("workers and maxAttempts must be positive");
+        }
+        this.inbox = Objects.requireNonNull(inbox, "inbox");
+        this.maxAttempts = maxAttempts;
+        this.backoff = Objects.requireNonNull(backoff, "backoff");
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newScheduledThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "webhook-inbox-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ordered = new KeyedOrderedExecutor(workers, KeyedOrderedExecutor.DEFAULT_MAX_QUEUED_PER_KEY);
+    }
+
+    /**
+     * Registers {@code processor} for {@code event} and returns the request handler that accepts it.
+     */
+    public RequestHandler handler(String event, Verifier verifier, Processor processor) {
+        Objects.requireNonNull(event, "event");
+        Objects.requireNonNull(verifier, "verifier");
+        processors.put(event, Objects.requireNonNull(processor, "processor"));
+        return request -> accept(event, verifier, request);
+    }
+
+    /**
+     * As {@link #handler(String, Verifier, Processor)}, processing events that share an ordering key
+     * one at a time in acceptance order. A failed event is retried behind the events queued after
+     * it, so ordering is only guaranteed while processing succeeds.
+     */
+    public RequestHandler handler(String event, OrderingKey orderingKey, Verifier verifier, Processor processor) {
+        orderings.put(event, Objects.requireNonNull(orderingKey, "orderingKey"));
+        return handler(event, verifier, processor);
+    }
+
+    /**
+     * Keeps dead-lettered entries in {@code log} (for example
+     * {@link WebhookInbox#deadLettersFromEnvironment()}) instead of only counting them. Entries in it
+     * are never marked done; inspect or re-append them by hand. Call before {@link #start()}.
+     */
+    public WebhookInboxConsumer deadLetterTo(WebhookInbox log) {
+        this.deadLetters = Objects.requireNonNull(log, "log");
+        return this;
+    }
+
+    /**
+     * Starts processing: replays entries left pending by a previous run, then processes new ones
+     * as they are accepted. Register all handlers first.
+     */
+    public void start() throws IOException {
+        started = true;
+        AtomicInteger replayed = new AtomicInteger();
+        inbox.replay(entry -> {
+            if (submit(entry, null)) {
+                replayed.incrementAndGet();
+            }
+        });
+        if (replayed.get() > 0) {
+            logger.info("Replaying {} webhook(s) left pending in the inbox", replayed.get());
+        }
+    }
+
+    @Override
+    public void close() {
+        ordered.close();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    private HttpResponse accept(String event, Verifier verifier, HttpServletRequest request) throws Exception {
+        String body = rawBody(request);
+        JsonNode payload = request.getAttribute("clockify.jsonBody") instanceof JsonNode json ? json : JsonCodec.readTree(body);
+        WebhookSignatureValidator.VerificationResult sig = verifier.verify(request, payload);
+        if (!sig.isValid()) {
+            return sig.response();
+        }
+        WebhookInbox.Entry entry;
+        try {
+            entry = inbox.append(event, request.getPathInfo(), body);
+        } catch (IOException e) {
+            logger.error("Failed to append {} webhook to the inbox: {}", event, e.getMessage());
+            return HttpResponse.error(503, "{\"error\":\"webhook inbox unavailable\"}", "application/json");
+        }
+        if (started) {
+            submit(entry, payload);
+        }
+        return HttpResponse.ok("{\"status\":\"accepted\",\"sequence\":" + entry.sequence() + "}", "application/json");
+    }
+
+    /** Queues {@code entry} unless it is already being processed (e.g. accepted while replay was running). */
+    private boolean submit(WebhookInbox.Entry entry, JsonNode payload) {
+        if (!inFlight.add(entry.sequence())) {
+            return false;
+        }
+        dispatch(entry, payload, 1);
+        return true;
+    }
+
+    private void dispatch(WebhookInbox.Entry entry, JsonNode payload, int attempt) {
+        OrderingKey ordering = orderings.get(entry.event());
+        if (ordering != null) {
+            JsonNode json = payload;
+            try {
+                if (json == null) {
+                    json = JsonCodec.readTree(entry.body());
+                }
+            } catch (IOException e) {
+                json = null;
+            }
+            String key = json != null ? ordering.keyOf(json) : null;
+            if (key != null) {
+                JsonNode parsed = json;
+                try {
+                    ordered.submit(key, () -> {
+                        run(entry, parsed, attempt);
+                        return null;
+                    });
+                    return;
+                } catch (RejectedExecutionException e) {
+                    logger.warn("Ordering lane full for inbox entry {}; processing it unordered", entry.sequence());
+                }
+            }
+        }
+        workers.execute(() -> run(entry, payload, attempt));
+    }
+
+    private void run(WebhookInbox.Entry entry, JsonNode payload, int attempt) {
+        Processor processor = processors.get(entry.event());
+        if (processor == null) {
+            logger.warn("No processor registered for inbox event {}; dropping entry {}", entry.event(), entry.sequence());
+            deadLetter(entry);
+            return;
+        }
+        JsonNode json = payload;
+        try {
+            if (json == null) {
+                json = JsonCodec.readTree(entry.body());
+            }
+            processor.process(entry, json);
+            done(entry);
+        } catch (PermanentFailure e) {
+            logger.error("Webhook {} #{} cannot be processed; dead-lettering it: {}", entry.event(), entry.sequence(), e.getMessage());
+            deadLetter(entry);
+        } catch (Exception e) {
+            if (attempt >= maxAttempts) {
+                logger.error("Webhook {} #{} failed after {} attempts; dropping it", entry.event(), entry.sequence(), attempt, e);
+                deadLetter(entry);
+                return;
+            }
+            long delay = backoff.toMillis() << Math.min(attempt - 1, 16);
+            logger.warn("Webhook {} #{} failed (attempt {}), retrying in {} ms: {}",
+                    entry.event(), entry.sequence(), attempt, delay, e.toString());
+            JsonNode parsed = json;
+            try {
+                workers.schedule(() -> dispatch(entry, parsed, attempt + 1), delay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException rejected) {
+                // Shutting down: the entry stays pending and is replayed on the next start.
+                inFlight.remove(entry.sequence());
+            }
+        }
+    }
+
+    private void deadLetter(WebhookInbox.Entry entry) {
+        WebhookInbox log = deadLetters;
+        if (log != null) {
+            try {
+                log.append(entry.event(), entry.path(), entry.body());
+            } catch (IOException e) {
+                // Leave it pending rather than lose it; it is replayed on the next start.
+                logger.error("Failed to dead-letter webhook inbox entry {}; leaving it pending: {}", entry.sequence(), e.getMessage());
+                inFlight.remove(entry.sequence());
+                return;
+            }
+        }
+        Counter.builder("webhook_inbox_dead_letter_total")
+                .tag("event", entry.event())
+                .register(MetricsHandler.registry())
+                .increment();
+        done(entry);
+    }
+
+    private void done(WebhookInbox.Entry entry) {
+        try {
+            inbox.markDone(entry.sequence());
+        } catch (IOException e) {
+            logger.warn("Failed to mark webhook inbox entry {} done: {}", entry.sequence(), e.getMessage());
+        } finally {
+            inFlight.remove(entry.sequence());
+        }
+    }
+
+    private static String rawBody(HttpServletRequest request) throws IOException {
+        if (request.getAttribute("clockify.rawBody") instanceof String cached) {
+            return cached;
+        }
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader reader = request.getReader()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+        }
+        String body = sb.toString();
+        request.setAttribute("clockify.rawBody", body);
+        return body;
+    }
+
+    private static int workersSetting() {
+        String value = System.getProperty("CLOCKIFY_WEBHOOK_INBOX_WORKERS");
+        if (value == null || value.isBlank()) {
+            value = System.getenv("CLOCKIFY_WEBHOOK_INBOX_WORKERS");
+        }
+        if (value == null || value.isBlank()) {
+            return DEFAULT_WORKERS;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : DEFAULT_WORKERS;
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring invalid CLOCKIFY_WEBHOOK_INBOX_WORKERS={}", value);
+            return DEFAULT_WORKERS;
+        }
+    }
+}
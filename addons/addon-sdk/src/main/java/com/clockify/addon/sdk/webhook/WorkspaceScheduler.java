@@ -0,0 +1,379 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.config.EnvironmentInspector;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares webhook handler capacity fairly between workspaces, with a bulkhead per workspace.
+ *
+ * <p>At most {@code maxConcurrent} handlers run at once, and at most
+ * {@code perWorkspaceConcurrency} of them for any one workspace, so a tenant whose handlers are
+ * stuck on slow outbound calls cannot occupy every slot. Deliveries beyond that wait in a
+ * per-workspace FIFO of at most {@code perWorkspaceQueue} entries. When a slot frees up it goes to
+ * the waiting workspace that has received the least service relative to its weight (stride
+ * scheduling), so a workspace with thousands of queued events and one with a single event
+ * alternate instead of being served first come, first served. A workspace that is idle starts
+ * again at the current virtual time and cannot bank credit while idle.</p>
+ *
+ * <p>A delivery whose workspace queue is full, or which waits longer than {@code maxWait}, is
+ * answered {@code 429} with a {@code Retry-After} estimated from that workspace's backlog, so
+ * Clockify backs off for that tenant only. Deliveries without a workspace id are not scheduled.
+ * Callers must pass a workspace id whose signature has been verified, so that only installed
+ * workspaces get scheduling state and meters.</p>
+ *
+ * <p>Metrics: {@code webhook_workspace_queue_depth{workspace}},
+ * {@code webhook_workspace_active{workspace}} and {@code webhook_workspace_rejected_total{workspace}},
+ * registered when a workspace is first scheduled and removed once it has been idle for
+ * {@value #METER_IDLE_MINUTES} minutes, and {@code webhook_workspace_wait_seconds}.</p>
+ *
+ * <p>Configuration for {@link #fromEnvironment()} (system property or environment variable):</p>
+ * <ul>
+ *   <li>{@code ADDON_WEBHOOK_CONCURRENCY} - handlers running at once; scheduling is disabled when unset</li>
+ *   <li>{@code ADDON_WEBHOOK_WORKSPACE_CONCURRENCY} - per-workspace cap, default 4</li>
+ *   <li>{@code ADDON_WEBHOOK_WORKSPACE_QUEUE} - per-workspace queue bound, default 32</li>
+ *   <li>{@code ADDON_WEBHOOK_WORKSPACE_MAX_WAIT_MS} - longest wait for a slot, default 5000</li>
+ *   <li>{@code ADDON_WEBHOOK_WORKSPACE_WEIGHTS} - {@code workspaceId:weight} CSV, default weight 1</li>
+ * </ul>
+ */
+public final class WorkspaceScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(WorkspaceScheduler.class);
+
+    static final int DEFAULT_WORKSPACE_CONCURRENCY = 4;
+    static final int DEFAULT_WORKSPACE_QUEUE = 32;
+    static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(5);
+    static final int METER_IDLE_MINUTES = 5;
+    private static final long STRIDE = 1L << 20;
+    private static final String OVERLOADED_BODY =
+            "{\"error\":\"workspace_overloaded\",\"message\":\"Too many webhooks queued for this workspace\"}";
+
+    private final int maxConcurrent;
+    private final int perWorkspaceConcurrency;
+    private final int perWorkspaceQueue;
+    private final long maxWaitNanos;
+    private final Map<String, Integer> weights;
+    private final long meterIdleNanos;
+    private final MeterRegistry registry = MetricsHandler.registry();
+    private final Timer waits = Timer.builder("webhook_workspace_wait_seconds").register(registry);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock.
+    private final Map<String, Tenant> tenants = new HashMap<>();
+    private final Map<String, WorkspaceMeters> meters = new HashMap<>();
+    private long nextMeterSweep;
+    private int running;
+    private long virtualTime;
+    private long serviceNanosEwma;
+
+    public WorkspaceScheduler(int maxConcurrent, int perWorkspaceConcurrency, int perWorkspaceQueue,
+                              Duration maxWait, Map<String, Integer> weights) {
+        this(maxConcurrent, perWorkspaceConcurrency, perWorkspaceQueue, maxWait, weights, Duration.ofMinutes(METER_IDLE_MINUTES));
+    }
+
+    WorkspaceScheduler(int maxConcurrent, int perWorkspaceConcurrency, int perWorkspaceQueue,
+                       Duration maxWait, Map<String, Integer> weights, Duration meterIdle) {
+        if (maxConcurrent < 1 || perWorkspaceConcurrency < 1 || perWorkspaceQueue < 0) {
+            throw new IllegalArgumentException("concurrency limits must be positive");
+        }
+        if (maxWait == null || maxWait.isNegative()) {
+            throw new IllegalArgumentException("maxWait must not be negative");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.perWorkspaceConcurrency = Math.min(perWorkspaceConcurrency, maxConcurrent);
+        this.perWorkspaceQueue = perWorkspaceQueue;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.weights = weights == null ? Map.of() : Map.copyOf(weights);
+        this.meterIdleNanos = meterIdle.toNanos();
+        this.nextMeterSweep = System.nanoTime() + meterIdleNanos;
+    }
+
+    /**
+     * Creates the scheduler configured by {@code ADDON_WEBHOOK_CONCURRENCY} and
+     * {@code ADDON_WEBHOOK_WORKSPACE_*}, or empty when {@code ADDON_WEBHOOK_CONCURRENCY} is not set.
+     */
+    public static Optional<WorkspaceScheduler> fromEnvironment() {
+        long concurrency = EnvironmentInspector.longSetting("ADDON_WEBHOOK_CONCURRENCY", 0);
+        if (concurrency <= 0) {
+            return Optional.empty();
+        }
+        int total = (int) Math.min(concurrency, Integer.MAX_VALUE);
+        int perWorkspace = Math.min(EnvironmentInspector.intSetting("ADDON_WEBHOOK_WORKSPACE_CONCURRENCY", DEFAULT_WORKSPACE_CONCURRENCY), total);
+        int queue = EnvironmentInspector.intSetting("ADDON_WEBHOOK_WORKSPACE_QUEUE", DEFAULT_WORKSPACE_QUEUE);
+        long maxWaitMs = EnvironmentInspector.longSetting("ADDON_WEBHOOK_WORKSPACE_MAX_WAIT_MS", DEFAULT_MAX_WAIT.toMillis());
+        Map<String, Integer> weights = parseWeights(EnvironmentInspector.setting("ADDON_WEBHOOK_WORKSPACE_WEIGHTS"));
+        logger.info("Scheduling webhooks fairly across workspaces: {} concurrent, {} per workspace, queue {}, max wait {} ms",
+                total, perWorkspace, queue, maxWaitMs);
+        return Optional.of(new WorkspaceScheduler(total, perWorkspace, queue, Duration.ofMillis(maxWaitMs), weights));
+    }
+
+    /**
+     * Runs {@code handler} once {@code workspaceId} gets a slot, or answers 429 if its queue is full
+     * or the slot does not come within the wait limit.
+     *
+     * @param workspaceId the delivery's verified workspace
+     */
+    public HttpResponse dispatch(String workspaceId, Callable<HttpResponse> handler) throws Exception {
+        if (workspaceId == null || workspaceId.isBlank()) {
+            return handler.call();
+        }
+        long queuedAt = System.nanoTime();
+        Tenant tenant;
+        lock.lock();
+        try {
+            sweepIdleMeters(queuedAt);
+            tenant = tenants.computeIfAbsent(workspaceId, this::newTenant);
+            if (tenant.waiters.isEmpty() && tenant.active < perWorkspaceConcurrency && running < maxConcurrent) {
+                grant(tenant);
+            } else if (tenant.waiters.size() >= perWorkspaceQueue) {
+                return reject(tenant);
+            } else if (!await(tenant)) {
+                return reject(tenant);
+            }
+        } finally {
+            lock.unlock();
+        }
+        waits.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+
+        long started = System.nanoTime();
+        try {
+            return handler.call();
+        } finally {
+            release(tenant, System.nanoTime() - started);
+        }
+    }
+
+    /** Handlers currently running. */
+    public int running() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Deliveries waiting for a slot in {@code workspaceId}. */
+    public int queued(String workspaceId) {
+        lock.lock();
+        try {
+            Tenant tenant = tenants.get(workspaceId);
+            return tenant == null ? 0 : tenant.waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Waits in the tenant's queue; true once granted a slot. Called with the lock held. */
+    private boolean await(Tenant tenant) throws InterruptedException {
+        Waiter waiter = new Waiter(lock.newCondition());
+        tenant.waiters.addLast(waiter);
+        tenant.meters.depth = tenant.waiters.size();
+        long remaining = maxWaitNanos;
+        try {
+            while (!waiter.granted && remaining > 0) {
+                remaining = waiter.condition.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            if (waiter.granted) {
+                finish(tenant);
+            } else {
+                tenant.waiters.remove(waiter);
+                tenant.meters.depth = tenant.waiters.size();
+                retireIfIdle(tenant);
+            }
+            throw e;
+        }
+        if (!waiter.granted) {
+            tenant.waiters.remove(waiter);
+            tenant.meters.depth = tenant.waiters.size();
+        }
+        return waiter.granted;
+    }
+
+    private void grant(Tenant tenant) {
+        tenant.pass = Math.max(tenant.pass, virtualTime);
+        virtualTime = tenant.pass;
+        tenant.pass += STRIDE / tenant.weight;
+        tenant.meters.active = ++tenant.active;
+        running++;
+    }
+
+    /** Hands free slots to waiting workspaces, least-served (by weighted pass) first. */
+    private void grantNext() {
+        while (running < maxConcurrent) {
+            Tenant next = null;
+            for (Tenant candidate : tenants.values()) {
+                if (!candidate.waiters.isEmpty() && candidate.active < perWorkspaceConcurrency
+                        && (next == null || Math.max(candidate.pass, virtualTime) < Math.max(next.pass, virtualTime))) {
+                    next = candidate;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            Waiter waiter = next.waiters.pollFirst();
+            next.meters.depth = next.waiters.size();
+            waiter.granted = true;
+            grant(next);
+            waiter.condition.signal();
+        }
+    }
+
+    private void release(Tenant tenant, long serviceNanos) {
+        lock.lock();
+        try {
+            serviceNanosEwma = serviceNanosEwma == 0 ? serviceNanos : (serviceNanosEwma * 7 + serviceNanos) / 8;
+            finish(tenant);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish(Tenant tenant) {
+        tenant.meters.active = --tenant.active;
+        running--;
+        grantNext();
+        retireIfIdle(tenant);
+    }
+
+    private HttpResponse reject(Tenant tenant) {
+        long backlog = tenant.waiters.size() + 1L;
+        long seconds = (long) Math.ceil(backlog * (double) serviceNanosEwma / perWorkspaceConcurrency / 1e9);
+        retireIfIdle(tenant);
+        tenant.meters.rejected.increment();
+        logger.debug("Webhook capacity for workspace exhausted ({} queued); answering 429", backlog - 1);
+        return HttpResponse.error(429, OVERLOADED_BODY, "application/json")
+                .withHeader("Retry-After", String.valueOf(Math.max(1, Math.min(60, seconds))));
+    }
+
+    private Tenant newTenant(String workspaceId) {
+        WorkspaceMeters workspaceMeters = meters.computeIfAbsent(workspaceId, this::newMeters);
+        workspaceMeters.idle = false;
+        Tenant tenant = new Tenant(workspaceId, Math.max(1, weights.getOrDefault(workspaceId, 1)), workspaceMeters);
+        tenant.pass = virtualTime;
+        return tenant;
+    }
+
+    private WorkspaceMeters newMeters(String workspaceId) {
+        WorkspaceMeters m = new WorkspaceMeters();
+        m.queueGauge = Gauge.builder("webhook_workspace_queue_depth", m, w -> w.depth)
+                .tag("workspace", workspaceId)
+                .register(registry);
+        m.activeGauge = Gauge.builder("webhook_workspace_active", m, w -> w.active)
+                .tag("workspace", workspaceId)
+                .register(registry);
+        m.rejected = Counter.builder("webhook_workspace_rejected_total")
+                .tag("workspace", workspaceId)
+                .register(registry);
+        return m;
+    }
+
+    private void retireIfIdle(Tenant tenant) {
+        if (tenant.active == 0 && tenant.waiters.isEmpty() && tenants.remove(tenant.workspaceId, tenant)) {
+            tenant.meters.idle = true;
+            tenant.meters.idleSince = System.nanoTime();
+        }
+    }
+
+    /** Removes the meters of workspaces idle for the whole idle period; runs at most once per period. Caller holds the lock. */
+    private void sweepIdleMeters(long now) {
+        if (now - nextMeterSweep < 0) {
+            return;
+        }
+        nextMeterSweep = now + meterIdleNanos;
+        meters.values().removeIf(m -> {
+            if (!m.idle || now - m.idleSince < meterIdleNanos) {
+                return false;
+            }
+            registry.remove(m.queueGauge);
+            registry.remove(m.activeGauge);
+            registry.remove(m.rejected);
+            return true;
+        });
+    }
+
+    /** Meters of workspaces scheduled recently. */
+    int meteredWorkspaces() {
+        lock.lock();
+        try {
+            return meters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static Map<String, Integer> parseWeights(String csv) {
+        Map<String, Integer> weights = new HashMap<>();
+        if (csv == null) {
+            return weights;
+        }
+        for (String pair : csv.split(",")) {
+            int colon = pair.lastIndexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            try {
+                int weight = Integer.parseInt(pair.substring(colon + 1).trim());
+                if (weight > 0) {
+                    weights.put(pair.substring(0, colon).trim(), weight);
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid workspace weight {}", pair.trim());
+            }
+        }
+        return weights;
+    }
+
+    /** Scheduling state of a workspace with running or waiting deliveries; guarded by the scheduler lock. */
+    private static final class Tenant {
+        final String workspaceId;
+        final int weight;
+        final WorkspaceMeters meters;
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        int active;
+        long pass;
+
+        Tenant(String workspaceId, int weight, WorkspaceMeters meters) {
+            this.workspaceId = workspaceId;
+            this.weight = weight;
+            this.meters = meters;
+        }
+    }
+
+    /** A workspace's meters, kept across its busy periods; values are read by the registry without the lock. */
+    private static final class WorkspaceMeters {
+        volatile int depth;
+        volatile int active;
+        // Guarded by the scheduler lock.
+        boolean idle;
+        long idleSince;
+        Gauge queueGauge;
+        Gauge activeGauge;
+        Counter rejected;
+    }
+
+    private static final class Waiter {
+        final Condition condition;
+        boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
@@ -1,7 +1,18 @@
 package com.clockify.addon.sdk;
 
+import com.clockify.addon.sdk.security.TokenStore;
+import com.clockify.addon.sdk.security.WebhookSignatureValidator;
+import com.clockify.addon.sdk.webhook.OrderingKey;
+import com.clockify.addon.sdk.webhook.PayloadProjection;
+import com.clockify.addon.sdk.webhook.ProjectedPayload;
+import com.clockify.addon.sdk.webhook.WebhookCoalescer;
+import com.clockify.addon.sdk.webhook.WorkspaceScheduler;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedReader;
@@ -9,22 +20,55 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class AddonServletTest {
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String INSTALL_TOKEN = "install-token";
+
+    @BeforeEach
+    void installWorkspace() {
+        TokenStore.clear();
+        System.setProperty("ADDON_AUTH_COMPAT", "HMAC");
+        TokenStore.save("ws-1", INSTALL_TOKEN, "https://api.clockify.me/api");
+    }
+
+    @AfterEach
+    void clearWorkspace() {
+        TokenStore.clear();
+        System.clearProperty("ADDON_AUTH_COMPAT");
+    }
 
     @Test
     void lifecyclePostByExplicitPathRoutesToHandler() throws Exception {
@@ -472,6 +516,202 @@ class AddonServletTest {
         }
     }
 
+    @Test
+    void deliveriesWaitingForTheirEntityDoNotHoldASchedulerSlot() throws Exception {
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        List<String> handled = new CopyOnWriteArrayList<>();
+        ClockifyAddon addon = new ClockifyAddon(manifest());
+        addon.registerWebhookHandler("TIME_ENTRY_UPDATED", OrderingKey.byEntity(), request -> {
+            String body = (String) request.getAttribute("clockify.rawBody");
+            String tag = OBJECT_MAPPER.readTree(body).path("n").asText();
+            if (tag.equals("first")) {
+                firstRunning.countDown();
+                releaseFirst.await(5, TimeUnit.SECONDS);
+            }
+            handled.add(tag);
+            return HttpResponse.ok("ok");
+        });
+        // Two slots: one for the running delivery, one left for other entities
+        addon.scheduleWebhooksPerWorkspace(new WorkspaceScheduler(2, 2, 8, Duration.ofSeconds(5), Map.of()));
+        AddonServlet servlet = new AddonServlet(addon);
+
+        Thread first = post(servlet, "TIME_ENTRY_UPDATED", entryBody("te-1", "first"));
+        assertTrue(firstRunning.await(5, TimeUnit.SECONDS));
+        Thread sameEntity = post(servlet, "TIME_ENTRY_UPDATED", entryBody("te-1", "same-entity"));
+        awaitBlocked(sameEntity);
+
+        Dispatched other = dispatch(servlet, "TIME_ENTRY_UPDATED", entryBody("te-2", "other-entity"));
+        assertEquals(200, other.status(), "a delivery waiting on te-1's lock must not take the second slot");
+        assertEquals(List.of("other-entity"), handled);
+
+        releaseFirst.countDown();
+        first.join(5_000);
+        sameEntity.join(5_000);
+        assertEquals(List.of("other-entity", "first", "same-entity"), handled);
+    }
+
+    @Test
+    void schedulerAnswers429OnlyAfterTheSignatureCheck() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ClockifyAddon addon = new ClockifyAddon(manifest());
+        addon.registerWebhookHandler("TIME_ENTRY_UPDATED", request -> {
+            calls.incrementAndGet();
+            running.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return HttpResponse.ok("ok");
+        });
+        addon.scheduleWebhooksPerWorkspace(new WorkspaceScheduler(1, 1, 0, Duration.ZERO, Map.of()));
+        AddonServlet servlet = new AddonServlet(addon);
+
+        Thread busy = post(servlet, "TIME_ENTRY_UPDATED", entryBody("te-1", "busy"));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        try {
+            Dispatched forged = dispatch(servlet, "TIME_ENTRY_UPDATED", entryBody("te-2", "forged"), "sha256=00");
+            assertEquals(403, forged.status(), "unverified deliveries are refused before they are scheduled");
+
+            Dispatched overloaded = dispatch(servlet, "TIME_ENTRY_UPDATED", entryBody("te-2", "overloaded"));
+            assertEquals(429, overloaded.status());
+            assertTrue(overloaded.headers().containsKey("Retry-After"));
+            assertEquals(1, calls.get(), "rejected deliveries never reach the handler");
+        } finally {
+            release.countDown();
+            busy.join(5_000);
+        }
+    }
+
+    @Test
+    void burstForOneEntityIsCoalescedToTheNewestDelivery() throws Exception {
+        List<String> handled = new CopyOnWriteArrayList<>();
+        ClockifyAddon addon = new ClockifyAddon(manifest());
+        addon.registerWebhookHandler("TIME_ENTRY_UPDATED", request -> {
+            handled.add(OBJECT_MAPPER.readTree((String) request.getAttribute("clockify.rawBody")).path("n").asText());
+            return HttpResponse.ok("ok");
+        });
+        addon.coalesceWebhooks(new WebhookCoalescer(Set.of("TIME_ENTRY_UPDATED"),
+                Duration.ofMillis(300), Duration.ofSeconds(2)));
+        AddonServlet servlet = new AddonServlet(addon);
+
+        Map<String, Dispatched> results = new ConcurrentHashMap<>();
+        Thread older = new Thread(() -> results.put("older", dispatchUnchecked(servlet, entryBody("te-1", "older"))));
+        older.start();
+        Thread.sleep(50);
+        Dispatched newer = dispatch(servlet, "TIME_ENTRY_UPDATED", entryBody("te-1", "newer"));
+        older.join(5_000);
+
+        assertEquals(200, newer.status());
+        assertEquals("ok", newer.body());
+        assertEquals(200, results.get("older").status());
+        assertTrue(results.get("older").body().contains("coalesced"));
+        assertEquals(List.of("newer"), handled);
+    }
+
+    @Test
+    void projectedHandlerGetsItsFieldsWithoutAFullParse() throws Exception {
+        Map<String, Object> seen = new ConcurrentHashMap<>();
+        ClockifyAddon addon = new ClockifyAddon(manifest());
+        addon.registerWebhookHandler("TIME_ENTRY_UPDATED", OrderingKey.byEntity(),
+                PayloadProjection.of("/timeEntry/description"), request -> {
+                    ProjectedPayload payload = ProjectedPayload.from(request).orElseThrow();
+                    seen.put("description", payload.text("/timeEntry/description"));
+                    seen.put("workspaceId", payload.text("/workspaceId"));
+                    seen.put("fullTree", request.getAttribute("clockify.jsonBody") != null);
+                    return HttpResponse.ok("ok");
+                });
+        addon.scheduleWebhooksPerWorkspace(new WorkspaceScheduler(1, 1, 1, Duration.ofSeconds(1), Map.of()));
+        AddonServlet servlet = new AddonServlet(addon);
+
+        String body = "{\"workspaceId\":\"ws-1\",\"timeEntry\":{\"id\":\"te-1\",\"description\":\"Review\","
+                + "\"tags\":[{\"id\":\"t1\",\"name\":\"unused\"}]}}";
+        Dispatched result = dispatch(servlet, "TIME_ENTRY_UPDATED", body);
+
+        assertEquals(200, result.status());
+        assertEquals("Review", seen.get("description"));
+        assertEquals("ws-1", seen.get("workspaceId"), "routing fields are projected for scheduling and ordering");
+        assertFalse((Boolean) seen.get("fullTree"));
+    }
+
+    private record Dispatched(int status, String body, Map<String, String> headers) {
+    }
+
+    private static ClockifyManifest manifest() {
+        return ClockifyManifest.v1_3Builder()
+                .key("auto-tag-assistant")
+                .name("Auto-Tag Assistant")
+                .description("Test manifest")
+                .baseUrl("http://localhost/auto-tag-assistant")
+                .minimalSubscriptionPlan("FREE")
+                .scopes(new String[]{"TIME_ENTRY_READ"})
+                .build();
+    }
+
+    private static String entryBody(String entryId, String marker) {
+        return "{\"workspaceId\":\"ws-1\",\"n\":\"" + marker + "\",\"timeEntry\":{\"id\":\"" + entryId + "\"}}";
+    }
+
+    private static Dispatched dispatch(AddonServlet servlet, String event, String body) throws Exception {
+        return dispatch(servlet, event, body, WebhookSignatureValidator.computeSignature(INSTALL_TOKEN, body));
+    }
+
+    private static Dispatched dispatchUnchecked(AddonServlet servlet, String body) {
+        try {
+            return dispatch(servlet, "TIME_ENTRY_UPDATED", body);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Calls the servlet directly, bypassing the filter chain, with a mocked request and response. */
+    private static Dispatched dispatch(AddonServlet servlet, String event, String body, String signature)
+            throws Exception {
+        Map<String, Object> attributes = new ConcurrentHashMap<>();
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getPathInfo()).thenReturn("/webhook");
+        when(request.getHeader("clockify-webhook-event-type")).thenReturn(event);
+        when(request.getHeader(WebhookSignatureValidator.SIGNATURE_HEADER)).thenReturn(signature);
+        when(request.getReader()).thenAnswer(inv -> new BufferedReader(new StringReader(body)));
+        when(request.getAttribute(anyString())).thenAnswer(inv -> attributes.get(inv.<String>getArgument(0)));
+        doAnswer(inv -> attributes.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(request).setAttribute(anyString(), any());
+
+        Map<String, String> headers = new ConcurrentHashMap<>();
+        int[] status = {0};
+        StringWriter out = new StringWriter();
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        doAnswer(inv -> status[0] = inv.getArgument(0)).when(response).setStatus(anyInt());
+        doAnswer(inv -> headers.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(response).setHeader(anyString(), anyString());
+        when(response.getWriter()).thenReturn(new PrintWriter(out, true));
+
+        servlet.service(request, response);
+        return new Dispatched(status[0], out.toString(), headers);
+    }
+
+    private static Thread post(AddonServlet servlet, String event, String body) {
+        Thread thread = new Thread(() -> {
+            try {
+                dispatch(servlet, event, body);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("thread never blocked: " + thread.getState());
+            }
+            Thread.sleep(10);
+        }
+    }
+
     private static HttpURLConnection openWebhookConnection(String url) throws IOException {
         HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
         connection.setRequestMethod("POST");
@@ -56,7 +56,6 @@ class DefaultManifestControllerTest {
         ClockifyAddon addon = new ClockifyAddon(manifest);
         DefaultManifestController controller = new DefaultManifestController(
                 addon.getManifest(),
-                new ObjectMapper(),
                 new BaseUrlDetector()
         );
 
@@ -0,0 +1,120 @@
+package com.clockify.addon.sdk.benchmarks;
+
+import com.clockify.addon.sdk.middleware.*;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the per-request cost of the EmbeddedServer filter stack.
+ *
+ * Compares the default layout (one chain hop per filter, as the container runs them) with
+ * {@link FilterPipeline}, which walks a precomputed per-route plan, for a webhook delivery and
+ * a UI request.
+ *
+ * Run with: mvn test -Dtest=FilterPipelineBenchmark -pl addons/addon-sdk
+ * Or: java -jar target/benchmarks.jar FilterPipelineBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 2, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class FilterPipelineBenchmark {
+
+    private List<Filter> stages;
+    private FilterPipeline pipeline;
+
+    private HttpServletRequest webhookRequest;
+    private HttpServletRequest uiRequest;
+    private HttpServletResponse mockResponse;
+    private FilterChain servlet;
+
+    @Setup
+    public void setup() {
+        stages = List.of(
+                new DiagnosticContextFilter(),
+                new CriticalEndpointRateLimiter(false),
+                new RequestSizeLimitFilter(10L),
+                new CsrfProtectionFilter(),
+                new ScopedPlatformAuthFilter((req, res, next) -> next.doFilter(req, res),
+                        Set.of("/status"), List.of("/api")));
+        pipeline = new FilterPipeline(stages);
+
+        webhookRequest = request("POST", "/webhook");
+        Mockito.when(webhookRequest.getHeader("clockify-webhook-signature")).thenReturn("sig");
+        uiRequest = request("GET", "/settings");
+        mockResponse = Mockito.mock(HttpServletResponse.class);
+        servlet = (req, res) -> { };
+    }
+
+    @Benchmark
+    public void separateFiltersWebhook(Blackhole bh) throws Exception {
+        new SeparateChain(stages, servlet).doFilter(webhookRequest, mockResponse);
+        bh.consume(mockResponse);
+    }
+
+    @Benchmark
+    public void fusedPipelineWebhook(Blackhole bh) throws Exception {
+        pipeline.doFilter(webhookRequest, mockResponse, servlet);
+        bh.consume(mockResponse);
+    }
+
+    @Benchmark
+    public void separateFiltersUi(Blackhole bh) throws Exception {
+        new SeparateChain(stages, servlet).doFilter(uiRequest, mockResponse);
+        bh.consume(mockResponse);
+    }
+
+    @Benchmark
+    public void fusedPipelineUi(Blackhole bh) throws Exception {
+        pipeline.doFilter(uiRequest, mockResponse, servlet);
+        bh.consume(mockResponse);
+    }
+
+    private static HttpServletRequest request(String method, String uri) {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getMethod()).thenReturn(method);
+        Mockito.when(request.getRequestURI()).thenReturn(uri);
+        Mockito.when(request.getContextPath()).thenReturn("");
+        Mockito.when(request.getRemoteAddr()).thenReturn("192.168.1.100");
+        Mockito.when(request.getHeader("Content-Type")).thenReturn("application/json");
+        Mockito.when(request.getScheme()).thenReturn("https");
+        Mockito.when(request.isSecure()).thenReturn(true);
+        return request;
+    }
+
+    /** Every filter invoked through its own chain hop, like one container FilterHolder each. */
+    private static final class SeparateChain implements FilterChain {
+        private final List<Filter> filters;
+        private final FilterChain servlet;
+        private int next;
+
+        SeparateChain(List<Filter> filters, FilterChain servlet) {
+            this.filters = filters;
+            this.servlet = servlet;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+            if (next < filters.size()) {
+                filters.get(next++).doFilter(request, response, this);
+            } else {
+                servlet.doFilter(request, response);
+            }
+        }
+    }
+}
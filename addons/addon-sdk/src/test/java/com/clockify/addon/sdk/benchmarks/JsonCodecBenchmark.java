@@ -0,0 +1,85 @@
+package com.clockify.addon.sdk.benchmarks;
+
+import com.clockify.addon.sdk.error.ErrorResponse;
+import com.clockify.addon.sdk.security.TokenStore;
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for binding the SDK's own types through {@link JsonCodec}.
+ *
+ * Compares three ways of reading a persisted {@code WorkspaceToken} and writing an
+ * {@code ErrorResponse}: a mapper created on the spot (what a class pays the first time
+ * its private mapper is used), a long-lived mapper with {@code readValue(json, type)}, and
+ * the codec's precompiled reader/writer. Run with {@code -prof gc} to compare allocation.
+ *
+ * Run with: mvn test -Dtest=JsonCodecBenchmark -pl addons/addon-sdk
+ * Or: java -jar target/benchmarks.jar JsonCodecBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 2, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class JsonCodecBenchmark {
+
+    private ObjectMapper mapper;
+    private ObjectReader tokenReader;
+    private ObjectWriter errorWriter;
+    private String tokenJson;
+    private ErrorResponse error;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = new ObjectMapper();
+        tokenReader = JsonCodec.readerFor(TokenStore.WorkspaceToken.class);
+        errorWriter = JsonCodec.writerFor(ErrorResponse.class);
+        tokenJson = mapper.writeValueAsString(new TokenStore.WorkspaceToken(
+                "eyJhbGciOiJSUzI1NiJ9.installation-token", "https://api.clockify.me/api/v1",
+                1736500000000L, 1736586400000L, 1736500000000L));
+        error = ErrorResponse.authorizationError("Workspace token rejected");
+    }
+
+    /**
+     * A fresh mapper per call: every cache cold, as for each class-private mapper on first use.
+     */
+    @Benchmark
+    public void readTokenWithNewMapper(Blackhole bh) throws Exception {
+        bh.consume(new ObjectMapper().readValue(tokenJson, TokenStore.WorkspaceToken.class));
+    }
+
+    /**
+     * Warm mapper, but the root deserializer is looked up on every call.
+     */
+    @Benchmark
+    public void readTokenWithMapper(Blackhole bh) throws Exception {
+        bh.consume(mapper.readValue(tokenJson, TokenStore.WorkspaceToken.class));
+    }
+
+    @Benchmark
+    public void readTokenWithCodecReader(Blackhole bh) throws Exception {
+        bh.consume(tokenReader.<TokenStore.WorkspaceToken>readValue(tokenJson));
+    }
+
+    @Benchmark
+    public void writeErrorWithNewMapper(Blackhole bh) throws Exception {
+        bh.consume(new ObjectMapper().writeValueAsString(error));
+    }
+
+    @Benchmark
+    public void writeErrorWithMapper(Blackhole bh) throws Exception {
+        bh.consume(mapper.writeValueAsString(error));
+    }
+
+    @Benchmark
+    public void writeErrorWithCodecWriter(Blackhole bh) throws Exception {
+        bh.consume(errorWriter.writeValueAsString(error));
+    }
+}
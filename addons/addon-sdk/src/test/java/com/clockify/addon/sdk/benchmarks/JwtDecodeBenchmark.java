@@ -0,0 +1,107 @@
+package com.clockify.addon.sdk.benchmarks;
+
+import com.clockify.addon.sdk.security.jwt.CompactJwt;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the shared {@link CompactJwt} decoder against the previous split/tree approach.
+ *
+ * "decode" benchmarks isolate parsing (header + claims); "verify" benchmarks add the RS256
+ * signature check, which dominates end-to-end cost but shows the remaining parsing overhead.
+ * Run with -prof gc to compare allocation rates.
+ *
+ * Run with: mvn test -Dtest=JwtDecodeBenchmark -pl addons/addon-sdk
+ * Or: java -jar target/benchmarks.jar JwtDecodeBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 2, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class JwtDecodeBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private KeyPair keyPair;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+
+        long now = Instant.now().getEpochSecond();
+        String header = b64("{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"k1\"}");
+        String payload = b64("{\"iss\":\"clockify\",\"type\":\"addon\",\"sub\":\"rules\",\"aud\":\"rules\","
+                + "\"workspaceId\":\"5f1a2b3c4d5e6f7a8b9c0d1e\",\"user\":\"5f1a2b3c4d5e6f7a8b9c0d1f\","
+                + "\"backendUrl\":\"https://api.clockify.me/api\",\"language\":\"en\",\"theme\":\"DEFAULT\","
+                + "\"iat\":" + now + ",\"exp\":" + (now + 1800) + "}");
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(keyPair.getPrivate());
+        signer.update((header + "." + payload).getBytes(StandardCharsets.US_ASCII));
+        token = header + "." + payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signer.sign());
+    }
+
+    @Benchmark
+    public void decodeLegacySplitAndTrees(Blackhole bh) throws Exception {
+        String[] parts = token.split("\\.");
+        JsonNode header = mapper.readTree(new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8));
+        JsonNode payload = mapper.readTree(new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8));
+        bh.consume(header.path("alg").asText(null));
+        bh.consume(header.path("kid").asText(null));
+        bh.consume(payload.path("iss").asText(null));
+        bh.consume(payload.path("exp").asLong());
+        bh.consume(payload.path("workspaceId").asText(null));
+    }
+
+    @Benchmark
+    public void decodeCompactStreaming(Blackhole bh) throws Exception {
+        CompactJwt jwt = CompactJwt.parse(token);
+        CompactJwt.Header header = jwt.header();
+        CompactJwt.Claims claims = jwt.claims();
+        bh.consume(header.alg());
+        bh.consume(header.kid());
+        bh.consume(claims.issuer());
+        bh.consume(claims.expiresAt());
+        bh.consume(claims.workspaceId());
+    }
+
+    @Benchmark
+    public boolean verifyLegacy() throws Exception {
+        String[] parts = token.split("\\.");
+        mapper.readTree(Base64.getUrlDecoder().decode(parts[0]));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(keyPair.getPublic());
+        signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+        boolean ok = signature.verify(Base64.getUrlDecoder().decode(parts[2]));
+        mapper.readTree(Base64.getUrlDecoder().decode(parts[1]));
+        return ok;
+    }
+
+    @Benchmark
+    public boolean verifyCompact() throws Exception {
+        CompactJwt jwt = CompactJwt.parse(token);
+        jwt.header();
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(keyPair.getPublic());
+        boolean ok = jwt.verify(signature);
+        jwt.claims();
+        return ok;
+    }
+
+    private static String b64(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
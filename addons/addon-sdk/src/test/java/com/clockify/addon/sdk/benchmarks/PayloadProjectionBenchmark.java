@@ -0,0 +1,109 @@
+package com.clockify.addon.sdk.benchmarks;
+
+import com.clockify.addon.sdk.webhook.PayloadProjection;
+import com.clockify.addon.sdk.webhook.ProjectedPayload;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for reading the handful of fields a webhook handler needs.
+ *
+ * Compares a full {@code readTree} followed by field lookups with a streaming
+ * {@link PayloadProjection} of the same fields, on a TIME_ENTRY_UPDATED payload
+ * with {@code customFields} custom field values (0 is a minimal entry, 200 a
+ * heavily customised workspace). Run with {@code -prof gc} to compare allocation.
+ *
+ * Run with: mvn test -Dtest=PayloadProjectionBenchmark -pl addons/addon-sdk
+ * Or: java -jar target/benchmarks.jar PayloadProjectionBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 2, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class PayloadProjectionBenchmark {
+
+    @Param({"0", "20", "200"})
+    public int customFields;
+
+    private ObjectMapper mapper;
+    private PayloadProjection projection;
+    private String payload;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = new ObjectMapper();
+        projection = PayloadProjection.ROUTING.and(PayloadProjection.of(
+                "/timeEntry/description", "/timeEntry/timeInterval", "/timeEntry/tagIds"));
+
+        ObjectNode root = mapper.createObjectNode();
+        root.put("workspaceId", "5e0d3c2f8c7b1a0012345678");
+        ObjectNode timeEntry = root.putObject("timeEntry");
+        timeEntry.put("id", "65a1f0c2d3e4f5a6b7c8d9e0");
+        timeEntry.put("description", "Sprint planning with the platform team");
+        timeEntry.put("userId", "5e0d3c2f8c7b1a0087654321");
+        timeEntry.put("billable", true);
+        timeEntry.put("projectId", "5f1e2d3c4b5a69788796a5b4");
+        timeEntry.put("taskId", "5f1e2d3c4b5a69788796a5c0");
+        ArrayNode tagIds = timeEntry.putArray("tagIds");
+        for (int i = 0; i < 4; i++) {
+            tagIds.add("tag-" + i);
+        }
+        ObjectNode interval = timeEntry.putObject("timeInterval");
+        interval.put("start", "2025-01-10T09:00:00Z");
+        interval.put("end", "2025-01-10T10:30:00Z");
+        interval.put("duration", "PT1H30M");
+        ArrayNode custom = timeEntry.putArray("customFieldValues");
+        for (int i = 0; i < customFields; i++) {
+            ObjectNode field = custom.addObject();
+            field.put("customFieldId", "cf-" + i);
+            field.put("timeEntryId", "65a1f0c2d3e4f5a6b7c8d9e0");
+            field.put("name", "Custom field " + i);
+            field.put("type", "TXT");
+            field.put("value", "Value " + i + " for a reasonably long custom field text");
+        }
+        ObjectNode project = timeEntry.putObject("project");
+        project.put("id", "5f1e2d3c4b5a69788796a5b4");
+        project.put("name", "Platform");
+        project.put("clientName", "Internal");
+        project.put("color", "#03A9F4");
+        timeEntry.putObject("hourlyRate").put("amount", 5000).put("currency", "USD");
+        root.put("event", "TIME_ENTRY_UPDATED");
+        payload = mapper.writeValueAsString(root);
+    }
+
+    /**
+     * Baseline: what AddonServlet does for every webhook without a projection.
+     */
+    @Benchmark
+    public void fullTree(Blackhole bh) throws Exception {
+        JsonNode tree = mapper.readTree(payload);
+        JsonNode timeEntry = tree.path("timeEntry");
+        bh.consume(tree.path("workspaceId").asText());
+        bh.consume(timeEntry.path("id").asText());
+        bh.consume(timeEntry.path("description").asText());
+        bh.consume(timeEntry.path("timeInterval"));
+        bh.consume(timeEntry.path("tagIds"));
+    }
+
+    /**
+     * Streaming extraction of the same fields, including the routing view the servlet builds.
+     */
+    @Benchmark
+    public void projected(Blackhole bh) throws Exception {
+        ProjectedPayload projected = projection.extract(payload);
+        bh.consume(projected.view());
+        bh.consume(projected.text("/workspaceId"));
+        bh.consume(projected.text("/timeEntry/id"));
+        bh.consume(projected.text("/timeEntry/description"));
+        bh.consume(projected.get("/timeEntry/timeInterval"));
+        bh.consume(projected.get("/timeEntry/tagIds"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.clockify.addon.sdk.benchmarks;
+
+import com.clockify.addon.sdk.ratelimit.StripedTokenBucketLimiter;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH contention benchmark for per-key rate limiting at 64 threads.
+ *
+ * Compares the lock-free {@link StripedTokenBucketLimiter} with the Guava
+ * {@code LoadingCache<String, RateLimiter>} setup the middleware used before:
+ * - hotKey: every thread hammers one identifier (one bucket, mostly rejections)
+ * - spreadKeys: threads pick from 4096 identifiers (cache lookups dominate)
+ *
+ * Run with: mvn test -Dtest=RateLimiterContentionBenchmark -pl addons/addon-sdk
+ * Or: java -jar target/benchmarks.jar RateLimiterContentionBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(64)
+@Fork(value = 2, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class RateLimiterContentionBenchmark {
+
+    private static final int KEY_COUNT = 4096;
+
+    private StripedTokenBucketLimiter striped;
+    private LoadingCache<String, com.google.common.util.concurrent.RateLimiter> guava;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        striped = new StripedTokenBucketLimiter(100.0, 100.0, Duration.ofMinutes(5), 10000);
+        guava = CacheBuilder.newBuilder()
+                .expireAfterAccess(5, TimeUnit.MINUTES)
+                .maximumSize(10000)
+                .build(new CacheLoader<>() {
+                    @Override
+                    public com.google.common.util.concurrent.RateLimiter load(String key) {
+                        return com.google.common.util.concurrent.RateLimiter.create(100.0);
+                    }
+                });
+        keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public boolean stripedHotKey() {
+        return striped.tryAcquire("203.0.113.7");
+    }
+
+    @Benchmark
+    public boolean guavaHotKey() {
+        return guava.getUnchecked("203.0.113.7").tryAcquire();
+    }
+
+    @Benchmark
+    public boolean stripedSpreadKeys() {
+        return striped.tryAcquire(keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)]);
+    }
+
+    @Benchmark
+    public boolean guavaSpreadKeys() {
+        return guava.getUnchecked(keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)]).tryAcquire();
+    }
+}
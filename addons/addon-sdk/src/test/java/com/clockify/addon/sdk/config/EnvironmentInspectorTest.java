@@ -11,6 +11,7 @@ class EnvironmentInspectorTest {
     void reset() {
         System.clearProperty("ENV");
         System.clearProperty("TEST_FLAG");
+        System.clearProperty("TEST_SETTING");
     }
 
     @Test
@@ -34,4 +35,28 @@ class EnvironmentInspectorTest {
         System.setProperty("TEST_FLAG", "false");
         assertFalse(EnvironmentInspector.booleanFlag("TEST_FLAG"));
     }
+
+    @Test
+    void blankSettingCountsAsUnset() {
+        System.setProperty("TEST_SETTING", "  ");
+        assertNull(EnvironmentInspector.setting("TEST_SETTING"));
+        assertEquals(7, EnvironmentInspector.longSetting("TEST_SETTING", 7));
+    }
+
+    @Test
+    void numericSettingsFallBackToTheDefaultUnlessPositive() {
+        System.setProperty("TEST_SETTING", " 42 ");
+        assertEquals(42, EnvironmentInspector.longSetting("TEST_SETTING", 7));
+        assertEquals(42, EnvironmentInspector.intSetting("TEST_SETTING", 7));
+        assertEquals(42.0, EnvironmentInspector.doubleSetting("TEST_SETTING", 0.5));
+
+        for (String invalid : new String[]{"0", "-3", "lots"}) {
+            System.setProperty("TEST_SETTING", invalid);
+            assertEquals(7, EnvironmentInspector.longSetting("TEST_SETTING", 7), invalid);
+            assertEquals(0.5, EnvironmentInspector.doubleSetting("TEST_SETTING", 0.5), invalid);
+        }
+
+        System.setProperty("TEST_SETTING", "99999999999");
+        assertEquals(Integer.MAX_VALUE, EnvironmentInspector.intSetting("TEST_SETTING", 7));
+    }
 }
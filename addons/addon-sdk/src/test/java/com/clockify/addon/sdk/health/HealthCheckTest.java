@@ -0,0 +1,103 @@
+package com.clockify.addon.sdk.health;
+
+import com.clockify.addon.sdk.HttpResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class HealthCheckTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServletRequest request = mock(HttpServletRequest.class);
+    private HealthCheck health;
+
+    @AfterEach
+    void stop() {
+        if (health != null) {
+            health.stop();
+        }
+    }
+
+    @Test
+    void servesCachedSnapshotInsteadOfRunningChecksPerRequest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        health = new HealthCheck("test", "1.0", Duration.ofHours(1), Duration.ofSeconds(2));
+        health.addHealthCheckProvider(provider("db", () -> {
+            calls.incrementAndGet();
+            return new HealthCheck.HealthCheckResult("db", true, "ok");
+        }));
+
+        for (int i = 0; i < 5; i++) {
+            HttpResponse response = health.handle(request);
+            assertEquals(200, response.getStatusCode());
+            JsonNode body = MAPPER.readTree(response.getBody());
+            assertEquals("UP", body.get("status").asText());
+            assertEquals("UP", body.path("checks").path("db").path("status").asText());
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void slowProviderIsReportedDownAfterTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        health = new HealthCheck("test", "1.0", Duration.ofHours(1), Duration.ofMillis(100));
+        health.addHealthCheckProvider(provider("fast", () -> new HealthCheck.HealthCheckResult("fast", true)));
+        health.addHealthCheckProvider(provider("slow", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new HealthCheck.HealthCheckResult("slow", true);
+        }));
+
+        long start = System.nanoTime();
+        JsonNode body = MAPPER.readTree(health.handle(request).getBody());
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        assertEquals("DEGRADED", body.get("status").asText());
+        assertEquals("UP", body.path("checks").path("fast").path("status").asText());
+        assertEquals("DOWN", body.path("checks").path("slow").path("status").asText());
+        release.countDown();
+    }
+
+    @Test
+    void readinessReflectsWarmUpAndProviderState() throws Exception {
+        AtomicInteger healthy = new AtomicInteger(0);
+        health = new HealthCheck("test", "1.0", Duration.ofHours(1), Duration.ofSeconds(1));
+        health.addHealthCheckProvider(provider("db", () -> new HealthCheck.HealthCheckResult("db", healthy.get() == 1)));
+
+        var ready = health.readinessHandler();
+        health.refresh();
+        assertEquals(503, ready.handle(request).getStatusCode());
+
+        healthy.set(1);
+        health.refresh();
+        HttpResponse response = ready.handle(request);
+        assertEquals(200, response.getStatusCode());
+        assertTrue(health.isReady());
+    }
+
+    private static HealthCheck.HealthCheckProvider provider(String name, java.util.function.Supplier<HealthCheck.HealthCheckResult> check) {
+        return new HealthCheck.HealthCheckProvider() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public HealthCheck.HealthCheckResult check() {
+                return check.get();
+            }
+        };
+    }
+}
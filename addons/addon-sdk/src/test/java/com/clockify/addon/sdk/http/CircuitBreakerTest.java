@@ -0,0 +1,105 @@
+package com.clockify.addon.sdk.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker(10, 4, 0.5, Duration.ofSeconds(30), 1, now::get);
+    }
+
+    @Test
+    void staysClosedUntilMinimumCallsRecorded() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThresholdAndFailsFast() {
+        CircuitBreaker breaker = breaker();
+        breaker.tryAcquirePermission();
+        breaker.onSuccess();
+        breaker.tryAcquirePermission();
+        breaker.onSuccess();
+        breaker.tryAcquirePermission();
+        breaker.onFailure();
+        breaker.tryAcquirePermission();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void halfOpenAdmitsSingleProbeAndClosesOnSuccess() {
+        CircuitBreaker breaker = tripped();
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquirePermission(), "only one probe while half-open");
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0.0, breaker.failureRate());
+    }
+
+    @Test
+    void failedProbeReopens() {
+        CircuitBreaker breaker = tripped();
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void releasedProbeCanBeRetaken() {
+        CircuitBreaker breaker = tripped();
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.releasePermission();
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void slidingWindowForgetsOldFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.75, Duration.ofSeconds(30), 1, now::get);
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertEquals(0.25, breaker.failureRate());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    private CircuitBreaker tripped() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquirePermission();
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        return breaker;
+    }
+}
@@ -12,6 +12,10 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -465,4 +469,35 @@ class ClockifyHttpClientTest {
         assertEquals(201, postResp.statusCode());
         assertEquals(204, deleteResp.statusCode());
     }
+
+    // ============ Quota and Guard ============
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void waitingForAWorkspaceQuotaHoldsNoBreakerPermission() throws Exception {
+        server.addMockResponse("GET", "/api/v1/workspaces/ws-2/tags", 200, "[]");
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, 0.5, Duration.ofMillis(1), 1);
+        breaker.onFailure();
+        Thread.sleep(5); // next permission is the single half-open probe
+        OutboundCallGuard guard = new OutboundCallGuard("127.0.0.1", breaker,
+                new AdaptiveConcurrencyLimiter(4, 1, 10, 0.5, Duration.ofSeconds(5)));
+        WorkspaceQuotaScheduler quota = new WorkspaceQuotaScheduler(1, 1, Duration.ofMillis(500));
+        quota.throttled("ws-1", Duration.ofSeconds(10));
+        ClockifyHttpClient paced = new ClockifyHttpClient(server.getUrl(), Duration.ofSeconds(5), 0, guard, quota);
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<HttpResponse<String>> paused = caller.submit(
+                    () -> paced.get("/api/v1/workspaces/ws-1/tags", ADDON_TOKEN, null));
+            while (quota.queued() == 0) {
+                Thread.sleep(5);
+            }
+
+            assertEquals(200, paced.get("/api/v1/workspaces/ws-2/tags", ADDON_TOKEN, null).statusCode());
+            ExecutionException e = assertThrows(ExecutionException.class, paused::get);
+            assertInstanceOf(OutboundCallRejectedException.class, e.getCause());
+        } finally {
+            caller.shutdownNow();
+        }
+    }
 }
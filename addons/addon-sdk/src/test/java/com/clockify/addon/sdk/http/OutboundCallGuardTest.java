@@ -0,0 +1,108 @@
+package com.clockify.addon.sdk.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboundCallGuardTest {
+
+    private static OutboundCallGuard guard(int minimumCalls, int concurrency) {
+        return new OutboundCallGuard("api.test",
+                new CircuitBreaker(10, minimumCalls, 0.5, Duration.ofMinutes(1), 1),
+                new AdaptiveConcurrencyLimiter(concurrency, 1, 10, 0.5, Duration.ofSeconds(5)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<String> response(int status) {
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        return response;
+    }
+
+    @Test
+    void sharedGuardIsKeyedByAuthority() {
+        OutboundCallGuard a = OutboundCallGuard.forUri(URI.create("https://API.example.com/v1/workspaces"));
+        OutboundCallGuard b = OutboundCallGuard.forUri(URI.create("https://api.example.com/v1/tags"));
+        OutboundCallGuard c = OutboundCallGuard.forUri(URI.create("https://api.example.com:8443/v1"));
+
+        assertSame(a, b);
+        assertTrue(a != c);
+    }
+
+    @Test
+    void serverErrorsTripBreakerAndSubsequentCallsFailFast() throws Exception {
+        OutboundCallGuard guard = guard(2, 5);
+        guard.execute(() -> response(503));
+        guard.execute(() -> response(500));
+
+        OutboundCallRejectedException ex = assertThrows(OutboundCallRejectedException.class,
+                () -> guard.execute(() -> response(200)));
+        assertEquals(OutboundCallRejectedException.REASON_CIRCUIT_OPEN, ex.reason());
+        assertEquals(0, guard.limiter().inFlight());
+    }
+
+    @Test
+    void throttlingDoesNotCountAsFailureButShrinksLimit() throws Exception {
+        OutboundCallGuard guard = guard(2, 8);
+        guard.execute(() -> response(429));
+        guard.execute(() -> response(429));
+
+        assertEquals(CircuitBreaker.State.CLOSED, guard.breaker().state());
+        assertEquals(2, guard.limiter().limit());
+    }
+
+    @Test
+    void transportErrorsCountAsFailures() {
+        OutboundCallGuard guard = guard(1, 5);
+        assertThrows(IOException.class, () -> guard.execute(() -> {
+            throw new IOException("connection reset");
+        }));
+        assertEquals(CircuitBreaker.State.OPEN, guard.breaker().state());
+    }
+
+    @Test
+    void saturatedLimiterRejectsWithoutTouchingBreaker() throws Exception {
+        OutboundCallGuard guard = guard(1, 1);
+        OutboundCallGuard.Call held = guard.begin();
+        held.startAttempt();
+
+        OutboundCallRejectedException ex = assertThrows(OutboundCallRejectedException.class,
+                () -> guard.execute(() -> response(200)));
+        assertEquals(OutboundCallRejectedException.REASON_CONCURRENCY_LIMIT, ex.reason());
+        assertEquals(CircuitBreaker.State.CLOSED, guard.breaker().state());
+
+        held.attemptSucceeded();
+        held.complete(true);
+        assertEquals(200, guard.execute(() -> response(200)).statusCode());
+    }
+
+    @Test
+    void limiterGrowsAdditivelyUnderLoadAndHalvesOnDrop() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 0.5, Duration.ofSeconds(1));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertTrue(!limiter.tryAcquire());
+
+        limiter.onSuccess(Duration.ofMillis(10).toNanos());
+        assertEquals(5, limiter.limit());
+
+        limiter.onSuccess(Duration.ofSeconds(2).toNanos());
+        assertEquals(2, limiter.limit(), "slow call counts as a drop");
+
+        limiter.onDropped();
+        limiter.onIgnored();
+        assertEquals(1, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+}
@@ -0,0 +1,116 @@
+package com.clockify.addon.sdk.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagedListIteratorTest {
+    private static final Pattern PAGING = Pattern.compile("page=(\\d+)&page-size=(\\d+)");
+
+    private HttpServer server;
+    private ClockifyHttpClient client;
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+    private volatile int total;
+    private volatile int failPage = -1;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/workspaces/ws-1/time-entries", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            queries.add(query);
+            Matcher m = PAGING.matcher(query);
+            m.find();
+            int page = Integer.parseInt(m.group(1));
+            int size = Integer.parseInt(m.group(2));
+            int status = 200;
+            StringBuilder body = new StringBuilder("[");
+            if (page == failPage) {
+                status = 403;
+                body = new StringBuilder("{\"message\":\"forbidden\"");
+            } else {
+                for (int i = (page - 1) * size; i < Math.min(page * size, total); i++) {
+                    if (body.length() > 1) body.append(',');
+                    body.append("{\"id\":\"te-").append(i).append("\",\"tags\":[{\"n\":1}]}");
+                }
+            }
+            byte[] bytes = body.append(status == 200 ? "]" : "}").toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        client = new ClockifyHttpClient("http://127.0.0.1:" + server.getAddress().getPort(), Duration.ofSeconds(5), 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void iteratesEveryElementAcrossPagesInOrder() {
+        total = 7;
+        List<String> ids = new ArrayList<>();
+        try (PagedListIterator entries = client.streamList("/workspaces/ws-1/time-entries?userId=u1", "token", Map.of(), 3)) {
+            entries.forEachRemaining(e -> ids.add(e.path("id").asText()));
+        }
+
+        assertEquals(List.of("te-0", "te-1", "te-2", "te-3", "te-4", "te-5", "te-6"), ids);
+        assertEquals(List.of("userId=u1&page=1&page-size=3", "userId=u1&page=2&page-size=3",
+                "userId=u1&page=3&page-size=3"), queries);
+    }
+
+    @Test
+    void anEmptyPageEndsAListThatFillsItsLastPage() {
+        total = 4;
+        int count = 0;
+        try (PagedListIterator entries = client.streamList("/workspaces/ws-1/time-entries", "token", Map.of(), 2)) {
+            while (entries.hasNext()) {
+                JsonNode entry = entries.next();
+                assertEquals(1, entry.path("tags").size());
+                count++;
+            }
+            assertFalse(entries.hasNext());
+        }
+
+        assertEquals(4, count);
+        assertEquals(3, queries.size());
+    }
+
+    @Test
+    void errorStatusSurfacesWhenThePageIsReached() {
+        total = 10;
+        failPage = 2;
+        PagedListIterator entries = client.streamList("/workspaces/ws-1/time-entries", "token", Map.of(), 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(entries.hasNext());
+            entries.next();
+        }
+
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, entries::hasNext);
+        assertTrue(e.getMessage().contains("403"), e.getMessage());
+        assertTrue(e.getMessage().contains("forbidden"), e.getMessage());
+        assertFalse(entries.hasNext());
+    }
+}
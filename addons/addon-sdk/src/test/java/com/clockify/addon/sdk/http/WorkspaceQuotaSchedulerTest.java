@@ -0,0 +1,106 @@
+package com.clockify.addon.sdk.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkspaceQuotaSchedulerTest {
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void pacesCallsOnceTheBurstIsSpent() throws Exception {
+        WorkspaceQuotaScheduler quota = new WorkspaceQuotaScheduler(20, 2, Duration.ofSeconds(5));
+        long start = System.nanoTime();
+        quota.acquire("ws-1", WorkspaceQuotaScheduler.Priority.BACKGROUND);
+        quota.acquire("ws-1", WorkspaceQuotaScheduler.Priority.BACKGROUND);
+        assertTrue(elapsedMs(start) < 40, "burst should not wait");
+
+        quota.acquire("ws-1", WorkspaceQuotaScheduler.Priority.BACKGROUND);
+        assertTrue(elapsedMs(start) >= 40, "third call should wait for a refill");
+
+        long other = System.nanoTime();
+        quota.acquire("ws-2", WorkspaceQuotaScheduler.Priority.BACKGROUND);
+        assertTrue(elapsedMs(other) < 40, "workspaces have separate buckets");
+    }
+
+    @Test
+    void waitingWritesGoBeforeWaitingReads() throws Exception {
+        WorkspaceQuotaScheduler quota = new WorkspaceQuotaScheduler(10, 1, Duration.ofSeconds(5));
+        quota.acquire("ws-1", WorkspaceQuotaScheduler.Priority.BACKGROUND);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Future<?> read = pool.submit(() -> acquire(quota, WorkspaceQuotaScheduler.Priority.BACKGROUND, order));
+        awaitQueued(quota, 1);
+        Future<?> write = pool.submit(() -> acquire(quota, WorkspaceQuotaScheduler.Priority.URGENT, order));
+        awaitQueued(quota, 2);
+
+        read.get(5, TimeUnit.SECONDS);
+        write.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("URGENT", "BACKGROUND"), order);
+    }
+
+    @Test
+    void throttledWorkspacePausesForRetryAfter() throws Exception {
+        WorkspaceQuotaScheduler quota = new WorkspaceQuotaScheduler(50, 50, Duration.ofSeconds(5));
+        quota.throttled("ws-1", Duration.ofMillis(200));
+        long start = System.nanoTime();
+        quota.acquire("ws-1", WorkspaceQuotaScheduler.Priority.URGENT);
+        assertTrue(elapsedMs(start) >= 190, "should wait out the Retry-After");
+    }
+
+    @Test
+    void givesUpAfterMaxWait() throws Exception {
+        WorkspaceQuotaScheduler quota = new WorkspaceQuotaScheduler(1, 1, Duration.ofMillis(50));
+        quota.acquire("ws-1", WorkspaceQuotaScheduler.Priority.URGENT);
+        OutboundCallRejectedException e = assertThrows(OutboundCallRejectedException.class,
+                () -> quota.acquire("ws-1", WorkspaceQuotaScheduler.Priority.URGENT));
+        assertEquals(OutboundCallRejectedException.REASON_QUOTA_WAIT, e.reason());
+        assertEquals(0, quota.queued());
+    }
+
+    @Test
+    void extractsWorkspaceFromApiPaths() {
+        assertEquals("ws-1", WorkspaceQuotaScheduler.workspaceOf(URI.create("https://api.clockify.me/api/v1/workspaces/ws-1/tags")));
+        assertEquals("ws-2", WorkspaceQuotaScheduler.workspaceOf(URI.create("https://api.clockify.me/api/v1/workspaces/ws-2")));
+        assertNull(WorkspaceQuotaScheduler.workspaceOf(URI.create("https://api.clockify.me/api/v1/user")));
+        assertEquals(WorkspaceQuotaScheduler.Priority.URGENT, WorkspaceQuotaScheduler.Priority.of("PUT"));
+        assertEquals(WorkspaceQuotaScheduler.Priority.BACKGROUND, WorkspaceQuotaScheduler.Priority.of("GET"));
+    }
+
+    private static Void acquire(WorkspaceQuotaScheduler quota, WorkspaceQuotaScheduler.Priority priority,
+                                List<String> order) throws Exception {
+        quota.acquire("ws-1", priority);
+        order.add(priority.name());
+        return null;
+    }
+
+    private static void awaitQueued(WorkspaceQuotaScheduler quota, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (quota.queued() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(2);
+        }
+        assertEquals(expected, quota.queued());
+    }
+
+    private static long elapsedMs(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
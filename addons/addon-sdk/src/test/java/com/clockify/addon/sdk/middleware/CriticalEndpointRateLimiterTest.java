@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -44,4 +45,20 @@ class CriticalEndpointRateLimiterTest {
         assertTrue(sw.toString().contains("rate_limit_exceeded"));
         verify(chain, times(1)).doFilter(any(ServletRequest.class), any(ServletResponse.class));
     }
+
+    @Test
+    void malformedWorkspaceHintIsKeyedByClientIp() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRequestURI()).thenReturn("/webhook");
+        when(request.getRemoteAddr()).thenReturn("192.0.2.10");
+
+        when(request.getHeader("X-Workspace-Id")).thenReturn("x".repeat(65));
+        assertEquals("192.0.2.10", CriticalEndpointRateLimiter.getIdentifier(request));
+
+        HttpServletRequest wellFormed = mock(HttpServletRequest.class);
+        when(wellFormed.getRequestURI()).thenReturn("/webhook");
+        when(wellFormed.getRemoteAddr()).thenReturn("192.0.2.10");
+        when(wellFormed.getHeader("X-Workspace-Id")).thenReturn("5f1a2b3c4d5e6f7a8b9c0d1e");
+        assertEquals("5f1a2b3c4d5e6f7a8b9c0d1e", CriticalEndpointRateLimiter.getIdentifier(wellFormed));
+    }
 }
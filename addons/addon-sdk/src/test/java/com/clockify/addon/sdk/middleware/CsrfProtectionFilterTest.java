@@ -9,10 +9,17 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import com.clockify.addon.sdk.security.CsrfTokenSigner;
+import com.clockify.addon.sdk.security.jwt.AuthTokenVerifier;
+import com.clockify.addon.sdk.security.jwt.JwtVerifier;
+import com.clockify.addon.sdk.util.JsonCodec;
 import org.mockito.ArgumentCaptor;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -101,4 +108,132 @@ class CsrfProtectionFilterTest {
 
         verify(chain).doFilter(request, response);
     }
+
+    @Test
+    void statelessModeIssuesBoundTokenWithoutSession() throws Exception {
+        CsrfProtectionFilter stateless = new CsrfProtectionFilter("Lax", signer(), VERIFIER);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn("/settings");
+        when(request.getContextPath()).thenReturn("");
+        when(request.getParameter("auth_token")).thenReturn(jwt("ws-1", "user-1"));
+
+        stateless.doFilter(request, response, chain);
+
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(org.mockito.ArgumentMatchers.eq("X-CSRF-Token"), token.capture());
+        assertTrue(signer().verify(token.getValue(), "ws-1|user-1"));
+        verify(request, never()).getSession(true);
+        verify(request, never()).getSession();
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    void statelessModeValidatesSignatureBindingAndCookie() throws Exception {
+        CsrfProtectionFilter stateless = new CsrfProtectionFilter("Lax", signer(), VERIFIER);
+        String token = signer().issue("ws-1|user-1");
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRequestURI()).thenReturn("/api/settings");
+        when(request.getContextPath()).thenReturn("");
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt("ws-1", "user-1"));
+        when(request.getHeader("X-CSRF-Token")).thenReturn(token);
+        when(request.getCookies()).thenReturn(new Cookie[]{new Cookie("clockify-addon-csrf", token)});
+
+        stateless.doFilter(request, response, chain);
+        verify(chain).doFilter(request, response);
+
+        // same token presented with another workspace's JWT
+        HttpServletRequest other = mock(HttpServletRequest.class);
+        when(other.getMethod()).thenReturn("POST");
+        when(other.getRequestURI()).thenReturn("/api/settings");
+        when(other.getContextPath()).thenReturn("");
+        when(other.getRemoteAddr()).thenReturn("203.0.113.11");
+        when(other.getHeader("Authorization")).thenReturn("Bearer " + jwt("ws-2", "user-1"));
+        when(other.getHeader("X-CSRF-Token")).thenReturn(token);
+        HttpServletResponse otherResponse = mock(HttpServletResponse.class);
+        when(otherResponse.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+
+        stateless.doFilter(other, otherResponse, chain);
+        verify(otherResponse).setStatus(403);
+        verify(chain, never()).doFilter(other, otherResponse);
+    }
+
+    @Test
+    void statelessModeIssuesNoTokenForAnUnverifiedJwt() throws Exception {
+        CsrfProtectionFilter stateless = new CsrfProtectionFilter("Lax", signer(), VERIFIER);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn("/settings");
+        when(request.getContextPath()).thenReturn("");
+        when(request.getParameter("auth_token")).thenReturn(forged("ws-1", "user-1"));
+
+        stateless.doFilter(request, response, chain);
+
+        verify(response, never()).setHeader(org.mockito.ArgumentMatchers.eq("X-CSRF-Token"), anyString());
+        verify(response, never()).addCookie(any());
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    void statelessModeRequiresTheCookie() throws Exception {
+        CsrfProtectionFilter stateless = new CsrfProtectionFilter("Lax", signer(), VERIFIER);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRequestURI()).thenReturn("/api/settings");
+        when(request.getContextPath()).thenReturn("");
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt("ws-1", "user-1"));
+        when(request.getHeader("X-CSRF-Token")).thenReturn(signer().issue("ws-1|user-1"));
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+
+        stateless.doFilter(request, response, chain);
+
+        verify(response).setStatus(403);
+        verify(chain, never()).doFilter(request, response);
+    }
+
+    @Test
+    void statelessModeRejectsUnsafeRequestsWithoutAVerifiedPrincipal() throws Exception {
+        CsrfProtectionFilter stateless = new CsrfProtectionFilter("Lax", signer(), VERIFIER);
+        String token = signer().issue("");
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRequestURI()).thenReturn("/api/settings");
+        when(request.getContextPath()).thenReturn("");
+        when(request.getHeader("X-CSRF-Token")).thenReturn(token);
+        when(request.getCookies()).thenReturn(new Cookie[]{new Cookie("clockify-addon-csrf", token)});
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+
+        stateless.doFilter(request, response, chain);
+
+        verify(response).setStatus(403);
+        verify(chain, never()).doFilter(request, response);
+    }
+
+    /** Accepts tokens signed "sig"; anything else fails verification. */
+    private static final AuthTokenVerifier VERIFIER = token -> {
+        String[] parts = token.split("\\.");
+        if (parts.length != 3 || !"sig".equals(parts[2])) {
+            throw new JwtVerifier.JwtVerificationException("bad signature");
+        }
+        try {
+            return new JwtVerifier.DecodedJwt(
+                    JsonCodec.readTree(new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8)),
+                    JsonCodec.readTree(new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new JwtVerifier.JwtVerificationException("malformed", e);
+        }
+    };
+
+    private static CsrfTokenSigner signer() {
+        return new CsrfTokenSigner("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8), Duration.ofHours(1));
+    }
+
+    private static String jwt(String workspaceId, String user) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(("{\"workspaceId\":\"" + workspaceId + "\",\"user\":\"" + user + "\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".sig";
+    }
+
+    private static String forged(String workspaceId, String user) {
+        String jwt = jwt(workspaceId, user);
+        return jwt.substring(0, jwt.lastIndexOf('.')) + ".forged";
+    }
 }
@@ -0,0 +1,85 @@
+package com.clockify.addon.sdk.middleware;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FilterPipelineTest {
+
+    @Test
+    void runsStagesInOrderThenTheContainerChain() throws Exception {
+        List<String> calls = new ArrayList<>();
+        FilterPipeline pipeline = new FilterPipeline(List.of(recording("a", calls), recording("b", calls)));
+        FilterChain chain = (req, res) -> calls.add("servlet");
+
+        pipeline.doFilter(request("/api/rules"), mock(ServletResponse.class), chain);
+
+        assertEquals(List.of("a", "b", "servlet"), calls);
+    }
+
+    @Test
+    void stageThatStopsTheChainShortCircuits() throws Exception {
+        Filter blocking = (req, res, next) -> { };
+        FilterChain chain = mock(FilterChain.class);
+        HttpServletRequest request = request("/api/rules");
+        ServletResponse response = mock(ServletResponse.class);
+
+        new FilterPipeline(List.of(blocking)).doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(request, response);
+    }
+
+    @Test
+    void csrfIsLeftOutOfExemptRoutePlans() {
+        CsrfProtectionFilter csrf = new CsrfProtectionFilter();
+        Filter other = (req, res, next) -> next.doFilter(req, res);
+        FilterPipeline pipeline = new FilterPipeline(List.of(other, csrf));
+
+        assertEquals(List.of(other), pipeline.plan(FilterPipeline.Route.WEBHOOK));
+        assertEquals(List.of(other), pipeline.plan(FilterPipeline.Route.LIFECYCLE));
+        assertEquals(List.of(other, csrf), pipeline.plan(FilterPipeline.Route.OTHER));
+    }
+
+    @Test
+    void scopedAuthIsKeptWhereverAProtectedPathCanFall() {
+        Filter delegate = mock(Filter.class);
+        ScopedPlatformAuthFilter api = new ScopedPlatformAuthFilter(delegate, Set.of("/status"), List.of("/api"));
+        ScopedPlatformAuthFilter health = new ScopedPlatformAuthFilter(delegate, Set.of("/health/deep"), List.of());
+        ScopedPlatformAuthFilter root = new ScopedPlatformAuthFilter(delegate, Set.of(), List.of("/"));
+
+        assertTrue(api.appliesTo(FilterPipeline.Route.OTHER));
+        assertFalse(api.appliesTo(FilterPipeline.Route.ACTUATOR));
+        assertTrue(api.appliesTo(FilterPipeline.Route.WEBHOOK));
+        assertTrue(health.appliesTo(FilterPipeline.Route.HEALTH));
+        assertFalse(health.appliesTo(FilterPipeline.Route.ACTUATOR));
+        assertTrue(root.appliesTo(FilterPipeline.Route.HEALTH));
+    }
+
+    private static Filter recording(String name, List<String> calls) {
+        return (req, res, next) -> {
+            calls.add(name);
+            next.doFilter(req, res);
+        };
+    }
+
+    private static HttpServletRequest request(String uri) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRequestURI()).thenReturn(uri);
+        when(request.getContextPath()).thenReturn("");
+        return request;
+    }
+}
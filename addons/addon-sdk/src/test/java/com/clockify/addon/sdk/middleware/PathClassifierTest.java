@@ -0,0 +1,56 @@
+package com.clockify.addon.sdk.middleware;
+
+import com.clockify.addon.sdk.ClockifyAddon;
+import com.clockify.addon.sdk.ClockifyManifest;
+import com.clockify.addon.sdk.HttpResponse;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PathClassifierTest {
+
+    @Test
+    void classifiesByPrefixWithinContext() {
+        PathClassifier classifier = PathClassifier.defaults();
+
+        assertEquals(FilterPipeline.Route.WEBHOOK, classifier.classify("/webhook", ""));
+        assertEquals(FilterPipeline.Route.WEBHOOK, classifier.classify("/rules/webhooks/time-entry", "/rules"));
+        assertEquals(FilterPipeline.Route.LIFECYCLE, classifier.classify("/rules/lifecycle/installed", "/rules"));
+        assertEquals(FilterPipeline.Route.HEALTH, classifier.classify("/health", null));
+        assertEquals(FilterPipeline.Route.ACTUATOR, classifier.classify("/actuator/prometheus", ""));
+        assertEquals(FilterPipeline.Route.OTHER, classifier.classify("/rules/settings", "/rules"));
+        assertEquals(FilterPipeline.Route.OTHER, classifier.classify("/", ""));
+        assertEquals(FilterPipeline.Route.OTHER, classifier.classify(null, ""));
+    }
+
+    @Test
+    void nonCanonicalPathsGetNoExemption() {
+        PathClassifier classifier = PathClassifier.defaults();
+
+        assertEquals(FilterPipeline.Route.OTHER, classifier.classify("//webhook", ""));
+        assertEquals(FilterPipeline.Route.OTHER, classifier.classify("//lifecycle//installed", ""));
+        assertEquals(FilterPipeline.Route.OTHER, classifier.classify("/rules//webhooks/time-entry", "/rules"));
+    }
+
+    @Test
+    void recognisesRegisteredWebhookAndLifecyclePaths() {
+        ClockifyManifest manifest = ClockifyManifest.v1_3Builder()
+                .key("test")
+                .name("Test")
+                .baseUrl("http://localhost")
+                .minimalSubscriptionPlan("FREE")
+                .build();
+        ClockifyAddon addon = new ClockifyAddon(manifest);
+        addon.registerWebhookHandler("TIME_ENTRY_CREATED", "/hooks/time-entry", request -> HttpResponse.ok("ok"));
+        addon.registerLifecycleHandler("INSTALLED", "/on-install", request -> HttpResponse.ok("ok"));
+        addon.registerCustomEndpoint("/hooks/settings", request -> HttpResponse.ok("ok"));
+        PathClassifier classifier = PathClassifier.forAddon(addon);
+
+        assertEquals(FilterPipeline.Route.WEBHOOK, classifier.classify("/addon/hooks/time-entry", "/addon"));
+        assertEquals(FilterPipeline.Route.WEBHOOK, classifier.classify("/hooks/time-entry/", ""));
+        assertEquals(FilterPipeline.Route.LIFECYCLE, classifier.classify("/on-install", ""));
+        assertEquals(FilterPipeline.Route.OTHER, classifier.classify("/hooks/settings", ""));
+        assertEquals(FilterPipeline.Route.OTHER, classifier.classify("/hooks/time-entry/extra", ""));
+        assertEquals(FilterPipeline.Route.WEBHOOK, classifier.classify("/webhook", ""));
+    }
+}
@@ -0,0 +1,84 @@
+package com.clockify.addon.sdk.middleware;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RequestContextTest {
+
+    @Test
+    void generatedIdsAreTimeOrderedVersion7Uuids() throws Exception {
+        String first = RequestContext.newRequestId();
+        Thread.sleep(2);
+        String second = RequestContext.newRequestId();
+
+        UUID uuid = UUID.fromString(first);
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(first.compareTo(second) < 0, first + " should sort before " + second);
+    }
+
+    @Test
+    void resolvesClientIpAndWorkspaceHintOnce() {
+        HttpServletRequest request = requestWithAttributes();
+        when(request.getHeader("X-Forwarded-For")).thenReturn("198.51.100.7, 10.0.0.1");
+        when(request.getRequestURI()).thenReturn("/api/workspace/ws-9/rules");
+
+        RequestContext context = RequestContext.of(request);
+        assertEquals("198.51.100.7", context.clientIp());
+        assertEquals("ws-9", context.workspaceHint());
+        assertSame(context, RequestContext.of(request));
+        verify(request, times(1)).getHeader("X-Forwarded-For");
+    }
+
+    @Test
+    void ignoresUnknownForwardedHeader() {
+        HttpServletRequest request = requestWithAttributes();
+        when(request.getHeader("X-Forwarded-For")).thenReturn("unknown");
+        when(request.getRemoteAddr()).thenReturn("203.0.113.5");
+
+        RequestContext context = RequestContext.of(request);
+        assertEquals("203.0.113.5", context.clientIp());
+        assertNull(context.workspaceHint());
+    }
+
+    @Test
+    void diagnosticFilterPublishesContextAndKeepsIncomingRequestId() throws Exception {
+        HttpServletRequest request = requestWithAttributes();
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(request.getHeader("X-Request-Id")).thenReturn(" req-1 ");
+        FilterChain chain = (req, res) -> assertEquals("req-1", RequestContext.of(req).requestId());
+
+        new DiagnosticContextFilter().doFilter(request, response, chain);
+
+        verify(response, atLeastOnce()).setHeader("X-Request-Id", "req-1");
+        assertEquals("req-1", request.getAttribute(DiagnosticContextFilter.REQUEST_ID_ATTR));
+    }
+
+    private static HttpServletRequest requestWithAttributes() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        Map<String, Object> attributes = new HashMap<>();
+        doAnswer(inv -> attributes.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(request).setAttribute(anyString(), any());
+        when(request.getAttribute(anyString())).thenAnswer(inv -> attributes.get(inv.getArgument(0)));
+        return request;
+    }
+}
@@ -0,0 +1,88 @@
+package com.clockify.addon.sdk.middleware;
+
+import com.clockify.addon.sdk.security.jwt.AuthTokenVerifier;
+import com.clockify.addon.sdk.security.jwt.JwtVerifier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class VerifiedPrincipalTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void workspaceContextAndPlatformAuthVerifyTokenOnce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        JwtVerifier.DecodedJwt decoded = new JwtVerifier.DecodedJwt(MAPPER.createObjectNode(),
+                MAPPER.readTree("{\"workspaceId\":\"ws1\",\"installation_id\":\"inst\",\"workspace_id\":\"ws1\"}"));
+        AuthTokenVerifier verifier = token -> {
+            calls.incrementAndGet();
+            return decoded;
+        };
+        HttpServletRequest request = requestWithAttributes();
+        when(request.getHeader("Authorization")).thenReturn("Bearer tok");
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+
+        WorkspaceContextFilter.forVerifier(verifier).doFilter(request, response, (req, res) ->
+                new PlatformAuthFilter(verifier).doFilter(req, res, chain));
+
+        assertEquals(1, calls.get());
+        verify(chain).doFilter(request, response);
+        verify(response, never()).sendError(anyInt(), anyString());
+        assertSame(decoded, VerifiedPrincipal.current(request).orElseThrow().jwt());
+        assertEquals("ws1", request.getAttribute(WorkspaceContextFilter.WORKSPACE_ID_ATTR));
+    }
+
+    @Test
+    void rejectedTokenIsNotVerifiedAgain() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AuthTokenVerifier verifier = token -> {
+            calls.incrementAndGet();
+            throw new JwtVerifier.JwtVerificationException("bad signature");
+        };
+        HttpServletRequest request = requestWithAttributes();
+
+        assertThrows(JwtVerifier.JwtVerificationException.class,
+                () -> VerifiedPrincipal.verify(request, "tok", verifier));
+        assertThrows(JwtVerifier.JwtVerificationException.class,
+                () -> VerifiedPrincipal.verify(request, "tok", verifier));
+        assertEquals(1, calls.get());
+        assertTrue(VerifiedPrincipal.current(request).isEmpty());
+    }
+
+    @Test
+    void differentTokenIsVerifiedSeparately() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AuthTokenVerifier verifier = token -> {
+            calls.incrementAndGet();
+            return new JwtVerifier.DecodedJwt(MAPPER.createObjectNode(), MAPPER.createObjectNode().put("t", token));
+        };
+        HttpServletRequest request = requestWithAttributes();
+
+        VerifiedPrincipal.verify(request, "query-token", verifier);
+        JwtVerifier.DecodedJwt second = VerifiedPrincipal.verify(request, "header-token", verifier);
+
+        assertEquals(2, calls.get());
+        assertEquals("header-token", second.payload().path("t").asText());
+    }
+
+    private static HttpServletRequest requestWithAttributes() {
+        Map<String, Object> attributes = new HashMap<>();
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        doAnswer(inv -> attributes.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(request).setAttribute(anyString(), any());
+        when(request.getAttribute(anyString())).thenAnswer(inv -> attributes.get(inv.<String>getArgument(0)));
+        return request;
+    }
+}
@@ -0,0 +1,139 @@
+package com.clockify.addon.sdk.middleware;
+
+import com.clockify.addon.sdk.security.WebhookSignatureValidator;
+import com.clockify.addon.sdk.webhook.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookIdempotencyFilterTest {
+
+    @Test
+    void redeliveryGetsTheFirstResponseWithoutRunningTheHandler() throws Exception {
+        WebhookIdempotencyFilter filter = new WebhookIdempotencyFilter();
+        AtomicInteger handled = new AtomicInteger();
+        FilterChain handler = (req, res) -> {
+            handled.incrementAndGet();
+            res.setContentType("application/json");
+            res.getWriter().write("{\"status\":\"actions-triggered\"}");
+        };
+
+        filter.doFilter(webhook("{\"id\":\"te-1\"}"), response(200, new StringWriter()), handler);
+        StringWriter replayed = new StringWriter();
+        HttpServletResponse second = response(200, replayed);
+        filter.doFilter(webhook("{\"id\":\"te-1\"}"), second, handler);
+
+        assertEquals(1, handled.get());
+        assertEquals("{\"status\":\"actions-triggered\"}", replayed.toString());
+        verify(second).setHeader("X-Idempotent-Replay", "true");
+
+        filter.doFilter(webhook("{\"id\":\"te-2\"}"), response(200, new StringWriter()), handler);
+        assertEquals(2, handled.get());
+    }
+
+    @Test
+    void failedDeliveriesAreNotRemembered() throws Exception {
+        WebhookIdempotencyFilter filter = new WebhookIdempotencyFilter();
+        AtomicInteger handled = new AtomicInteger();
+        FilterChain handler = (req, res) -> {
+            handled.incrementAndGet();
+            res.getWriter().write("{\"error\":\"invalid signature\"}");
+        };
+
+        filter.doFilter(webhook("{}"), response(403, new StringWriter()), handler);
+        filter.doFilter(webhook("{}"), response(403, new StringWriter()), handler);
+
+        assertEquals(2, handled.get());
+    }
+
+    @Test
+    void unverifiedDeliveriesAreNotRemembered() throws Exception {
+        WebhookIdempotencyFilter filter = new WebhookIdempotencyFilter();
+        AtomicInteger handled = new AtomicInteger();
+        FilterChain handler = (req, res) -> {
+            handled.incrementAndGet();
+            res.getWriter().write("{\"status\":\"ok\"}");
+        };
+
+        filter.doFilter(unverified("{\"id\":\"te-1\"}"), response(200, new StringWriter()), handler);
+        filter.doFilter(unverified("{\"id\":\"te-1\"}"), response(200, new StringWriter()), handler);
+
+        assertEquals(2, handled.get(), "a 2xx from a request nobody verified is never replayed");
+    }
+
+    @Test
+    void sharedStoreRecognisesDeliveriesSeenByAnotherReplicaAndFailsOpen() throws Exception {
+        IdempotencyStore shared = mock(IdempotencyStore.class);
+        when(shared.find(anyString())).thenReturn(Optional.of(
+                new IdempotencyStore.StoredResponse(200, "application/json", "{\"status\":\"no-match\"}")));
+        WebhookIdempotencyFilter filter = new WebhookIdempotencyFilter(Duration.ofMinutes(1), 100, shared);
+        FilterChain handler = mock(FilterChain.class);
+        StringWriter out = new StringWriter();
+
+        filter.doFilter(webhook("{}"), response(200, out), handler);
+
+        verify(handler, never()).doFilter(any(), any());
+        assertEquals("{\"status\":\"no-match\"}", out.toString());
+
+        IdempotencyStore down = mock(IdempotencyStore.class);
+        when(down.find(anyString())).thenThrow(new IdempotencyStore.IdempotencyStoreException("down", null));
+        FilterChain live = mock(FilterChain.class);
+        new WebhookIdempotencyFilter(Duration.ofMinutes(1), 100, down)
+                .doFilter(webhook("{}"), response(200, new StringWriter()), live);
+        verify(live).doFilter(any(), any());
+    }
+
+    @Test
+    void fingerprintCoversSignatureAndBody() throws Exception {
+        String base = WebhookIdempotencyFilter.fingerprint(webhook("{\"id\":\"te-1\"}"));
+        HttpServletRequest otherSignature = webhook("{\"id\":\"te-1\"}");
+        when(otherSignature.getHeader("Clockify-Signature")).thenReturn("jwt-2");
+
+        assertEquals(base, WebhookIdempotencyFilter.fingerprint(webhook("{\"id\":\"te-1\"}")));
+        assertNotEquals(base, WebhookIdempotencyFilter.fingerprint(otherSignature));
+        assertNotEquals(base, WebhookIdempotencyFilter.fingerprint(webhook("{\"id\":\"te-2\"}")));
+        assertTrue(new WebhookIdempotencyFilter().appliesTo(FilterPipeline.Route.WEBHOOK));
+    }
+
+    private static HttpServletRequest webhook(String body) {
+        HttpServletRequest request = unverified(body);
+        when(request.getAttribute(WebhookSignatureValidator.VERIFIED_ATTR)).thenReturn("ws-1\naddon");
+        return request;
+    }
+
+    private static HttpServletRequest unverified(String body) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRequestURI()).thenReturn("/webhook");
+        when(request.getContextPath()).thenReturn("");
+        when(request.getHeader("Clockify-Signature")).thenReturn("jwt-1");
+        when(request.getHeader("clockify-webhook-event-type")).thenReturn("TIME_ENTRY_UPDATED");
+        when(request.getAttribute("clockify.rawBody")).thenReturn(body);
+        return request;
+    }
+
+    private static HttpServletResponse response(int status, StringWriter out) throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getStatus()).thenReturn(status);
+        when(response.getContentType()).thenReturn("application/json");
+        when(response.getWriter()).thenReturn(new PrintWriter(out, true));
+        return response;
+    }
+}
@@ -0,0 +1,118 @@
+package com.clockify.addon.sdk.outbox;
+
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.clockify.addon.sdk.webhook.WebhookInbox;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogOutboxStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void claimsWorkspacesOneBatchAtATime() throws Exception {
+        try (LogOutboxStore store = new LogOutboxStore(dir)) {
+            OutboxStore.Entry a1 = store.append("ws-a", "tag", "a1");
+            OutboxStore.Entry a2 = store.append("ws-a", "tag", "a2");
+            OutboxStore.Entry b1 = store.append("ws-b", "tag", "b1");
+
+            assertEquals(List.of(a1, a2), store.claim(1, 10));
+            // ws-a is busy, so only ws-b is handed out.
+            assertEquals(List.of(b1), store.claim(2, 10));
+            assertTrue(store.claim(2, 10).isEmpty());
+
+            store.complete(a1.id());
+            store.release(a2.id());
+            assertEquals(List.of(a2), store.claim(2, 10));
+            assertEquals(new OutboxStore.Backlog(2, a2.createdAtMs()), store.backlog());
+        }
+    }
+
+    @Test
+    void retriedEntryHoldsBackItsWorkspaceUntilDue() throws Exception {
+        try (LogOutboxStore store = new LogOutboxStore(dir)) {
+            OutboxStore.Entry first = store.append("ws-a", "tag", "first");
+            store.append("ws-a", "tag", "second");
+            store.claim(1, 1);
+
+            store.retry(first.id(), System.currentTimeMillis() + 60_000, "503");
+            assertTrue(store.claim(1, 10).isEmpty());
+
+            store.retry(first.id(), 0, "503");
+            List<OutboxStore.Entry> claimed = store.claim(1, 10);
+            assertEquals(2, claimed.size());
+            assertEquals(first.id(), claimed.get(0).id());
+            assertEquals(2, claimed.get(0).attempts());
+        }
+    }
+
+    @Test
+    void unsentEntriesSurviveARestart() throws Exception {
+        OutboxStore.Entry kept;
+        try (LogOutboxStore store = new LogOutboxStore(dir)) {
+            OutboxStore.Entry sent = store.append("ws-a", "tag", "sent");
+            kept = store.append("ws-a", "tag", "kept");
+            store.claim(1, 10);
+            store.complete(sent.id());
+        }
+
+        try (LogOutboxStore reopened = new LogOutboxStore(dir)) {
+            assertEquals(List.of(kept), reopened.claim(1, 10));
+        }
+    }
+
+    @Test
+    void entriesInAnotherRecordFormatAreDroppedOnOpen() throws Exception {
+        try (WebhookInbox log = new WebhookInbox(dir, 64 * 1024, true, "outbox_log")) {
+            log.append("tag", "ws-a", "written as a webhook record");
+        }
+
+        try (LogOutboxStore store = new LogOutboxStore(dir)) {
+            assertTrue(store.claim(1, 10).isEmpty());
+            assertEquals(0, store.backlog().depth());
+        }
+        try (WebhookInbox log = new WebhookInbox(dir, 64 * 1024, true, "outbox_log")) {
+            assertEquals(0, log.pendingCount());
+        }
+    }
+
+    @Test
+    void deadLettersAreKeptInTheirOwnLog() throws Exception {
+        try (LogOutboxStore store = new LogOutboxStore(dir)) {
+            OutboxStore.Entry dead = store.append("ws-a", "tag", "refused");
+            OutboxStore.Entry next = store.append("ws-a", "tag", "next");
+            store.claim(1, 1);
+            store.retry(dead.id(), 0, "503");
+            store.claim(1, 1);
+
+            store.deadLetter(dead.id(), "PermanentFailure: 404");
+            assertEquals(List.of(next), store.claim(1, 10));
+        }
+
+        List<String> kept = new ArrayList<>();
+        try (WebhookInbox deadLetters = new WebhookInbox(dir.resolve("dead-letter"), 64 * 1024, true, "outbox_dead_letter_log")) {
+            deadLetters.replay(entry -> {
+                assertEquals(LogOutboxStore.DEAD_LETTER_TYPE, entry.event());
+                kept.add(entry.body());
+            });
+        }
+        assertEquals(1, kept.size());
+        JsonNode record = JsonCodec.readTree(kept.get(0));
+        assertEquals("refused", record.path("payload").asText());
+        assertEquals(2, record.path("attempts").asInt());
+        assertEquals("PermanentFailure: 404", record.path("error").asText());
+
+        try (LogOutboxStore reopened = new LogOutboxStore(dir)) {
+            assertEquals(1, reopened.backlog().depth(), "the dead letter is not queued again after a restart");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.clockify.addon.sdk.outbox;
+
+import com.clockify.addon.sdk.webhook.WebhookInbox;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxWorkerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void retriesAFailedWriteBeforeTheOnesQueuedBehindIt() throws Exception {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        AtomicInteger failures = new AtomicInteger(2);
+        try (LogOutboxStore store = new LogOutboxStore(dir);
+             OutboxWorker worker = worker(store)) {
+            worker.register("tag", entry -> {
+                if (entry.payload().equals("a1") && failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("503");
+                }
+                sent.add(entry.payload());
+            });
+            worker.enqueue("ws-a", "tag", "a1");
+            worker.enqueue("ws-a", "tag", "a2");
+            worker.enqueue("ws-b", "tag", "b1");
+            worker.start();
+
+            awaitValue(sent::size, 3);
+            assertTrue(sent.indexOf("a1") < sent.indexOf("a2"), "workspace order kept: " + sent);
+            awaitValue(() -> (int) store.backlog().depth(), 0);
+        }
+    }
+
+    @Test
+    void permanentFailureIsDeadLetteredWithoutRetrying() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        List<String> sent = new CopyOnWriteArrayList<>();
+        try (LogOutboxStore store = new LogOutboxStore(dir);
+             OutboxWorker worker = worker(store)) {
+            worker.register("tag", entry -> {
+                if (entry.payload().equals("bad")) {
+                    attempts.incrementAndGet();
+                    throw new OutboxWorker.PermanentFailure("404");
+                }
+                sent.add(entry.payload());
+            });
+            worker.start();
+            worker.enqueue("ws-a", "tag", "bad");
+            worker.enqueue("ws-a", "tag", "good");
+
+            awaitValue(sent::size, 1);
+            assertEquals(1, attempts.get());
+            awaitValue(() -> (int) store.backlog().depth(), 0);
+        }
+        try (WebhookInbox deadLetters = new WebhookInbox(dir.resolve("dead-letter"), 64 * 1024, true, "outbox_dead_letter_log")) {
+            assertEquals(1, deadLetters.pendingCount());
+        }
+    }
+
+    @Test
+    void backoffGrowsUpToTheCap() {
+        try (OutboxWorker worker = new OutboxWorker(new NoopStore(), 1, 10, 5,
+                Duration.ofMillis(100), Duration.ofMillis(1000), Duration.ofMillis(10))) {
+            long first = worker.backoffMs(1);
+            assertTrue(first >= 50 && first <= 100, "first: " + first);
+            long third = worker.backoffMs(3);
+            assertTrue(third >= 200 && third <= 400, "third: " + third);
+            long capped = worker.backoffMs(40);
+            assertTrue(capped >= 500 && capped <= 1000, "capped: " + capped);
+        }
+    }
+
+    @Test
+    void nonPositiveSettingsFallBackToTheDefaults() {
+        System.setProperty("CLOCKIFY_OUTBOX_WORKERS", "0");
+        System.setProperty("CLOCKIFY_OUTBOX_MAX_ATTEMPTS", "-1");
+        try (OutboxWorker worker = new OutboxWorker(new NoopStore())) {
+            assertEquals(0, worker.backlogDepth());
+        } finally {
+            System.clearProperty("CLOCKIFY_OUTBOX_WORKERS");
+            System.clearProperty("CLOCKIFY_OUTBOX_MAX_ATTEMPTS");
+        }
+    }
+
+    private static OutboxWorker worker(OutboxStore store) {
+        return new OutboxWorker(store, 2, 10, 5, Duration.ofMillis(5), Duration.ofMillis(20), Duration.ofMillis(10));
+    }
+
+    private static void awaitValue(IntSupplier value, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (value.getAsInt() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, value.getAsInt());
+    }
+
+    private static final class NoopStore implements OutboxStore {
+        @Override
+        public Entry append(String workspaceId, String kind, String payload) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Entry> claim(int maxWorkspaces, int batchSize) {
+            return List.of();
+        }
+
+        @Override
+        public void complete(long id) {
+        }
+
+        @Override
+        public void retry(long id, long nextAttemptAtMs, String error) {
+        }
+
+        @Override
+        public void deadLetter(long id, String error) {
+        }
+
+        @Override
+        public void release(long id) {
+        }
+
+        @Override
+        public Backlog backlog() {
+            return new Backlog(0, 0);
+        }
+    }
+}
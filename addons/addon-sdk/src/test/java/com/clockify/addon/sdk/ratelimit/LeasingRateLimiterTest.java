@@ -0,0 +1,146 @@
+package com.clockify.addon.sdk.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLDataException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeasingRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final InMemoryRateLimitBackend backend = new InMemoryRateLimitBackend(now::get);
+
+    private LeasingRateLimiter replica(double rate, int leaseSize) {
+        return new LeasingRateLimiter(backend, "test", rate, rate, leaseSize, Duration.ofSeconds(1), now::get);
+    }
+
+    @Test
+    void replicasShareOneClusterWideBudget() {
+        LeasingRateLimiter a = replica(10.0, 1);
+        LeasingRateLimiter b = replica(10.0, 1);
+
+        int granted = 0;
+        for (int i = 0; i < 20; i++) {
+            if (a.tryAcquire("ws-1")) granted++;
+            if (b.tryAcquire("ws-1")) granted++;
+        }
+        assertEquals(10, granted, "burst is shared, not multiplied by replica count");
+    }
+
+    @Test
+    void storeIsTouchedOncePerLease() {
+        LeasingRateLimiter limiter = replica(100.0, 10);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire("ws-1"));
+        }
+        assertEquals(5, backend.leaseCalls());
+    }
+
+    @Test
+    void exhaustedBucketIsNegativelyCached() {
+        LeasingRateLimiter limiter = replica(1.0, 1);
+        assertTrue(limiter.tryAcquire("ws-1"));
+        long calls = backend.leaseCalls();
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(limiter.tryAcquire("ws-1"));
+        }
+        assertEquals(calls + 1, backend.leaseCalls());
+
+        now.addAndGet(1_000);
+        assertTrue(limiter.tryAcquire("ws-1"));
+    }
+
+    @Test
+    void unusedLeaseExpires() {
+        LeasingRateLimiter a = replica(10.0, 10);
+        LeasingRateLimiter b = replica(10.0, 10);
+        assertTrue(a.tryAcquire("ws-1")); // a now holds 9 leased permits
+        assertFalse(b.tryAcquire("ws-1"));
+
+        now.addAndGet(1_500);
+        assertTrue(b.tryAcquire("ws-1"));
+        assertFalse(a.tryAcquire("ws-1"), "a's expired lease cannot be spent after b took the refill");
+    }
+
+    @Test
+    void fallsBackToLocalLimitingWhenStoreFails() {
+        LeasingRateLimiter limiter = new LeasingRateLimiter((key, requested, rate, burst) -> {
+            throw new SharedRateLimitBackend.RateLimitBackendException("down", null);
+        }, "test", 1.0, 1.0, 1, Duration.ofSeconds(1), now::get);
+
+        assertTrue(limiter.tryAcquire("ws-1"));
+        assertFalse(limiter.tryAcquire("ws-1"));
+    }
+
+    @Test
+    void failedStoreIsLeftAloneForTheBackoffWindow() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean down = new AtomicBoolean(true);
+        LeasingRateLimiter limiter = new LeasingRateLimiter((key, requested, rate, burst) -> {
+            calls.incrementAndGet();
+            if (down.get()) {
+                throw new SharedRateLimitBackend.RateLimitBackendException("down",
+                        new SQLTransientConnectionException("pool exhausted"));
+            }
+            return requested;
+        }, "test", 100.0, 100.0, 1, Duration.ofSeconds(1), now::get);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire("ws-" + (i % 5));
+        }
+        assertEquals(1, calls.get(), "one failure opens the window for every key");
+
+        down.set(false);
+        now.addAndGet(LeasingRateLimiter.BACKEND_FAILURE_BACKOFF_MS - 1);
+        limiter.tryAcquire("ws-1");
+        assertEquals(1, calls.get(), "still limiting locally");
+
+        now.addAndGet(1);
+        assertTrue(limiter.tryAcquire("ws-1"));
+        assertEquals(2, calls.get(), "the store is tried again once the window ends");
+    }
+
+    @Test
+    void dataErrorOnlySendsThatKeyToLocalLimiting() {
+        List<String> keys = new ArrayList<>();
+        LeasingRateLimiter limiter = new LeasingRateLimiter((key, requested, rate, burst) -> {
+            keys.add(key);
+            if (key.endsWith(":bad")) {
+                throw new SharedRateLimitBackend.RateLimitBackendException("bad row", new SQLDataException("22001"));
+            }
+            return 1;
+        }, "test", 100.0, 100.0, 1, Duration.ofSeconds(1), now::get);
+
+        assertTrue(limiter.tryAcquire("bad"), "served by the local limiter");
+        limiter.tryAcquire("bad");
+        assertTrue(limiter.tryAcquire("good"));
+        assertTrue(limiter.tryAcquire("good"));
+        assertEquals(List.of("test:bad", "test:good", "test:good"), keys,
+                "the failing key stays local; other keys keep using the store");
+    }
+
+    @Test
+    void oversizedKeysAreHashedBeforeReachingTheStore() {
+        List<String> keys = new ArrayList<>();
+        LeasingRateLimiter limiter = new LeasingRateLimiter((key, requested, rate, burst) -> {
+            keys.add(key);
+            return requested;
+        }, "test", 10.0, 10.0, 1, Duration.ofSeconds(1), now::get);
+
+        assertTrue(limiter.tryAcquire("x".repeat(2_000)));
+        assertEquals(1, keys.size());
+        assertTrue(keys.get(0).length() <= LeasingRateLimiter.MAX_STORE_KEY_LENGTH);
+        assertTrue(keys.get(0).startsWith("test:sha256:"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.clockify.addon.sdk.ratelimit;
+
+import com.clockify.addon.sdk.security.PooledDatabaseTokenStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Testcontainers
+class PostgresRateLimitBackendIT {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withDatabaseName("addons")
+            .withUsername("addons")
+            .withPassword("addons");
+
+    @AfterAll
+    static void stop() {
+        if (POSTGRES != null) {
+            POSTGRES.stop();
+        }
+    }
+
+    @Test
+    void leasesNeverExceedBurstUnderConcurrency() throws Exception {
+        try (PooledDatabaseTokenStore store = new PooledDatabaseTokenStore(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())) {
+            PostgresRateLimitBackend backend = new PostgresRateLimitBackend(store.dataSource());
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                results.add(pool.submit(() -> backend.lease("critical:webhook:ws-1", 3, 0.001, 50)));
+            }
+            int granted = 0;
+            for (Future<Integer> f : results) {
+                granted += f.get();
+            }
+            pool.shutdown();
+            assertEquals(50, granted);
+        }
+    }
+
+    @Test
+    void bucketRefillsFromDatabaseClock() throws Exception {
+        try (PooledDatabaseTokenStore store = new PooledDatabaseTokenStore(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())) {
+            PostgresRateLimitBackend backend = new PostgresRateLimitBackend(store.dataSource());
+            assertEquals(2, backend.lease("critical:lifecycle:ws-2", 5, 20.0, 2));
+            assertEquals(0, backend.lease("critical:lifecycle:ws-2", 5, 20.0, 2));
+            Thread.sleep(150);
+            assertEquals(2, backend.lease("critical:lifecycle:ws-2", 5, 20.0, 2));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.clockify.addon.sdk.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedTokenBucketLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+
+    private StripedTokenBucketLimiter limiter(double rate, double burst) {
+        return new StripedTokenBucketLimiter(rate, burst, Duration.ofMinutes(5), 1000, 10_000L, nanos::get);
+    }
+
+    private void advanceMillis(long ms) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
+    @Test
+    void newBucketStartsWithSinglePermit() {
+        StripedTokenBucketLimiter limiter = limiter(10.0, 10.0);
+        assertTrue(limiter.tryAcquire("k"));
+        assertFalse(limiter.tryAcquire("k"));
+    }
+
+    @Test
+    void refillsAtConfiguredRateUpToBurst() {
+        StripedTokenBucketLimiter limiter = limiter(10.0, 3.0);
+        assertTrue(limiter.tryAcquire("k"));
+
+        advanceMillis(100);
+        assertTrue(limiter.tryAcquire("k"));
+        assertFalse(limiter.tryAcquire("k"));
+
+        advanceMillis(10_000);
+        assertTrue(limiter.tryAcquire("k"));
+        assertTrue(limiter.tryAcquire("k"));
+        assertTrue(limiter.tryAcquire("k"));
+        assertFalse(limiter.tryAcquire("k"), "burst caps accumulation");
+    }
+
+    @Test
+    void slowRatesAccumulateFractionsAcrossFrequentPolls() {
+        StripedTokenBucketLimiter limiter = limiter(0.1, 1.0);
+        assertTrue(limiter.tryAcquire("k"));
+        int granted = 0;
+        for (int ms = 0; ms < 10_050; ms++) {
+            advanceMillis(1);
+            if (limiter.tryAcquire("k")) {
+                granted++;
+            }
+        }
+        assertEquals(1, granted);
+    }
+
+    @Test
+    void keysAreIndependent() {
+        StripedTokenBucketLimiter limiter = limiter(1.0, 1.0);
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+        assertFalse(limiter.tryAcquire("a"));
+        assertEquals(2, limiter.size());
+    }
+
+    @Test
+    void idleBucketsAreSweptLazily() {
+        StripedTokenBucketLimiter limiter = limiter(1.0, 1.0);
+        StripedTokenBucketLimiter.Bucket original = limiter.bucket("k");
+
+        advanceMillis(Duration.ofMinutes(2).toMillis());
+        assertSame(original, limiter.bucket("k"));
+
+        advanceMillis(Duration.ofMinutes(6).toMillis());
+        assertNotSame(original, limiter.bucket("k"));
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void entryCapIsEnforcedPerStripe() {
+        StripedTokenBucketLimiter limiter = new StripedTokenBucketLimiter(1.0, 1.0, Duration.ofMinutes(5), 64, 10_000L, nanos::get);
+        for (int i = 0; i < 5000; i++) {
+            limiter.tryAcquire("key-" + i);
+        }
+        assertTrue(limiter.size() <= 64);
+    }
+
+    @Test
+    void rejectionSamplingReportsOncePerWindowWithSuppressedCount() {
+        StripedTokenBucketLimiter limiter = limiter(1.0, 1.0);
+        StripedTokenBucketLimiter.Bucket bucket = limiter.bucket("k");
+
+        assertEquals(0, limiter.sampleRejection(bucket));
+        assertEquals(-1, limiter.sampleRejection(bucket));
+        assertEquals(-1, limiter.sampleRejection(bucket));
+
+        advanceMillis(10_000);
+        assertEquals(2, limiter.sampleRejection(bucket));
+    }
+
+    @Test
+    void rejectsBurstAbovePackedCapacity() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new StripedTokenBucketLimiter(10.0, StripedTokenBucketLimiter.MAX_BURST_PERMITS + 1, Duration.ofMinutes(1), 10));
+    }
+
+    @Test
+    void concurrentAcquisitionNeverOverGrants() throws Exception {
+        StripedTokenBucketLimiter limiter = limiter(1.0, 100.0);
+        limiter.bucket("hot");
+        advanceMillis(200_000); // fill to burst
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 16; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire("hot")) {
+                        granted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(100, granted.get());
+    }
+}
@@ -0,0 +1,133 @@
+package com.clockify.addon.sdk.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditPipelineTest {
+
+    @Test
+    void ringBufferKeepsFifoOrderAndRejectsWhenFull() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(99));
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(List.of(1, 2, 3, 4), drained);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void encoderEscapesAllControlCharactersInOnePass() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("path", "/a\"b\\c\n\u0001");
+        details.put("count", 3);
+        AuditRecord record = new AuditRecord(0L, AuditLogger.AuditEvent.SUSPICIOUS_REQUEST, "WARN",
+                "ws\t1", null, null, details);
+
+        assertEquals("{\"timestamp\":\"1970-01-01T00:00:00Z\",\"event\":\"SUSPICIOUS_REQUEST\",\"level\":\"WARN\","
+                + "\"workspace\":\"ws\\t1\",\"details\":{\"path\":\"/a\\\"b\\\\c\\n\\u0001\",\"count\":3}}",
+                record.toJson());
+    }
+
+    @Test
+    void writerDeliversBatchesInOrderAndFlushWaitsForThem() {
+        RecordingSink sink = new RecordingSink();
+        AuditPipeline pipeline = new AuditPipeline(sink, 1024, true, Duration.ofSeconds(1));
+        try {
+            for (int i = 0; i < 500; i++) {
+                pipeline.submit(record(AuditLogger.AuditEvent.CSRF_TOKEN_VALIDATED, "INFO", "ws-" + i));
+            }
+            assertTrue(pipeline.flush(Duration.ofSeconds(5)));
+            assertEquals(500, sink.lines.size());
+            for (int i = 0; i < 500; i++) {
+                assertTrue(sink.lines.get(i).contains("\"workspace\":\"ws-" + i + "\""));
+            }
+            assertTrue(sink.flushes > 0 && sink.flushes <= 500);
+        } finally {
+            pipeline.close(Duration.ofSeconds(1));
+        }
+    }
+
+    @Test
+    void fullQueueDropsRoutineEntriesButNeverCriticalOnes() throws Exception {
+        BlockingSink sink = new BlockingSink();
+        AuditPipeline pipeline = new AuditPipeline(sink, 2, true, Duration.ofMillis(50));
+        try {
+            pipeline.submit(record(AuditLogger.AuditEvent.CSRF_TOKEN_VALIDATED, "INFO", "first"));
+            assertTrue(sink.entered.await(5, TimeUnit.SECONDS));
+            // writer is stuck in the sink; fill the queue
+            pipeline.submit(record(AuditLogger.AuditEvent.CSRF_TOKEN_VALIDATED, "INFO", "q1"));
+            pipeline.submit(record(AuditLogger.AuditEvent.CSRF_TOKEN_VALIDATED, "INFO", "q2"));
+            pipeline.submit(record(AuditLogger.AuditEvent.CSRF_TOKEN_VALIDATED, "INFO", "dropped"));
+
+            Thread critical = new Thread(() ->
+                    pipeline.submit(record(AuditLogger.AuditEvent.CSRF_TOKEN_INVALID, "ERROR", "critical")));
+            critical.start();
+            Thread.sleep(200);
+            assertTrue(critical.isAlive(), "critical entry waits for the writer instead of being dropped");
+
+            sink.release.countDown();
+            critical.join(5000);
+            assertTrue(pipeline.flush(Duration.ofSeconds(5)));
+
+            String all = String.join("\n", sink.lines);
+            assertTrue(all.contains("q1") && all.contains("q2") && all.contains("critical"));
+            assertFalse(all.contains("dropped"));
+        } finally {
+            sink.release.countDown();
+            pipeline.close(Duration.ofSeconds(1));
+        }
+    }
+
+    private static AuditRecord record(AuditLogger.AuditEvent event, String level, String workspace) {
+        return new AuditRecord(System.currentTimeMillis(), event, level, workspace, null, null, Map.of());
+    }
+
+    private static class RecordingSink implements AuditSink {
+        final List<String> lines = new ArrayList<>();
+        int flushes;
+
+        @Override
+        public synchronized void write(AuditRecord record, CharSequence json) {
+            lines.add(json.toString());
+        }
+
+        @Override
+        public synchronized void flush() {
+            flushes++;
+        }
+    }
+
+    private static final class BlockingSink extends RecordingSink {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void write(AuditRecord record, CharSequence json) {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.write(record, json);
+        }
+    }
+}
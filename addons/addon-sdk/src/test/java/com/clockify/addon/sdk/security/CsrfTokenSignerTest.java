@@ -0,0 +1,54 @@
+package com.clockify.addon.sdk.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsrfTokenSignerTest {
+
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void tokensValidateOnAnyInstanceWithTheSameSecret() {
+        String token = new CsrfTokenSigner(SECRET, Duration.ofHours(1)).issue("ws-1|user-1");
+
+        CsrfTokenSigner otherReplica = new CsrfTokenSigner(SECRET, Duration.ofHours(1));
+        assertTrue(otherReplica.verify(token, "ws-1|user-1"));
+        assertFalse(otherReplica.verify(token, "ws-1|user-2"));
+        assertFalse(new CsrfTokenSigner("ffffffffffffffffffffffffffffffff".getBytes(StandardCharsets.UTF_8),
+                Duration.ofHours(1)).verify(token, "ws-1|user-1"));
+    }
+
+    @Test
+    void rejectsExpiredTamperedAndMalformedTokens() {
+        Instant issuedAt = Instant.parse("2025-01-01T00:00:00Z");
+        String token = new CsrfTokenSigner(SECRET, Duration.ofHours(1), Clock.fixed(issuedAt, ZoneOffset.UTC))
+                .issue("ws-1|user-1");
+
+        CsrfTokenSigner later = new CsrfTokenSigner(SECRET, Duration.ofHours(1),
+                Clock.fixed(issuedAt.plus(Duration.ofMinutes(61)), ZoneOffset.UTC));
+        assertFalse(later.verify(token, "ws-1|user-1"));
+
+        CsrfTokenSigner now = new CsrfTokenSigner(SECRET, Duration.ofHours(1), Clock.fixed(issuedAt, ZoneOffset.UTC));
+        assertTrue(now.verify(token, "ws-1|user-1"));
+        String[] parts = token.split("\\.");
+        assertFalse(now.verify(Long.toString(Long.parseLong(parts[0], 36) - 1, 36) + "." + parts[1], "ws-1|user-1"));
+        assertFalse(now.verify("garbage", "ws-1|user-1"));
+        assertFalse(now.verify(".abc", "ws-1|user-1"));
+        assertFalse(now.verify(null, "ws-1|user-1"));
+    }
+
+    @Test
+    void rejectsShortSecrets() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CsrfTokenSigner("short".getBytes(StandardCharsets.UTF_8), Duration.ofHours(1)));
+    }
+}
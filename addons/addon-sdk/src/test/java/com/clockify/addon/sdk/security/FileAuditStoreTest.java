@@ -0,0 +1,154 @@
+package com.clockify.addon.sdk.security;
+
+import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.middleware.PlatformAuthFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FileAuditStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final MutableClock clock = new MutableClock(1_700_000_000_000L);
+
+    @Test
+    void queriesByWorkspaceAndEventNewestFirst() throws Exception {
+        try (FileAuditStore store = open(64 * 1024)) {
+            append(store, AuditLogger.AuditEvent.TOKEN_SAVED, "ws-1", 1);
+            append(store, AuditLogger.AuditEvent.CSRF_TOKEN_INVALID, "ws-1", 2);
+            append(store, AuditLogger.AuditEvent.TOKEN_SAVED, "ws-2", 3);
+            append(store, AuditLogger.AuditEvent.TOKEN_SAVED, "ws-1", 4);
+
+            List<String> saved = store.query(new FileAuditStore.Query("ws-1", AuditLogger.AuditEvent.TOKEN_SAVED, 0, Long.MAX_VALUE, 10));
+            assertEquals(2, saved.size());
+            assertTrue(saved.get(0).contains("\"n\":4"));
+            assertTrue(saved.get(1).contains("\"n\":1"));
+
+            assertEquals(3, store.query(new FileAuditStore.Query("ws-1", null, 0, Long.MAX_VALUE, 10)).size());
+            assertEquals(1, store.query(new FileAuditStore.Query("ws-1", null, 0, Long.MAX_VALUE, 1)).size());
+            assertEquals(0, store.query(new FileAuditStore.Query("ws-3", null, 0, Long.MAX_VALUE, 10)).size());
+        }
+    }
+
+    @Test
+    void rollsFullSegmentsAndReindexesAfterRestartWithoutClose() throws Exception {
+        FileAuditStore store = open(1024);
+        for (int i = 0; i < 30; i++) {
+            append(store, AuditLogger.AuditEvent.TOKEN_SAVED, "ws-1", i);
+        }
+        assertTrue(store.segmentCount() > 1);
+        // simulate a crash: the active segment is left preallocated and unsealed
+
+        try (FileAuditStore reopened = open(1024)) {
+            List<String> all = reopened.query(new FileAuditStore.Query("ws-1", null, 0, Long.MAX_VALUE, 100));
+            assertEquals(30, all.size());
+            assertTrue(all.get(0).contains("\"n\":29"));
+            append(reopened, AuditLogger.AuditEvent.TOKEN_SAVED, "ws-1", 30);
+            assertEquals(31, reopened.query(new FileAuditStore.Query("ws-1", null, 0, Long.MAX_VALUE, 100)).size());
+        }
+        try (var files = Files.list(dir)) {
+            assertTrue(files.noneMatch(f -> f.toFile().length() == 1024), "unsealed tail was trimmed");
+        }
+    }
+
+    @Test
+    void prunesSegmentsOlderThanRetention() throws Exception {
+        try (FileAuditStore store = open(64 * 1024)) {
+            append(store, AuditLogger.AuditEvent.TOKEN_SAVED, "ws-1", 1);
+            clock.advance(Duration.ofHours(2));
+            append(store, AuditLogger.AuditEvent.TOKEN_SAVED, "ws-1", 2);
+            assertEquals(2, store.segmentCount());
+
+            clock.advance(Duration.ofDays(1).minusHours(1));
+            store.flush();
+            assertEquals(1, store.segmentCount());
+            List<String> remaining = store.query(new FileAuditStore.Query("ws-1", null, 0, Long.MAX_VALUE, 10));
+            assertEquals(1, remaining.size());
+            assertTrue(remaining.get(0).contains("\"n\":2"));
+        }
+    }
+
+    @Test
+    void handlerScopesResultsToAuthenticatedWorkspace() throws Exception {
+        try (FileAuditStore store = open(64 * 1024)) {
+            append(store, AuditLogger.AuditEvent.TOKEN_SAVED, "ws-1", 1);
+            append(store, AuditLogger.AuditEvent.TOKEN_SAVED, "ws-2", 2);
+            AuditQueryHandler handler = new AuditQueryHandler(store);
+
+            HttpServletRequest request = mock(HttpServletRequest.class);
+            when(request.getMethod()).thenReturn("GET");
+            when(request.getAttribute(PlatformAuthFilter.ATTR_WORKSPACE_ID)).thenReturn("ws-2");
+            when(request.getParameter("event")).thenReturn("TOKEN_SAVED");
+            HttpResponse response = handler.handle(request);
+            assertEquals(200, response.getStatusCode());
+            assertTrue(response.getBody().contains("\"count\":1"));
+            assertTrue(response.getBody().contains("\"workspace\":\"ws-2\""));
+
+            when(request.getParameter("event")).thenReturn("NOPE");
+            assertEquals(400, handler.handle(request).getStatusCode());
+
+            HttpServletRequest anonymous = mock(HttpServletRequest.class);
+            when(anonymous.getMethod()).thenReturn("GET");
+            assertEquals(403, handler.handle(anonymous).getStatusCode());
+        }
+    }
+
+    private FileAuditStore open(int segmentBytes) throws Exception {
+        return new FileAuditStore(dir, segmentBytes, Duration.ofDays(1), false, clock);
+    }
+
+    private void append(FileAuditStore store, AuditLogger.AuditEvent event, String workspace, int n) {
+        AuditRecord record = new AuditRecord(clock.millis(), event, "INFO", workspace, null, null, Map.of("n", n));
+        store.write(record, record.toJson());
+        store.flush();
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(Duration duration) {
+            millis += duration.toMillis();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
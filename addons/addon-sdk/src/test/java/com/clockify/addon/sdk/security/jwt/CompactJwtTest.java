@@ -0,0 +1,95 @@
+package com.clockify.addon.sdk.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactJwtTest {
+
+    private static final KeyPair KEY_PAIR = generateKeyPair();
+
+    @Test
+    void rejectsTokensWithoutExactlyThreeSegments() {
+        assertThrows(IllegalArgumentException.class, () -> CompactJwt.parse("abc"));
+        assertThrows(IllegalArgumentException.class, () -> CompactJwt.parse("a.b"));
+        assertThrows(IllegalArgumentException.class, () -> CompactJwt.parse("a.b.c.d"));
+        assertThrows(IllegalArgumentException.class, () -> CompactJwt.parse(".b.c"));
+    }
+
+    @Test
+    void readsHeaderAndClaimsWithoutTrees() throws Exception {
+        String token = sign("{\"alg\":\"RS256\",\"kid\":\"k1\",\"x5c\":[\"ignored\"]}",
+                "{\"iss\":\"clockify\",\"sub\":\"rules\",\"type\":\"addon\",\"aud\":[\"a\",1,\"b\"],"
+                        + "\"exp\":\"1700000000\",\"nbf\":1.5E9,\"nested\":{\"exp\":1},\"workspaceId\":\"ws1\"}");
+
+        CompactJwt jwt = CompactJwt.parse(token);
+        assertEquals(new CompactJwt.Header("RS256", "k1", null), jwt.header());
+        CompactJwt.Claims claims = jwt.claims();
+        assertEquals("clockify", claims.issuer());
+        assertEquals("rules", claims.subject());
+        assertEquals("addon", claims.type());
+        assertEquals(List.of("a", "b"), claims.audience());
+        assertEquals(1_700_000_000L, claims.expiresAt());
+        assertEquals(1_500_000_000L, claims.notBefore());
+        assertNull(claims.issuedAt());
+        assertEquals("ws1", claims.workspaceId());
+    }
+
+    @Test
+    void verifiesSignatureOverOriginalSegments() throws Exception {
+        String token = sign("{\"alg\":\"RS256\"}", "{\"sub\":\"rules\"}");
+        assertTrue(CompactJwt.parse(token).verify(verifier()));
+
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + b64("{\"sub\":\"other\"}") + "." + parts[2];
+        assertFalse(CompactJwt.parse(tampered).verify(verifier()));
+    }
+
+    @Test
+    void treesMatchStreamingView() throws Exception {
+        String token = sign("{\"alg\":\"RS256\"}", "{\"workspaceId\":\"ws1\",\"extra\":{\"a\":1}}");
+        CompactJwt jwt = CompactJwt.parse(token);
+        assertEquals("ws1", jwt.payloadTree().path("workspaceId").asText());
+        assertEquals(1, jwt.payloadTree().path("extra").path("a").asInt());
+        assertEquals("RS256", jwt.headerTree().path("alg").asText());
+    }
+
+    private static Signature verifier() throws Exception {
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(KEY_PAIR.getPublic());
+        return signature;
+    }
+
+    private static String sign(String headerJson, String payloadJson) throws Exception {
+        String signingInput = b64(headerJson) + "." + b64(payloadJson);
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(KEY_PAIR.getPrivate());
+        signer.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signer.sign());
+    }
+
+    private static String b64(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
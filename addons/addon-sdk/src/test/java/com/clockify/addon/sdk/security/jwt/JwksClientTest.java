@@ -0,0 +1,209 @@
+package com.clockify.addon.sdk.security.jwt;
+
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwksClientTest {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+    private static final KeyPair KEY_1 = generateKeyPair();
+    private static final KeyPair KEY_2 = generateKeyPair();
+
+    private HttpServer server;
+    private ScheduledExecutorService refresher;
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicReference<String> body = new AtomicReference<>();
+    private final AtomicReference<CountDownLatch> gate = new AtomicReference<>();
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private JwksClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        body.set(jwks(List.of("k1"), List.of(KEY_1)));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/jwks", exchange -> {
+            fetches.incrementAndGet();
+            CountDownLatch latch = gate.get();
+            if (latch != null) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status.get(), bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        refresher = Executors.newSingleThreadScheduledExecutor();
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/jwks");
+        client = new JwksClient(uri, HttpClient.newHttpClient(), TTL, Duration.ofSeconds(5),
+                Duration.ofSeconds(30), clock::get, refresher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        refresher.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    void staleKeysAreServedWhileRefreshRunsInBackground() throws Exception {
+        assertEquals(1, client.getAllKeys().size());
+        PublicKey cached = client.getKey("k1");
+        Instant fetchedAt = client.getCacheStats().lastFetchTime();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        gate.set(latch);
+        clock.addAndGet(TTL.toMillis() + 1);
+
+        long started = System.nanoTime();
+        assertSame(cached, client.getKey("k1"));
+        assertSame(cached, client.getKey("k1"));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1), "lookup must not wait for the fetch");
+
+        awaitFetches(2);
+        latch.countDown();
+        gate.set(null);
+        awaitRefreshed(() -> client.getCacheStats().lastFetchTime().isAfter(fetchedAt));
+        assertEquals(2, fetches.get(), "concurrent stale lookups share one refresh");
+    }
+
+    @Test
+    void unknownKidTriggersRateLimitedOnDemandRefresh() throws Exception {
+        client.getAllKeys();
+        body.set(jwks(List.of("k1", "k2"), List.of(KEY_1, KEY_2)));
+
+        assertThrows(JwksClient.JwksException.class, () -> client.getKey("k2"));
+        awaitRefreshed(() -> client.getCacheStats().keyCount() == 2);
+        assertEquals(KEY_2.getPublic(), client.getKey("k2"));
+        assertEquals(2, fetches.get());
+
+        assertThrows(JwksClient.JwksException.class, () -> client.getKey("bogus"));
+        assertThrows(JwksClient.JwksException.class, () -> client.getKey("bogus"));
+        Thread.sleep(100);
+        assertEquals(2, fetches.get(), "unknown kids within the interval do not refetch");
+
+        clock.addAndGet(Duration.ofSeconds(31).toMillis());
+        assertThrows(JwksClient.JwksException.class, () -> client.getKey("bogus"));
+        awaitFetches(3);
+    }
+
+    @Test
+    void failedRefreshKeepsServingCachedKeysAndIsCounted() throws Exception {
+        client.getAllKeys();
+        double before = failures();
+        status.set(500);
+        clock.addAndGet(TTL.toMillis() + 1);
+
+        assertEquals(KEY_1.getPublic(), client.getKey("k1"));
+        awaitRefreshed(() -> failures() > before);
+        assertEquals(KEY_1.getPublic(), client.getKey("k1"));
+    }
+
+    @Test
+    void rotatedKeyIsAcceptedByVerifierAfterRefresh() throws Exception {
+        JwksBasedKeySource source = new JwksBasedKeySource(client);
+        JwtVerifier verifier = JwtVerifier.fromKeySource(source,
+                new JwtVerifier.Constraints(null, null, 60L, Set.of("RS256")));
+        body.set(jwks(List.of("k1", "k2"), List.of(KEY_1, KEY_2)));
+        String token = signedToken("k2", KEY_2);
+
+        assertThrows(JwtVerifier.JwtVerificationException.class, () -> verifier.verify(token));
+        awaitRefreshed(() -> client.getCacheStats().keyCount() == 2);
+        verifier.verify(token);
+    }
+
+    private static double failures() {
+        var counter = MetricsHandler.registry().find("jwks_refresh_failures_total").tag("trigger", "stale").counter();
+        return counter == null ? 0.0 : counter.count();
+    }
+
+    private void awaitFetches(int expected) throws InterruptedException {
+        awaitRefreshed(() -> fetches.get() >= expected);
+    }
+
+    private static void awaitRefreshed(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not met in time");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static String jwks(List<String> kids, List<KeyPair> keys) {
+        StringBuilder sb = new StringBuilder("{\"keys\":[");
+        for (int i = 0; i < kids.size(); i++) {
+            RSAPublicKey pub = (RSAPublicKey) keys.get(i).getPublic();
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"kty\":\"RSA\",\"kid\":\"").append(kids.get(i))
+                    .append("\",\"n\":\"").append(b64(pub.getModulus().toByteArray()))
+                    .append("\",\"e\":\"").append(b64(pub.getPublicExponent().toByteArray()))
+                    .append("\"}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static String signedToken(String kid, KeyPair key) throws Exception {
+        long now = Instant.now().getEpochSecond();
+        String header = b64(("{\"alg\":\"RS256\",\"kid\":\"" + kid + "\"}").getBytes(StandardCharsets.UTF_8));
+        String payload = b64(("{\"iat\":" + (now - 10) + ",\"exp\":" + (now + 300) + "}").getBytes(StandardCharsets.UTF_8));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(key.getPrivate());
+        signature.update((header + "." + payload).getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + "." + b64(signature.sign());
+    }
+
+    private static String b64(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class JwtVerifierTest {
@@ -214,6 +215,59 @@ class JwtVerifierTest {
         }
     }
 
+    @Test
+    void cachedTokenStillRechecksExpiry() throws Exception {
+        MutableClock clock = new MutableClock(Instant.now(FIXED_CLOCK));
+        JwtVerifier verifier = JwtVerifier.forTesting(KEY_PAIR.getPublic(), CONSTRAINTS, clock);
+        // Expired 50s ago but still inside the 60s skew allowance.
+        String token = createToken(Instant.now(FIXED_CLOCK).minusSeconds(50),
+                Instant.now(FIXED_CLOCK).minusSeconds(120), "clockify", "rules", KEY_PAIR.getPrivate());
+
+        JwtVerifier.DecodedJwt first = verifier.verify(token);
+        assertSame(first, verifier.verify(token));
+
+        clock.advanceSeconds(20);
+        assertThrows(JwtVerifier.JwtVerificationException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void tamperedTokenIsNotServedFromCache() throws Exception {
+        JwtVerifier verifier = JwtVerifier.forTesting(KEY_PAIR.getPublic(), CONSTRAINTS, FIXED_CLOCK);
+        String token = createToken(Instant.now(FIXED_CLOCK).plusSeconds(300),
+                Instant.now(FIXED_CLOCK).minusSeconds(60), "clockify", "rules", KEY_PAIR.getPrivate());
+        verifier.verify(token);
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertThrows(JwtVerifier.JwtVerificationException.class, () -> verifier.verify(tampered));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advanceSeconds(long seconds) {
+            now = now.plusSeconds(seconds);
+        }
+
+        @Override
+        public java.time.ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
     private static String createToken(Instant exp, Instant nbf, String iss, String aud, PrivateKey key) throws Exception {
         return createToken(exp, nbf, iss, aud, key, "RS256", null);
     }
@@ -0,0 +1,37 @@
+package com.clockify.addon.sdk.util;
+
+import com.clockify.addon.sdk.security.TokenStore;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonCodecTest {
+
+    @Test
+    void readersAndWritersAreReusedPerType() {
+        assertSame(JsonCodec.readerFor(TokenStore.WorkspaceToken.class),
+                JsonCodec.readerFor(TokenStore.WorkspaceToken.class));
+        assertSame(JsonCodec.writerFor(TokenStore.WorkspaceToken.class),
+                JsonCodec.writerFor(TokenStore.WorkspaceToken.class));
+    }
+
+    @Test
+    void recordsRoundTripAndUnknownPropertiesStillFail() throws Exception {
+        TokenStore.WorkspaceToken token = new TokenStore.WorkspaceToken("tok", "https://api.clockify.me/api/v1", 1L, 2L, 3L);
+        String json = JsonCodec.writerFor(TokenStore.WorkspaceToken.class).writeValueAsString(token);
+
+        assertEquals(token, JsonCodec.readerFor(TokenStore.WorkspaceToken.class).readValue(json));
+        String extended = json.substring(0, json.length() - 1) + ",\"scope\":\"full\"}";
+        assertThrows(UnrecognizedPropertyException.class,
+                () -> JsonCodec.readerFor(TokenStore.WorkspaceToken.class).readValue(extended));
+    }
+
+    @Test
+    void treesReadAndWriteThroughTheSharedMapper() throws Exception {
+        assertEquals("{\"a\":[1,2]}", JsonCodec.write(JsonCodec.readTree(" {\"a\": [1, 2]} ")));
+        assertEquals("{\"ok\":true}", JsonCodec.write(JsonCodec.object().put("ok", true)));
+    }
+}
@@ -523,4 +523,14 @@ class PathSanitizerTest {
             assertEquals(expected, PathSanitizer.sanitize(path));
         }
     }
+
+    @Test
+    void testCanonicalPathsAreReturnedAsIs() {
+        String canonical = "/api/v1/users";
+        assertSame(canonical, PathSanitizer.sanitize(canonical));
+        assertSame(canonical, PathSanitizer.normalize(canonical));
+        assertEquals("/a/b", PathSanitizer.normalize("a//b/"));
+        assertEquals("/lifecycle/installed", PathSanitizer.sanitizeLifecyclePath("INSTALLED", null));
+        assertEquals("/lifecycle/settings_updated", PathSanitizer.sanitizeLifecyclePath("SETTINGS_UPDATED!", " "));
+    }
 }
@@ -0,0 +1,38 @@
+package com.clockify.addon.sdk.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryIdempotencyStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final IdempotencyStore.StoredResponse ok = new IdempotencyStore.StoredResponse(200, "application/json", "{}");
+
+    @Test
+    void forgetsDeliveriesAfterTheWindow() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10, now::get);
+        store.remember("a", ok, Duration.ofSeconds(10));
+
+        now.addAndGet(9_999);
+        assertEquals(ok, store.find("a").orElseThrow());
+        now.addAndGet(1);
+        assertTrue(store.find("a").isEmpty());
+    }
+
+    @Test
+    void staysBoundedByEvictingTheOldest() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(3, now::get);
+        for (String key : new String[]{"a", "b", "c", "d"}) {
+            store.remember(key, ok, Duration.ofMinutes(1));
+        }
+
+        assertEquals(3, store.size());
+        assertTrue(store.find("a").isEmpty());
+        assertTrue(store.find("d").isPresent());
+    }
+}
@@ -0,0 +1,122 @@
+package com.clockify.addon.sdk.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyedLocksTest {
+
+    @Test
+    void runsCallersOfOneKeyOneAtATimeOnTheirOwnThreads() throws Exception {
+        KeyedLocks locks = new KeyedLocks(Duration.ofSeconds(5), 16);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> locks.call("ws-1\nte-1", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(5);
+                    running.decrementAndGet();
+                    return Thread.currentThread().getName();
+                })));
+            }
+            for (Future<String> result : results) {
+                assertTrue(result.get(5, TimeUnit.SECONDS).startsWith("pool-"));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(1, maxRunning.get());
+        assertEquals(0, locks.activeKeys());
+    }
+
+    @Test
+    void differentKeysRunInParallel() throws Exception {
+        KeyedLocks locks = new KeyedLocks(Duration.ofSeconds(5), 16);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> a = callers.submit(() -> locks.call("a", () -> {
+                bothRunning.countDown();
+                return bothRunning.await(5, TimeUnit.SECONDS);
+            }));
+            Future<Boolean> b = callers.submit(() -> locks.call("b", () -> {
+                bothRunning.countDown();
+                return bothRunning.await(5, TimeUnit.SECONDS);
+            }));
+
+            assertTrue(a.get(5, TimeUnit.SECONDS));
+            assertTrue(b.get(5, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitBehindAHungCallerIsBounded() throws Exception {
+        KeyedLocks locks = new KeyedLocks(Duration.ofMillis(50), 4);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> hung = holdKey(locks, release);
+        try {
+            assertThrows(TimeoutException.class, () -> locks.call("k", () -> "late"));
+        } finally {
+            release.countDown();
+        }
+        hung.get(5, TimeUnit.SECONDS);
+        assertEquals(0, locks.activeKeys());
+    }
+
+    @Test
+    void callersBeyondTheQueueBoundAreRejected() throws Exception {
+        KeyedLocks locks = new KeyedLocks(Duration.ofSeconds(5), 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> hung = holdKey(locks, release);
+        ExecutorService waiter = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> queued = waiter.submit(() -> locks.call("k", () -> "queued"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (locks.callers("k") < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertThrows(RejectedExecutionException.class, () -> locks.call("k", () -> "rejected"));
+
+            release.countDown();
+            assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            waiter.shutdownNow();
+        }
+        hung.get(5, TimeUnit.SECONDS);
+    }
+
+    /** Holds key {@code k} on another thread until {@code release} opens. */
+    private static Future<Object> holdKey(KeyedLocks locks, CountDownLatch release) throws InterruptedException {
+        CountDownLatch holding = new CountDownLatch(1);
+        ExecutorService holder = Executors.newSingleThreadExecutor();
+        Future<Object> result = holder.submit(() -> locks.call("k", () -> {
+            holding.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        holder.shutdown();
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        return result;
+    }
+}
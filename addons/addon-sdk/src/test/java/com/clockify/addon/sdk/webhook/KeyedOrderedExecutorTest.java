@@ -0,0 +1,105 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyedOrderedExecutorTest {
+    private final KeyedOrderedExecutor executor = new KeyedOrderedExecutor(4, 8);
+
+    @AfterEach
+    void close() {
+        executor.close();
+    }
+
+    @Test
+    void runsTasksOfOneKeyInSubmissionOrderOneAtATime() throws Exception {
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int n = i;
+            futures.add(executor.submit("ws-1\nte-1", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                seen.add(n);
+                running.decrementAndGet();
+                return n;
+            }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), seen);
+        assertEquals(1, maxRunning.get());
+        awaitIdle();
+    }
+
+    @Test
+    void runsDifferentKeysInParallel() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CompletableFuture<Boolean> a = executor.submit("ws-1\nte-1", () -> {
+            bothStarted.countDown();
+            return bothStarted.await(5, TimeUnit.SECONDS);
+        });
+        CompletableFuture<Boolean> b = executor.submit("ws-1\nte-2", () -> {
+            bothStarted.countDown();
+            return bothStarted.await(5, TimeUnit.SECONDS);
+        });
+        assertTrue(a.get(10, TimeUnit.SECONDS));
+        assertTrue(b.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rejectsWhenALaneIsFullAndKeepsGoingAfterFailures() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit("hot", () -> release.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 8; i++) {
+            executor.submit("hot", () -> null);
+        }
+        assertThrows(RejectedExecutionException.class, () -> executor.submit("hot", () -> null));
+        // Other keys are unaffected by the full lane.
+        assertEquals("ok", executor.submit("cold", () -> "ok").get(5, TimeUnit.SECONDS));
+        release.countDown();
+        awaitIdle();
+
+        CompletableFuture<Object> failing = executor.submit("hot", () -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<String> next = executor.submit("hot", () -> "after");
+        assertTrue(failing.handle((v, t) -> t).get(5, TimeUnit.SECONDS) instanceof IllegalStateException);
+        assertEquals("after", next.get(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.activeKeys() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, executor.activeKeys());
+    }
+
+    @Test
+    void byEntityKeysOnWorkspaceAndTimeEntry() throws Exception {
+        ObjectMapper om = new ObjectMapper();
+        OrderingKey key = OrderingKey.byEntity();
+        assertEquals("ws-1\nte-1", key.keyOf(om.readTree("{\"workspaceId\":\"ws-1\",\"timeEntry\":{\"id\":\"te-1\"}}")));
+        assertEquals("ws-1\nte-2", key.keyOf(om.readTree("{\"workspaceId\":\"ws-1\",\"id\":\"te-2\"}")));
+        assertNull(key.keyOf(om.readTree("{\"id\":\"te-3\"}")));
+    }
+}
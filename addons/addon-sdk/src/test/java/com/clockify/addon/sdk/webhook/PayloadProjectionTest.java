@@ -0,0 +1,73 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadProjectionTest {
+    private static final String BODY = "{\"workspaceId\":\"ws-1\","
+            + "\"timeEntry\":{\"id\":\"te-1\",\"description\":\"Standup\","
+            + "\"customFieldValues\":[{\"id\":\"cf\",\"value\":{\"nested\":[1,2,3]}}],"
+            + "\"tagIds\":[\"t-1\",\"t-2\"],"
+            + "\"timeInterval\":{\"start\":\"2025-01-10T09:00:00Z\",\"end\":null}},"
+            + "\"event\":\"TIME_ENTRY_UPDATED\"}";
+
+    @Test
+    void extractsScalarsSubtreesAndArrayElements() throws Exception {
+        PayloadProjection projection = PayloadProjection.of(
+                "/workspaceId", "/timeEntry/timeInterval", "/timeEntry/tagIds/1", "/timeEntry/missing");
+        ProjectedPayload payload = projection.extract(BODY);
+
+        assertEquals("ws-1", payload.text("/workspaceId"));
+        assertEquals("2025-01-10T09:00:00Z", payload.get("/timeEntry/timeInterval").path("start").asText());
+        assertTrue(payload.get("/timeEntry/timeInterval").path("end").isNull());
+        assertEquals("t-2", payload.text("/timeEntry/tagIds/1"));
+        assertTrue(payload.get("/timeEntry/missing").isMissingNode());
+        assertNull(payload.text("/timeEntry/missing"));
+        assertThrows(IllegalArgumentException.class, () -> payload.get("/timeEntry/description"));
+    }
+
+    @Test
+    void fieldsInsideACapturedSubtreeResolveFromIt() throws Exception {
+        ProjectedPayload payload = PayloadProjection.of("/timeEntry/id", "/timeEntry").extract(BODY);
+
+        assertEquals("te-1", payload.text("/timeEntry/id"));
+        assertEquals("Standup", payload.get("/timeEntry").path("description").asText());
+    }
+
+    @Test
+    void viewIsShapedLikeThePayloadForOrderingKeys() throws Exception {
+        ProjectedPayload payload = PayloadProjection.ROUTING.extract(BODY);
+        JsonNode view = payload.view();
+
+        assertEquals("ws-1\nte-1", OrderingKey.byEntity().keyOf(view));
+        assertEquals("TIME_ENTRY_UPDATED", view.path("event").asText());
+        assertFalse(view.path("timeEntry").has("description"));
+        assertEquals(List.of("/event", "/workspaceId", "/id", "/timeEntry/id"), PayloadProjection.ROUTING.pointers());
+    }
+
+    @Test
+    void stopsReadingOnceEveryFieldIsFoundAndParsesTheTreeOnDemand() throws Exception {
+        String truncated = "{\"workspaceId\":\"ws-1\",\"timeEntry\":{\"id\":\"te-1\"}, \"broken\": [";
+        ProjectedPayload payload = PayloadProjection.of("/workspaceId", "/timeEntry/id").extract(truncated);
+
+        assertEquals("te-1", payload.text("/timeEntry/id"));
+        assertThrows(IOException.class, payload::tree);
+        assertEquals("Standup", PayloadProjection.of("/workspaceId").extract(BODY).tree()
+                .at("/timeEntry/description").asText());
+    }
+
+    @Test
+    void rejectsMalformedJsonBeforeTheProjectedFields() {
+        assertThrows(IOException.class, () -> PayloadProjection.of("/workspaceId").extract("{\"x\": ]"));
+        assertThrows(IllegalArgumentException.class, () -> PayloadProjection.of("workspaceId"));
+    }
+}
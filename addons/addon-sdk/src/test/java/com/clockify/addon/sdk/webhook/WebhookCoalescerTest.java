@@ -0,0 +1,147 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.HttpResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookCoalescerTest {
+    private static final ObjectMapper om = new ObjectMapper();
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void burstForOneEntityRunsOnlyTheLatestEvent() throws Exception {
+        WebhookCoalescer coalescer = new WebhookCoalescer(Set.of("TIME_ENTRY_UPDATED"), Duration.ofMillis(200), Duration.ofSeconds(2));
+        List<String> handled = new CopyOnWriteArrayList<>();
+
+        List<Future<HttpResponse>> responses = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            responses.add(submit(coalescer, "te-1", "v" + i, handled, 200));
+            Thread.sleep(30);
+        }
+        Future<HttpResponse> other = submit(coalescer, "te-2", "v1", handled, 200);
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(responses.get(i).get().getBody().contains("coalesced"));
+        }
+        assertEquals("handled", responses.get(2).get().getBody());
+        assertEquals("handled", other.get().getBody());
+        assertEquals(Set.of("te-1:v3", "te-2:v1"), Set.copyOf(handled));
+        assertEquals(2, handled.size());
+    }
+
+    @Test
+    void olderEventRunsWhenTheNewestFails() throws Exception {
+        WebhookCoalescer coalescer = new WebhookCoalescer(Set.of("TIME_ENTRY_UPDATED"), Duration.ofMillis(150), Duration.ofSeconds(2));
+        List<String> handled = new CopyOnWriteArrayList<>();
+
+        Future<HttpResponse> genuine = submit(coalescer, "te-1", "genuine", handled, 200);
+        Thread.sleep(30);
+        Future<HttpResponse> forged = submit(coalescer, "te-1", "forged", handled, 403);
+
+        assertEquals(403, forged.get().getStatusCode());
+        assertEquals("handled", genuine.get().getBody());
+        assertEquals(List.of("te-1:forged", "te-1:genuine"), handled);
+    }
+
+    @Test
+    void addedLatencyIsCappedDuringAContinuousStream() throws Exception {
+        WebhookCoalescer coalescer = new WebhookCoalescer(Set.of("TIME_ENTRY_UPDATED"), Duration.ofMillis(100), Duration.ofMillis(300));
+        List<String> handled = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        Future<HttpResponse> first = submit(coalescer, "te-1", "v0", handled, 200);
+        for (int i = 1; i <= 10; i++) {
+            Thread.sleep(50);
+            submit(coalescer, "te-1", "v" + i, handled, 200);
+        }
+
+        first.get();
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 900);
+        assertTrue(handled.size() >= 1);
+    }
+
+    @Test
+    void olderEventStopsWaitingOnAStuckHandler() throws Exception {
+        WebhookCoalescer coalescer = new WebhookCoalescer(Set.of("TIME_ENTRY_UPDATED"), Duration.ofMillis(100),
+                Duration.ofMillis(200), Duration.ofMillis(200));
+        CountDownLatch release = new CountDownLatch(1);
+        JsonNode payload = om.readTree("{\"workspaceId\":\"ws-1\",\"timeEntry\":{\"id\":\"te-1\"}}");
+
+        long start = System.nanoTime();
+        Future<HttpResponse> older = pool.submit(() -> coalescer.dispatch("TIME_ENTRY_UPDATED", payload,
+                () -> HttpResponse.ok("handled")));
+        Thread.sleep(30);
+        Future<HttpResponse> stuck = pool.submit(() -> coalescer.dispatch("TIME_ENTRY_UPDATED", payload, () -> {
+            release.await();
+            return HttpResponse.ok("handled");
+        }));
+
+        HttpResponse response = older.get(5, TimeUnit.SECONDS);
+        assertEquals(202, response.getStatusCode());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000);
+        release.countDown();
+        assertEquals("handled", stuck.get().getBody());
+    }
+
+    @Test
+    void failedHandlerSkipsEventsThatStoppedWaiting() throws Exception {
+        WebhookCoalescer coalescer = new WebhookCoalescer(Set.of("TIME_ENTRY_UPDATED"), Duration.ofMillis(400),
+                Duration.ofMillis(500), Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> handled = new CopyOnWriteArrayList<>();
+        JsonNode payload = om.readTree("{\"workspaceId\":\"ws-1\",\"timeEntry\":{\"id\":\"te-1\"}}");
+
+        Future<HttpResponse> first = submit(coalescer, "te-1", "v1", handled, 200);
+        Thread.sleep(350);
+        Future<HttpResponse> second = submit(coalescer, "te-1", "v2", handled, 200);
+        Thread.sleep(30);
+        Future<HttpResponse> newest = pool.submit(() -> coalescer.dispatch("TIME_ENTRY_UPDATED", payload, () -> {
+            handled.add("te-1:v3");
+            release.await();
+            return HttpResponse.error(500, "failed");
+        }));
+
+        assertEquals(202, first.get(5, TimeUnit.SECONDS).getStatusCode());
+        release.countDown();
+        assertEquals(500, newest.get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals("handled", second.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(List.of("te-1:v3", "te-1:v2"), handled);
+    }
+
+    @Test
+    void eventsWithoutAnEntityAreNotKeyed() throws Exception {
+        assertNull(WebhookCoalescer.key("TIME_ENTRY_UPDATED", om.readTree("{\"workspaceId\":\"ws\"}")));
+        assertEquals("TIME_ENTRY_UPDATED\nws\nte", WebhookCoalescer.key("TIME_ENTRY_UPDATED",
+                om.readTree("{\"workspaceId\":\"ws\",\"timeEntry\":{\"id\":\"te\"}}")));
+    }
+
+    private Future<HttpResponse> submit(WebhookCoalescer coalescer, String entryId, String version,
+                                        List<String> handled, int status) throws Exception {
+        JsonNode payload = om.readTree("{\"workspaceId\":\"ws-1\",\"timeEntry\":{\"id\":\"" + entryId + "\"}}");
+        return pool.submit(() -> coalescer.dispatch("TIME_ENTRY_UPDATED", payload, () -> {
+            handled.add(entryId + ":" + version);
+            return status == 200 ? HttpResponse.ok("handled") : HttpResponse.error(status, "denied");
+        }));
+    }
+}
@@ -0,0 +1,144 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.security.WebhookSignatureValidator;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebhookInboxConsumerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void acknowledgesOnceAppendedAndProcessesInTheBackground() throws Exception {
+        CountDownLatch processed = new CountDownLatch(1);
+        List<String> workspaces = new CopyOnWriteArrayList<>();
+        try (WebhookInbox inbox = new WebhookInbox(dir, 64 * 1024, true);
+             WebhookInboxConsumer consumer = new WebhookInboxConsumer(inbox, 2)) {
+            var handler = consumer.handler("TIME_ENTRY_UPDATED", (req, payload) -> WebhookSignatureValidator.VerificationResult.ok(),
+                    (entry, payload) -> {
+                        workspaces.add(payload.path("workspaceId").asText());
+                        processed.countDown();
+                    });
+            consumer.start();
+
+            HttpResponse response = handler.handle(request("{\"workspaceId\":\"ws-1\"}"));
+
+            assertEquals(200, response.getStatusCode());
+            assertTrue(response.getBody().contains("\"accepted\""));
+            assertTrue(processed.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("ws-1"), workspaces);
+            awaitDrained(inbox);
+        }
+    }
+
+    @Test
+    void rejectedSignaturesAreNotAppended() throws Exception {
+        try (WebhookInbox inbox = new WebhookInbox(dir, 64 * 1024, true);
+             WebhookInboxConsumer consumer = new WebhookInboxConsumer(inbox, 1)) {
+            HttpResponse denied = HttpResponse.error(401, "{\"error\":\"invalid signature\"}", "application/json");
+            var handler = consumer.handler("TIME_ENTRY_UPDATED",
+                    (req, payload) -> new WebhookSignatureValidator.VerificationResult(false, denied),
+                    (entry, payload) -> { });
+
+            assertEquals(401, handler.handle(request("{}")).getStatusCode());
+            assertEquals(0, inbox.pendingCount());
+        }
+    }
+
+    @Test
+    void replaysPendingEntriesOnStartAndRetriesFailures() throws Exception {
+        try (WebhookInbox inbox = new WebhookInbox(dir, 64 * 1024, true)) {
+            inbox.append("TIME_ENTRY_UPDATED", "/webhook", "{\"workspaceId\":\"ws-1\"}");
+        }
+        AtomicInteger attempts = new AtomicInteger();
+        try (WebhookInbox inbox = new WebhookInbox(dir, 64 * 1024, true);
+             WebhookInboxConsumer consumer = new WebhookInboxConsumer(inbox, 1, 3, Duration.ofMillis(10))) {
+            consumer.handler("TIME_ENTRY_UPDATED", (req, payload) -> WebhookSignatureValidator.VerificationResult.ok(),
+                    (entry, payload) -> {
+                        if (attempts.incrementAndGet() < 2) {
+                            throw new IllegalStateException("transient");
+                        }
+                    });
+            consumer.start();
+
+            awaitDrained(inbox);
+            assertEquals(2, attempts.get());
+        }
+    }
+
+    @Test
+    void failingEventIsRetriedThenDeadLettered() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        List<WebhookInbox.Entry> deadLettered = new CopyOnWriteArrayList<>();
+        try (WebhookInbox inbox = new WebhookInbox(dir, 64 * 1024, true);
+             WebhookInbox deadLetters = new WebhookInbox(dir.resolve("dead-letter"), 64 * 1024, true, "test_dead_letter");
+             WebhookInboxConsumer consumer = new WebhookInboxConsumer(inbox, 1, 3, Duration.ofMillis(10))) {
+            var handler = consumer.deadLetterTo(deadLetters).handler("TIME_ENTRY_UPDATED",
+                    (req, payload) -> WebhookSignatureValidator.VerificationResult.ok(),
+                    (entry, payload) -> {
+                        attempts.incrementAndGet();
+                        throw new IllegalStateException("Clockify API status 503 update time entry");
+                    });
+            consumer.start();
+
+            assertEquals(200, handler.handle(request("{\"workspaceId\":\"ws-1\"}")).getStatusCode());
+
+            awaitDrained(inbox);
+            assertEquals(3, attempts.get());
+            deadLetters.replay(deadLettered::add);
+            assertEquals(1, deadLettered.size());
+            assertEquals("TIME_ENTRY_UPDATED", deadLettered.get(0).event());
+            assertEquals("{\"workspaceId\":\"ws-1\"}", deadLettered.get(0).body());
+        }
+    }
+
+    @Test
+    void permanentFailuresAreNotRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        try (WebhookInbox inbox = new WebhookInbox(dir, 64 * 1024, true);
+             WebhookInboxConsumer consumer = new WebhookInboxConsumer(inbox, 1, 3, Duration.ofMillis(10))) {
+            var handler = consumer.handler("TIME_ENTRY_UPDATED", (req, payload) -> WebhookSignatureValidator.VerificationResult.ok(),
+                    (entry, payload) -> {
+                        attempts.incrementAndGet();
+                        throw new WebhookInboxConsumer.PermanentFailure("timeEntry.id is required");
+                    });
+            consumer.start();
+
+            handler.handle(request("{\"workspaceId\":\"ws-1\"}"));
+
+            awaitDrained(inbox);
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    private static void awaitDrained(WebhookInbox inbox) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inbox.pendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, inbox.pendingCount());
+    }
+
+    private static HttpServletRequest request(String body) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getAttribute("clockify.rawBody")).thenReturn(body);
+        when(request.getPathInfo()).thenReturn("/webhook");
+        return request;
+    }
+}
@@ -0,0 +1,104 @@
+package com.clockify.addon.sdk.webhook;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookInboxTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysEntriesNotMarkedDoneAfterRestartWithoutClose() throws Exception {
+        WebhookInbox inbox = new WebhookInbox(dir, 64 * 1024, true);
+        WebhookInbox.Entry first = inbox.append("TIME_ENTRY_UPDATED", "/webhook", "{\"n\":1}");
+        WebhookInbox.Entry second = inbox.append("TIMER_STOPPED", "/webhook", "{\"n\":\"é\"}");
+        inbox.markDone(first.sequence());
+        // simulate a crash: the inbox is never closed
+
+        try (WebhookInbox reopened = new WebhookInbox(dir, 64 * 1024, true)) {
+            List<WebhookInbox.Entry> replayed = new ArrayList<>();
+            reopened.replay(replayed::add);
+
+            assertEquals(List.of(second), replayed);
+            assertTrue(reopened.append("TIME_ENTRY_UPDATED", "/webhook", "{}").sequence() > second.sequence());
+        }
+    }
+
+    @Test
+    void compactsSegmentsOnceEverythingInThemIsDone() throws Exception {
+        try (WebhookInbox inbox = new WebhookInbox(dir, 4096, false)) {
+            List<Long> sequences = new ArrayList<>();
+            String body = "{\"pad\":\"" + "x".repeat(500) + "\"}";
+            for (int i = 0; i < 20; i++) {
+                sequences.add(inbox.append("TIME_ENTRY_UPDATED", "/webhook", body).sequence());
+            }
+            assertTrue(inbox.segmentCount() > 2);
+
+            for (long sequence : sequences) {
+                inbox.markDone(sequence);
+            }
+
+            assertEquals(0, inbox.pendingCount());
+            assertEquals(1, inbox.segmentCount());
+        }
+    }
+
+    @Test
+    void ignoresATornTailOnRecovery() throws Exception {
+        WebhookInbox inbox = new WebhookInbox(dir, 64 * 1024, false);
+        WebhookInbox.Entry kept = inbox.append("TIME_ENTRY_UPDATED", "/webhook", "{\"n\":1}");
+        inbox.append("TIME_ENTRY_UPDATED", "/webhook", "{\"n\":2}");
+        inbox.close();
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve(WebhookInbox.fileName(0)).toFile(), "rw")) {
+            long second = 8 + 1 + 8 + 8 + 4 + "TIME_ENTRY_UPDATED".length() + 4 + "/webhook".length() + 4 + 7;
+            file.seek(second + 30);
+            file.write('#');
+        }
+
+        try (WebhookInbox reopened = new WebhookInbox(dir, 64 * 1024, false)) {
+            List<WebhookInbox.Entry> replayed = new ArrayList<>();
+            reopened.replay(replayed::add);
+            assertEquals(List.of(kept), replayed);
+        }
+    }
+
+    @Test
+    void concurrentAppendsAreAllDurableWithSharedFsyncs() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        Set<Long> sequences = ConcurrentHashMap.newKeySet();
+        try (WebhookInbox inbox = new WebhookInbox(dir, 64 * 1024, true)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int n = i;
+                futures.add(pool.submit(() -> {
+                    sequences.add(inbox.append("TIME_ENTRY_UPDATED", "/webhook", "{\"n\":" + n + "}").sequence());
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(200, sequences.size());
+
+        try (WebhookInbox reopened = new WebhookInbox(dir, 64 * 1024, true)) {
+            assertEquals(200, reopened.pendingCount());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.clockify.addon.sdk.webhook;
+
+import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.metrics.MetricsHandler;
+import io.micrometer.core.instrument.Gauge;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkspaceSchedulerTest {
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void overloadedWorkspaceGets429WhileOthersProceed() throws Exception {
+        WorkspaceScheduler scheduler = new WorkspaceScheduler(4, 1, 1, Duration.ofSeconds(5), Map.of());
+        CountDownLatch release = new CountDownLatch(1);
+        Future<HttpResponse> running = submit(scheduler, "ws-noisy", release, null);
+        awaitValue(scheduler::running, 1);
+        Future<HttpResponse> queued = submit(scheduler, "ws-noisy", null, null);
+        awaitValue(() -> scheduler.queued("ws-noisy"), 1);
+
+        HttpResponse rejected = scheduler.dispatch("ws-noisy", () -> HttpResponse.ok("never"));
+        assertEquals(429, rejected.getStatusCode());
+        assertTrue(Integer.parseInt(rejected.getHeaders().get("Retry-After")) >= 1);
+
+        assertEquals(200, scheduler.dispatch("ws-quiet", () -> HttpResponse.ok("ok")).getStatusCode());
+
+        release.countDown();
+        assertEquals(200, running.get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(200, queued.get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(0, scheduler.running());
+    }
+
+    @Test
+    void freedSlotGoesToTheLeastServedWorkspace() throws Exception {
+        WorkspaceScheduler scheduler = new WorkspaceScheduler(1, 1, 10, Duration.ofSeconds(5), Map.of());
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<HttpResponse> first = submit(scheduler, "ws-a", release, order);
+        awaitValue(scheduler::running, 1);
+        for (int i = 0; i < 3; i++) {
+            submit(scheduler, "ws-a", null, order);
+        }
+        awaitValue(() -> scheduler.queued("ws-a"), 3);
+        Future<HttpResponse> latecomer = submit(scheduler, "ws-b", null, order);
+        awaitValue(() -> scheduler.queued("ws-b"), 1);
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        latecomer.get(5, TimeUnit.SECONDS);
+        awaitValue(order::size, 5);
+        assertEquals(List.of("ws-a", "ws-b", "ws-a", "ws-a", "ws-a"), order);
+    }
+
+    @Test
+    void waitingPastTheLimitIsRejected() throws Exception {
+        WorkspaceScheduler scheduler = new WorkspaceScheduler(1, 1, 10, Duration.ofMillis(50), Map.of());
+        CountDownLatch release = new CountDownLatch(1);
+        Future<HttpResponse> running = submit(scheduler, "ws-a", release, null);
+        awaitValue(scheduler::running, 1);
+
+        assertEquals(429, scheduler.dispatch("ws-b", () -> HttpResponse.ok("late")).getStatusCode());
+        assertEquals(0, scheduler.queued("ws-b"));
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void workspaceMetersOutliveBusyPeriodsAndGoAwayWhenIdle() throws Exception {
+        WorkspaceScheduler scheduler = new WorkspaceScheduler(4, 1, 1, Duration.ofSeconds(5), Map.of(), Duration.ofMillis(200));
+        scheduler.dispatch("ws-metered", () -> HttpResponse.ok("first"));
+        Gauge gauge = MetricsHandler.registry().find("webhook_workspace_queue_depth").tag("workspace", "ws-metered").gauge();
+        scheduler.dispatch("ws-metered", () -> HttpResponse.ok("second"));
+
+        assertSame(gauge, MetricsHandler.registry().find("webhook_workspace_queue_depth").tag("workspace", "ws-metered").gauge());
+        assertEquals(1, scheduler.meteredWorkspaces());
+
+        Thread.sleep(450);
+        scheduler.dispatch("ws-other", () -> HttpResponse.ok("sweeps"));
+
+        assertNull(MetricsHandler.registry().find("webhook_workspace_queue_depth").tag("workspace", "ws-metered").gauge());
+        assertNull(MetricsHandler.registry().find("webhook_workspace_rejected_total").tag("workspace", "ws-metered").counter());
+        assertEquals(1, scheduler.meteredWorkspaces());
+    }
+
+    @Test
+    void parsesWorkspaceWeights() {
+        assertEquals(Map.of("ws-a", 3, "ws-b", 1), WorkspaceScheduler.parseWeights("ws-a:3, ws-b:1, ws-c:x, bad"));
+    }
+
+    private Future<HttpResponse> submit(WorkspaceScheduler scheduler, String workspaceId, CountDownLatch release,
+                                        List<String> order) {
+        return pool.submit(() -> scheduler.dispatch(workspaceId, () -> {
+            if (order != null) {
+                order.add(workspaceId);
+            }
+            if (release != null) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return HttpResponse.ok(workspaceId);
+        }));
+    }
+
+    private static void awaitValue(IntSupplier value, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (value.getAsInt() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, value.getAsInt());
+    }
+}
@@ -12,6 +12,9 @@ import com.clockify.addon.sdk.middleware.SensitiveHeaderFilter;
 import com.clockify.addon.sdk.middleware.WorkspaceContextFilter;
 import com.clockify.addon.sdk.security.DatabaseTokenStore;
 import com.clockify.addon.sdk.metrics.MetricsHandler;
+import com.clockify.addon.sdk.security.AuditLogger;
+import com.clockify.addon.sdk.security.AuditQueryHandler;
+import com.clockify.addon.sdk.security.FileAuditStore;
 import com.clockify.addon.sdk.ConfigValidator;
 import com.clockify.addon.sdk.config.SecretsPolicy;
 import com.clockify.addon.sdk.security.jwt.JwtBootstrapConfig;
@@ -122,6 +125,7 @@ public class AutoTagAssistantApp {
             });
         }
         addon.registerCustomEndpoint("/health", health);
+        addon.registerCustomEndpoint("/ready", health.readinessHandler());
         addon.registerCustomEndpoint("/status", request -> {
             String workspaceId = (String) request.getAttribute(PlatformAuthFilter.ATTR_WORKSPACE_ID);
             if (workspaceId == null || workspaceId.isBlank()) {
@@ -147,6 +151,10 @@ public class AutoTagAssistantApp {
         });
         // Prometheus metrics (optional; text/plain scrape)
         addon.registerCustomEndpoint("/metrics", new MetricsHandler());
+        FileAuditStore.fromEnvironment().ifPresent(store -> {
+            AuditLogger.addSink(store);
+            addon.registerCustomEndpoint("/audit", new AuditQueryHandler(store));
+        });
         registerDevConfigEndpoint(addon, config, persistentTokenStore);
 
         // Extract context path from base URL
@@ -157,18 +165,11 @@ public class AutoTagAssistantApp {
         AddonServlet servlet = new AddonServlet(addon);
         EmbeddedServer server = new EmbeddedServer(servlet, contextPath);
         if (jwtVerifier != null) {
-            server.addFilter(new WorkspaceContextFilter(jwt -> {
-                try {
-                    JwtVerifier.DecodedJwt decoded = jwtVerifier.verify(jwt);
-                    return decoded.payload();
-                } catch (Exception e) {
-                    logger.debug("WorkspaceContextFilter JWT verification failed: {}", e.getMessage());
-                    return null;
-                }
-            }));
+            server.verifyCsrfTokensWith(jwtVerifier);
+            server.addFilter(WorkspaceContextFilter.forVerifier(jwtVerifier));
             server.addFilter(new ScopedPlatformAuthFilter(
                     new PlatformAuthFilter(jwtVerifier),
-                    Set.of("/status", "/metrics"),
+                    Set.of("/status", "/metrics", "/audit"),
                     List.of("/api")
             ));
         } else if (!config.isDev()) {
@@ -218,6 +219,7 @@ public class AutoTagAssistantApp {
         logger.info("              {}/lifecycle/deleted", baseUrl);
         logger.info("  Webhook:   {}/webhook", baseUrl);
         logger.info("  Health:    {}/health", baseUrl);
+        logger.info("  Ready:     {}/ready", baseUrl);
 
         // Add shutdown hook for graceful stop
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -1,7 +1,7 @@
 package com.example.autotagassistant;
 
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -29,7 +29,6 @@ import java.time.Duration;
  */
 public class ClockifyApiClient {
     private final HttpClient httpClient;
-    private final ObjectMapper objectMapper;
     private final String baseUrl;
     private final String authToken;
 
@@ -43,7 +42,6 @@ public class ClockifyApiClient {
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(10))
                 .build();
-        this.objectMapper = new ObjectMapper();
     }
 
     /**
@@ -69,7 +67,7 @@ public class ClockifyApiClient {
             throw new RuntimeException("Failed to get tags: " + response.statusCode() + " - " + response.body());
         }
 
-        return objectMapper.readTree(response.body());
+        return JsonCodec.readTree(response.body());
     }
 
     /**
@@ -96,7 +94,7 @@ public class ClockifyApiClient {
             throw new RuntimeException("Failed to get time entry: " + response.statusCode() + " - " + response.body());
         }
 
-        return objectMapper.readTree(response.body());
+        return JsonCodec.readTree(response.body());
     }
 
     /**
@@ -128,9 +126,9 @@ public class ClockifyApiClient {
             }
         }
 
-        requestNode.set("tagIds", objectMapper.valueToTree(tagIds));
+        requestNode.set("tagIds", JsonCodec.tree(tagIds));
 
-        String requestBody = objectMapper.writeValueAsString(requestNode);
+        String requestBody = JsonCodec.write(requestNode);
 
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
@@ -147,7 +145,7 @@ public class ClockifyApiClient {
             throw new RuntimeException("Failed to update time entry: " + response.statusCode() + " - " + response.body());
         }
 
-        return objectMapper.readTree(response.body());
+        return JsonCodec.readTree(response.body());
     }
 
     /**
@@ -160,8 +158,8 @@ public class ClockifyApiClient {
     public JsonNode createTag(String workspaceId, String tagName) throws Exception {
         String url = String.format("%s/workspaces/%s/tags", baseUrl, workspaceId);
 
-        String requestBody = objectMapper.writeValueAsString(
-            objectMapper.createObjectNode()
+        String requestBody = JsonCodec.write(
+            JsonCodec.object()
                 .put("name", tagName)
         );
 
@@ -180,6 +178,6 @@ public class ClockifyApiClient {
             throw new RuntimeException("Failed to create tag: " + response.statusCode() + " - " + response.body());
         }
 
-        return objectMapper.readTree(response.body());
+        return JsonCodec.readTree(response.body());
     }
 }
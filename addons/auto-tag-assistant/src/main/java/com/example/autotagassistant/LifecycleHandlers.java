@@ -2,8 +2,8 @@ package com.example.autotagassistant;
 
 import com.clockify.addon.sdk.ClockifyAddon;
 import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,7 +24,6 @@ import java.io.BufferedReader;
  */
 public class LifecycleHandlers {
     private static final Logger logger = LoggerFactory.getLogger(LifecycleHandlers.class);
-    private static final ObjectMapper objectMapper = new ObjectMapper();
 
     public static void register(ClockifyAddon addon) {
         // Handle INSTALLED event
@@ -70,7 +69,7 @@ public class LifecycleHandlers {
                     logger.info("Stored auth token for workspace {}", workspaceId);
                 }
 
-                String responseBody = objectMapper.createObjectNode()
+                String responseBody = JsonCodec.object()
                         .put("status", "installed")
                         .put("message", "Add-on installed successfully")
                         .toString();
@@ -79,7 +78,7 @@ public class LifecycleHandlers {
 
             } catch (Exception e) {
                 logger.error("Error handling INSTALLED event", e);
-                String errorBody = objectMapper.createObjectNode()
+                String errorBody = JsonCodec.object()
                         .put("message", "Failed to process installation")
                         .put("details", e.getMessage())
                         .toString();
@@ -125,7 +124,7 @@ public class LifecycleHandlers {
                     }
                 }
 
-                String responseBody = objectMapper.createObjectNode()
+                String responseBody = JsonCodec.object()
                         .put("status", "uninstalled")
                         .put("message", "Add-on uninstalled successfully")
                         .toString();
@@ -134,7 +133,7 @@ public class LifecycleHandlers {
 
             } catch (Exception e) {
                 logger.error("Error handling DELETED event", e);
-                String errorBody = objectMapper.createObjectNode()
+                String errorBody = JsonCodec.object()
                         .put("message", "Failed to process uninstallation")
                         .put("details", e.getMessage())
                         .toString();
@@ -151,7 +150,7 @@ public class LifecycleHandlers {
 
         Object cachedBody = request.getAttribute("clockify.rawBody");
         if (cachedBody instanceof String) {
-            return objectMapper.readTree((String) cachedBody);
+            return JsonCodec.readTree((String) cachedBody);
         }
 
         StringBuilder sb = new StringBuilder();
@@ -161,6 +160,6 @@ public class LifecycleHandlers {
                 sb.append(line);
             }
         }
-        return objectMapper.readTree(sb.toString());
+        return JsonCodec.readTree(sb.toString());
     }
 }
@@ -2,6 +2,7 @@ package com.example.autotagassistant;
 
 import com.clockify.addon.sdk.HttpResponse;
 import com.clockify.addon.sdk.RequestHandler;
+import com.clockify.addon.sdk.middleware.VerifiedPrincipal;
 import com.clockify.addon.sdk.middleware.WorkspaceContextFilter;
 import com.clockify.addon.sdk.security.jwt.AuthTokenVerifier;
 import com.clockify.addon.sdk.security.jwt.JwtVerifier;
@@ -209,7 +210,7 @@ public class SettingsController implements RequestHandler {
 
         try {
             if (jwtVerifier != null) {
-                JwtVerifier.DecodedJwt decoded = jwtVerifier.verify(rawToken);
+                JwtVerifier.DecodedJwt decoded = VerifiedPrincipal.verify(request, rawToken, jwtVerifier);
                 return decoded.payload();
             }
             if (devMode) {
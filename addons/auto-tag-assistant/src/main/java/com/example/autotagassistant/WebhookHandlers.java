@@ -2,9 +2,11 @@ package com.example.autotagassistant;
 
 import com.clockify.addon.sdk.ClockifyAddon;
 import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.outbox.OutboxStore;
+import com.clockify.addon.sdk.outbox.OutboxWorker;
 import com.clockify.addon.sdk.security.WebhookSignatureValidator;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.servlet.http.HttpServletRequest;
@@ -41,9 +43,18 @@ import java.util.Set;
  */
 public class WebhookHandlers {
     private static final Logger logger = LoggerFactory.getLogger(WebhookHandlers.class);
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    static final String APPLY_SUGGESTED_TAGS = "auto-tag.apply-suggested-tags";
+    // Set when an outbox is configured: tag updates are queued and sent in the background.
+    private static volatile OutboxWorker outbox;
 
     public static void register(ClockifyAddon addon) {
+        if (outbox == null) {
+            OutboxWorker.fromEnvironment().ifPresent(worker -> {
+                worker.register(APPLY_SUGGESTED_TAGS, WebhookHandlers::deliverSuggestedTags).start();
+                outbox = worker;
+            });
+        }
+
         // Register handlers for all time entry events
         String[] events = {
             "NEW_TIMER_STARTED",
@@ -124,6 +135,8 @@ public class WebhookHandlers {
                                 String message = "Missing stored auth token/API base URL for workspace " + workspaceId;
                                 logger.error("{}", message);
                                 response = errorResponse(500, message);
+                            } else if (outbox != null) {
+                                response = queueSuggestedTags(workspaceId, timeEntryId, candidateTagNames);
                             } else {
                                 com.clockify.addon.sdk.security.TokenStore.WorkspaceToken token = workspaceToken.get();
                                 ClockifyApiClient apiClient = new ClockifyApiClient(token.apiBaseUrl(), token.token());
@@ -301,6 +314,48 @@ public class WebhookHandlers {
         return new TagUpdateResult(resolvedTags, createdTags, updatedEntry);
     }
 
+    private static HttpResponse queueSuggestedTags(String workspaceId, String timeEntryId, List<String> candidateTagNames) {
+        ObjectNode job = JsonCodec.object();
+        job.put("workspaceId", workspaceId);
+        job.put("timeEntryId", timeEntryId);
+        ArrayNode names = job.putArray("tagNames");
+        candidateTagNames.forEach(names::add);
+        try {
+            outbox.enqueue(workspaceId, APPLY_SUGGESTED_TAGS, job.toString());
+        } catch (OutboxStore.OutboxStoreException e) {
+            String message = "Failed to queue time entry tag update: " + e.getMessage();
+            logger.error("{}", message, e);
+            return errorResponse(503, message);
+        }
+        logger.info("Queued tags {} for time entry {}", candidateTagNames, timeEntryId);
+        ObjectNode body = JsonCodec.object();
+        body.put("status", "queued");
+        body.put("message", "Queued tag update for time entry " + timeEntryId);
+        body.set("suggestedTags", names);
+        return HttpResponse.ok(body.toString(), "application/json");
+    }
+
+    /**
+     * Outbox handler for {@link #APPLY_SUGGESTED_TAGS}; exceptions are retried by the worker.
+     */
+    private static void deliverSuggestedTags(OutboxStore.Entry entry) throws Exception {
+        JsonNode job = JsonCodec.readTree(entry.payload());
+        String workspaceId = job.path("workspaceId").asText();
+        String timeEntryId = job.path("timeEntryId").asText();
+        Optional<com.clockify.addon.sdk.security.TokenStore.WorkspaceToken> workspaceToken = com.clockify.addon.sdk.security.TokenStore.get(workspaceId);
+        if (workspaceToken.isEmpty()) {
+            throw new OutboxWorker.PermanentFailure("Missing stored auth token/API base URL for workspace " + workspaceId);
+        }
+        List<String> candidateTagNames = new ArrayList<>();
+        job.path("tagNames").forEach(name -> candidateTagNames.add(name.asText()));
+        com.clockify.addon.sdk.security.TokenStore.WorkspaceToken token = workspaceToken.get();
+        ClockifyApiClient apiClient = new ClockifyApiClient(token.apiBaseUrl(), token.token());
+        TagUpdateResult updateResult = applySuggestedTags(apiClient, workspaceId, timeEntryId, candidateTagNames);
+        if (!updateResult.getTagIdsByName().isEmpty()) {
+            logSuccessfulUpdate(timeEntryId, updateResult);
+        }
+    }
+
     private static Map<String, String> mapTagsByNormalizedName(JsonNode tagsNode) {
         Map<String, String> tags = new LinkedHashMap<>();
         if (tagsNode != null && tagsNode.isArray()) {
@@ -342,7 +397,7 @@ public class WebhookHandlers {
     }
 
     private static HttpResponse successResponse(String message, TagUpdateResult result) {
-        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode body = JsonCodec.object();
         body.put("status", "success");
         body.put("message", message);
 
@@ -368,14 +423,14 @@ public class WebhookHandlers {
     }
 
     private static HttpResponse skipResponse(String message) {
-        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode body = JsonCodec.object();
         body.put("status", "skipped");
         body.put("message", message);
         return HttpResponse.ok(body.toString(), "application/json");
     }
 
     private static HttpResponse errorResponse(int statusCode, String message) {
-        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode body = JsonCodec.object();
         body.put("status", "error");
         body.put("message", message);
         return HttpResponse.error(statusCode, body.toString(), "application/json");
@@ -507,7 +562,7 @@ public class WebhookHandlers {
         }
 
         String rawBody = ensureRawBodyCached(request);
-        JsonNode json = objectMapper.readTree(rawBody);
+        JsonNode json = JsonCodec.readTree(rawBody);
         request.setAttribute("clockify.jsonBody", json);
         return json;
     }
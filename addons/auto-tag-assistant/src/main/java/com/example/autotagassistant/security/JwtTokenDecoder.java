@@ -1,7 +1,7 @@
 package com.example.autotagassistant.security;
 
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
@@ -17,7 +17,6 @@ import java.util.Objects;
  * claims for production workloads.</p>
  */
 public final class JwtTokenDecoder {
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     private JwtTokenDecoder() {
         // Utility class
@@ -81,7 +80,7 @@ public final class JwtTokenDecoder {
         try {
             byte[] decoded = Base64.getUrlDecoder().decode(part);
             String json = new String(decoded, StandardCharsets.UTF_8);
-            return OBJECT_MAPPER.readTree(json);
+            return JsonCodec.readTree(json);
         } catch (Exception e) {
             throw new IllegalArgumentException("Failed to decode JWT " + description + " segment", e);
         }
@@ -2,14 +2,13 @@ package com.example.overtime;
 
 import com.clockify.addon.sdk.ClockifyAddon;
 import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 
 import java.io.BufferedReader;
 
 public class LifecycleHandlers {
-    private static final ObjectMapper om = new ObjectMapper();
     private static String addonKey;
 
     public static void register(ClockifyAddon addon) {
@@ -55,7 +54,7 @@ public class LifecycleHandlers {
         if (c instanceof JsonNode) return (JsonNode) c;
         StringBuilder sb = new StringBuilder();
         try (BufferedReader r = req.getReader()) { String line; while ((line = r.readLine()) != null) sb.append(line); }
-        return om.readTree(sb.toString());
+        return JsonCodec.readTree(sb.toString());
     }
 
     private static String text(JsonNode n, String f) {
@@ -9,6 +9,9 @@ import com.clockify.addon.sdk.EmbeddedServer;
 import com.clockify.addon.sdk.HttpResponse;
 import com.clockify.addon.sdk.health.HealthCheck;
 import com.clockify.addon.sdk.metrics.MetricsHandler;
+import com.clockify.addon.sdk.security.AuditLogger;
+import com.clockify.addon.sdk.security.AuditQueryHandler;
+import com.clockify.addon.sdk.security.FileAuditStore;
 import com.clockify.addon.sdk.middleware.CorsFilter;
 import com.clockify.addon.sdk.middleware.PlatformAuthFilter;
 import com.clockify.addon.sdk.middleware.RateLimiter;
@@ -56,6 +59,7 @@ public class OvertimeApp {
         // Health with optional DB probe (if DB env is set in a future persistent store variant)
         HealthCheck health = new HealthCheck("overtime", "0.1.0");
         addon.registerCustomEndpoint("/health", health);
+        addon.registerCustomEndpoint("/ready", health.readinessHandler());
         addon.registerCustomEndpoint("/status", request -> {
             String workspaceId = (String) request.getAttribute(PlatformAuthFilter.ATTR_WORKSPACE_ID);
             if (workspaceId == null || workspaceId.isBlank()) {
@@ -82,6 +86,10 @@ public class OvertimeApp {
         addon.registerCustomEndpoint("/settings", settingsController::handleHtml);
         addon.registerCustomEndpoint("/api/settings", settingsController::handleApi);
         addon.registerCustomEndpoint("/metrics", new MetricsHandler());
+        FileAuditStore.fromEnvironment().ifPresent(store -> {
+            AuditLogger.addSink(store);
+            addon.registerCustomEndpoint("/audit", new AuditQueryHandler(store));
+        });
         registerDevConfigEndpoint(addon, config);
 
         // Lifecycle and webhook handlers
@@ -93,17 +101,11 @@ public class OvertimeApp {
         String contextPath = sanitizeContextPath(baseUrl);
         EmbeddedServer server = new EmbeddedServer(servlet, contextPath);
         if (jwtVerifier != null) {
-            server.addFilter(new WorkspaceContextFilter(jwt -> {
-                try {
-                    JwtVerifier.DecodedJwt decoded = jwtVerifier.verify(jwt);
-                    return decoded.payload();
-                } catch (Exception e) {
-                    return null;
-                }
-            }));
+            server.verifyCsrfTokensWith(jwtVerifier);
+            server.addFilter(WorkspaceContextFilter.forVerifier(jwtVerifier));
             server.addFilter(new ScopedPlatformAuthFilter(
                     new PlatformAuthFilter(jwtVerifier),
-                    Set.of("/status", "/metrics"),
+                    Set.of("/status", "/metrics", "/audit"),
                     List.of("/api")
             ));
         } else if (!config.isDev()) {
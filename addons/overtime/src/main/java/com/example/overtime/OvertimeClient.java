@@ -1,45 +1,168 @@
 package com.example.overtime;
 
 import com.clockify.addon.sdk.http.ClockifyHttpClient;
+import com.clockify.addon.sdk.http.PagedListIterator;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
 
 public class OvertimeClient {
+    /**
+     * How {@link #updateTimeEntry(String, String, VersionedEntry, ObjectNode)} writes changes.
+     * REPLACE PUTs the merged entry; PATCH sends only the changed fields and falls back to
+     * REPLACE if the API refuses the PATCH.
+     */
+    public enum UpdateMode {
+        REPLACE, PATCH;
+
+        /** Reads {@code OVERTIME_UPDATE_MODE} ({@code replace} by default). */
+        public static UpdateMode fromEnvironment() {
+            String raw = System.getenv("OVERTIME_UPDATE_MODE");
+            return raw != null && raw.trim().toLowerCase(Locale.ROOT).equals("patch") ? PATCH : REPLACE;
+        }
+    }
+
+    /**
+     * A time entry snapshot plus the ETag it was read with, if any. Entries taken from a
+     * webhook payload have no ETag.
+     */
+    public record VersionedEntry(ObjectNode entry, String etag) {
+        public static VersionedEntry fromPayload(ObjectNode entry) {
+            return new VersionedEntry(entry, null);
+        }
+    }
+
+    private static final int TIME_ENTRY_PAGE_SIZE = 500;
+
     private final ClockifyHttpClient http;
     private final String token;
-    private final ObjectMapper om = new ObjectMapper();
+    private final UpdateMode mode;
 
     public OvertimeClient(String baseUrl, String token) {
+        this(baseUrl, token, UpdateMode.REPLACE);
+    }
+
+    public OvertimeClient(String baseUrl, String token, UpdateMode mode) {
         this.http = new ClockifyHttpClient(baseUrl, Duration.ofSeconds(10), 3);
         this.token = token;
+        this.mode = mode;
+    }
+
+    public UpdateMode updateMode() {
+        return mode;
     }
 
     public ObjectNode getTimeEntry(String ws, String entryId) throws Exception {
-        HttpResponse<String> resp = http.get("/workspaces/" + ws + "/time-entries/" + entryId, token, Map.of());
-        JsonNode n = om.readTree(resp.body());
-        if (!(n instanceof ObjectNode)) throw new IllegalStateException("time entry is not object");
-        return (ObjectNode) n;
+        return getTimeEntryVersioned(ws, entryId).entry();
     }
 
     public JsonNode getTags(String ws) throws Exception {
         HttpResponse<String> resp = http.get("/workspaces/" + ws + "/tags", token, Map.of());
-        return om.readTree(resp.body());
+        return JsonCodec.readTree(requireSuccess(resp, "listing tags").body());
     }
 
     public ObjectNode createTag(String ws, String name) throws Exception {
-        ObjectNode body = om.createObjectNode().put("name", name);
+        ObjectNode body = JsonCodec.object().put("name", name);
         HttpResponse<String> resp = http.postJson("/workspaces/" + ws + "/tags", token, body.toString(), Map.of());
-        return (ObjectNode) om.readTree(resp.body());
+        return (ObjectNode) JsonCodec.readTree(requireSuccess(resp, "creating tag " + name).body());
+    }
+
+    public VersionedEntry getTimeEntryVersioned(String ws, String entryId) throws Exception {
+        HttpResponse<String> resp = http.get(entryPath(ws, entryId), token, Map.of());
+        JsonNode n = JsonCodec.readTree(requireSuccess(resp, "reading time entry " + entryId).body());
+        if (!(n instanceof ObjectNode)) throw new IllegalStateException("time entry is not object");
+        return new VersionedEntry((ObjectNode) n, resp.headers().firstValue("ETag").orElse(null));
     }
 
+    /**
+     * Read-modify-write update: fetches the entry, then delegates to
+     * {@link #updateTimeEntry(String, String, VersionedEntry, ObjectNode)}.
+     */
     public ObjectNode updateTimeEntry(String ws, String entryId, ObjectNode patch) throws Exception {
-        ObjectNode existing = getTimeEntry(ws, entryId);
+        return updateTimeEntry(ws, entryId, getTimeEntryVersioned(ws, entryId), patch);
+    }
+
+    /**
+     * Applies {@code patch} on top of an entry the caller already holds. A base with an ETag (a
+     * previous GET) is written without re-reading it, with the ETag sent as {@code If-Match}; on
+     * 409/412 the entry is re-read once and the patch re-applied, unless the fresh copy already
+     * contains the patched values. A base without one (the webhook payload) cannot be guarded: it
+     * serves to skip the call when it already matches the patch, and in PATCH mode the changed
+     * fields are sent straight away. Only a REPLACE write, or a PATCH the API refuses, re-reads the
+     * entry and writes over that copy.
+     */
+    public ObjectNode updateTimeEntry(String ws, String entryId, VersionedEntry base, ObjectNode patch) throws Exception {
+        if (alreadyApplied(base.entry(), patch)) {
+            return base.entry();
+        }
+        boolean tryPatch = mode == UpdateMode.PATCH;
+        if (base.etag() == null) {
+            if (tryPatch) {
+                HttpResponse<String> resp = patch(ws, entryId, base, patch);
+                if (!patchRefused(resp)) {
+                    return (ObjectNode) JsonCodec.readTree(requireSuccess(resp, "updating time entry " + entryId).body());
+                }
+                tryPatch = false;
+            }
+            base = getTimeEntryVersioned(ws, entryId);
+            if (alreadyApplied(base.entry(), patch)) {
+                return base.entry();
+            }
+        }
+        HttpResponse<String> resp = write(ws, entryId, base, patch, tryPatch);
+        if (resp.statusCode() == 409 || resp.statusCode() == 412) {
+            VersionedEntry fresh = getTimeEntryVersioned(ws, entryId);
+            if (alreadyApplied(fresh.entry(), patch)) {
+                return fresh.entry();
+            }
+            resp = write(ws, entryId, fresh, patch, tryPatch);
+            if (resp.statusCode() == 409 || resp.statusCode() == 412) {
+                throw new IllegalStateException("time entry " + entryId + " modified concurrently");
+            }
+        }
+        return (ObjectNode) JsonCodec.readTree(requireSuccess(resp, "updating time entry " + entryId).body());
+    }
+
+    private static HttpResponse<String> requireSuccess(HttpResponse<String> resp, String action) {
+        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+            throw new IllegalStateException("Clockify API status " + resp.statusCode() + " " + action);
+        }
+        return resp;
+    }
+
+    private HttpResponse<String> write(String ws, String entryId, VersionedEntry base, ObjectNode patch,
+                                       boolean tryPatch) throws Exception {
+        if (tryPatch) {
+            HttpResponse<String> resp = patch(ws, entryId, base, patch);
+            if (!patchRefused(resp)) {
+                return resp;
+            }
+        }
+        return http.putJson(entryPath(ws, entryId), token, replacement(base.entry(), patch).toString(), headers(base));
+    }
+
+    private HttpResponse<String> patch(String ws, String entryId, VersionedEntry base, ObjectNode patch) throws Exception {
+        ObjectNode changes = changedFields(base.entry(), patch);
+        return http.patchJson(entryPath(ws, entryId), token, changes.toString(), headers(base));
+    }
+
+    private static boolean patchRefused(HttpResponse<String> resp) {
+        return resp.statusCode() == 400 || resp.statusCode() == 404 || resp.statusCode() == 405;
+    }
+
+    private static Map<String, String> headers(VersionedEntry base) {
+        return base.etag() == null ? Map.of() : Map.of("If-Match", base.etag());
+    }
+
+    /** Full PUT body: the entry with start/end lifted out of timeInterval and the patch merged in. */
+    static ObjectNode replacement(ObjectNode existing, ObjectNode patch) {
         ObjectNode req = existing.deepCopy();
         if (!req.has("start") && existing.has("timeInterval") && existing.get("timeInterval").has("start")) {
             req.set("start", existing.get("timeInterval").get("start"));
@@ -48,15 +171,36 @@ public class OvertimeClient {
             req.set("end", existing.get("timeInterval").get("end"));
         }
         patch.fieldNames().forEachRemaining(fn -> req.set(fn, patch.get(fn)));
-        HttpResponse<String> resp = http.putJson("/workspaces/" + ws + "/time-entries/" + entryId, token, req.toString(), Map.of());
-        return (ObjectNode) om.readTree(resp.body());
+        return req;
+    }
+
+    /** Fields of {@code patch} whose values differ from {@code existing}. */
+    static ObjectNode changedFields(ObjectNode existing, ObjectNode patch) {
+        ObjectNode changes = patch.objectNode();
+        for (Iterator<Map.Entry<String, JsonNode>> it = patch.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = it.next();
+            if (!field.getValue().equals(existing.get(field.getKey()))) {
+                changes.set(field.getKey(), field.getValue());
+            }
+        }
+        return changes;
+    }
+
+    private static boolean alreadyApplied(ObjectNode entry, ObjectNode patch) {
+        return changedFields(entry, patch).isEmpty();
+    }
+
+    private static String entryPath(String ws, String entryId) {
+        return "/workspaces/" + ws + "/time-entries/" + entryId;
     }
 
-    public JsonNode listTimeEntries(String ws, String userId, String startIso, String endIso) throws Exception {
-        String q = String.format("/workspaces/%s/time-entries?userId=%s&start=%s&end=%s&page-size=2000",
+    /**
+     * The user's time entries in the window, streamed page by page; close it if you stop early.
+     */
+    public PagedListIterator listTimeEntries(String ws, String userId, String startIso, String endIso) {
+        String q = String.format("/workspaces/%s/time-entries?userId=%s&start=%s&end=%s",
                 ws, url(userId), url(startIso), url(endIso));
-        HttpResponse<String> resp = http.get(q, token, Map.of());
-        return om.readTree(resp.body());
+        return http.streamList(q, token, Map.of(), TIME_ENTRY_PAGE_SIZE);
     }
 
     private static String url(String v) {
@@ -67,9 +211,9 @@ public class OvertimeClient {
         return name == null ? null : name.trim().toLowerCase();
     }
 
-    public static ArrayNode ensureTagIds(ObjectNode entry, ObjectMapper om) {
+    public static ArrayNode ensureTagIds(ObjectNode entry) {
         if (entry.has("tagIds") && entry.get("tagIds").isArray()) return (ArrayNode) entry.get("tagIds");
-        ArrayNode arr = om.createArrayNode();
+        ArrayNode arr = JsonCodec.array();
         entry.set("tagIds", arr);
         return arr;
     }
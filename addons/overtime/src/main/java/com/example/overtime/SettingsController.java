@@ -2,10 +2,11 @@ package com.example.overtime;
 
 import com.clockify.addon.sdk.HttpResponse;
 import com.clockify.addon.sdk.RequestHandler;
+import com.clockify.addon.sdk.middleware.VerifiedPrincipal;
 import com.clockify.addon.sdk.middleware.WorkspaceContextFilter;
 import com.clockify.addon.sdk.security.jwt.AuthTokenVerifier;
 import com.clockify.addon.sdk.security.jwt.JwtVerifier;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -13,7 +14,6 @@ import java.io.BufferedReader;
 
 public class SettingsController {
     private final SettingsStore store;
-    private final ObjectMapper om = new ObjectMapper();
     private final AuthTokenVerifier jwtVerifier;
     private final boolean devMode;
 
@@ -50,7 +50,7 @@ public class SettingsController {
         if ("GET".equalsIgnoreCase(req.getMethod())) {
             String ws = req.getParameter("workspaceId");
             SettingsStore.Settings s = store.get(ws != null ? ws : "");
-            ObjectNode n = om.createObjectNode();
+            ObjectNode n = JsonCodec.object();
             n.put("dailyHours", s.dailyHours);
             n.put("weeklyHours", s.weeklyHours);
             n.put("tagName", s.tagName);
@@ -61,7 +61,7 @@ public class SettingsController {
             if (ws == null || ws.isBlank()) return HttpResponse.error(400, "{\"error\":\"workspaceId required\"}", "application/json");
             StringBuilder sb = new StringBuilder();
             try (BufferedReader r = req.getReader()) { String line; while ((line = r.readLine()) != null) sb.append(line); }
-            ObjectNode body = (ObjectNode) om.readTree(sb.toString());
+            ObjectNode body = (ObjectNode) JsonCodec.readTree(sb.toString());
             SettingsStore.Settings s = store.get(ws);
             if (body.has("dailyHours")) s.dailyHours = body.get("dailyHours").asDouble(s.dailyHours);
             if (body.has("weeklyHours")) s.weeklyHours = body.get("weeklyHours").asDouble(s.weeklyHours);
@@ -97,7 +97,7 @@ public class SettingsController {
             return null;
         }
         try {
-            JwtVerifier.DecodedJwt decoded = jwtVerifier.verify(token);
+            JwtVerifier.DecodedJwt decoded = VerifiedPrincipal.verify(request, token, jwtVerifier);
             return decoded.payload().path("workspaceId").asText(null);
         } catch (JwtVerifier.JwtVerificationException e) {
             return null;
@@ -2,9 +2,15 @@ package com.example.overtime;
 
 import com.clockify.addon.sdk.ClockifyAddon;
 import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.http.PagedListIterator;
 import com.clockify.addon.sdk.security.WebhookSignatureValidator;
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.clockify.addon.sdk.webhook.OrderingKey;
+import com.clockify.addon.sdk.webhook.PayloadProjection;
+import com.clockify.addon.sdk.webhook.ProjectedPayload;
+import com.clockify.addon.sdk.webhook.WebhookInbox;
+import com.clockify.addon.sdk.webhook.WebhookInboxConsumer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,34 +18,75 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 public class WebhookHandlers {
     private static final Logger log = LoggerFactory.getLogger(WebhookHandlers.class);
-    private static final ObjectMapper om = new ObjectMapper();
+    private static final OvertimeClient.UpdateMode UPDATE_MODE = OvertimeClient.UpdateMode.fromEnvironment();
     private static SettingsStore settings;
+    // Enough to decide whether there is overtime; the full entry is only parsed to apply the tag.
+    private static final PayloadProjection FIELDS = PayloadProjection.of(
+            "/userId", "/timeInterval", "/tagIds",
+            "/timeEntry/userId", "/timeEntry/timeInterval", "/timeEntry/tagIds");
 
     public static void register(ClockifyAddon addon, SettingsStore store) {
         settings = store;
         String[] events = {"TIMER_STOPPED", "TIME_ENTRY_UPDATED"};
+        Optional<WebhookInbox> inbox = WebhookInbox.fromEnvironment();
+        if (inbox.isEmpty()) {
+            for (String e : events) {
+                // Overtime is recomputed from the entry, so updates to one entry must not interleave.
+                addon.registerWebhookHandler(e, OrderingKey.byEntity(), FIELDS, req -> handle(addon, req));
+            }
+            return;
+        }
+        // Durable inbox: acknowledge once the event is on disk, compute overtime in the background.
+        WebhookInboxConsumer consumer = new WebhookInboxConsumer(inbox.get());
+        WebhookInbox.deadLettersFromEnvironment().ifPresent(consumer::deadLetterTo);
+        String addonKey = addon.getManifest().getKey();
         for (String e : events) {
-            addon.registerWebhookHandler(e, req -> handle(addon, req));
+            addon.registerWebhookHandler(e, consumer.handler(e, OrderingKey.byEntity(),
+                    (req, body) -> WebhookSignatureValidator.verify(req, text(body, "workspaceId"), addonKey),
+                    (entry, body) -> process(body, text(body, "workspaceId"), () -> body)));
+        }
+        try {
+            consumer.start();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot replay webhook inbox", ex);
         }
     }
 
     private static HttpResponse handle(ClockifyAddon addon, HttpServletRequest req) throws Exception {
-        JsonNode body = parse(req);
+        Optional<ProjectedPayload> projected = ProjectedPayload.from(req);
+        JsonNode body = projected.isPresent() ? projected.get().view() : parse(req);
         String ws = text(body, "workspaceId");
-        String event = text(body, "event");
         if (ws == null) return HttpResponse.error(400, "{\"error\":\"workspaceId missing\"}", "application/json");
 
         var sig = WebhookSignatureValidator.verify(req, ws, addon.getManifest().getKey());
         if (!sig.isValid()) return sig.response();
+        try {
+            return process(body, ws, projected.isPresent() ? projected.get()::tree : () -> body);
+        } catch (Exception ex) {
+            log.warn("Overtime total computation failed for workspace {} entry {}: {}", ws, text(entryOf(body), "id"), ex.toString());
+            return ok(text(body, "event"), "no_overtime");
+        }
+    }
 
-        JsonNode te = body.has("timeEntry") ? body.get("timeEntry") : body;
+    /**
+     * Throws when the totals cannot be read or the tag cannot be written, so the inbox retries the
+     * event; the synchronous handler reports such failures as {@code no_overtime}.
+     *
+     * @param body     the payload, possibly only the projected fields
+     * @param fullBody the complete payload, used as the base when the tag is applied
+     */
+    private static HttpResponse process(JsonNode body, String ws, Callable<JsonNode> fullBody) throws Exception {
+        String event = text(body, "event");
+        JsonNode te = entryOf(body);
         String entryId = text(te, "id");
         double dailyHours = settings.get(ws).dailyHours;
         double weeklyHours = settings.get(ws).weeklyHours;
@@ -53,32 +100,28 @@ public class WebhookHandlers {
             String userId = text(te, "userId");
             if (userId == null) userId = text(body, "userId");
             if (userId != null) {
-                OvertimeClient api = new OvertimeClient(tok.get().apiBaseUrl(), tok.get().token());
-                try {
-                    // Calculate daily total: entries from 00:00 to 23:59 of the same day
-                    var ends = extractEnd(te);
-                    if (ends != null) {
-                        String dayStart = ends.toLocalDate().atStartOfDay().atOffset(ends.getOffset()).toString();
-                        String dayEnd = ends.toLocalDate().atTime(23,59,59).atOffset(ends.getOffset()).toString();
-                        long dailyTotal = sumMinutes(api.listTimeEntries(ws, userId, dayStart, dayEnd));
-                        if (dailyTotal >= Math.round(dailyHours * 60)) overtime = true;
-
-                        // Weekly window (Mon-Sun as a baseline; adjust per locale if needed)
-                        java.time.LocalDate d = ends.toLocalDate();
-                        java.time.DayOfWeek dow = d.getDayOfWeek();
-                        java.time.LocalDate monday = d.minusDays((dow.getValue()+6)%7);
-                        java.time.LocalDate sunday = monday.plusDays(6);
-                        String weekStart = monday.atStartOfDay().atOffset(ends.getOffset()).toString();
-                        String weekEnd = sunday.atTime(23,59,59).atOffset(ends.getOffset()).toString();
-                        long weeklyTotal = sumMinutes(api.listTimeEntries(ws, userId, weekStart, weekEnd));
-                        if (weeklyTotal >= Math.round(weeklyHours * 60)) overtime = true;
-                    }
-                    if (overtime) {
-                        ensureTagApplied(api, ws, entryId, tagName);
-                        return ok(event, "overtime_tag_applied");
-                    }
-                } catch (Exception ex) {
-                    log.warn("Overtime total computation failed for workspace {} entry {}: {}", ws, entryId, ex.toString());
+                OvertimeClient api = new OvertimeClient(tok.get().apiBaseUrl(), tok.get().token(), UPDATE_MODE);
+                // Calculate daily total: entries from 00:00 to 23:59 of the same day
+                var ends = extractEnd(te);
+                if (ends != null) {
+                    String dayStart = ends.toLocalDate().atStartOfDay().atOffset(ends.getOffset()).toString();
+                    String dayEnd = ends.toLocalDate().atTime(23,59,59).atOffset(ends.getOffset()).toString();
+                    long dailyTotal = sumMinutes(api.listTimeEntries(ws, userId, dayStart, dayEnd));
+                    if (dailyTotal >= Math.round(dailyHours * 60)) overtime = true;
+
+                    // Weekly window (Mon-Sun as a baseline; adjust per locale if needed)
+                    java.time.LocalDate d = ends.toLocalDate();
+                    java.time.DayOfWeek dow = d.getDayOfWeek();
+                    java.time.LocalDate monday = d.minusDays((dow.getValue()+6)%7);
+                    java.time.LocalDate sunday = monday.plusDays(6);
+                    String weekStart = monday.atStartOfDay().atOffset(ends.getOffset()).toString();
+                    String weekEnd = sunday.atTime(23,59,59).atOffset(ends.getOffset()).toString();
+                    long weeklyTotal = sumMinutes(api.listTimeEntries(ws, userId, weekStart, weekEnd));
+                    if (weeklyTotal >= Math.round(weeklyHours * 60)) overtime = true;
+                }
+                if (overtime) {
+                    ensureTagApplied(api, ws, entryOf(fullBody.call()), entryId, tagName);
+                    return ok(event, "overtime_tag_applied");
                 }
             }
         }
@@ -86,7 +129,7 @@ public class WebhookHandlers {
         return ok(event, "no_overtime");
     }
 
-    private static void ensureTagApplied(OvertimeClient api, String ws, String entryId, String tagName) throws Exception {
+    private static void ensureTagApplied(OvertimeClient api, String ws, JsonNode payloadEntry, String entryId, String tagName) throws Exception {
         JsonNode tags = api.getTags(ws);
         Map<String,String> byNorm = new LinkedHashMap<>();
         if (tags.isArray()) {
@@ -102,22 +145,41 @@ public class WebhookHandlers {
             ObjectNode created = api.createTag(ws, tagName);
             tagId = created.has("id") ? created.get("id").asText() : null;
         }
-        if (tagId == null) return; // best effort
+        if (tagId == null) throw new IllegalStateException("Tag " + tagName + " was created without an id");
 
-        ObjectNode entry = api.getTimeEntry(ws, entryId);
-        ArrayNode arr = OvertimeClient.ensureTagIds(entry, om);
+        for (JsonNode n : payloadEntry.path("tagIds")) {
+            if (tagId.equals(n.asText())) return;
+        }
+        // PATCH carries only tagIds, so it is built from the payload and sent without a read; the
+        // client re-reads only if it has to fall back to a PUT. A PUT replaces the whole entry and
+        // is therefore computed from a versioned read so it cannot drop edits made since the event.
+        if (api.updateMode() == OvertimeClient.UpdateMode.PATCH && payloadEntry instanceof ObjectNode entry) {
+            ArrayNode ids = JsonCodec.array();
+            for (JsonNode n : entry.path("tagIds")) if (n.isTextual()) ids.add(n.asText());
+            ids.add(tagId);
+            ObjectNode patch = JsonCodec.object();
+            patch.set("tagIds", ids);
+            api.updateTimeEntry(ws, entryId, OvertimeClient.VersionedEntry.fromPayload(entry), patch);
+            return;
+        }
+        OvertimeClient.VersionedEntry base = api.getTimeEntryVersioned(ws, entryId);
+        ArrayNode arr = OvertimeClient.ensureTagIds(base.entry().deepCopy());
         Set<String> set = new LinkedHashSet<>();
         for (JsonNode n : arr) if (n.isTextual()) set.add(n.asText());
         if (!set.contains(tagId)) {
             arr.removeAll();
             set.add(tagId);
             set.forEach(arr::add);
-            ObjectNode patch = om.createObjectNode();
+            ObjectNode patch = JsonCodec.object();
             patch.set("tagIds", arr);
-            api.updateTimeEntry(ws, entryId, patch);
+            api.updateTimeEntry(ws, entryId, base, patch);
         }
     }
 
+    private static JsonNode entryOf(JsonNode body) {
+        return body.has("timeEntry") ? body.get("timeEntry") : body;
+    }
+
     private static long extractDurationMinutes(JsonNode te) {
         if (te == null || !te.has("timeInterval")) return 0;
         JsonNode ti = te.get("timeInterval");
@@ -141,17 +203,18 @@ public class WebhookHandlers {
         try { return java.time.OffsetDateTime.parse(end, java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME);} catch (Exception e){return null;}
     }
 
-    private static long sumMinutes(JsonNode entries) {
-        if (entries == null || !entries.isArray()) return 0;
+    private static long sumMinutes(PagedListIterator entries) {
         long total = 0;
-        for (JsonNode e : entries) {
-            total += extractDurationMinutes(e);
+        try (entries) {
+            while (entries.hasNext()) {
+                total += extractDurationMinutes(entries.next());
+            }
         }
         return total;
     }
 
     private static HttpResponse ok(String event, String status) throws Exception {
-        ObjectNode n = om.createObjectNode();
+        ObjectNode n = JsonCodec.object();
         n.put("event", event);
         n.put("status", status);
         return HttpResponse.ok(n.toString(), "application/json");
@@ -161,10 +224,10 @@ public class WebhookHandlers {
         Object cachedJson = request.getAttribute("clockify.jsonBody");
         if (cachedJson instanceof JsonNode) return (JsonNode) cachedJson;
         Object cachedBody = request.getAttribute("clockify.rawBody");
-        if (cachedBody instanceof String) return om.readTree((String) cachedBody);
+        if (cachedBody instanceof String) return JsonCodec.readTree((String) cachedBody);
         StringBuilder sb = new StringBuilder();
         try (BufferedReader reader = request.getReader()) { String line; while ((line = reader.readLine()) != null) sb.append(line); }
-        return om.readTree(sb.toString());
+        return JsonCodec.readTree(sb.toString());
     }
 
     private static String text(JsonNode n, String f) {
@@ -0,0 +1,160 @@
+package com.example.overtime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OvertimeClientTest {
+    private static final ObjectMapper om = new ObjectMapper();
+    private static final String ENTRY_PATH = "/workspaces/ws1/time-entries/te1";
+
+    private HttpServer server;
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private final List<String> ifMatch = new CopyOnWriteArrayList<>();
+    private final Deque<Integer> writeStatuses = new ArrayDeque<>();
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(ENTRY_PATH, this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        calls.add(method);
+        bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        String match = exchange.getRequestHeaders().getFirst("If-Match");
+        if (match != null) {
+            ifMatch.add(match);
+        }
+        int status = 200;
+        String body;
+        if (method.equals("GET")) {
+            exchange.getResponseHeaders().set("ETag", "\"v2\"");
+            body = "{\"id\":\"te1\",\"description\":\"changed elsewhere\",\"tagIds\":[\"a\"],"
+                    + "\"timeInterval\":{\"start\":\"2025-01-01T09:00:00Z\"}}";
+        } else {
+            Integer next = writeStatuses.poll();
+            status = next == null ? 200 : next;
+            body = status == 200 ? bodies.get(bodies.size() - 1) : "{}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private OvertimeClient client(OvertimeClient.UpdateMode mode) {
+        return new OvertimeClient("http://127.0.0.1:" + server.getAddress().getPort(), "tok", mode);
+    }
+
+    private static ObjectNode payloadEntry() throws IOException {
+        return (ObjectNode) om.readTree("{\"id\":\"te1\",\"description\":\"work\",\"tagIds\":[\"a\"],"
+                + "\"timeInterval\":{\"start\":\"2025-01-01T09:00:00Z\",\"end\":\"2025-01-01T18:00:00Z\"}}");
+    }
+
+    private static ObjectNode tagPatch(String... ids) {
+        ObjectNode patch = om.createObjectNode();
+        var arr = patch.putArray("tagIds");
+        for (String id : ids) {
+            arr.add(id);
+        }
+        return patch;
+    }
+
+    @Test
+    void payloadBaseIsRereadAndWrittenWithIfMatch() throws Exception {
+        client(OvertimeClient.UpdateMode.REPLACE).updateTimeEntry("ws1", "te1",
+                OvertimeClient.VersionedEntry.fromPayload(payloadEntry()), tagPatch("a", "ot"));
+
+        assertEquals(List.of("GET", "PUT"), calls);
+        JsonNode sent = om.readTree(bodies.get(1));
+        assertEquals("2025-01-01T09:00:00Z", sent.get("start").asText());
+        assertEquals("changed elsewhere", sent.get("description").asText());
+        assertEquals("[\"a\",\"ot\"]", sent.get("tagIds").toString());
+        assertEquals(List.of("\"v2\""), ifMatch);
+    }
+
+    @Test
+    void patchModeSendsOnlyChangedFieldsWithoutReading() throws Exception {
+        ObjectNode patch = tagPatch("a", "ot");
+        patch.put("description", "work");
+        client(OvertimeClient.UpdateMode.PATCH).updateTimeEntry("ws1", "te1",
+                OvertimeClient.VersionedEntry.fromPayload(payloadEntry()), patch);
+
+        assertEquals(List.of("PATCH"), calls);
+        assertEquals("{\"tagIds\":[\"a\",\"ot\"]}", bodies.get(0));
+        assertTrue(ifMatch.isEmpty());
+    }
+
+    @Test
+    void patchModeFallsBackToPutWhenPatchIsRejected() throws Exception {
+        writeStatuses.add(405);
+        client(OvertimeClient.UpdateMode.PATCH).updateTimeEntry("ws1", "te1",
+                OvertimeClient.VersionedEntry.fromPayload(payloadEntry()), tagPatch("a", "ot"));
+
+        assertEquals(List.of("PATCH", "GET", "PUT"), calls);
+        assertEquals("changed elsewhere", om.readTree(bodies.get(2)).get("description").asText());
+        assertEquals(List.of("\"v2\""), ifMatch);
+    }
+
+    @Test
+    void preconditionFailureRereadsAndReappliesOnce() throws Exception {
+        writeStatuses.add(412);
+        ObjectNode result = client(OvertimeClient.UpdateMode.REPLACE).updateTimeEntry("ws1", "te1",
+                new OvertimeClient.VersionedEntry(payloadEntry(), "\"v1\""), tagPatch("a", "ot"));
+
+        assertEquals(List.of("PUT", "GET", "PUT"), calls);
+        assertEquals(List.of("\"v1\"", "\"v2\""), ifMatch);
+        assertEquals("changed elsewhere", result.get("description").asText());
+    }
+
+    @Test
+    void noWriteWhenBaseAlreadyMatchesPatch() throws Exception {
+        client(OvertimeClient.UpdateMode.REPLACE).updateTimeEntry("ws1", "te1",
+                OvertimeClient.VersionedEntry.fromPayload(payloadEntry()), tagPatch("a"));
+
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    void failedWriteIsReportedInsteadOfParsed() throws Exception {
+        writeStatuses.add(403);
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> client(OvertimeClient.UpdateMode.REPLACE)
+                .updateTimeEntry("ws1", "te1", new OvertimeClient.VersionedEntry(payloadEntry(), "\"v1\""), tagPatch("a", "ot")));
+
+        assertTrue(e.getMessage().contains("403"), e.getMessage());
+    }
+
+    @Test
+    void legacyUpdateStillReadsBeforeWriting() throws Exception {
+        client(OvertimeClient.UpdateMode.REPLACE).updateTimeEntry("ws1", "te1", tagPatch("a", "ot"));
+
+        assertEquals(List.of("GET", "PUT"), calls);
+        assertEquals(List.of("\"v2\""), ifMatch);
+    }
+}
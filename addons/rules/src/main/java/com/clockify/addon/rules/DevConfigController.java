@@ -2,14 +2,13 @@ package com.clockify.addon.rules;
 
 import com.clockify.addon.sdk.HttpResponse;
 import com.clockify.addon.sdk.RequestHandler;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.servlet.http.HttpServletRequest;
 
 import java.util.Locale;
 
 final class DevConfigController implements RequestHandler {
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private final RulesConfiguration config;
 
     DevConfigController(RulesConfiguration config) {
@@ -18,7 +17,7 @@ final class DevConfigController implements RequestHandler {
 
     @Override
     public HttpResponse handle(HttpServletRequest request) {
-        ObjectNode root = OBJECT_MAPPER.createObjectNode();
+        ObjectNode root = JsonCodec.object();
         root.put("addonKey", config.addonKey());
         root.put("environment", config.environment());
         root.put("baseUrl", config.baseUrl());
@@ -2,14 +2,13 @@ package com.clockify.addon.rules;
 
 import com.clockify.addon.sdk.ClockifyAddon;
 import com.clockify.addon.sdk.HttpResponse;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 
 import java.io.BufferedReader;
 
 public class LifecycleHandlers {
-    private static final ObjectMapper om = new ObjectMapper();
     private static String addonKey;
 
     public static void register(ClockifyAddon addon) {
@@ -50,7 +49,7 @@ public class LifecycleHandlers {
 
     private static JsonNode parse(HttpServletRequest r) throws Exception {
         Object c = r.getAttribute("clockify.jsonBody"); if (c instanceof JsonNode) return (JsonNode)c;
-        StringBuilder sb=new StringBuilder(); try(BufferedReader br=r.getReader()){String line;while((line=br.readLine())!=null)sb.append(line);}return om.readTree(sb.toString());
+        StringBuilder sb=new StringBuilder(); try(BufferedReader br=r.getReader()){String line;while((line=br.readLine())!=null)sb.append(line);}return JsonCodec.readTree(sb.toString());
     }
     private static String text(JsonNode n,String f){return n!=null&&n.has(f)&&!n.get(f).isNull()?n.get(f).asText(null):null;}
 }
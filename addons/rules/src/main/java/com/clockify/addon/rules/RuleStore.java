@@ -1,8 +1,5 @@
 package com.clockify.addon.rules;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -13,13 +10,6 @@ final class RuleStore {
     }
 
     record RuleDefinition(String id, String matchText, String tag) {
-        ObjectNode toJson(ObjectMapper mapper) {
-            ObjectNode node = mapper.createObjectNode();
-            node.put("id", id);
-            node.put("matchText", matchText);
-            node.put("tag", tag);
-            return node;
-        }
     }
 
     private static final Map<String, List<RuleDefinition>> RULES = new ConcurrentHashMap<>();
@@ -18,6 +18,9 @@ import com.clockify.addon.sdk.security.jwt.JwtVerifier;
 import com.clockify.addon.sdk.security.jwt.JwtVerifierFactory;
 import com.clockify.addon.sdk.health.HealthCheck;
 import com.clockify.addon.sdk.metrics.MetricsHandler;
+import com.clockify.addon.sdk.security.AuditLogger;
+import com.clockify.addon.sdk.security.AuditQueryHandler;
+import com.clockify.addon.sdk.security.FileAuditStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,8 +62,12 @@ public class RulesApp {
         addon.registerCustomEndpoint("/api/test", new TestController()::handle);
         HealthCheck health = new HealthCheck("rules", "0.1.0");
         addon.registerCustomEndpoint("/health", health);
-        addon.registerCustomEndpoint("/ready", health);
+        addon.registerCustomEndpoint("/ready", health.readinessHandler());
         addon.registerCustomEndpoint("/metrics", new MetricsHandler());
+        FileAuditStore.fromEnvironment().ifPresent(store -> {
+            AuditLogger.addSink(store);
+            addon.registerCustomEndpoint("/audit", new AuditQueryHandler(store));
+        });
         addon.registerCustomEndpoint("/status", request -> {
             String workspaceId = (String) request.getAttribute(PlatformAuthFilter.ATTR_WORKSPACE_ID);
             if (workspaceId == null || workspaceId.isBlank()) {
@@ -93,18 +100,11 @@ public class RulesApp {
         String contextPath = sanitize(baseUrl);
         EmbeddedServer server = new EmbeddedServer(servlet, contextPath);
         if (jwtVerifier != null) {
-            JwtVerifier finalJwtVerifier = jwtVerifier;
-            server.addFilter(new WorkspaceContextFilter(jwt -> {
-                try {
-                    JwtVerifier.DecodedJwt decoded = finalJwtVerifier.verify(jwt);
-                    return decoded.payload();
-                } catch (Exception e) {
-                    return null;
-                }
-            }));
+            server.verifyCsrfTokensWith(jwtVerifier);
+            server.addFilter(WorkspaceContextFilter.forVerifier(jwtVerifier));
             server.addFilter(new ScopedPlatformAuthFilter(
                     new PlatformAuthFilter(jwtVerifier),
-                    Set.of("/status", "/metrics"),
+                    Set.of("/status", "/metrics", "/audit"),
                     List.of("/api")
             ));
         } else if (!config.isDev()) {
@@ -3,19 +3,21 @@ package com.clockify.addon.rules;
 import com.clockify.addon.sdk.HttpResponse;
 import com.clockify.addon.sdk.RequestHandler;
 import com.clockify.addon.sdk.middleware.WorkspaceContextFilter;
+import com.clockify.addon.sdk.util.JsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.util.List;
 
 public class RulesController implements RequestHandler {
     private static final Logger logger = LoggerFactory.getLogger(RulesController.class);
-    private static final ObjectMapper om = new ObjectMapper();
+    private static final ObjectWriter LIST_WRITER = JsonCodec.writerFor(RuleList.class);
+    private static final ObjectWriter ADDED_WRITER = JsonCodec.writerFor(RuleAdded.class);
+    private static final ObjectWriter DELETED_WRITER = JsonCodec.writerFor(RuleDeleted.class);
     private final boolean allowWorkspaceParam;
 
     public RulesController(String environment) {
@@ -31,12 +33,8 @@ public class RulesController implements RequestHandler {
 
         String method = request.getMethod();
         if ("GET".equalsIgnoreCase(method)) {
-            ArrayNode array = om.createArrayNode();
-            RuleStore.getRules(workspaceId).forEach(rule -> array.add(rule.toJson(om)));
-            ObjectNode result = om.createObjectNode();
-            result.put("workspaceId", workspaceId);
-            result.set("rules", array);
-            return HttpResponse.ok(result.toString(), "application/json");
+            RuleList result = new RuleList(workspaceId, RuleStore.getRules(workspaceId));
+            return HttpResponse.ok(LIST_WRITER.writeValueAsString(result), "application/json");
         }
 
         if ("DELETE".equalsIgnoreCase(method)) {
@@ -48,11 +46,8 @@ public class RulesController implements RequestHandler {
             if (!removed) {
                 return HttpResponse.error(404, "{\"error\":\"rule not found\"}", "application/json");
             }
-            ObjectNode result = om.createObjectNode();
-            result.put("workspaceId", workspaceId);
-            result.put("deletedId", id);
-            result.put("ruleCount", RuleStore.ruleCount(workspaceId));
-            return HttpResponse.ok(result.toString(), "application/json");
+            RuleDeleted result = new RuleDeleted(workspaceId, id, RuleStore.ruleCount(workspaceId));
+            return HttpResponse.ok(DELETED_WRITER.writeValueAsString(result), "application/json");
         }
 
         if (!"POST".equalsIgnoreCase(method)) {
@@ -69,11 +64,8 @@ public class RulesController implements RequestHandler {
         RuleStore.RuleDefinition def = RuleStore.addRule(workspaceId, match, actionTag);
         logger.info("Rule registered for workspace {}: '{}' -> tag '{}' (id={})", workspaceId, match, actionTag, def.id());
 
-        ObjectNode result = om.createObjectNode();
-        result.put("workspaceId", workspaceId);
-        result.set("rule", def.toJson(om));
-        result.put("ruleCount", RuleStore.ruleCount(workspaceId));
-        return HttpResponse.ok(result.toString(), "application/json");
+        RuleAdded result = new RuleAdded(workspaceId, def, RuleStore.ruleCount(workspaceId));
+        return HttpResponse.ok(ADDED_WRITER.writeValueAsString(result), "application/json");
     }
 
     private String resolveWorkspaceId(HttpServletRequest request) {
@@ -98,7 +90,16 @@ public class RulesController implements RequestHandler {
             String line;
             while ((line = br.readLine()) != null) sb.append(line);
         }
-        return om.readTree(sb.toString());
+        return JsonCodec.readTree(sb.toString());
+    }
+
+    private record RuleList(String workspaceId, List<RuleStore.RuleDefinition> rules) {
+    }
+
+    private record RuleAdded(String workspaceId, RuleStore.RuleDefinition rule, int ruleCount) {
+    }
+
+    private record RuleDeleted(String workspaceId, String deletedId, int ruleCount) {
     }
 
     private static String text(JsonNode n, String f) {
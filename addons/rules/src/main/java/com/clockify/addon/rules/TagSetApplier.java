@@ -0,0 +1,380 @@
+package com.clockify.addon.rules;
+
+import com.clockify.addon.sdk.http.OutboundCallGuard;
+import com.clockify.addon.sdk.http.WorkspaceQuotaScheduler;
+import com.clockify.addon.sdk.security.TokenStore;
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies the full set of tags matched for one time entry in a single write.
+ *
+ * <p>Tag names are de-duplicated case-insensitively, resolved to ids with one paginated workspace
+ * tag listing (creating only the names that do not exist yet), merged with the tags the entry
+ * carries when it is re-read just before the write, and written back with one
+ * {@code PUT /time-entries/{id}}. The PUT body is built from that fresh read, never from the
+ * webhook's snapshot, so edits made since the event are kept. When the entry already has every
+ * requested tag no request is sent at all.</p>
+ *
+ * <p>The name-to-id listing is cached per workspace for {@link #TAG_CACHE_TTL}, so a burst of
+ * events pages through the workspace tags once. Creating a tag, or a 400/409 from the API (a tag
+ * created or deleted elsewhere), drops the workspace's cached listing; a write refused that way
+ * while using cached ids is retried once against a fresh listing.</p>
+ *
+ * <p>Requests are paced per workspace by the shared {@link WorkspaceQuotaScheduler}.</p>
+ */
+final class TagSetApplier {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final int MAX_ATTEMPTS = 3;
+    static final int TAG_PAGE_SIZE = 500;
+    static final Duration TAG_CACHE_TTL = Duration.ofSeconds(60);
+    private static final int MAX_CACHED_WORKSPACES = 1_000;
+
+    private final Transport transport;
+    private final Map<String, CachedTags> tagCache = new ConcurrentHashMap<>();
+
+    private record CachedTags(Map<String, String> byName, long expiresAtNanos) {
+        boolean fresh(long now) {
+            return now - expiresAtNanos < 0;
+        }
+    }
+
+    @FunctionalInterface
+    interface Transport {
+        HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException;
+    }
+
+    TagSetApplier(HttpClient httpClient) {
+        this(paced(httpClient, WorkspaceQuotaScheduler.shared()));
+    }
+
+    TagSetApplier(Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Sends through the workspace's API quota (the tag write ahead of lookups) and the host's
+     * call guard. A 429 pauses the whole workspace for its {@code Retry-After} before the
+     * request is tried again.
+     */
+    static Transport paced(HttpClient httpClient, WorkspaceQuotaScheduler quota) {
+        return request -> {
+            String workspaceId = WorkspaceQuotaScheduler.workspaceOf(request.uri());
+            WorkspaceQuotaScheduler.Priority priority = WorkspaceQuotaScheduler.Priority.of(request.method());
+            for (int attempt = 1; ; attempt++) {
+                quota.acquire(workspaceId, priority);
+                HttpResponse<String> resp = OutboundCallGuard.forUri(request.uri())
+                        .execute(() -> httpClient.send(request, HttpResponse.BodyHandlers.ofString()));
+                if (resp.statusCode() != 429 || attempt >= MAX_ATTEMPTS || workspaceId == null || !quota.enabled()) {
+                    return resp;
+                }
+                quota.throttled(workspaceId, retryAfter(resp));
+            }
+        };
+    }
+
+    private static Duration retryAfter(HttpResponse<?> resp) {
+        try {
+            return Duration.ofSeconds(Long.parseLong(resp.headers().firstValue("Retry-After").orElse("1").trim()));
+        } catch (NumberFormatException e) {
+            return Duration.ofSeconds(1);
+        }
+    }
+
+    /**
+     * @param added   tags newly attached by this call
+     * @param present tags the entry already carried
+     * @param writes  number of time-entry writes issued (0 or 1)
+     * @param error   failure description, or {@code null} on success
+     * @param status  HTTP status of the API call that failed, or 0 when no call was refused
+     */
+    record Result(List<String> added, List<String> present, int writes, String error, int status) {
+        Result(List<String> added, List<String> present, int writes, String error) {
+            this(added, present, writes, error, 0);
+        }
+
+        boolean ok() {
+            return error == null;
+        }
+
+        /** The API refused a request (a 4xx other than 429), so sending it again will not help. */
+        boolean rejected() {
+            return status >= 400 && status < 500 && status != 429;
+        }
+
+        List<String> tags() {
+            List<String> all = new ArrayList<>(added);
+            all.addAll(present);
+            return all;
+        }
+    }
+
+    /**
+     * Collapses tag names to a case-insensitive set, keeping the first spelling seen.
+     */
+    static List<String> distinct(Collection<String> tagNames) {
+        Map<String, String> byKey = new LinkedHashMap<>();
+        for (String name : tagNames) {
+            if (name == null || name.isBlank()) {
+                continue;
+            }
+            String trimmed = name.trim();
+            byKey.putIfAbsent(key(trimmed), trimmed);
+        }
+        return new ArrayList<>(byKey.values());
+    }
+
+    Result apply(String workspaceId, JsonNode timeEntry, Collection<String> tagNames,
+                 TokenStore.WorkspaceToken token) {
+        List<String> wanted = distinct(tagNames);
+        String workspaceBase = token.apiBaseUrl() + "/workspaces/" + workspaceId;
+
+        // Entries in webhook payloads carry tag names alongside ids; skip the API entirely when
+        // every requested tag is already there.
+        Map<String, String> entryTagNames = new HashMap<>();
+        for (JsonNode t : timeEntry.path("tags")) {
+            String name = t.path("name").asText(null);
+            if (name != null) {
+                entryTagNames.put(key(name), t.path("id").asText(""));
+            }
+        }
+        List<String> present = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (String name : wanted) {
+            (entryTagNames.containsKey(key(name)) ? present : missing).add(name);
+        }
+        if (missing.isEmpty()) {
+            return new Result(List.of(), present, 0, null);
+        }
+
+        try {
+            try {
+                return write(workspaceBase, timeEntry, entryTagNames, missing, present, token, true);
+            } catch (StaleTagsException e) {
+                return write(workspaceBase, timeEntry, entryTagNames, missing, present, token, false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(List.of(), present, 0, "interrupted");
+        } catch (ApiStatusException e) {
+            return new Result(List.of(), present, 0, e.getMessage(), e.status);
+        } catch (Exception e) {
+            return new Result(List.of(), present, 0, e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves {@code missing} to ids, re-reads the entry and writes the merged tag set.
+     *
+     * @throws StaleTagsException if the write was refused with 400/409 while using cached tag ids
+     */
+    private Result write(String workspaceBase, JsonNode timeEntry, Map<String, String> entryTagNames,
+                         List<String> missing, List<String> alreadyPresent, TokenStore.WorkspaceToken token,
+                         boolean useCache) throws Exception {
+        List<String> present = new ArrayList<>(alreadyPresent);
+        String timeEntryId = timeEntry.path("id").asText("");
+        Map<String, String> workspaceTags = useCache ? cachedTags(workspaceBase) : null;
+        boolean cached = workspaceTags != null;
+        if (!cached) {
+            workspaceTags = listTags(workspaceBase, token);
+        }
+        Set<String> entryTagIds = new LinkedHashSet<>();
+        timeEntry.path("tagIds").forEach(id -> entryTagIds.add(id.asText()));
+        entryTagNames.values().stream().filter(id -> !id.isEmpty()).forEach(entryTagIds::add);
+
+        Map<String, String> resolved = new LinkedHashMap<>();
+        for (String name : missing) {
+            String id = workspaceTags.get(key(name));
+            if (id == null) {
+                id = createTag(workspaceBase, name, token);
+            }
+            if (entryTagIds.contains(id)) {
+                present.add(name);
+            } else {
+                resolved.put(name, id);
+            }
+        }
+        if (resolved.isEmpty()) {
+            return new Result(List.of(), present, 0, null);
+        }
+
+        JsonNode current = readEntry(workspaceBase, timeEntryId, token);
+        Set<String> merged = new LinkedHashSet<>();
+        current.path("tagIds").forEach(id -> merged.add(id.asText()));
+        List<String> added = new ArrayList<>();
+        resolved.forEach((name, id) -> (merged.add(id) ? added : present).add(name));
+        if (added.isEmpty()) {
+            return new Result(List.of(), present, 0, null);
+        }
+
+        ObjectNode update = updateBody(current);
+        ArrayNode ids = update.putArray("tagIds");
+        merged.forEach(ids::add);
+        HttpResponse<String> resp = transport.send(request(workspaceBase + "/time-entries/" + timeEntryId, token)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(update.toString()))
+                .build());
+        if (!success(resp)) {
+            if (conflict(resp)) {
+                tagCache.remove(workspaceBase);
+                if (cached) {
+                    throw new StaleTagsException();
+                }
+            }
+            return new Result(List.of(), present, 1, "Clockify API status " + resp.statusCode(), resp.statusCode());
+        }
+        return new Result(added, present, 1, null);
+    }
+
+    /** The workspace's cached tag listing, or {@code null} when absent or expired. */
+    private Map<String, String> cachedTags(String workspaceBase) {
+        CachedTags cached = tagCache.get(workspaceBase);
+        return cached != null && cached.fresh(System.nanoTime()) ? cached.byName() : null;
+    }
+
+    /** Every workspace tag by normalised name, reading pages until a short one. */
+    private Map<String, String> listTags(String workspaceBase, TokenStore.WorkspaceToken token) throws Exception {
+        Map<String, String> byName = new HashMap<>();
+        for (int page = 1; ; page++) {
+            HttpResponse<String> resp = transport.send(request(workspaceBase + "/tags?page=" + page
+                    + "&page-size=" + TAG_PAGE_SIZE, token).GET().build());
+            if (!success(resp)) {
+                throw new ApiStatusException(resp.statusCode(), "listing tags");
+            }
+            JsonNode tags = JsonCodec.readTree(resp.body());
+            for (JsonNode t : tags) {
+                String name = t.path("name").asText(null);
+                String id = t.path("id").asText(null);
+                if (name != null && id != null) {
+                    byName.putIfAbsent(key(name), id);
+                }
+            }
+            if (tags.size() < TAG_PAGE_SIZE) {
+                long now = System.nanoTime();
+                if (tagCache.size() >= MAX_CACHED_WORKSPACES) {
+                    tagCache.values().removeIf(c -> !c.fresh(now));
+                }
+                tagCache.put(workspaceBase, new CachedTags(Map.copyOf(byName), now + TAG_CACHE_TTL.toNanos()));
+                return byName;
+            }
+        }
+    }
+
+    private String createTag(String workspaceBase, String name, TokenStore.WorkspaceToken token) throws Exception {
+        ObjectNode body = JsonCodec.object().put("name", name);
+        HttpResponse<String> resp = transport.send(request(workspaceBase + "/tags", token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build());
+        tagCache.remove(workspaceBase);
+        String id = success(resp) ? JsonCodec.readTree(resp.body()).path("id").asText(null) : null;
+        if (!success(resp) && conflict(resp)) {
+            // Most likely created concurrently since the listing; use that tag if it exists now.
+            id = listTags(workspaceBase, token).get(key(name));
+        }
+        if (id == null || id.isBlank()) {
+            throw new ApiStatusException(resp.statusCode(), "creating tag " + name);
+        }
+        return id;
+    }
+
+    private JsonNode readEntry(String workspaceBase, String timeEntryId, TokenStore.WorkspaceToken token)
+            throws Exception {
+        HttpResponse<String> resp = transport.send(request(workspaceBase + "/time-entries/" + timeEntryId, token)
+                .GET().build());
+        if (!success(resp)) {
+            throw new ApiStatusException(resp.statusCode(), "reading time entry");
+        }
+        return JsonCodec.readTree(resp.body());
+    }
+
+    /**
+     * The PUT body for {@code source}, the entry as just read from the API. The GET returns custom
+     * fields as {@code customFieldValues} (with names and entry ids) while the PUT takes
+     * {@code customFields} of {@code customFieldId}/{@code value} pairs.
+     */
+    private ObjectNode updateBody(JsonNode source) {
+        ObjectNode body = JsonCodec.object();
+        JsonNode interval = source.path("timeInterval");
+        copy(source.has("start") ? source : interval, "start", body);
+        copy(source.has("end") ? source : interval, "end", body);
+        for (String field : List.of("description", "projectId", "taskId", "billable")) {
+            copy(source, field, body);
+        }
+        JsonNode values = source.path("customFieldValues");
+        if (values.isArray() && !values.isEmpty()) {
+            ArrayNode customFields = body.putArray("customFields");
+            for (JsonNode v : values) {
+                String fieldId = v.path("customFieldId").asText(null);
+                if (fieldId != null) {
+                    customFields.addObject().put("customFieldId", fieldId).set("value", v.get("value"));
+                }
+            }
+        } else {
+            copy(source, "customFields", body);
+        }
+        return body;
+    }
+
+    private static void copy(JsonNode from, String field, ObjectNode to) {
+        JsonNode v = from.get(field);
+        if (v != null && !v.isNull()) {
+            to.set(field, v);
+        }
+    }
+
+    private static HttpRequest.Builder request(String url, TokenStore.WorkspaceToken token) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(TIMEOUT)
+                .header("Accept", "application/json")
+                .header("Authorization", "Bearer " + token.token());
+    }
+
+    private static boolean success(HttpResponse<?> resp) {
+        return resp.statusCode() >= 200 && resp.statusCode() < 300;
+    }
+
+    private static boolean conflict(HttpResponse<?> resp) {
+        return resp.statusCode() == 400 || resp.statusCode() == 409;
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** A write refused with 400/409 while using cached tag ids; retried against a fresh listing. */
+    private static final class StaleTagsException extends Exception {
+        StaleTagsException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /** A non-2xx answer from the API, keeping its status for {@link Result#status()}. */
+    private static final class ApiStatusException extends IOException {
+        final int status;
+
+        ApiStatusException(int status, String action) {
+            super("Clockify API status " + status + " " + action);
+            this.status = status;
+        }
+    }
+}
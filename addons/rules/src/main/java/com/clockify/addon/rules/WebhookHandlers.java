@@ -3,10 +3,15 @@ package com.clockify.addon.rules;
 import com.clockify.addon.sdk.ClockifyAddon;
 import com.clockify.addon.sdk.HttpResponse;
 import com.clockify.addon.sdk.metrics.MetricsHandler;
+import com.clockify.addon.sdk.outbox.OutboxStore;
+import com.clockify.addon.sdk.outbox.OutboxWorker;
 import com.clockify.addon.sdk.security.TokenStore;
 import com.clockify.addon.sdk.security.WebhookSignatureValidator;
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.clockify.addon.sdk.webhook.OrderingKey;
+import com.clockify.addon.sdk.webhook.WebhookInbox;
+import com.clockify.addon.sdk.webhook.WebhookInboxConsumer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.servlet.http.HttpServletRequest;
@@ -14,10 +19,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
-import java.net.URI;
+import java.io.IOException;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -26,16 +29,41 @@ import io.micrometer.core.instrument.Counter;
 
 public class WebhookHandlers {
     private static final Logger logger = LoggerFactory.getLogger(WebhookHandlers.class);
-    private static final ObjectMapper om = new ObjectMapper();
     private static final HttpClient httpClient = HttpClient.newHttpClient();
+    private static final TagSetApplier tagSetApplier = new TagSetApplier(httpClient);
     private static final Counter webhookReceived = Counter.builder("rules_webhook_received_total").register(MetricsHandler.registry());
     private static final Counter webhookApplied = Counter.builder("rules_webhook_applied_total").register(MetricsHandler.registry());
     private static final Counter webhookDryRun = Counter.builder("rules_webhook_dry_run_total").register(MetricsHandler.registry());
     private static final Counter webhookErrors = Counter.builder("rules_webhook_error_total").register(MetricsHandler.registry());
+    static final String APPLY_TAGS = "rules.apply-tags";
+    private static final String ACTION_FAILED = "action-failed";
+    // Set when an outbox is configured: tag writes are queued and sent in the background.
+    private static volatile OutboxWorker outbox;
 
     public static void register(ClockifyAddon addon, boolean applyChanges) {
         String addonKey = addon.getManifest().getKey();
-        addon.registerWebhookHandler("TIME_ENTRY_UPDATED", req -> handle(req, applyChanges, addonKey));
+        if (applyChanges && outbox == null) {
+            OutboxWorker.fromEnvironment().ifPresent(worker -> {
+                worker.register(APPLY_TAGS, WebhookHandlers::deliverTags).start();
+                outbox = worker;
+            });
+        }
+        Optional<WebhookInbox> inbox = WebhookInbox.fromEnvironment();
+        if (inbox.isEmpty()) {
+            addon.registerWebhookHandler("TIME_ENTRY_UPDATED", OrderingKey.byEntity(), req -> handle(req, applyChanges, addonKey));
+            return;
+        }
+        // Durable inbox: acknowledge once the event is on disk, apply rules in the background.
+        WebhookInboxConsumer consumer = new WebhookInboxConsumer(inbox.get());
+        WebhookInbox.deadLettersFromEnvironment().ifPresent(consumer::deadLetterTo);
+        addon.registerWebhookHandler("TIME_ENTRY_UPDATED", consumer.handler("TIME_ENTRY_UPDATED", OrderingKey.byEntity(),
+                (req, payload) -> WebhookSignatureValidator.verify(req, text(payload, "workspaceId"), addonKey),
+                (entry, payload) -> processQueued(payload, applyChanges)));
+        try {
+            consumer.start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot replay webhook inbox", e);
+        }
     }
 
     private static HttpResponse handle(HttpServletRequest req, boolean applyChanges, String addonKey) throws Exception {
@@ -45,48 +73,84 @@ public class WebhookHandlers {
         if (!sig.isValid()) {
             return sig.response();
         }
+        return process(payload, applyChanges);
+    }
+
+    /**
+     * Inbox processor: runs {@link #process} and throws when it did not succeed, so the consumer
+     * retries the event (or dead-letters it) instead of marking it done.
+     */
+    static void processQueued(JsonNode payload, boolean applyChanges) throws Exception {
+        ObjectNode result = evaluate(payload, applyChanges);
+        if (ACTION_FAILED.equals(result.path("status").asText())) {
+            throw new IllegalStateException("Rule actions failed: " + result.path("errors"));
+        }
+    }
+
+    private static HttpResponse process(JsonNode payload, boolean applyChanges) {
+        try {
+            return HttpResponse.ok(evaluate(payload, applyChanges).toString(), "application/json");
+        } catch (WebhookInboxConsumer.PermanentFailure e) {
+            ObjectNode error = JsonCodec.object();
+            error.put("error", e.getMessage());
+            return HttpResponse.error(400, error.toString(), "application/json");
+        }
+    }
+
+    /** Applies the workspace's rules; the result's {@code status} is {@value #ACTION_FAILED} when an action failed. */
+    private static ObjectNode evaluate(JsonNode payload, boolean applyChanges) throws WebhookInboxConsumer.PermanentFailure {
         webhookReceived.increment();
+        String workspaceId = text(payload, "workspaceId");
 
         JsonNode timeEntry = payload.path("timeEntry");
         String description = text(timeEntry, "description");
         String timeEntryId = text(timeEntry, "id");
         if (workspaceId == null || workspaceId.isBlank() || timeEntryId == null || timeEntryId.isBlank()) {
-            return HttpResponse.error(400, "{\"error\":\"workspaceId and timeEntry.id are required\"}", "application/json");
+            throw new WebhookInboxConsumer.PermanentFailure("workspaceId and timeEntry.id are required");
         }
 
         List<RuleStore.RuleDefinition> rules = RuleStore.getRules(workspaceId);
         if (rules.isEmpty()) {
-            return HttpResponse.ok("{\"status\":\"no-rules\",\"workspaceId\":\"" + workspaceId + "\",\"timeEntryId\":\"" + timeEntryId + "\"}", "application/json");
+            ObjectNode response = JsonCodec.object();
+            response.put("status", "no-rules");
+            response.put("workspaceId", workspaceId);
+            response.put("timeEntryId", timeEntryId);
+            return response;
         }
-        List<String> appliedTags = new ArrayList<>();
-        List<String> errors = new ArrayList<>();
-        boolean attempted = false;
+        List<String> matchedTags = new ArrayList<>();
         for (RuleStore.RuleDefinition rule : rules) {
             if (matches(description, rule.matchText())) {
-                attempted = true;
-                ActionResult result = applyTag(workspaceId, timeEntryId, rule.tag(), applyChanges);
-                if (result.applied()) {
-                    appliedTags.add(rule.tag());
-                } else {
-                    logger.warn("Rule action failed for workspace {} entry {}: {}", workspaceId, timeEntryId, result.message());
-                    if (result.message() != null && !result.message().isBlank()) {
-                        errors.add(result.message());
-                    }
+                matchedTags.add(rule.tag());
+            }
+        }
+        boolean attempted = !matchedTags.isEmpty();
+        boolean queued = false;
+        List<String> appliedTags = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        if (attempted) {
+            ActionResult result = applyTags(workspaceId, timeEntry, matchedTags, applyChanges);
+            queued = result.queued();
+            if (result.applied()) {
+                appliedTags.addAll(result.tags());
+            } else {
+                logger.warn("Rule action failed for workspace {} entry {}: {}", workspaceId, timeEntryId, result.message());
+                if (result.message() != null && !result.message().isBlank()) {
+                    errors.add(result.message());
                 }
             }
         }
 
-        ObjectNode response = om.createObjectNode();
+        ObjectNode response = JsonCodec.object();
         response.put("workspaceId", workspaceId);
         response.put("timeEntryId", timeEntryId);
         response.put("applyChanges", applyChanges);
         response.put("matchedRules", appliedTags.size());
-        ArrayNode tagsNode = om.createArrayNode();
+        ArrayNode tagsNode = JsonCodec.array();
         appliedTags.forEach(tagsNode::add);
         response.set("appliedTags", tagsNode);
         if (!errors.isEmpty()) {
-            response.put("status", "action-failed");
-            response.set("errors", om.valueToTree(errors));
+            response.put("status", ACTION_FAILED);
+            response.set("errors", JsonCodec.tree(errors));
             webhookErrors.increment(errors.size());
         } else if (appliedTags.isEmpty()) {
             response.put("status", rules.isEmpty() ? "no-rules" : attempted ? "no-op" : "no-match");
@@ -94,14 +158,14 @@ public class WebhookHandlers {
                 webhookDryRun.increment();
             }
         } else {
-            response.put("status", "actions-triggered");
+            response.put("status", queued ? "actions-queued" : "actions-triggered");
             if (applyChanges) {
                 webhookApplied.increment(appliedTags.size());
             } else {
                 webhookDryRun.increment(appliedTags.size());
             }
         }
-        return HttpResponse.ok(response.toString(), "application/json");
+        return response;
     }
 
     private static boolean matches(String description, String matchText) {
@@ -109,39 +173,64 @@ public class WebhookHandlers {
                 && description.toLowerCase(Locale.ROOT).contains(matchText.toLowerCase(Locale.ROOT));
     }
 
-    private static ActionResult applyTag(String workspaceId, String timeEntryId, String tagName, boolean applyChanges) {
+    private static ActionResult applyTags(String workspaceId, JsonNode timeEntry, List<String> tagNames, boolean applyChanges) {
+        List<String> tags = TagSetApplier.distinct(tagNames);
+        String timeEntryId = text(timeEntry, "id");
         if (!applyChanges) {
-            logger.info("Dry-run: would apply tag '{}' to time entry {} in workspace {}", tagName, timeEntryId, workspaceId);
-            return new ActionResult(true, null);
+            logger.info("Dry-run: would apply tags {} to time entry {} in workspace {}", tags, timeEntryId, workspaceId);
+            return new ActionResult(true, null, tags, false);
         }
         Optional<TokenStore.WorkspaceToken> tokenOpt = TokenStore.get(workspaceId);
         if (tokenOpt.isEmpty()) {
-            return new ActionResult(false, "installation token missing");
-        }
-        TokenStore.WorkspaceToken token = tokenOpt.get();
-        String target = token.apiBaseUrl()
-                + "/workspaces/" + workspaceId
-                + "/time-entries/" + timeEntryId
-                + "/tags";
-        ObjectNode body = om.createObjectNode();
-        body.put("name", tagName);
-
-        HttpRequest request = HttpRequest.newBuilder(URI.create(target))
-                .timeout(Duration.ofSeconds(5))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + token.token())
-                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
-                .build();
-        try {
-            java.net.http.HttpResponse<String> apiResponse = httpClient.send(request, java.net.http.HttpResponse.BodyHandlers.ofString());
-            if (apiResponse.statusCode() >= 200 && apiResponse.statusCode() < 300) {
-                logger.info("Applied tag '{}' to time entry {} in workspace {}", tagName, timeEntryId, workspaceId);
-                return new ActionResult(true, null);
+            return new ActionResult(false, "installation token missing", List.of(), false);
+        }
+        OutboxWorker worker = outbox;
+        if (worker != null) {
+            ObjectNode job = JsonCodec.object();
+            job.put("workspaceId", workspaceId);
+            job.set("timeEntry", timeEntry);
+            job.set("tags", JsonCodec.tree(tags));
+            try {
+                worker.enqueue(workspaceId, APPLY_TAGS, job.toString());
+                return new ActionResult(true, null, tags, true);
+            } catch (OutboxStore.OutboxStoreException e) {
+                logger.warn("Could not queue tags {} for workspace {}, applying inline: {}", tags, workspaceId, e.getMessage());
             }
-            return new ActionResult(false, "Clockify API status " + apiResponse.statusCode());
-        } catch (Exception e) {
-            logger.warn("Failed to apply tag '{}' for workspace {}: {}", tagName, workspaceId, e.getMessage());
-            return new ActionResult(false, e.getMessage());
+        }
+        TagSetApplier.Result result = tagSetApplier.apply(workspaceId, timeEntry, tags, tokenOpt.get());
+        if (!result.ok()) {
+            logger.warn("Failed to apply tags {} for workspace {}: {}", tags, workspaceId, result.error());
+            return new ActionResult(false, result.error(), List.of(), false);
+        }
+        if (!result.added().isEmpty()) {
+            logger.info("Applied tags {} to time entry {} in workspace {}", result.added(), timeEntryId, workspaceId);
+        }
+        return new ActionResult(true, null, result.tags(), false);
+    }
+
+    /**
+     * Outbox handler for {@link #APPLY_TAGS}: applies the queued tags, throwing so failures are retried.
+     * A request the API refuses with a 4xx is dead-lettered instead.
+     */
+    private static void deliverTags(OutboxStore.Entry entry) throws Exception {
+        JsonNode job = JsonCodec.readTree(entry.payload());
+        String workspaceId = text(job, "workspaceId");
+        Optional<TokenStore.WorkspaceToken> tokenOpt = TokenStore.get(workspaceId);
+        if (tokenOpt.isEmpty()) {
+            throw new OutboxWorker.PermanentFailure("installation token missing for workspace " + workspaceId);
+        }
+        List<String> tags = new ArrayList<>();
+        job.path("tags").forEach(t -> tags.add(t.asText()));
+        TagSetApplier.Result result = tagSetApplier.apply(workspaceId, job.path("timeEntry"), tags, tokenOpt.get());
+        if (result.rejected()) {
+            throw new OutboxWorker.PermanentFailure(result.error());
+        }
+        if (!result.ok()) {
+            throw new IllegalStateException(result.error());
+        }
+        if (!result.added().isEmpty()) {
+            logger.info("Applied queued tags {} to time entry {} in workspace {}", result.added(),
+                    text(job.path("timeEntry"), "id"), workspaceId);
         }
     }
 
@@ -151,7 +240,7 @@ public class WebhookHandlers {
             return json;
         }
         String raw = rawBody(r);
-        JsonNode parsed = om.readTree(raw);
+        JsonNode parsed = JsonCodec.readTree(raw);
         r.setAttribute("clockify.jsonBody", parsed);
         return parsed;
     }
@@ -175,6 +264,6 @@ public class WebhookHandlers {
         return n != null && n.has(f) && !n.get(f).isNull() ? n.get(f).asText(null) : null;
     }
 
-    private record ActionResult(boolean applied, String message) {
+    private record ActionResult(boolean applied, String message, List<String> tags, boolean queued) {
     }
 }
@@ -0,0 +1,277 @@
+package com.clockify.addon.rules;
+
+import com.clockify.addon.sdk.security.TokenStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TagSetApplierTest {
+    private static final ObjectMapper om = new ObjectMapper();
+    private static final TokenStore.WorkspaceToken TOKEN =
+            new TokenStore.WorkspaceToken("tok", "https://api.test/api/v1", 0L, 0L, 0L);
+
+    private final List<String> calls = new ArrayList<>();
+    private final List<String> bodies = new ArrayList<>();
+    private String currentEntry = "{\"id\":\"te1\",\"timeInterval\":{\"start\":\"2025-01-01T09:00:00Z\"}}";
+
+    private TagSetApplier applier(String... tagPages) {
+        return new TagSetApplier(request -> {
+            calls.add(request.method() + " " + request.uri().getPath());
+            bodies.add(body(request));
+            String path = request.uri().getPath();
+            if (request.method().equals("GET") && path.endsWith("/tags")) {
+                int page = Integer.parseInt(request.uri().getQuery().replaceAll(".*page=(\\d+).*", "$1"));
+                return response(200, page <= tagPages.length ? tagPages[page - 1] : "[]");
+            }
+            if (request.method().equals("GET")) {
+                return response(200, currentEntry);
+            }
+            if (path.endsWith("/tags")) {
+                return response(201, "{\"id\":\"new-tag\",\"name\":\"created\"}");
+            }
+            return response(200, "{}");
+        });
+    }
+
+    @Test
+    void distinctCollapsesCaseAndWhitespace() {
+        assertEquals(List.of("Billable", "urgent"),
+                TagSetApplier.distinct(List.of("Billable", " billable ", "urgent", "URGENT", "")));
+    }
+
+    @Test
+    void manyMatchedTagsResultInOneListingAndOneWrite() throws Exception {
+        currentEntry = "{\"id\":\"te1\",\"description\":\"d\",\"projectId\":\"p1\","
+                + "\"timeInterval\":{\"start\":\"2025-01-01T09:00:00Z\",\"end\":\"2025-01-01T10:00:00Z\"},"
+                + "\"tagIds\":[\"t0\"]}";
+        JsonNode entry = om.readTree(currentEntry);
+        TagSetApplier applier = applier("[{\"id\":\"t1\",\"name\":\"Billable\"},{\"id\":\"t2\",\"name\":\"Urgent\"}]");
+
+        TagSetApplier.Result result = applier.apply("ws1", entry,
+                List.of("billable", "urgent", "Billable", "urgent"), TOKEN);
+
+        assertTrue(result.ok());
+        assertEquals(List.of("billable", "urgent"), result.added());
+        assertEquals(1, result.writes());
+        assertEquals(List.of("GET /api/v1/workspaces/ws1/tags", "GET /api/v1/workspaces/ws1/time-entries/te1",
+                "PUT /api/v1/workspaces/ws1/time-entries/te1"), calls);
+        JsonNode put = om.readTree(bodies.get(2));
+        assertEquals("[\"t0\",\"t1\",\"t2\"]", put.get("tagIds").toString());
+        assertEquals("2025-01-01T09:00:00Z", put.get("start").asText());
+        assertEquals("p1", put.get("projectId").asText());
+    }
+
+    @Test
+    void skipsApiWhenEntryAlreadyCarriesEveryTag() throws Exception {
+        JsonNode entry = om.readTree("{\"id\":\"te1\",\"tags\":[{\"id\":\"t1\",\"name\":\"Billable\"}]}");
+        TagSetApplier.Result result = applier("[]").apply("ws1", entry, List.of("billable"), TOKEN);
+
+        assertTrue(result.ok());
+        assertEquals(List.of("billable"), result.present());
+        assertEquals(0, result.writes());
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    void skipsWriteWhenResolvedIdsAreAlreadyOnEntry() throws Exception {
+        JsonNode entry = om.readTree("{\"id\":\"te1\",\"tagIds\":[\"t1\"]}");
+        TagSetApplier.Result result = applier("[{\"id\":\"t1\",\"name\":\"Billable\"}]")
+                .apply("ws1", entry, List.of("Billable"), TOKEN);
+
+        assertEquals(0, result.writes());
+        assertEquals(List.of("GET /api/v1/workspaces/ws1/tags"), calls);
+    }
+
+    @Test
+    void createsOnlyUnknownTags() throws Exception {
+        JsonNode entry = om.readTree("{\"id\":\"te1\",\"timeInterval\":{\"start\":\"2025-01-01T09:00:00Z\"}}");
+        TagSetApplier.Result result = applier("[{\"id\":\"t1\",\"name\":\"Billable\"}]")
+                .apply("ws1", entry, List.of("Billable", "created"), TOKEN);
+
+        assertTrue(result.ok());
+        assertEquals(List.of("GET /api/v1/workspaces/ws1/tags", "POST /api/v1/workspaces/ws1/tags",
+                "GET /api/v1/workspaces/ws1/time-entries/te1", "PUT /api/v1/workspaces/ws1/time-entries/te1"), calls);
+        assertEquals("[\"t1\",\"new-tag\"]", om.readTree(bodies.get(3)).get("tagIds").toString());
+    }
+
+    @Test
+    void writesOverTheCurrentEntryNotTheWebhookSnapshot() throws Exception {
+        JsonNode snapshot = om.readTree("{\"id\":\"te1\",\"description\":\"old\",\"tagIds\":[\"t0\"],"
+                + "\"timeInterval\":{\"start\":\"2025-01-01T09:00:00Z\"}}");
+        currentEntry = "{\"id\":\"te1\",\"description\":\"edited\",\"tagIds\":[\"t0\",\"t9\"],"
+                + "\"timeInterval\":{\"start\":\"2025-01-01T08:00:00Z\"}}";
+        TagSetApplier.Result result = applier("[{\"id\":\"t1\",\"name\":\"Billable\"}]")
+                .apply("ws1", snapshot, List.of("Billable"), TOKEN);
+
+        assertTrue(result.ok());
+        JsonNode put = om.readTree(bodies.get(2));
+        assertEquals("edited", put.get("description").asText());
+        assertEquals("2025-01-01T08:00:00Z", put.get("start").asText());
+        assertEquals("[\"t0\",\"t9\",\"t1\"]", put.get("tagIds").toString());
+    }
+
+    @Test
+    void findsTagsBeyondTheFirstPage() throws Exception {
+        StringBuilder full = new StringBuilder("[");
+        for (int i = 0; i < TagSetApplier.TAG_PAGE_SIZE; i++) {
+            full.append(i == 0 ? "" : ",").append("{\"id\":\"x").append(i).append("\",\"name\":\"tag ").append(i).append("\"}");
+        }
+        TagSetApplier.Result result = applier(full.append("]").toString(), "[{\"id\":\"t1\",\"name\":\"Billable\"}]")
+                .apply("ws1", om.readTree("{\"id\":\"te1\"}"), List.of("Billable"), TOKEN);
+
+        assertTrue(result.ok());
+        assertEquals(2, calls.stream().filter(c -> c.equals("GET /api/v1/workspaces/ws1/tags")).count());
+        assertTrue(calls.stream().noneMatch(c -> c.startsWith("POST")));
+        assertEquals("[\"t1\"]", om.readTree(bodies.get(bodies.size() - 1)).get("tagIds").toString());
+    }
+
+    @Test
+    void usesTheExistingTagWhenCreateConflicts() throws Exception {
+        List<String> pages = new ArrayList<>(List.of("[]"));
+        TagSetApplier applier = new TagSetApplier(request -> {
+            calls.add(request.method() + " " + request.uri().getPath());
+            bodies.add(body(request));
+            if (request.method().equals("POST")) {
+                pages.set(0, "[{\"id\":\"t7\",\"name\":\"Urgent\"}]");
+                return response(400, "{\"message\":\"Tag with name already exists\"}");
+            }
+            if (request.uri().getPath().endsWith("/tags")) {
+                return response(200, pages.get(0));
+            }
+            return response(200, request.method().equals("GET") ? currentEntry : "{}");
+        });
+
+        TagSetApplier.Result result = applier.apply("ws1", om.readTree("{\"id\":\"te1\"}"), List.of("urgent"), TOKEN);
+
+        assertTrue(result.ok(), result.error());
+        assertEquals("[\"t7\"]", om.readTree(bodies.get(bodies.size() - 1)).get("tagIds").toString());
+    }
+
+    @Test
+    void refusedRequestsAreReportedAsRejectedAndServerErrorsAreNot() throws Exception {
+        JsonNode entry = om.readTree("{\"id\":\"te1\"}");
+        int[] entryStatus = {404};
+        TagSetApplier applier = new TagSetApplier(request -> {
+            if (request.uri().getPath().endsWith("/tags")) {
+                return response(200, "[{\"id\":\"t1\",\"name\":\"Urgent\"}]");
+            }
+            return response(entryStatus[0], request.method().equals("GET") ? currentEntry : "{}");
+        });
+
+        TagSetApplier.Result missing = applier.apply("ws1", entry, List.of("urgent"), TOKEN);
+        entryStatus[0] = 503;
+        TagSetApplier.Result unavailable = applier.apply("ws1", entry, List.of("urgent"), TOKEN);
+
+        assertFalse(missing.ok());
+        assertEquals(404, missing.status());
+        assertTrue(missing.rejected());
+        assertFalse(unavailable.ok());
+        assertFalse(unavailable.rejected());
+    }
+
+    @Test
+    void customFieldValuesFromTheReadAreWrittenBackAsCustomFields() throws Exception {
+        currentEntry = "{\"id\":\"te1\",\"timeInterval\":{\"start\":\"2025-01-01T09:00:00Z\"},"
+                + "\"customFieldValues\":[{\"customFieldId\":\"cf1\",\"timeEntryId\":\"te1\",\"name\":\"Ticket\","
+                + "\"type\":\"TXT\",\"value\":\"ABC-1\"},{\"customFieldId\":\"cf2\",\"value\":3}]}";
+        TagSetApplier.Result result = applier("[{\"id\":\"t1\",\"name\":\"Billable\"}]")
+                .apply("ws1", om.readTree("{\"id\":\"te1\"}"), List.of("Billable"), TOKEN);
+
+        assertTrue(result.ok());
+        JsonNode put = om.readTree(bodies.get(bodies.size() - 1));
+        assertFalse(put.has("customFieldValues"));
+        assertEquals("[{\"customFieldId\":\"cf1\",\"value\":\"ABC-1\"},{\"customFieldId\":\"cf2\",\"value\":3}]",
+                put.get("customFields").toString());
+    }
+
+    @Test
+    void tagListingIsCachedPerWorkspaceUntilATagIsCreated() throws Exception {
+        TagSetApplier applier = applier("[{\"id\":\"t1\",\"name\":\"Billable\"}]");
+
+        applier.apply("ws1", om.readTree("{\"id\":\"te1\"}"), List.of("Billable"), TOKEN);
+        applier.apply("ws1", om.readTree("{\"id\":\"te2\"}"), List.of("Billable"), TOKEN);
+        assertEquals(1, calls.stream().filter(c -> c.equals("GET /api/v1/workspaces/ws1/tags")).count());
+
+        applier.apply("ws2", om.readTree("{\"id\":\"te3\"}"), List.of("Billable"), TOKEN);
+        assertEquals(1, calls.stream().filter(c -> c.equals("GET /api/v1/workspaces/ws2/tags")).count());
+
+        applier.apply("ws1", om.readTree("{\"id\":\"te4\"}"), List.of("created"), TOKEN);
+        applier.apply("ws1", om.readTree("{\"id\":\"te5\"}"), List.of("Billable"), TOKEN);
+        assertEquals(2, calls.stream().filter(c -> c.equals("GET /api/v1/workspaces/ws1/tags")).count(),
+                "creating a tag drops the cached listing");
+    }
+
+    @Test
+    void writeRefusedWithCachedIdsIsRetriedAgainstAFreshListing() throws Exception {
+        String[] tags = {"[{\"id\":\"t1\",\"name\":\"Billable\"}]"};
+        TagSetApplier applier = new TagSetApplier(request -> {
+            calls.add(request.method() + " " + request.uri().getPath());
+            bodies.add(body(request));
+            if (request.uri().getPath().endsWith("/tags")) {
+                return response(200, tags[0]);
+            }
+            if (request.method().equals("PUT")) {
+                return response(body(request).contains("\"t1\"") ? 400 : 200, "{}");
+            }
+            return response(200, currentEntry);
+        });
+        applier.apply("ws1", om.readTree("{\"id\":\"te0\",\"tagIds\":[\"t1\"]}"), List.of("Billable"), TOKEN);
+
+        // Billable was deleted and re-created elsewhere; the cached id is now refused
+        tags[0] = "[{\"id\":\"t2\",\"name\":\"Billable\"}]";
+        TagSetApplier.Result result = applier.apply("ws1", om.readTree("{\"id\":\"te1\"}"), List.of("Billable"), TOKEN);
+
+        assertTrue(result.ok(), result.error());
+        assertEquals(2, calls.stream().filter(c -> c.equals("GET /api/v1/workspaces/ws1/tags")).count());
+        assertEquals("[\"t2\"]", om.readTree(bodies.get(bodies.size() - 1)).get("tagIds").toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<String> response(int status, String body) {
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        when(response.body()).thenReturn(body);
+        return response;
+    }
+
+    private static String body(HttpRequest request) {
+        if (request.bodyPublisher().isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        request.bodyPublisher().get().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                sb.append(StandardCharsets.UTF_8.decode(item));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return sb.toString();
+    }
+}
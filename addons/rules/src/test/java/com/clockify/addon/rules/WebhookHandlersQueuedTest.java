@@ -0,0 +1,41 @@
+package com.clockify.addon.rules;
+
+import com.clockify.addon.sdk.security.TokenStore;
+import com.clockify.addon.sdk.util.JsonCodec;
+import com.clockify.addon.sdk.webhook.WebhookInboxConsumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WebhookHandlersQueuedTest {
+    private static final String WORKSPACE_ID = "ws-queued";
+
+    @AfterEach
+    void cleanup() {
+        TokenStore.clear();
+        RuleStore.getRules(WORKSPACE_ID).forEach(rule -> RuleStore.deleteRule(WORKSPACE_ID, rule.id()));
+    }
+
+    @Test
+    void eventWithoutAnEntryIdIsAPermanentFailure() {
+        assertThrows(WebhookInboxConsumer.PermanentFailure.class, () -> WebhookHandlers.processQueued(
+                JsonCodec.readTree("{\"workspaceId\":\"" + WORKSPACE_ID + "\",\"timeEntry\":{}}"), true));
+    }
+
+    @Test
+    void failedRuleActionIsThrownSoTheInboxRetriesIt() throws Exception {
+        RuleStore.addRule(WORKSPACE_ID, "demo", "Billable");
+
+        // No installation token: the tag cannot be written.
+        assertThrows(IllegalStateException.class, () -> WebhookHandlers.processQueued(JsonCodec.readTree(
+                "{\"workspaceId\":\"" + WORKSPACE_ID + "\",\"timeEntry\":{\"id\":\"te-1\",\"description\":\"demo call\"}}"), true));
+    }
+
+    @Test
+    void eventWithNothingToDoCompletes() {
+        assertDoesNotThrow(() -> WebhookHandlers.processQueued(JsonCodec.readTree(
+                "{\"workspaceId\":\"" + WORKSPACE_ID + "\",\"timeEntry\":{\"id\":\"te-1\",\"description\":\"demo\"}}"), true));
+    }
+}
@@ -0,0 +1,8 @@
+-- Shared token buckets for cluster-wide rate limiting (PostgresRateLimitBackend)
+CREATE TABLE IF NOT EXISTS addon_rate_limits (
+  bucket_key    VARCHAR(512) PRIMARY KEY,
+  tokens        DOUBLE PRECISION NOT NULL,
+  updated_at_ms BIGINT NOT NULL
+);
+-- Idle buckets are purged by updated_at_ms; see PostgresRateLimitBackend
+CREATE INDEX IF NOT EXISTS idx_rate_limits_updated ON addon_rate_limits(updated_at_ms);
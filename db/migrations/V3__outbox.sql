@@ -0,0 +1,25 @@
+-- Outbound mutations waiting to be sent to the Clockify API (PostgresOutboxStore)
+CREATE TABLE IF NOT EXISTS addon_outbox (
+  id                 BIGSERIAL PRIMARY KEY,
+  workspace_id       VARCHAR(255) NOT NULL,
+  kind               VARCHAR(128) NOT NULL,
+  payload            TEXT NOT NULL,
+  attempts           INTEGER NOT NULL DEFAULT 0,
+  next_attempt_at_ms BIGINT NOT NULL DEFAULT 0,
+  claimed_until_ms   BIGINT NOT NULL DEFAULT 0,
+  last_error         TEXT,
+  created_at_ms      BIGINT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS addon_outbox_workspace_idx ON addon_outbox (workspace_id, id);
+
+-- Mutations that will never be sent, kept for inspection
+CREATE TABLE IF NOT EXISTS addon_outbox_dead (
+  id            BIGINT PRIMARY KEY,
+  workspace_id  VARCHAR(255) NOT NULL,
+  kind          VARCHAR(128) NOT NULL,
+  payload       TEXT NOT NULL,
+  attempts      INTEGER NOT NULL,
+  last_error    TEXT,
+  created_at_ms BIGINT NOT NULL,
+  dead_at_ms    BIGINT NOT NULL
+);
@@ -0,0 +1,9 @@
+-- Responses to webhook deliveries, replayed to redeliveries (PostgresIdempotencyStore)
+CREATE TABLE IF NOT EXISTS addon_webhook_deliveries (
+  delivery_key  VARCHAR(128) PRIMARY KEY,
+  status        INTEGER NOT NULL,
+  content_type  VARCHAR(255),
+  body          TEXT,
+  expires_at_ms BIGINT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_webhook_deliveries_expires ON addon_webhook_deliveries(expires_at_ms);